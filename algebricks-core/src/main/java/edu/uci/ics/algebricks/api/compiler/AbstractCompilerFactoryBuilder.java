@@ -33,6 +33,8 @@ import edu.uci.ics.algebricks.api.expr.INullableTypeComputer;
 import edu.uci.ics.algebricks.api.expr.IPartialAggregationTypeComputer;
 import edu.uci.ics.algebricks.compiler.optimizer.base.AbstractRuleController;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizerTraceListener;
+import edu.uci.ics.algebricks.compiler.optimizer.base.LoggingOptimizerTraceListener;
 import edu.uci.ics.algebricks.compiler.optimizer.base.PhysicalOptimizationConfig;
 import edu.uci.ics.algebricks.utils.Pair;
 import edu.uci.ics.hyracks.api.dataflow.value.INullWriterFactory;
@@ -59,6 +61,8 @@ public abstract class AbstractCompilerFactoryBuilder {
     protected PhysicalOptimizationConfig physicalOptimizationConfig = new PhysicalOptimizationConfig();
     protected AlgebricksPartitionConstraint clusterLocations;
     protected int frameSize = -1;
+    protected IOptimizerTraceListener optimizerTraceListener = LoggingOptimizerTraceListener.INSTANCE;
+    protected CompiledJobCache jobCache;
 
     public abstract ICompilerFactory create();
 
@@ -216,4 +220,25 @@ public abstract class AbstractCompilerFactoryBuilder {
         return nullableTypeComputer;
     }
 
+    public void setOptimizerTraceListener(IOptimizerTraceListener optimizerTraceListener) {
+        this.optimizerTraceListener = optimizerTraceListener;
+    }
+
+    public IOptimizerTraceListener getOptimizerTraceListener() {
+        return optimizerTraceListener;
+    }
+
+    /**
+     * @param jobCache
+     *            the cache of the jobs compiled by the compilers, or null to
+     *            always optimize and compile the plans
+     */
+    public void setJobCache(CompiledJobCache jobCache) {
+        this.jobCache = jobCache;
+    }
+
+    public CompiledJobCache getJobCache() {
+        return jobCache;
+    }
+
 }
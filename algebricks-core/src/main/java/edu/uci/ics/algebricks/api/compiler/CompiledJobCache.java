@@ -0,0 +1,75 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.api.compiler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Jobs compiled from plans, keyed by the fingerprints of the plans and
+ * evicted in least recently used order. A compiler that finds the
+ * fingerprint of its plan skips the optimization and rebinds the constants
+ * of the cached job.
+ * The jobs also depend on the metadata provider and on the application
+ * context given to the compiler, so the cache must be cleared when these
+ * change what is compiled for a plan.
+ */
+public class CompiledJobCache {
+
+    private final Map<PlanFingerprint, CompiledJobTemplate> templates;
+    private long hits;
+    private long misses;
+
+    public CompiledJobCache(final int capacity) {
+        templates = new LinkedHashMap<PlanFingerprint, CompiledJobTemplate>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PlanFingerprint, CompiledJobTemplate> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized CompiledJobTemplate get(PlanFingerprint fingerprint) {
+        CompiledJobTemplate template = templates.get(fingerprint);
+        if (template == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return template;
+    }
+
+    public synchronized void put(PlanFingerprint fingerprint, CompiledJobTemplate template) {
+        templates.put(fingerprint, template);
+    }
+
+    public synchronized void clear() {
+        templates.clear();
+    }
+
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.api.compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.config.AlgebricksConfig;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.ConstantEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveConstantEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveType;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+
+/**
+ * An optimized plan and its job, where the {@link ConstantEvalFactory}s and
+ * {@link PrimitiveConstantEvalFactory}s compiled from the parameters of the plan are left unbound. The job is kept
+ * serialized, and each instantiation deserializes a new job with the values
+ * of the parameters of another plan with the same fingerprint.
+ */
+public class CompiledJobTemplate {
+
+    private final ILogicalPlan optimizedPlan;
+    private final byte[] job;
+    private final int nParameters;
+
+    private CompiledJobTemplate(ILogicalPlan optimizedPlan, byte[] job, int nParameters) {
+        this.optimizedPlan = optimizedPlan;
+        this.job = job;
+        this.nParameters = nParameters;
+    }
+
+    /**
+     * @return the plan the job was generated from, with the constants of the
+     *         first plan that had this fingerprint.
+     */
+    public ILogicalPlan getOptimizedPlan() {
+        return optimizedPlan;
+    }
+
+    /**
+     * Makes a template of the job generated from a plan. The template is
+     * only made when each parameter that is still in the optimized plan can
+     * be told apart from the other constants and was compiled into as many
+     * constant evaluators as it has occurrences. This rules out the
+     * plans where the optimizer derived new constants from the parameters.
+     *
+     * @return the template, or null if the job cannot be rebound
+     */
+    public static CompiledJobTemplate create(PlanFingerprint fingerprint, ILogicalPlan optimizedPlan,
+            JobSpecification spec, JobGenContext context) {
+        try {
+            return createTemplate(fingerprint, optimizedPlan, spec, context);
+        } catch (AlgebricksException e) {
+            AlgebricksConfig.ALGEBRICKS_LOGGER.fine("Cannot make a template of the job: " + e);
+            return null;
+        }
+    }
+
+    private static CompiledJobTemplate createTemplate(PlanFingerprint fingerprint, ILogicalPlan optimizedPlan,
+            JobSpecification spec, JobGenContext context) throws AlgebricksException {
+        List<ConstantExpression> parameters = fingerprint.getParameters();
+        List<byte[]> values = compileParameters(parameters, context);
+        if (values == null) {
+            return null;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                if (Arrays.equals(values.get(i), values.get(j))) {
+                    return null;
+                }
+            }
+        }
+        int[] occurrences = new int[parameters.size()];
+        List<ConstantExpression> constants = new ArrayList<ConstantExpression>();
+        PlanFingerprint.collectConstants(optimizedPlan, constants);
+        for (ConstantExpression c : constants) {
+            int n = PlanFingerprint.getParameterNumber(c);
+            if (n >= 0) {
+                occurrences[n]++;
+            } else if (PlanFingerprint.isParameter(c)) {
+                // made by a rule, possibly out of parameters
+                return null;
+            } else {
+                byte[] literal = compileConstant(c, context);
+                if (literal != null && findValue(values, literal) >= 0) {
+                    return null;
+                }
+            }
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int[] bound;
+        try {
+            ParameterExtractingOutputStream out = new ParameterExtractingOutputStream(baos, values);
+            out.writeObject(spec);
+            out.close();
+            bound = out.getBound();
+        } catch (IOException e) {
+            throw new AlgebricksException(e);
+        }
+        if (!Arrays.equals(occurrences, bound)) {
+            return null;
+        }
+        return new CompiledJobTemplate(optimizedPlan, baos.toByteArray(), parameters.size());
+    }
+
+    /**
+     * @return a new job bound to the parameters of fingerprint, or null if
+     *         one of them cannot be compiled into a constant evaluator
+     */
+    public JobSpecification instantiate(PlanFingerprint fingerprint, JobGenContext context)
+            throws AlgebricksException {
+        if (fingerprint.getParameters().size() != nParameters) {
+            throw new AlgebricksException("The plan does not have the parameters of the job template.");
+        }
+        List<byte[]> values;
+        try {
+            values = compileParameters(fingerprint.getParameters(), context);
+        } catch (AlgebricksException e) {
+            AlgebricksConfig.ALGEBRICKS_LOGGER.fine("Cannot compile the parameters of the plan: " + e);
+            return null;
+        }
+        if (values == null) {
+            return null;
+        }
+        try {
+            ParameterBindingInputStream in = new ParameterBindingInputStream(new ByteArrayInputStream(job), values);
+            JobSpecification spec = (JobSpecification) in.readObject();
+            in.close();
+            return spec;
+        } catch (IOException e) {
+            throw new AlgebricksException(e);
+        } catch (ClassNotFoundException e) {
+            throw new AlgebricksException(e);
+        }
+    }
+
+    private static List<byte[]> compileParameters(List<ConstantExpression> parameters, JobGenContext context)
+            throws AlgebricksException {
+        List<byte[]> values = new ArrayList<byte[]>();
+        for (ConstantExpression c : parameters) {
+            byte[] value = compileConstant(c, context);
+            if (value == null) {
+                return null;
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * Compiles a constant out of the context of its operator, which is
+     * enough for the constants of most languages.
+     */
+    private static byte[] compileConstant(ConstantExpression c, JobGenContext context) throws AlgebricksException {
+        IEvaluatorFactory eval = context.getExpressionJobGen().createEvaluatorFactory(c, null, null, context);
+        if (eval instanceof ConstantEvalFactory) {
+            return ((ConstantEvalFactory) eval).getValue();
+        }
+        if (eval instanceof PrimitiveConstantEvalFactory) {
+            return ((PrimitiveConstantEvalFactory) eval).getValue();
+        }
+        return null;
+    }
+
+    private static int findValue(List<byte[]> values, byte[] value) {
+        for (int i = 0; i < values.size(); i++) {
+            if (Arrays.equals(values.get(i), value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static class Parameter implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int number;
+        // the type of a primitive constant, null for a ConstantEvalFactory
+        private final PrimitiveType type;
+
+        public Parameter(int number, PrimitiveType type) {
+            this.number = number;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Writes the constant evaluators holding the value of a parameter as
+     * references to the parameter, and counts them.
+     */
+    private static class ParameterExtractingOutputStream extends ObjectOutputStream {
+
+        private final List<byte[]> values;
+        private final int[] bound;
+
+        public ParameterExtractingOutputStream(OutputStream out, List<byte[]> values) throws IOException {
+            super(out);
+            this.values = values;
+            this.bound = new int[values.size()];
+            enableReplaceObject(true);
+        }
+
+        public int[] getBound() {
+            return bound;
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if (obj instanceof ConstantEvalFactory) {
+                int n = findValue(values, ((ConstantEvalFactory) obj).getValue());
+                if (n >= 0) {
+                    bound[n]++;
+                    return new Parameter(n, null);
+                }
+            } else if (obj instanceof PrimitiveConstantEvalFactory) {
+                PrimitiveConstantEvalFactory pc = (PrimitiveConstantEvalFactory) obj;
+                int n = findValue(values, pc.getValue());
+                if (n >= 0) {
+                    bound[n]++;
+                    return new Parameter(n, pc.getPrimitiveType());
+                }
+            }
+            return obj;
+        }
+    }
+
+    private static class ParameterBindingInputStream extends ObjectInputStream {
+
+        private final List<byte[]> values;
+
+        public ParameterBindingInputStream(InputStream in, List<byte[]> values) throws IOException {
+            super(in);
+            this.values = values;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof Parameter) {
+                Parameter p = (Parameter) obj;
+                byte[] value = values.get(p.number);
+                return p.type == null ? new ConstantEvalFactory(value) : PrimitiveConstantEvalFactory.fromBytes(
+                        p.type, value);
+            }
+            return obj;
+        }
+    }
+}
@@ -73,10 +73,27 @@ public class HeuristicCompilerFactoryBuilder extends AbstractCompilerFactoryBuil
                         nullableTypeComputer, physicalOptimizationConfig);
                 oc.setMetadataDeclarations(metadata);
                 final HeuristicOptimizer opt = new HeuristicOptimizer(plan, logicalRewrites, physicalRewrites, oc);
+                opt.setTraceListener(optimizerTraceListener);
+                final CompiledJobCache cache = jobCache;
                 return new ICompiler() {
 
+                    private PlanFingerprint fingerprint;
+                    private CompiledJobTemplate template;
+
                     @Override
                     public void optimize() throws AlgebricksException {
+                        if (cache != null) {
+                            try {
+                                fingerprint = PlanFingerprint.compute(plan, expressionTypeComputer, metadata);
+                                template = cache.get(fingerprint);
+                            } catch (AlgebricksException e) {
+                                AlgebricksConfig.ALGEBRICKS_LOGGER.fine("Cannot fingerprint the plan: " + e);
+                                fingerprint = null;
+                            }
+                            if (template != null) {
+                                return;
+                            }
+                        }
                         opt.optimize();
                     }
 
@@ -89,8 +106,30 @@ public class HeuristicCompilerFactoryBuilder extends AbstractCompilerFactoryBuil
                                 nullWriterFactory, normalizedKeyComputerFactoryProvider, exprJobGen,
                                 expressionTypeComputer, nullableTypeComputer, oc, expressionEvalSizeComputer,
                                 partialAggregationTypeComputer, frameSize, clusterLocations);
+                        context.setFrameBudget(physicalOptimizationConfig.getMaxFramesPerPartition());
+                        if (template != null) {
+                            JobSpecification spec = template.instantiate(fingerprint, context);
+                            if (spec != null) {
+                                return spec;
+                            }
+                            template = null;
+                            opt.optimize();
+                        }
                         PlanCompiler pc = new PlanCompiler(context);
-                        return pc.compilePlan(plan, null);
+                        JobSpecification spec = pc.compilePlan(plan, null);
+                        if (fingerprint != null) {
+                            CompiledJobTemplate newTemplate = CompiledJobTemplate.create(fingerprint, plan, spec,
+                                    context);
+                            if (newTemplate != null) {
+                                cache.put(fingerprint, newTemplate);
+                            }
+                        }
+                        return spec;
+                    }
+
+                    @Override
+                    public ILogicalPlan getOptimizedPlan() {
+                        return template != null ? template.getOptimizedPlan() : plan;
                     }
                 };
             }
@@ -15,10 +15,17 @@
 package edu.uci.ics.algebricks.api.compiler;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
 import edu.uci.ics.hyracks.api.job.JobSpecification;
 
 public interface ICompiler {
     public void optimize() throws AlgebricksException;
 
     public JobSpecification createJob(Object appContext) throws AlgebricksException;
+
+    /**
+     * @return the plan the job is generated from, which is the plan of a
+     *         cached job when optimize() found one
+     */
+    public ILogicalPlan getOptimizedPlan();
 }
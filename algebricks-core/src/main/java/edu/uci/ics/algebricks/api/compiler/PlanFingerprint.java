@@ -0,0 +1,291 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.api.compiler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.expr.IExpressionTypeComputer;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AbstractFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.IAlgebricksConstantValue;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.IExpressionAnnotation;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IMetadataProvider;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractOperatorWithNestedPlans;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.visitors.IsomorphismUtilities;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.visitors.VariableUtilities;
+import edu.uci.ics.algebricks.compiler.algebra.prettyprint.LogicalOperatorPrettyPrintVisitor;
+import edu.uci.ics.algebricks.compiler.algebra.prettyprint.PlanPrettyPrinter;
+import edu.uci.ics.algebricks.compiler.algebra.visitors.ILogicalExpressionReferenceTransform;
+
+/**
+ * The shape of a logical plan with its constants abstracted into parameters.
+ * Plans that differ only in the values of their constants, and in the
+ * numbering of their variables, have equal fingerprints, provided their
+ * constants have the same types and the same constants are equal in both.
+ * The constants TRUE, FALSE and NULL are part of the shape, since rules
+ * look at them.
+ * The fingerprint renders a deep copy of the plan in which the variables are
+ * renumbered in the order they appear and the parameters are printed as
+ * "?<number>:<type>", followed by the ids of the sinks written to.
+ */
+public class PlanFingerprint {
+
+    /**
+     * The key of the annotation that carries the number of the parameter of
+     * a constant through the optimization of the plan.
+     */
+    public static final String PARAMETER_ANNOTATION_KEY = "parameter";
+
+    private final String shape;
+    private final List<ConstantExpression> parameters;
+
+    private PlanFingerprint(String shape, List<ConstantExpression> parameters) {
+        this.shape = shape;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Computes the fingerprint of the plan and annotates each of its
+     * parameters with its number.
+     */
+    public static PlanFingerprint compute(ILogicalPlan plan, IExpressionTypeComputer typeComputer,
+            IMetadataProvider<?, ?> metadataProvider) throws AlgebricksException {
+        ILogicalPlan copy = IsomorphismUtilities.deepCopy(plan);
+        List<ConstantExpression> constants = new ArrayList<ConstantExpression>();
+        collectConstants(plan, constants);
+        List<ConstantExpression> copiedConstants = new ArrayList<ConstantExpression>();
+        collectConstants(copy, copiedConstants);
+        if (constants.size() != copiedConstants.size()) {
+            throw new AlgebricksException("The copy of the plan does not have the constants of the plan.");
+        }
+        List<ConstantExpression> parameters = new ArrayList<ConstantExpression>();
+        List<String> parameterTypes = new ArrayList<String>();
+        for (int i = 0; i < constants.size(); i++) {
+            ConstantExpression c = constants.get(i);
+            if (!isParameter(c)) {
+                continue;
+            }
+            String type = String.valueOf(typeComputer.getType(c, metadataProvider, null));
+            int n = -1;
+            for (int j = 0; j < parameters.size(); j++) {
+                if (parameters.get(j).equals(c) && parameterTypes.get(j).equals(type)) {
+                    n = j;
+                    break;
+                }
+            }
+            if (n < 0) {
+                n = parameters.size();
+                parameters.add(c);
+                parameterTypes.add(type);
+            }
+            ParameterAnnotation annotation = new ParameterAnnotation();
+            annotation.setObject(n);
+            c.getAnnotations().put(PARAMETER_ANNOTATION_KEY, annotation);
+            copiedConstants.get(i).setValue(new ParameterValue(n, type));
+        }
+        renumberVariables(copy);
+        StringBuilder sb = new StringBuilder();
+        PlanPrettyPrinter.printPlan(copy, sb, new LogicalOperatorPrettyPrintVisitor(), 0);
+        // the printed plan does not tell where the results are written
+        for (ILogicalOperator op : getOperators(copy)) {
+            if (op.getOperatorTag() == LogicalOperatorTag.WRITE) {
+                sb.append("sink ").append(((WriteOperator) op).getDataSink().getId()).append('\n');
+            }
+        }
+        return new PlanFingerprint(sb.toString(), parameters);
+    }
+
+    /**
+     * @return the constants of the plan that were abstracted, in the order
+     *         of their numbers.
+     */
+    public List<ConstantExpression> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the number of the parameter held by c, or -1 if c was not
+     *         abstracted.
+     */
+    public static int getParameterNumber(ConstantExpression c) {
+        IExpressionAnnotation annotation = c.getAnnotations().get(PARAMETER_ANNOTATION_KEY);
+        return annotation == null ? -1 : (Integer) annotation.getObject();
+    }
+
+    /**
+     * @return false for the constants that are kept in the shape of the plan.
+     */
+    public static boolean isParameter(ConstantExpression c) {
+        IAlgebricksConstantValue value = c.getValue();
+        return !value.isTrue() && !value.isFalse() && !value.isNull();
+    }
+
+    /**
+     * Adds the constants of the plan to constants, in a traversal order that
+     * only depends on the shape of the plan.
+     */
+    public static void collectConstants(ILogicalPlan plan, final List<ConstantExpression> constants)
+            throws AlgebricksException {
+        ILogicalExpressionReferenceTransform collector = new ILogicalExpressionReferenceTransform() {
+            @Override
+            public boolean transform(LogicalExpressionReference exprRef) throws AlgebricksException {
+                collectConstants(exprRef.getExpression(), constants);
+                return false;
+            }
+        };
+        for (ILogicalOperator op : getOperators(plan)) {
+            op.acceptExpressionTransform(collector);
+        }
+    }
+
+    private static void collectConstants(ILogicalExpression expr, List<ConstantExpression> constants) {
+        if (expr.getExpressionTag() == LogicalExpressionTag.CONSTANT) {
+            constants.add((ConstantExpression) expr);
+        } else if (expr.getExpressionTag() == LogicalExpressionTag.FUNCTION_CALL) {
+            for (LogicalExpressionReference arg : ((AbstractFunctionCallExpression) expr).getArguments()) {
+                collectConstants(arg.getExpression(), constants);
+            }
+        }
+    }
+
+    private static void renumberVariables(ILogicalPlan plan) throws AlgebricksException {
+        List<ILogicalOperator> ops = getOperators(plan);
+        Map<LogicalVariable, LogicalVariable> renaming = new LinkedHashMap<LogicalVariable, LogicalVariable>();
+        List<LogicalVariable> vars = new ArrayList<LogicalVariable>();
+        for (ILogicalOperator op : ops) {
+            vars.clear();
+            VariableUtilities.getProducedVariables(op, vars);
+            VariableUtilities.getUsedVariables(op, vars);
+            for (LogicalVariable v : vars) {
+                if (!renaming.containsKey(v)) {
+                    // negative ids cannot clash with the ones of the plan
+                    renaming.put(v, new LogicalVariable(-1 - renaming.size()));
+                }
+            }
+        }
+        for (ILogicalOperator op : ops) {
+            for (Map.Entry<LogicalVariable, LogicalVariable> e : renaming.entrySet()) {
+                VariableUtilities.substituteVariables(op, e.getKey(), e.getValue(), false, null);
+            }
+        }
+    }
+
+    private static List<ILogicalOperator> getOperators(ILogicalPlan plan) {
+        List<ILogicalOperator> ops = new ArrayList<ILogicalOperator>();
+        for (LogicalOperatorReference root : plan.getRoots()) {
+            getOperators(root.getOperator(), ops);
+        }
+        return ops;
+    }
+
+    private static void getOperators(ILogicalOperator op, List<ILogicalOperator> ops) {
+        ops.add(op);
+        for (LogicalOperatorReference inp : op.getInputs()) {
+            getOperators(inp.getOperator(), ops);
+        }
+        if (((AbstractLogicalOperator) op).hasNestedPlans()) {
+            for (ILogicalPlan p : ((AbstractOperatorWithNestedPlans) op).getNestedPlans()) {
+                for (LogicalOperatorReference r : p.getRoots()) {
+                    getOperators(r.getOperator(), ops);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof PlanFingerprint)) {
+            return false;
+        }
+        return shape.equals(((PlanFingerprint) obj).shape);
+    }
+
+    @Override
+    public int hashCode() {
+        return shape.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return shape;
+    }
+
+    private static class ParameterAnnotation implements IExpressionAnnotation {
+
+        private Integer number;
+
+        @Override
+        public Object getObject() {
+            return number;
+        }
+
+        @Override
+        public void setObject(Object number) {
+            this.number = (Integer) number;
+        }
+
+        @Override
+        public IExpressionAnnotation copy() {
+            ParameterAnnotation annotation = new ParameterAnnotation();
+            annotation.number = number;
+            return annotation;
+        }
+    }
+
+    private static class ParameterValue implements IAlgebricksConstantValue {
+
+        private final int number;
+        private final String type;
+
+        public ParameterValue(int number, String type) {
+            this.number = number;
+            this.type = type;
+        }
+
+        @Override
+        public boolean isNull() {
+            return false;
+        }
+
+        @Override
+        public boolean isTrue() {
+            return false;
+        }
+
+        @Override
+        public boolean isFalse() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "?" + number + ":" + type;
+        }
+    }
+}
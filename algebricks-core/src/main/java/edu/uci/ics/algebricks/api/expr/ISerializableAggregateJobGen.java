@@ -0,0 +1,34 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.api.expr;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
+
+/**
+ * An expression job generator that can tell, without generating it, whether
+ * an aggregate function has a serializable implementation. Job generators
+ * that do not implement it are asked for the implementation and are expected
+ * to fail when there is none.
+ */
+public interface ISerializableAggregateJobGen extends ILogicalExpressionJobGen {
+
+    /**
+     * @return true if createSerializableAggregateFunctionFactory() returns
+     *         an implementation of expr
+     */
+    public boolean hasSerializableAggregateFunctionFactory(AggregateFunctionCallExpression expr,
+            IVariableTypeEnvironment env) throws AlgebricksException;
+}
@@ -33,6 +33,7 @@ public enum LogicalOperatorTag {
     PARTITIONINGSPLIT,
     REPLICATE,
     RUNNINGAGGREGATE,
+    WINDOWAGGREGATE,
     SCRIPT,
     SELECT,
     SINK,
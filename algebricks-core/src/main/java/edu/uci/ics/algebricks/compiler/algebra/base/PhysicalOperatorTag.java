@@ -9,22 +9,26 @@ public enum PhysicalOperatorTag {
     EMPTY_TUPLE_SOURCE,
     EXTERNAL_GROUP_BY,
     IN_MEMORY_HASH_JOIN,
+    HASH_DISTINCT_BY,
     HASH_GROUP_BY,
     HASH_PARTITION_EXCHANGE,
     HASH_PARTITION_MERGE_EXCHANGE,
     HYBRID_HASH_JOIN,
     HDFS_READER,
     IN_MEMORY_STABLE_SORT,
+    MICRO_HASH_GROUP_BY,
     MICRO_PRE_CLUSTERED_GROUP_BY,
     NESTED_LOOP,
     NESTED_TUPLE_SOURCE,
     ONE_TO_ONE_EXCHANGE,
+    PARTIAL_HASH_GROUP_BY,
     PRE_SORTED_DISTINCT_BY,
     PRE_CLUSTERED_GROUP_BY,
     RANGE_PARTITION_EXCHANGE,
     RANDOM_MERGE_EXCHANGE,
     RTREE_SEARCH,
     RUNNING_AGGREGATE,
+    WINDOW_AGGREGATE,
     SORT_MERGE_EXCHANGE,
     SINK,
     SINK_WRITE,
@@ -36,6 +40,7 @@ public enum PhysicalOperatorTag {
     STREAM_PROJECT,
     STRING_STREAM_SCRIPT,
     SUBPLAN,
+    TOP_K_SORT,
     UNION_ALL,
     UNNEST,
     WRITE_RESULT,
@@ -67,7 +67,7 @@ public class AlgebricksBuiltinFunctions {
         // nulls
         add(IS_NULL);
         for (FunctionIdentifier fi : algebricksBuiltinFunctions.values()) {
-            _finfos.put(fi, new FunctionInfoImpl(fi));
+            _finfos.put(fi, new FunctionInfoImpl(fi, true));
         }
     }
 
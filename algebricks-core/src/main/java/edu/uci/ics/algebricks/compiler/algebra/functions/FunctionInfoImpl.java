@@ -14,12 +14,21 @@
  */
 package edu.uci.ics.algebricks.compiler.algebra.functions;
 
-public class FunctionInfoImpl implements IFunctionInfo {
+public class FunctionInfoImpl implements IFunctionalFunctionInfo {
 
     private final FunctionIdentifier fid;
+    private final boolean isFunctional;
 
+    /**
+     * A function that is not known to be functional.
+     */
     public FunctionInfoImpl(FunctionIdentifier fid) {
+        this(fid, false);
+    }
+
+    public FunctionInfoImpl(FunctionIdentifier fid, boolean isFunctional) {
         this.fid = fid;
+        this.isFunctional = isFunctional;
     }
 
     @Override
@@ -32,4 +41,9 @@ public class FunctionInfoImpl implements IFunctionInfo {
         throw new IllegalStateException();
     }
 
+    @Override
+    public boolean isFunctional() {
+        return isFunctional;
+    }
+
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.functions;
+
+/**
+ * Implemented by the infos of functions that may be known to be functional.
+ * A function whose info does not implement it is taken as not functional.
+ */
+public interface IFunctionalFunctionInfo extends IFunctionInfo {
+    /**
+     * @return true if the function always returns the same value for the
+     *         same arguments and has no side effects, so that two calls with
+     *         the same arguments may be evaluated once.
+     */
+    boolean isFunctional();
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.metadata;
+
+public interface IColumnStatistics {
+    /**
+     * @return the number of distinct non-null values, or -1 if unknown
+     */
+    public long getDistinctCount();
+
+    /**
+     * @return the fraction of the values that are null, or -1 if unknown
+     */
+    public double getNullFraction();
+
+    /**
+     * @return the distribution of the values, or null if unknown
+     */
+    public IHistogram getHistogram();
+}
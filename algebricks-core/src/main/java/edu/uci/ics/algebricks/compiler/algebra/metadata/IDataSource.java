@@ -26,5 +26,10 @@ public interface IDataSource<T> {
 
     public IDataSourcePropertiesProvider getPropertiesProvider();
 
+    /**
+     * @return the statistics of the data, or null if there are none
+     */
+    public IDataSourceStatisticsProvider getStatisticsProvider();
+
     public void computeFDs(List<LogicalVariable> scanVariables, List<FunctionalDependency> fdList);
 }
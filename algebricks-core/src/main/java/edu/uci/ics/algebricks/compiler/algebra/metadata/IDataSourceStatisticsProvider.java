@@ -0,0 +1,38 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.metadata;
+
+/**
+ * Statistics of the data of a data source, used to estimate the cardinality
+ * of the operators of a plan. Every statistic may be unknown.
+ */
+public interface IDataSourceStatisticsProvider {
+    /**
+     * @return the number of tuples of the data source, or -1 if unknown
+     */
+    public long getRowCount();
+
+    /**
+     * @return the average size in bytes of a tuple, or -1 if unknown
+     */
+    public int getAverageTupleSize();
+
+    /**
+     * @param column
+     *            the position of the column in the schema of the data source
+     * @return the statistics of the column, or null if unknown
+     */
+    public IColumnStatistics getColumnStatistics(int column);
+}
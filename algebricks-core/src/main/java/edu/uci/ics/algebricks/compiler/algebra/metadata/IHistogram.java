@@ -0,0 +1,41 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.metadata;
+
+import edu.uci.ics.algebricks.compiler.algebra.expressions.IAlgebricksConstantValue;
+
+/**
+ * The distribution of the values of a column. The constants are those of the
+ * plans of the language, that the implementation knows how to compare to the
+ * values of the column.
+ */
+public interface IHistogram {
+    /**
+     * @return the fraction of the tuples whose value is equal to value, or -1
+     *         if the histogram cannot tell
+     */
+    public double getEqualitySelectivity(IAlgebricksConstantValue value);
+
+    /**
+     * @param low
+     *            the lower bound, or null if there is none
+     * @param high
+     *            the upper bound, or null if there is none
+     * @return the fraction of the tuples whose value is in the range, or -1
+     *         if the histogram cannot tell
+     */
+    public double getRangeSelectivity(IAlgebricksConstantValue low, boolean lowInclusive,
+            IAlgebricksConstantValue high, boolean highInclusive);
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.operators.logical;
+
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.expr.IVariableTypeEnvironment;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.OrderOperator.IOrder;
+import edu.uci.ics.algebricks.compiler.algebra.properties.VariablePropagationPolicy;
+import edu.uci.ics.algebricks.compiler.algebra.typing.ITypingContext;
+import edu.uci.ics.algebricks.compiler.algebra.visitors.ILogicalExpressionReferenceTransform;
+import edu.uci.ics.algebricks.compiler.algebra.visitors.ILogicalOperatorVisitor;
+import edu.uci.ics.algebricks.utils.Pair;
+
+/**
+ * A running aggregate that starts over for each group of tuples with equal
+ * partition expressions. Within a group the tuples are taken in the order of
+ * the order expressions, and each aggregate sees either all the tuples of the
+ * group so far or, when rowsPreceding is not {@link #UNBOUNDED_PRECEDING},
+ * only the current tuple and the rowsPreceding tuples before it.
+ */
+public class WindowAggregateOperator extends AbstractAssignOperator {
+
+    public static final int UNBOUNDED_PRECEDING = -1;
+
+    private final List<LogicalExpressionReference> partitionExpressions;
+    private final List<Pair<IOrder, LogicalExpressionReference>> orderExpressions;
+    private int rowsPreceding;
+
+    public WindowAggregateOperator(List<LogicalVariable> variables, List<LogicalExpressionReference> expressions,
+            List<LogicalExpressionReference> partitionExpressions,
+            List<Pair<IOrder, LogicalExpressionReference>> orderExpressions, int rowsPreceding) {
+        super(variables, expressions);
+        this.partitionExpressions = partitionExpressions;
+        this.orderExpressions = orderExpressions;
+        this.rowsPreceding = rowsPreceding;
+    }
+
+    public List<LogicalExpressionReference> getPartitionExpressions() {
+        return partitionExpressions;
+    }
+
+    public List<Pair<IOrder, LogicalExpressionReference>> getOrderExpressions() {
+        return orderExpressions;
+    }
+
+    public int getRowsPreceding() {
+        return rowsPreceding;
+    }
+
+    public void setRowsPreceding(int rowsPreceding) {
+        this.rowsPreceding = rowsPreceding;
+    }
+
+    @Override
+    public LogicalOperatorTag getOperatorTag() {
+        return LogicalOperatorTag.WINDOWAGGREGATE;
+    }
+
+    @Override
+    public <R, T> R accept(ILogicalOperatorVisitor<R, T> visitor, T arg) throws AlgebricksException {
+        return visitor.visitWindowAggregateOperator(this, arg);
+    }
+
+    @Override
+    public VariablePropagationPolicy getVariablePropagationPolicy() {
+        return new VariablePropagationPolicy() {
+
+            @Override
+            public void propagateVariables(IOperatorSchema target, IOperatorSchema... sources)
+                    throws AlgebricksException {
+                target.addAllVariables(sources[0]);
+                for (LogicalVariable v : variables) {
+                    target.addVariable(v);
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean acceptExpressionTransform(ILogicalExpressionReferenceTransform visitor) throws AlgebricksException {
+        boolean modif = super.acceptExpressionTransform(visitor);
+        for (LogicalExpressionReference exprRef : partitionExpressions) {
+            if (visitor.transform(exprRef)) {
+                modif = true;
+            }
+        }
+        for (Pair<IOrder, LogicalExpressionReference> p : orderExpressions) {
+            if (visitor.transform(p.second)) {
+                modif = true;
+            }
+        }
+        return modif;
+    }
+
+    @Override
+    public boolean isMap() {
+        return false;
+    }
+
+    @Override
+    public IVariableTypeEnvironment computeOutputTypeEnvironment(ITypingContext ctx) throws AlgebricksException {
+        IVariableTypeEnvironment env = createPropagatingAllInputsTypeEnvironment(ctx);
+        int n = variables.size();
+        for (int i = 0; i < n; i++) {
+            env.setVarType(variables.get(i), ctx.getExpressionTypeComputer().getType(
+                    expressions.get(i).getExpression(), ctx.getMetadataProvider(), env));
+        }
+        return env;
+    }
+
+}
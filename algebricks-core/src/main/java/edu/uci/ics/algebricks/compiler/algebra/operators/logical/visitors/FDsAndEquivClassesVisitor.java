@@ -66,6 +66,7 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SubplanOperator
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnionAllOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestMapOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WindowAggregateOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteResultOperator;
 import edu.uci.ics.algebricks.compiler.algebra.properties.FunctionalDependency;
@@ -413,6 +414,13 @@ public class FDsAndEquivClassesVisitor implements ILogicalOperatorVisitor<Void,
         return null;
     }
 
+    @Override
+    public Void visitWindowAggregateOperator(WindowAggregateOperator op, IOptimizationContext ctx)
+            throws AlgebricksException {
+        propagateFDsAndEquivClasses(op, ctx);
+        return null;
+    }
+
     @Override
     public Void visitScriptOperator(ScriptOperator op, IOptimizationContext ctx) throws AlgebricksException {
         propagateFDsAndEquivClassesForUsedVars(op, ctx, op.getInputVariables());
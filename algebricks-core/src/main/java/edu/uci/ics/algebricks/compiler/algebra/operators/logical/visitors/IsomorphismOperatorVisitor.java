@@ -58,6 +58,7 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SubplanOperator
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnionAllOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestMapOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WindowAggregateOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteResultOperator;
 import edu.uci.ics.algebricks.compiler.algebra.plan.ALogicalPlanImpl;
@@ -99,6 +100,25 @@ public class IsomorphismOperatorVisitor implements ILogicalOperatorVisitor<Boole
         return isomorphic;
     }
 
+    @Override
+    public Boolean visitWindowAggregateOperator(WindowAggregateOperator op, ILogicalOperator arg)
+            throws AlgebricksException {
+        AbstractLogicalOperator aop = (AbstractLogicalOperator) arg;
+        if (aop.getOperatorTag() != LogicalOperatorTag.WINDOWAGGREGATE)
+            return Boolean.FALSE;
+        WindowAggregateOperator winOpArg = (WindowAggregateOperator) copyAndSubstituteVar(op, arg);
+        if (op.getRowsPreceding() != winOpArg.getRowsPreceding())
+            return Boolean.FALSE;
+        if (!compareExpressions(op.getPartitionExpressions(), winOpArg.getPartitionExpressions()))
+            return Boolean.FALSE;
+        if (!compareIOrderAndExpressions(op.getOrderExpressions(), winOpArg.getOrderExpressions()))
+            return Boolean.FALSE;
+        boolean isomorphic = VariableUtilities.varListEqualUnordered(
+                getPairList(op.getVariables(), op.getExpressions()),
+                getPairList(winOpArg.getVariables(), winOpArg.getExpressions()));
+        return isomorphic;
+    }
+
     @Override
     public Boolean visitEmptyTupleSourceOperator(EmptyTupleSourceOperator op, ILogicalOperator arg)
             throws AlgebricksException {
@@ -547,7 +567,7 @@ public class IsomorphismOperatorVisitor implements ILogicalOperatorVisitor<Boole
         return op.accept(visitor, null);
     }
 
-    private static ILogicalPlan deepCopy(ILogicalPlan plan) throws AlgebricksException {
+    static ILogicalPlan deepCopy(ILogicalPlan plan) throws AlgebricksException {
         List<LogicalOperatorReference> roots = plan.getRoots();
         List<LogicalOperatorReference> newRoots = new ArrayList<LogicalOperatorReference>();
         for (LogicalOperatorReference opRef : roots)
@@ -593,6 +613,19 @@ public class IsomorphismOperatorVisitor implements ILogicalOperatorVisitor<Boole
             return new RunningAggregateOperator(newList, newExpressions);
         }
 
+        @Override
+        public ILogicalOperator visitWindowAggregateOperator(WindowAggregateOperator op, Void arg)
+                throws AlgebricksException {
+            ArrayList<LogicalVariable> newList = new ArrayList<LogicalVariable>();
+            ArrayList<LogicalExpressionReference> newExpressions = new ArrayList<LogicalExpressionReference>();
+            ArrayList<LogicalExpressionReference> newPartitionExpressions = new ArrayList<LogicalExpressionReference>();
+            newList.addAll(op.getVariables());
+            deepCopyExpressionRefs(newExpressions, op.getExpressions());
+            deepCopyExpressionRefs(newPartitionExpressions, op.getPartitionExpressions());
+            return new WindowAggregateOperator(newList, newExpressions, newPartitionExpressions,
+                    deepCopyOrderAndExpression(op.getOrderExpressions()), op.getRowsPreceding());
+        }
+
         @Override
         public ILogicalOperator visitEmptyTupleSourceOperator(EmptyTupleSourceOperator op, Void arg)
                 throws AlgebricksException {
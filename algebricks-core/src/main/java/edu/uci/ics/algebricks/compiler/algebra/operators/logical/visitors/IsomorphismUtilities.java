@@ -18,6 +18,7 @@ import java.util.Map;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
 
 public class IsomorphismUtilities {
@@ -33,4 +34,12 @@ public class IsomorphismUtilities {
         return op.accept(visitor, arg).booleanValue();
     }
 
+    /**
+     * @return a copy of the plan that shares no operator or expression with
+     *         it, nested plans included.
+     */
+    public static ILogicalPlan deepCopy(ILogicalPlan plan) throws AlgebricksException {
+        return IsomorphismOperatorVisitor.deepCopy(plan);
+    }
+
 }
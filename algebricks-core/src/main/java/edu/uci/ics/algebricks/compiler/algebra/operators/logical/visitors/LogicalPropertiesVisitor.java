@@ -14,14 +14,33 @@
  */
 package edu.uci.ics.algebricks.compiler.algebra.operators.logical.visitors;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.api.expr.IExpressionEvalSizeComputer;
 import edu.uci.ics.algebricks.api.expr.IVariableEvalSizeEnvironment;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
 import edu.uci.ics.algebricks.compiler.algebra.base.OperatorAnnotations;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AbstractFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.IAlgebricksConstantValue;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.IAlgebricksIntegerConstantValue;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions.ComparisonKind;
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionIdentifier;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IColumnStatistics;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IDataSourceStatisticsProvider;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IHistogram;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractAssignOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractBinaryJoinOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AggregateOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AssignOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DataSourceScanOperator;
@@ -48,6 +67,7 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SubplanOperator
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnionAllOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestMapOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WindowAggregateOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteResultOperator;
 import edu.uci.ics.algebricks.compiler.algebra.properties.ILogicalPropertiesVector;
@@ -55,9 +75,21 @@ import edu.uci.ics.algebricks.compiler.algebra.properties.LogicalPropertiesVecto
 import edu.uci.ics.algebricks.compiler.algebra.visitors.ILogicalOperatorVisitor;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
 import edu.uci.ics.algebricks.config.AlgebricksConfig;
-
+import edu.uci.ics.algebricks.utils.Pair;
+import edu.uci.ics.algebricks.utils.Triple;
+
+/**
+ * Estimates the number of tuples and of frames output by the operators, from
+ * the statistics of the data sources and the selectivity of the conditions.
+ * An operator whose inputs are not estimated is not estimated either.
+ * Without statistics, selectivities are the System R defaults.
+ */
 public class LogicalPropertiesVisitor implements ILogicalOperatorVisitor<Void, IOptimizationContext> {
 
+    private static final double DEFAULT_EQ_SELECTIVITY = 0.1;
+    private static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+    private static final double DEFAULT_SELECTIVITY = 0.5;
+
     public static void computeLogicalPropertiesDFS(ILogicalOperator op, IOptimizationContext context)
             throws AlgebricksException {
         LogicalPropertiesVisitor visitor = new LogicalPropertiesVisitor();
@@ -78,8 +110,7 @@ public class LogicalPropertiesVisitor implements ILogicalOperatorVisitor<Void, I
 
     @Override
     public Void visitAggregateOperator(AggregateOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
-        return null;
+        return visitSingleTuple(op, arg);
     }
 
     @Override
@@ -90,21 +121,46 @@ public class LogicalPropertiesVisitor implements ILogicalOperatorVisitor<Void, I
 
     @Override
     public Void visitDataScanOperator(DataSourceScanOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        IDataSourceStatisticsProvider stats = op.getDataSource().getStatisticsProvider();
+        if (stats == null || stats.getRowCount() < 0) {
+            return null;
+        }
+        double tuples = stats.getRowCount();
+        ILogicalPropertiesVector v0 = getInputVector(op, 0, arg);
+        if (v0 != null && v0.getNumberOfTuples() != null) {
+            tuples *= v0.getNumberOfTuples();
+        }
+        LogicalPropertiesVectorImpl v = new LogicalPropertiesVectorImpl();
+        v.setNumberOfTuples(toInt(tuples));
+        int frameSize = arg.getFrameSize();
+        if (stats.getAverageTupleSize() >= 0 && frameSize > 0) {
+            v.setMaxOutputFrames(Math.max(1, toInt(tuples * stats.getAverageTupleSize() / frameSize)));
+        }
+        List<LogicalVariable> vars = op.getVariables();
+        for (int i = 0; i < vars.size(); i++) {
+            IColumnStatistics cs = stats.getColumnStatistics(i);
+            if (cs != null) {
+                v.setVariableStatistics(vars.get(i), cs);
+            }
+        }
+        arg.putLogicalPropertiesVector(op, v);
         return null;
     }
 
     @Override
     public Void visitDistinctOperator(DistinctOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        ILogicalPropertiesVector v0 = getInputVector(op, 0, arg);
+        if (v0 == null || v0.getNumberOfTuples() == null) {
+            return null;
+        }
+        estimateGroups(op, v0, op.getExpressions(), arg);
         return null;
     }
 
     @Override
     public Void visitEmptyTupleSourceOperator(EmptyTupleSourceOperator op, IOptimizationContext arg)
             throws AlgebricksException {
-        // TODO Auto-generated method stub
-        return null;
+        return visitSingleTuple(op, arg);
     }
 
     @Override
@@ -115,39 +171,75 @@ public class LogicalPropertiesVisitor implements ILogicalOperatorVisitor<Void, I
 
     @Override
     public Void visitGroupByOperator(GroupByOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        ILogicalPropertiesVector v0 = getInputVector(op, 0, arg);
+        if (v0 == null || v0.getNumberOfTuples() == null) {
+            return null;
+        }
+        LogicalPropertiesVectorImpl v = estimateGroups(op, v0, getGroupByKeys(op), arg);
+        for (Pair<LogicalVariable, LogicalExpressionReference> p : op.getGroupByList()) {
+            IColumnStatistics cs = getStatistics(v0, p.second.getExpression());
+            if (p.first != null && cs != null) {
+                v.setVariableStatistics(p.first, cs);
+            }
+        }
         return null;
     }
 
     @Override
     public Void visitInnerJoinOperator(InnerJoinOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        estimateJoin(op, false, arg);
         return null;
     }
 
     @Override
     public Void visitLeftOuterJoinOperator(LeftOuterJoinOperator op, IOptimizationContext arg)
             throws AlgebricksException {
-        // TODO Auto-generated method stub
+        estimateJoin(op, true, arg);
         return null;
     }
 
     @Override
     public Void visitLimitOperator(LimitOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        ILogicalPropertiesVector v0 = getInputVector(op, 0, arg);
+        if (v0 == null || v0.getNumberOfTuples() == null) {
+            return null;
+        }
+        long limit = getIntegerConstant(op.getMaxObjects());
+        if (limit < 0) {
+            // the limit is not known at compile time
+            propagateCardinalityAndFrameNumber(op, arg);
+            return null;
+        }
+        double tuples = v0.getNumberOfTuples();
+        long offset = getIntegerConstant(op.getOffset());
+        if (offset > 0) {
+            tuples = Math.max(0, tuples - offset);
+        }
+        scale(op, v0, Math.min(tuples, limit), arg);
         return null;
     }
 
     @Override
     public Void visitDieOperator(DieOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        propagateCardinalityAndFrameNumber(op, arg);
         return null;
     }
 
     @Override
     public Void visitNestedTupleSourceOperator(NestedTupleSourceOperator op, IOptimizationContext arg)
             throws AlgebricksException {
-        // TODO Auto-generated method stub
+        ILogicalOperator owner = op.getDataSourceReference().getOperator();
+        if (owner.getOperatorTag() != LogicalOperatorTag.GROUP) {
+            // the nested plan is executed on each input tuple
+            return visitSingleTuple(op, arg);
+        }
+        // the nested plan is executed on the tuples of each group
+        ILogicalPropertiesVector v0 = getInputVector(owner, 0, arg);
+        if (v0 == null || v0.getNumberOfTuples() == null) {
+            return null;
+        }
+        double groups = countGroups(v0, getGroupByKeys((GroupByOperator) owner));
+        scale(op, v0, groups > 0 ? v0.getNumberOfTuples() / groups : 0, arg);
         return null;
     }
 
@@ -155,6 +247,7 @@ public class LogicalPropertiesVisitor implements ILogicalOperatorVisitor<Void, I
     public Void visitOrderOperator(OrderOperator op, IOptimizationContext arg) throws AlgebricksException {
         Object annot1 = op.getAnnotations().get(OperatorAnnotations.CARDINALITY);
         if (annot1 == null) {
+            propagateCardinalityAndFrameNumber(op, arg);
             return null;
         }
         Integer m = (Integer) annot1;
@@ -172,7 +265,8 @@ public class LogicalPropertiesVisitor implements ILogicalOperatorVisitor<Void, I
     @Override
     public Void visitPartitioningSplitOperator(PartitioningSplitOperator op, IOptimizationContext arg)
             throws AlgebricksException {
-        // TODO Auto-generated method stub
+        // each output gets at most all the tuples
+        propagateCardinalityAndFrameNumber(op, arg);
         return null;
     }
 
@@ -184,7 +278,7 @@ public class LogicalPropertiesVisitor implements ILogicalOperatorVisitor<Void, I
 
     @Override
     public Void visitReplicateOperator(ReplicateOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        propagateCardinalityAndFrameNumber(op, arg);
         return null;
     }
 
@@ -195,70 +289,101 @@ public class LogicalPropertiesVisitor implements ILogicalOperatorVisitor<Void, I
         return null;
     }
 
+    @Override
+    public Void visitWindowAggregateOperator(WindowAggregateOperator op, IOptimizationContext context)
+            throws AlgebricksException {
+        visitAssignment(op, context);
+        return null;
+    }
+
     @Override
     public Void visitScriptOperator(ScriptOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        // the script may output any number of tuples
         return null;
     }
 
     @Override
     public Void visitSelectOperator(SelectOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        ILogicalPropertiesVector v0 = getInputVector(op, 0, arg);
+        if (v0 == null || v0.getNumberOfTuples() == null) {
+            return null;
+        }
+        double sel = estimateSelectivity(op.getCondition().getExpression(), v0);
+        scale(op, v0, v0.getNumberOfTuples() * sel, arg);
         return null;
     }
 
     @Override
     public Void visitSubplanOperator(SubplanOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        // the nested plans add fields of unknown size
+        propagateCardinality(op, arg);
         return null;
     }
 
     @Override
     public Void visitUnionOperator(UnionAllOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        ILogicalPropertiesVector v0 = getInputVector(op, 0, arg);
+        ILogicalPropertiesVector v1 = getInputVector(op, 1, arg);
+        if (v0 == null || v1 == null || v0.getNumberOfTuples() == null || v1.getNumberOfTuples() == null) {
+            return null;
+        }
+        LogicalPropertiesVectorImpl v = new LogicalPropertiesVectorImpl();
+        v.setNumberOfTuples(toInt((double) v0.getNumberOfTuples() + v1.getNumberOfTuples()));
+        if (v0.getMaxOutputFrames() != null && v1.getMaxOutputFrames() != null) {
+            v.setMaxOutputFrames(toInt((double) v0.getMaxOutputFrames() + v1.getMaxOutputFrames()));
+        }
+        for (Triple<LogicalVariable, LogicalVariable, LogicalVariable> t : op.getVariableMappings()) {
+            IColumnStatistics cs0 = v0.getVariableStatistics(t.first);
+            IColumnStatistics cs1 = v1.getVariableStatistics(t.second);
+            if (cs0 != null && cs1 != null && cs0.getDistinctCount() >= 0 && cs1.getDistinctCount() >= 0) {
+                v.setVariableStatistics(t.third, new DistinctCountStatistics(cs0.getDistinctCount()
+                        + cs1.getDistinctCount()));
+            }
+        }
+        arg.putLogicalPropertiesVector(op, v);
         return null;
     }
 
     @Override
     public Void visitUnnestMapOperator(UnnestMapOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        // the number of tuples returned for each input tuple is not known
         return null;
     }
 
     @Override
     public Void visitUnnestOperator(UnnestOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        // the number of tuples returned for each input tuple is not known
         return null;
     }
 
     @Override
     public Void visitWriteOperator(WriteOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        propagateCardinalityAndFrameNumber(op, arg);
         return null;
     }
 
     @Override
     public Void visitWriteResultOperator(WriteResultOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        propagateCardinalityAndFrameNumber(op, arg);
         return null;
     }
 
     @Override
     public Void visitInsertDeleteOperator(InsertDeleteOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        propagateCardinalityAndFrameNumber(op, arg);
         return null;
     }
 
     @Override
     public Void visitIndexInsertDeleteOperator(IndexInsertDeleteOperator op, IOptimizationContext arg)
             throws AlgebricksException {
-        // TODO Auto-generated method stub
+        propagateCardinalityAndFrameNumber(op, arg);
         return null;
     }
 
     @Override
     public Void visitSinkOperator(SinkOperator op, IOptimizationContext arg) throws AlgebricksException {
-        // TODO Auto-generated method stub
+        propagateCardinalityAndFrameNumber(op, arg);
         return null;
     }
 
@@ -270,19 +395,31 @@ public class LogicalPropertiesVisitor implements ILogicalOperatorVisitor<Void, I
         }
         LogicalPropertiesVectorImpl v = new LogicalPropertiesVectorImpl();
         v.setNumberOfTuples(v0.getNumberOfTuples());
+        v.addVariableStatistics(v0);
         context.putLogicalPropertiesVector(op, v);
         return v;
     }
 
     private void visitAssignment(AbstractAssignOperator op, IOptimizationContext context) throws AlgebricksException {
         LogicalPropertiesVectorImpl v = propagateCardinality(op, context);
-        if (v != null && v.getNumberOfTuples() != null) {
+        if (v == null) {
+            return;
+        }
+        List<LogicalVariable> vars = op.getVariables();
+        List<LogicalExpressionReference> exprs = op.getExpressions();
+        for (int i = 0; i < vars.size(); i++) {
+            IColumnStatistics cs = getStatistics(v, exprs.get(i).getExpression());
+            if (cs != null) {
+                v.setVariableStatistics(vars.get(i), cs);
+            }
+        }
+        if (v.getNumberOfTuples() != null) {
             IVariableEvalSizeEnvironment varSizeEnv = context.getVariableEvalSizeEnvironment();
             IExpressionEvalSizeComputer evalSize = context.getExpressionEvalSizeComputer();
             if (evalSize != null) {
                 ILogicalOperator op0 = op.getInputs().get(0).getOperator();
                 ILogicalPropertiesVector v0 = context.getLogicalPropertiesVector(op0);
-                if (v0 != null) {
+                if (v0 != null && v0.getMaxOutputFrames() != null) {
                     long frames0 = v0.getMaxOutputFrames();
                     long overhead = 0; // added per tuple
                     for (LogicalExpressionReference exprRef : op.getExpressions()) {
@@ -312,9 +449,296 @@ public class LogicalPropertiesVisitor implements ILogicalOperatorVisitor<Void, I
         // propagate also max number of frames (conservatively)
         ILogicalOperator op0 = op.getInputs().get(0).getOperator();
         ILogicalPropertiesVector v0 = context.getLogicalPropertiesVector(op0);
-        if (v0 != null) {
+        if (v != null && v0 != null) {
             v.setMaxOutputFrames(v0.getMaxOutputFrames());
         }
     }
 
+    private Void visitSingleTuple(ILogicalOperator op, IOptimizationContext context) {
+        LogicalPropertiesVectorImpl v = new LogicalPropertiesVectorImpl();
+        v.setNumberOfTuples(1);
+        v.setMaxOutputFrames(1);
+        context.putLogicalPropertiesVector(op, v);
+        return null;
+    }
+
+    private static ILogicalPropertiesVector getInputVector(ILogicalOperator op, int input,
+            IOptimizationContext context) {
+        if (op.getInputs().size() <= input) {
+            return null;
+        }
+        return context.getLogicalPropertiesVector(op.getInputs().get(input).getOperator());
+    }
+
+    /**
+     * Rounds up an estimate, saturating at Integer.MAX_VALUE.
+     */
+    private static int toInt(double d) {
+        return d >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.ceil(d);
+    }
+
+    /**
+     * Outputs some number of tuples of the input, and as many frames in
+     * proportion.
+     */
+    private static LogicalPropertiesVectorImpl scale(ILogicalOperator op, ILogicalPropertiesVector v0, double tuples,
+            IOptimizationContext context) {
+        LogicalPropertiesVectorImpl v = new LogicalPropertiesVectorImpl();
+        v.setNumberOfTuples(toInt(tuples));
+        Integer frames0 = v0.getMaxOutputFrames();
+        if (frames0 != null) {
+            int tuples0 = v0.getNumberOfTuples();
+            double frames = tuples0 > 0 ? frames0 * tuples / tuples0 : frames0;
+            v.setMaxOutputFrames(Math.max(1, toInt(frames)));
+        }
+        v.addVariableStatistics(v0);
+        context.putLogicalPropertiesVector(op, v);
+        return v;
+    }
+
+    private LogicalPropertiesVectorImpl estimateGroups(ILogicalOperator op, ILogicalPropertiesVector v0,
+            List<LogicalExpressionReference> keys, IOptimizationContext context) {
+        return scale(op, v0, countGroups(v0, keys), context);
+    }
+
+    /**
+     * @return the number of distinct values of the keys in the tuples
+     *         described by v0, or the number of tuples if it is not known.
+     */
+    private static double countGroups(ILogicalPropertiesVector v0, List<LogicalExpressionReference> keys) {
+        int tuples0 = v0.getNumberOfTuples();
+        double groups = 1;
+        for (LogicalExpressionReference key : keys) {
+            long d = getDistinctCount(v0, key.getExpression());
+            if (d < 0) {
+                return tuples0;
+            }
+            groups *= d;
+        }
+        return Math.min(groups, tuples0);
+    }
+
+    private static List<LogicalExpressionReference> getGroupByKeys(GroupByOperator op) {
+        List<LogicalExpressionReference> keys = new ArrayList<LogicalExpressionReference>();
+        for (Pair<LogicalVariable, LogicalExpressionReference> p : op.getGroupByList()) {
+            keys.add(p.second);
+        }
+        return keys;
+    }
+
+    /**
+     * @return the value of the expression if it is an integer constant, or -1.
+     */
+    private static long getIntegerConstant(LogicalExpressionReference exprRef) {
+        ILogicalExpression expr = exprRef.getExpression();
+        if (expr == null || expr.getExpressionTag() != LogicalExpressionTag.CONSTANT) {
+            return -1;
+        }
+        IAlgebricksConstantValue value = ((ConstantExpression) expr).getValue();
+        if (!(value instanceof IAlgebricksIntegerConstantValue)) {
+            return -1;
+        }
+        return ((IAlgebricksIntegerConstantValue) value).getIntegerValue();
+    }
+
+    private void estimateJoin(AbstractBinaryJoinOperator op, boolean outer, IOptimizationContext context) {
+        ILogicalPropertiesVector v0 = getInputVector(op, 0, context);
+        ILogicalPropertiesVector v1 = getInputVector(op, 1, context);
+        if (v0 == null || v1 == null || v0.getNumberOfTuples() == null || v1.getNumberOfTuples() == null) {
+            return;
+        }
+        LogicalPropertiesVectorImpl both = new LogicalPropertiesVectorImpl();
+        both.addVariableStatistics(v0);
+        both.addVariableStatistics(v1);
+        double product = (double) v0.getNumberOfTuples() * v1.getNumberOfTuples();
+        both.setNumberOfTuples(toInt(product));
+        double tuples = product * estimateSelectivity(op.getCondition().getExpression(), both);
+        if (outer) {
+            // every tuple of the left input is output at least once
+            tuples = Math.max(tuples, v0.getNumberOfTuples());
+        }
+        LogicalPropertiesVectorImpl v = new LogicalPropertiesVectorImpl();
+        v.setNumberOfTuples(toInt(tuples));
+        int frameSize = context.getFrameSize();
+        if (v0.getMaxOutputFrames() != null && v1.getMaxOutputFrames() != null && frameSize > 0) {
+            double bytesPerTuple = bytesPerTuple(v0, frameSize) + bytesPerTuple(v1, frameSize);
+            v.setMaxOutputFrames(Math.max(1, toInt(tuples * bytesPerTuple / frameSize)));
+        }
+        v.addVariableStatistics(both);
+        context.putLogicalPropertiesVector(op, v);
+    }
+
+    private static double bytesPerTuple(ILogicalPropertiesVector v, int frameSize) {
+        int tuples = v.getNumberOfTuples();
+        return tuples > 0 ? (double) v.getMaxOutputFrames() * frameSize / tuples : 0;
+    }
+
+    /**
+     * @return the fraction of the tuples described by v that satisfy cond.
+     */
+    public static double estimateSelectivity(ILogicalExpression cond, ILogicalPropertiesVector v) {
+        if (cond.getExpressionTag() == LogicalExpressionTag.CONSTANT) {
+            IAlgebricksConstantValue value = ((ConstantExpression) cond).getValue();
+            if (value.isTrue()) {
+                return 1;
+            }
+            if (value.isFalse() || value.isNull()) {
+                return 0;
+            }
+            return DEFAULT_SELECTIVITY;
+        }
+        if (cond.getExpressionTag() != LogicalExpressionTag.FUNCTION_CALL) {
+            return DEFAULT_SELECTIVITY;
+        }
+        AbstractFunctionCallExpression f = (AbstractFunctionCallExpression) cond;
+        FunctionIdentifier fi = f.getFunctionIdentifier();
+        List<LogicalExpressionReference> args = f.getArguments();
+        if (fi.equals(AlgebricksBuiltinFunctions.AND)) {
+            double sel = 1;
+            for (LogicalExpressionReference a : args) {
+                sel *= estimateSelectivity(a.getExpression(), v);
+            }
+            return sel;
+        }
+        if (fi.equals(AlgebricksBuiltinFunctions.OR)) {
+            double notSel = 1;
+            for (LogicalExpressionReference a : args) {
+                notSel *= 1 - estimateSelectivity(a.getExpression(), v);
+            }
+            return 1 - notSel;
+        }
+        if (fi.equals(AlgebricksBuiltinFunctions.NOT)) {
+            return 1 - estimateSelectivity(args.get(0).getExpression(), v);
+        }
+        if (fi.equals(AlgebricksBuiltinFunctions.IS_NULL)) {
+            IColumnStatistics cs = getStatistics(v, args.get(0).getExpression());
+            return cs != null && cs.getNullFraction() >= 0 ? cs.getNullFraction() : DEFAULT_EQ_SELECTIVITY;
+        }
+        ComparisonKind ck = AlgebricksBuiltinFunctions.getComparisonType(fi);
+        if (ck == null || args.size() != 2) {
+            return DEFAULT_SELECTIVITY;
+        }
+        ILogicalExpression e0 = args.get(0).getExpression();
+        ILogicalExpression e1 = args.get(1).getExpression();
+        if (e0.getExpressionTag() == LogicalExpressionTag.CONSTANT) {
+            ILogicalExpression e = e0;
+            e0 = e1;
+            e1 = e;
+            ck = mirror(ck);
+        }
+        if (ck == ComparisonKind.NEQ) {
+            return 1 - estimateComparison(ComparisonKind.EQ, e0, e1, v);
+        }
+        return estimateComparison(ck, e0, e1, v);
+    }
+
+    private static double estimateComparison(ComparisonKind ck, ILogicalExpression e0, ILogicalExpression e1,
+            ILogicalPropertiesVector v) {
+        if (e1.getExpressionTag() == LogicalExpressionTag.CONSTANT) {
+            IColumnStatistics cs = getStatistics(v, e0);
+            IHistogram h = cs == null ? null : cs.getHistogram();
+            IAlgebricksConstantValue c = ((ConstantExpression) e1).getValue();
+            if (h != null) {
+                double sel;
+                switch (ck) {
+                    case EQ:
+                        sel = h.getEqualitySelectivity(c);
+                        break;
+                    case LT:
+                        sel = h.getRangeSelectivity(null, false, c, false);
+                        break;
+                    case LE:
+                        sel = h.getRangeSelectivity(null, false, c, true);
+                        break;
+                    case GT:
+                        sel = h.getRangeSelectivity(c, false, null, false);
+                        break;
+                    default:
+                        sel = h.getRangeSelectivity(c, true, null, false);
+                        break;
+                }
+                if (sel >= 0) {
+                    return sel;
+                }
+            }
+            if (ck != ComparisonKind.EQ) {
+                return DEFAULT_RANGE_SELECTIVITY;
+            }
+            long d = getDistinctCount(v, e0);
+            return d > 0 ? 1.0 / d : DEFAULT_EQ_SELECTIVITY;
+        }
+        if (ck != ComparisonKind.EQ) {
+            return DEFAULT_RANGE_SELECTIVITY;
+        }
+        long d = Math.max(getDistinctCount(v, e0), getDistinctCount(v, e1));
+        return d > 0 ? 1.0 / d : DEFAULT_EQ_SELECTIVITY;
+    }
+
+    /**
+     * @return the comparison that holds for (b, a) when ck holds for (a, b).
+     */
+    private static ComparisonKind mirror(ComparisonKind ck) {
+        switch (ck) {
+            case LT:
+                return ComparisonKind.GT;
+            case LE:
+                return ComparisonKind.GE;
+            case GT:
+                return ComparisonKind.LT;
+            case GE:
+                return ComparisonKind.LE;
+            default:
+                return ck;
+        }
+    }
+
+    private static IColumnStatistics getStatistics(ILogicalPropertiesVector v, ILogicalExpression expr) {
+        if (expr.getExpressionTag() != LogicalExpressionTag.VARIABLE) {
+            return null;
+        }
+        return v.getVariableStatistics(((VariableReferenceExpression) expr).getVariableReference());
+    }
+
+    /**
+     * @return the number of distinct values of expr, which cannot exceed the
+     *         number of tuples, or -1 if it is not known.
+     */
+    private static long getDistinctCount(ILogicalPropertiesVector v, ILogicalExpression expr) {
+        IColumnStatistics cs = getStatistics(v, expr);
+        if (cs == null || cs.getDistinctCount() < 0) {
+            return -1;
+        }
+        long d = cs.getDistinctCount();
+        Integer tuples = v.getNumberOfTuples();
+        return tuples != null && tuples < d ? tuples : d;
+    }
+
+    /**
+     * The statistics of a column made of the values of other columns, of
+     * which only the distinct count is known.
+     */
+    private static class DistinctCountStatistics implements IColumnStatistics {
+
+        private final long distinctCount;
+
+        public DistinctCountStatistics(long distinctCount) {
+            this.distinctCount = distinctCount;
+        }
+
+        @Override
+        public long getDistinctCount() {
+            return distinctCount;
+        }
+
+        @Override
+        public double getNullFraction() {
+            return -1;
+        }
+
+        @Override
+        public IHistogram getHistogram() {
+            return null;
+        }
+    }
+
 }
@@ -49,6 +49,7 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SubplanOperator
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnionAllOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestMapOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WindowAggregateOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteResultOperator;
 import edu.uci.ics.algebricks.compiler.algebra.visitors.ILogicalOperatorVisitor;
@@ -162,6 +163,12 @@ public class ProducedVariableVisitor implements ILogicalOperatorVisitor<Void, Vo
         return null;
     }
 
+    @Override
+    public Void visitWindowAggregateOperator(WindowAggregateOperator op, Void arg) throws AlgebricksException {
+        producedVariables.addAll(op.getVariables());
+        return null;
+    }
+
     @Override
     public Void visitScriptOperator(ScriptOperator op, Void arg) throws AlgebricksException {
         List<LogicalVariable> usedVariables = new ArrayList<LogicalVariable>();
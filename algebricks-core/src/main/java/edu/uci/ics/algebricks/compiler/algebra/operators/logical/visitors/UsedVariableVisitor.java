@@ -50,6 +50,7 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SubplanOperator
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnionAllOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestMapOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WindowAggregateOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteResultOperator;
 import edu.uci.ics.algebricks.compiler.algebra.visitors.ILogicalOperatorVisitor;
@@ -191,6 +192,20 @@ public class UsedVariableVisitor implements ILogicalOperatorVisitor<Void, Void>
         return null;
     }
 
+    @Override
+    public Void visitWindowAggregateOperator(WindowAggregateOperator op, Void arg) {
+        for (LogicalExpressionReference exprRef : op.getExpressions()) {
+            exprRef.getExpression().getUsedVariables(usedVariables);
+        }
+        for (LogicalExpressionReference exprRef : op.getPartitionExpressions()) {
+            exprRef.getExpression().getUsedVariables(usedVariables);
+        }
+        for (Pair<IOrder, LogicalExpressionReference> oe : op.getOrderExpressions()) {
+            oe.second.getExpression().getUsedVariables(usedVariables);
+        }
+        return null;
+    }
+
     @Override
     public Void visitScriptOperator(ScriptOperator op, Void arg) {
         List<LogicalVariable> parameterVariables = op.getInputVariables();
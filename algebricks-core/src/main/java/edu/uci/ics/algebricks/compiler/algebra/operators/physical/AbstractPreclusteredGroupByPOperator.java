@@ -7,6 +7,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
+import edu.uci.ics.algebricks.api.expr.ILogicalExpressionJobGen;
+import edu.uci.ics.algebricks.api.expr.ISerializableAggregateJobGen;
+import edu.uci.ics.algebricks.api.expr.IVariableTypeEnvironment;
 import edu.uci.ics.algebricks.compiler.algebra.base.EquivalenceClass;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
@@ -17,9 +22,12 @@ import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
 import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AggregateOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.GroupByOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator.ExecutionMode;
 import edu.uci.ics.algebricks.compiler.algebra.properties.FunctionalDependency;
 import edu.uci.ics.algebricks.compiler.algebra.properties.ILocalStructuralProperty;
@@ -35,7 +43,13 @@ import edu.uci.ics.algebricks.compiler.algebra.properties.StructuralPropertiesVe
 import edu.uci.ics.algebricks.compiler.algebra.properties.UnorderedPartitionedProperty;
 import edu.uci.ics.algebricks.compiler.algebra.properties.ILocalStructuralProperty.PropertyType;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.runtime.hyracks.base.AlgebricksPipeline;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.aggreg.NestedPlansAccumulatingAggregatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.aggreg.SerializableAccumulatingAggregatorFactory;
 import edu.uci.ics.algebricks.utils.Pair;
+import edu.uci.ics.hyracks.dataflow.std.group.IAccumulatingAggregatorFactory;
 
 public abstract class AbstractPreclusteredGroupByPOperator extends AbstractPhysicalOperator {
 
@@ -200,6 +214,97 @@ public abstract class AbstractPreclusteredGroupByPOperator extends AbstractPhysi
         return new PhysicalRequirements(pv, IPartitioningRequirementsCoordinator.NO_COORDINATION);
     }
 
+    /**
+     * Sets the schema of the group-by and returns the aggregator that
+     * evaluates its nested plans for each group. When all the nested plans are
+     * an aggregate right on top of the nested-tuple-source and the aggregate
+     * functions have serializable implementations, they work directly on
+     * serialized states and the nested plans are not compiled at all.
+     */
+    protected IAccumulatingAggregatorFactory createAggregatorFactory(GroupByOperator gby, int[] keys,
+            int[] fdColumns, IOperatorSchema opSchema, IOperatorSchema[] inputSchemas, JobGenContext context)
+            throws AlgebricksException {
+        ISerializableAggregateFunctionFactory[] aff = createSerializableAggregateFactories(gby, inputSchemas,
+                context);
+        if (aff != null) {
+            // what compiling the nested plans would have added to the schema
+            for (ILogicalPlan p : gby.getNestedPlans()) {
+                AggregateOperator aggOp = (AggregateOperator) p.getRoots().get(0).getOperator();
+                for (LogicalVariable v : aggOp.getVariables()) {
+                    opSchema.addVariable(v);
+                }
+            }
+            return new SerializableAccumulatingAggregatorFactory(aff, keys, fdColumns);
+        }
+        AlgebricksPipeline[] subplans = compileSubplans(inputSchemas[0], gby, opSchema, context);
+        return new NestedPlansAccumulatingAggregatorFactory(subplans, keys, fdColumns, context.getFrameBudget());
+    }
+
+    /**
+     * @return the serializable aggregate functions of the nested plans, in the
+     *         order of their output variables, or null if some nested plan is
+     *         not an aggregate over a nested-tuple-source or some function
+     *         has no serializable implementation.
+     */
+    private static ISerializableAggregateFunctionFactory[] createSerializableAggregateFactories(GroupByOperator gby,
+            IOperatorSchema[] inputSchemas, JobGenContext context) throws AlgebricksException {
+        List<ISerializableAggregateFunctionFactory> aff = new ArrayList<ISerializableAggregateFunctionFactory>();
+        ILogicalExpressionJobGen exprJobGen = context.getExpressionJobGen();
+        for (ILogicalPlan p : gby.getNestedPlans()) {
+            if (p.getRoots().size() != 1) {
+                return null;
+            }
+            AbstractLogicalOperator r0 = (AbstractLogicalOperator) p.getRoots().get(0).getOperator();
+            if (r0.getOperatorTag() != LogicalOperatorTag.AGGREGATE) {
+                return null;
+            }
+            ILogicalOperator r1 = r0.getInputs().get(0).getOperator();
+            if (((AbstractLogicalOperator) r1).getOperatorTag() != LogicalOperatorTag.NESTEDTUPLESOURCE) {
+                return null;
+            }
+            IVariableTypeEnvironment aggOpInputEnv = context.getTypeEnvironment(r1);
+            for (LogicalExpressionReference exprRef : ((AggregateOperator) r0).getExpressions()) {
+                ILogicalExpression expr = exprRef.getExpression();
+                if (!(expr instanceof AggregateFunctionCallExpression)) {
+                    return null;
+                }
+                ISerializableAggregateFunctionFactory f = createSerializableAggregateFactory(exprJobGen,
+                        (AggregateFunctionCallExpression) expr, aggOpInputEnv, inputSchemas, context);
+                if (f == null) {
+                    return null;
+                }
+                aff.add(f);
+            }
+        }
+        return aff.toArray(new ISerializableAggregateFunctionFactory[aff.size()]);
+    }
+
+    /**
+     * @return the serializable implementation of aggFun, or null if the
+     *         expression job generator has none
+     */
+    private static ISerializableAggregateFunctionFactory createSerializableAggregateFactory(
+            ILogicalExpressionJobGen exprJobGen, AggregateFunctionCallExpression aggFun,
+            IVariableTypeEnvironment env, IOperatorSchema[] inputSchemas, JobGenContext context)
+            throws AlgebricksException {
+        if (exprJobGen instanceof ISerializableAggregateJobGen) {
+            if (!((ISerializableAggregateJobGen) exprJobGen).hasSerializableAggregateFunctionFactory(aggFun, env)) {
+                return null;
+            }
+            return exprJobGen.createSerializableAggregateFunctionFactory(aggFun, env, inputSchemas, context);
+        }
+        // no way to ask first, so any failure means there is no implementation
+        try {
+            return exprJobGen.createSerializableAggregateFunctionFactory(aggFun, env, inputSchemas, context);
+        } catch (UnsupportedOperationException e) {
+            return null;
+        } catch (NotImplementedException e) {
+            return null;
+        } catch (AlgebricksException e) {
+            return null;
+        }
+    }
+
     private static Pair<LogicalVariable, LogicalExpressionReference> getGbyPairByRhsVar(GroupByOperator gby,
             LogicalVariable var) {
         for (Pair<LogicalVariable, LogicalExpressionReference> ve : gby.getGroupByList()) {
@@ -14,10 +14,11 @@
  */
 package edu.uci.ics.algebricks.compiler.algebra.operators.physical;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
-import edu.uci.ics.algebricks.api.expr.ILogicalExpressionJobGen;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
@@ -29,6 +30,7 @@ import edu.uci.ics.algebricks.compiler.algebra.properties.PhysicalRequirements;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.base.IHyracksJobBuilder;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.CommonSubexpressionCompiler;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenHelper;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.AssignRuntimeFactory;
@@ -64,17 +66,20 @@ public class AssignPOperator extends AbstractPhysicalOperator {
         for (int i = 0; i < outColumns.length; i++) {
             outColumns[i] = opSchema.findVariable(variables.get(i));
         }
-        IEvaluatorFactory[] evalFactories = new IEvaluatorFactory[expressions.size()];
-        ILogicalExpressionJobGen exprJobGen = context.getExpressionJobGen();
-        for (int i = 0; i < evalFactories.length; i++) {
-            evalFactories[i] = exprJobGen.createEvaluatorFactory(expressions.get(i).getExpression(), context
-                    .getTypeEnvironment(op.getInputs().get(0).getOperator()), inputSchemas, context);
+        List<ILogicalExpression> exprs = new ArrayList<ILogicalExpression>(expressions.size());
+        for (LogicalExpressionReference exprRef : expressions) {
+            exprs.add(exprRef.getExpression());
         }
+        // sub-expressions shared by several expressions are evaluated once
+        CommonSubexpressionCompiler compiler = new CommonSubexpressionCompiler(inputSchemas[0],
+                context.getTypeEnvironment(op.getInputs().get(0).getOperator()), context);
+        IEvaluatorFactory[] evalFactories = compiler.compile(exprs);
 
         // TODO push projections into the operator
         int[] projectionList = JobGenHelper.projectAllVariables(opSchema);
 
-        AssignRuntimeFactory runtime = new AssignRuntimeFactory(outColumns, evalFactories, projectionList);
+        AssignRuntimeFactory runtime = new AssignRuntimeFactory(outColumns, evalFactories,
+                compiler.getMemoFactories(), projectionList);
 
         // contribute one Asterix framewriter
         RecordDescriptor recDesc = JobGenHelper.mkRecordDescriptor(op, opSchema, context);
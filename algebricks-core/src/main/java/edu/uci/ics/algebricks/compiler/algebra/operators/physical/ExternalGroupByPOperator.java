@@ -55,6 +55,9 @@ public class ExternalGroupByPOperator extends AbstractPhysicalOperator {
     private int tableSize = 0;
     private int frameLimit = 0;
     private List<LogicalVariable> columnSet = new ArrayList<LogicalVariable>();
+    // whether the input holds the partial results merged by the merge
+    // expressions, i.e. the output of a PartialHashGroupByPOperator
+    private boolean mergingPartials = false;
 
     public ExternalGroupByPOperator(List<Pair<LogicalVariable, LogicalExpressionReference>> gbyList, int frameLimit,
             int tableSize) {
@@ -93,6 +96,14 @@ public class ExternalGroupByPOperator extends AbstractPhysicalOperator {
         return columnSet;
     }
 
+    public boolean isMergingPartials() {
+        return mergingPartials;
+    }
+
+    public void setMergingPartials(boolean mergingPartials) {
+        this.mergingPartials = mergingPartials;
+    }
+
     @Override
     public void computeDeliveredProperties(ILogicalOperator op, IOptimizationContext context) {
         List<ILocalStructuralProperty> propsLocal = new LinkedList<ILocalStructuralProperty>();
@@ -171,12 +182,14 @@ public class ExternalGroupByPOperator extends AbstractPhysicalOperator {
         ILogicalExpressionJobGen exprJobGen = context.getExpressionJobGen();
         IVariableTypeEnvironment aggOpInputEnv = context.getTypeEnvironment(aggOp.getInputs().get(0).getOperator());
         IVariableTypeEnvironment outputEnv = context.getTypeEnvironment(op);
-        for (LogicalExpressionReference exprRef : aggOp.getExpressions()) {
-            AggregateFunctionCallExpression aggFun = (AggregateFunctionCallExpression) exprRef.getExpression();
-            aff[i++] = exprJobGen.createSerializableAggregateFunctionFactory(aggFun, aggOpInputEnv, inputSchemas,
-                    context);
-            intermediateTypes.add(partialAggregationTypeComputer.getType(aggFun, aggOpInputEnv, context
-                    .getMetadataProvider()));
+        if (!mergingPartials) {
+            for (LogicalExpressionReference exprRef : aggOp.getExpressions()) {
+                AggregateFunctionCallExpression aggFun = (AggregateFunctionCallExpression) exprRef.getExpression();
+                aff[i++] = exprJobGen.createSerializableAggregateFunctionFactory(aggFun, aggOpInputEnv,
+                        inputSchemas, context);
+                intermediateTypes.add(partialAggregationTypeComputer.getType(aggFun, aggOpInputEnv, context
+                        .getMetadataProvider()));
+            }
         }
 
         int[] keyAndDecFields = new int[keys.length + fdColumns.length];
@@ -196,7 +209,14 @@ public class ExternalGroupByPOperator extends AbstractPhysicalOperator {
         for (LogicalVariable var : keyAndDecVariables)
             aggOpInputEnv.setVarType(var, outputEnv.getVarType(var));
 
-        compileSubplans(inputSchemas[0], gby, opSchema, context);
+        if (mergingPartials) {
+            // the input of the nested plan is not there anymore
+            for (LogicalVariable v : aggOp.getVariables()) {
+                opSchema.addVariable(v);
+            }
+        } else {
+            compileSubplans(inputSchemas[0], gby, opSchema, context);
+        }
         JobSpecification spec = builder.getJobSpec();
         IBinaryComparatorFactory[] comparatorFactories = JobGenHelper.variablesToAscBinaryComparatorFactories(gbyCols,
                 aggOpInputEnv, context);
@@ -213,6 +233,7 @@ public class ExternalGroupByPOperator extends AbstractPhysicalOperator {
                     i).getExpression();
             aggFun.getUsedVariables(usedVars);
         }
+        // when merging partials, the input already has the intermediate types
         i = 0;
         for (Object type : intermediateTypes) {
             aggOpInputEnv.setVarType(usedVars.get(i++), type);
@@ -227,8 +248,9 @@ public class ExternalGroupByPOperator extends AbstractPhysicalOperator {
             merges[i] = exprJobGen.createSerializableAggregateFunctionFactory(mergeFun, aggOpInputEnv,
                     localInputSchemas, context);
         }
-        IAggregatorDescriptorFactory aggregatorFactory = new SerializableAggregatorDescriptorFactory(aff);
         IAggregatorDescriptorFactory mergeFactory = new SerializableAggregatorDescriptorFactory(merges);
+        IAggregatorDescriptorFactory aggregatorFactory = mergingPartials ? mergeFactory
+                : new SerializableAggregatorDescriptorFactory(aff);
 
         ITuplePartitionComputerFactory tpcf = new FieldHashPartitionComputerFactory(keys, hashFunctionFactories);
         INormalizedKeyComputerFactory normalizedKeyFactory = JobGenHelper.variablesToAscNormalizedKeyComputerFactory(
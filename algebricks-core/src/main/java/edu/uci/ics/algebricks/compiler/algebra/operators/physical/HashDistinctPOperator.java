@@ -0,0 +1,118 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.operators.physical;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.expr.IVariableTypeEnvironment;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator.ExecutionMode;
+import edu.uci.ics.algebricks.compiler.algebra.properties.ILocalStructuralProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPartitioningProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPartitioningRequirementsCoordinator;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPhysicalPropertiesVector;
+import edu.uci.ics.algebricks.compiler.algebra.properties.PhysicalRequirements;
+import edu.uci.ics.algebricks.compiler.algebra.properties.StructuralPropertiesVector;
+import edu.uci.ics.algebricks.compiler.algebra.properties.UnorderedPartitionedProperty;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.base.IHyracksJobBuilder;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenHelper;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.group.HashDistinctRuntimeFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+
+/**
+ * Distinct that does not need its input to be sorted. The keys are
+ * deduplicated with a hash table, and the partitions that do not fit are
+ * spilled to disk, all within maxFrames frames. Since spilled tuples are
+ * output after the others, no local order is delivered.
+ */
+public class HashDistinctPOperator extends AbstractPhysicalOperator {
+
+    private List<LogicalVariable> columnList;
+    private final int maxFrames;
+
+    public HashDistinctPOperator(List<LogicalVariable> columnList, int maxFrames) {
+        this.columnList = columnList;
+        this.maxFrames = maxFrames;
+    }
+
+    public void setDistinctByColumns(List<LogicalVariable> distinctByColumns) {
+        this.columnList = distinctByColumns;
+    }
+
+    @Override
+    public PhysicalOperatorTag getOperatorTag() {
+        return PhysicalOperatorTag.HASH_DISTINCT_BY;
+    }
+
+    @Override
+    public String toString() {
+        return getOperatorTag().toString() + columnList;
+    }
+
+    @Override
+    public boolean isMicroOperator() {
+        return true;
+    }
+
+    @Override
+    public void computeDeliveredProperties(ILogicalOperator op, IOptimizationContext context) {
+        AbstractLogicalOperator op2 = (AbstractLogicalOperator) op.getInputs().get(0).getOperator();
+        IPartitioningProperty pp = op2.getDeliveredPhysicalProperties().getPartitioningProperty();
+        deliveredProperties = new StructuralPropertiesVector(pp, new LinkedList<ILocalStructuralProperty>());
+    }
+
+    @Override
+    public PhysicalRequirements getRequiredPropertiesForChildren(ILogicalOperator op,
+            IPhysicalPropertiesVector reqdByParent) {
+        StructuralPropertiesVector[] pv = new StructuralPropertiesVector[1];
+        IPartitioningProperty pp = null;
+        AbstractLogicalOperator aop = (AbstractLogicalOperator) op;
+        if (aop.getExecutionMode() == ExecutionMode.PARTITIONED) {
+            pp = new UnorderedPartitionedProperty(new HashSet<LogicalVariable>(columnList), null);
+        }
+        pv[0] = new StructuralPropertiesVector(pp, null);
+        return new PhysicalRequirements(pv, IPartitioningRequirementsCoordinator.NO_COORDINATION);
+    }
+
+    @Override
+    public void contributeRuntimeOperator(IHyracksJobBuilder builder, JobGenContext context, ILogicalOperator op,
+            IOperatorSchema opSchema, IOperatorSchema[] inputSchemas, IOperatorSchema outerPlanSchema)
+            throws AlgebricksException {
+        int keys[] = JobGenHelper.variablesToFieldIndexes(columnList, inputSchemas[0]);
+        IVariableTypeEnvironment env = context.getTypeEnvironment(op.getInputs().get(0).getOperator());
+        IBinaryComparatorFactory[] comparatorFactories = JobGenHelper.variablesToAscBinaryComparatorFactories(
+                columnList, env, context);
+        IBinaryHashFunctionFactory[] hashFunctionFactories = JobGenHelper.variablesToBinaryHashFunctionFactories(
+                columnList, env, context);
+        RecordDescriptor recordDescriptor = JobGenHelper.mkRecordDescriptor(op, opSchema, context);
+        HashDistinctRuntimeFactory runtime = new HashDistinctRuntimeFactory(keys, comparatorFactories,
+                hashFunctionFactories, maxFrames, null);
+        builder.contributeMicroOperator(op, runtime, recordDescriptor);
+        ILogicalOperator src = op.getInputs().get(0).getOperator();
+        builder.contributeGraphEdge(src, 0, op, 0);
+    }
+
+}
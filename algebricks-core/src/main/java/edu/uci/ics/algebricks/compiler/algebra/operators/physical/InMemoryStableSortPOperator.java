@@ -28,14 +28,21 @@ import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.base.IHyracksJobBuilder;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenHelper;
-import edu.uci.ics.algebricks.runtime.hyracks.operators.sort.InMemorySortRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.sort.ExternalSortRuntimeFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 
+/**
+ * Sort micro-operator. Despite the name, it only keeps maxNumberOfFrames
+ * frames in memory and spills sorted runs to disk beyond that.
+ */
 public class InMemoryStableSortPOperator extends AbstractStableSortPOperator {
 
-    public InMemoryStableSortPOperator() {
+    private int maxNumberOfFrames;
+
+    public InMemoryStableSortPOperator(int maxNumberOfFrames) {
+        this.maxNumberOfFrames = maxNumberOfFrames;
     }
 
     @Override
@@ -74,7 +81,7 @@ public class InMemoryStableSortPOperator extends AbstractStableSortPOperator {
             i++;
         }
 
-        IPushRuntimeFactory runtime = new InMemorySortRuntimeFactory(sortFields, nkcf, comps, null);
+        IPushRuntimeFactory runtime = new ExternalSortRuntimeFactory(sortFields, nkcf, comps, maxNumberOfFrames, null);
         builder.contributeMicroOperator(op, runtime, recDescriptor);
         ILogicalOperator src = op.getInputs().get(0).getOperator();
         builder.contributeGraphEdge(src, 0, op, 0);
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.operators.physical;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.expr.ILogicalExpressionJobGen;
+import edu.uci.ics.algebricks.api.expr.IVariableTypeEnvironment;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AggregateOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.GroupByOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema;
+import edu.uci.ics.algebricks.compiler.algebra.properties.ILocalStructuralProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPhysicalPropertiesVector;
+import edu.uci.ics.algebricks.compiler.algebra.properties.LocalGroupingProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.PhysicalRequirements;
+import edu.uci.ics.algebricks.compiler.algebra.properties.StructuralPropertiesVector;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.base.IHyracksJobBuilder;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenHelper;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.group.MicroHashGroupByRuntimeFactory;
+import edu.uci.ics.algebricks.utils.Pair;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+
+/**
+ * Hash-based group-by running as a micro-operator, used for nested group-bys
+ * whose input is not clustered on the grouping columns. The nested plan must
+ * be an aggregate directly over the nested-tuple-source, so that every
+ * aggregate can keep its state in serialized form.
+ */
+public class MicroHashGroupByPOperator extends AbstractPhysicalOperator {
+
+    private List<LogicalVariable> columnSet = new ArrayList<LogicalVariable>();
+
+    public MicroHashGroupByPOperator(List<Pair<LogicalVariable, LogicalExpressionReference>> gbyList) {
+        computeColumnSet(gbyList);
+    }
+
+    public void computeColumnSet(List<Pair<LogicalVariable, LogicalExpressionReference>> gbyList) {
+        columnSet.clear();
+        for (Pair<LogicalVariable, LogicalExpressionReference> p : gbyList) {
+            ILogicalExpression expr = p.second.getExpression();
+            if (expr.getExpressionTag() == LogicalExpressionTag.VARIABLE) {
+                VariableReferenceExpression v = (VariableReferenceExpression) expr;
+                columnSet.add(v.getVariableReference());
+            }
+        }
+    }
+
+    @Override
+    public PhysicalOperatorTag getOperatorTag() {
+        return PhysicalOperatorTag.MICRO_HASH_GROUP_BY;
+    }
+
+    @Override
+    public String toString() {
+        return getOperatorTag().toString() + columnSet;
+    }
+
+    @Override
+    public boolean isMicroOperator() {
+        return true;
+    }
+
+    public List<LogicalVariable> getGbyColumns() {
+        return columnSet;
+    }
+
+    @Override
+    public void computeDeliveredProperties(ILogicalOperator op, IOptimizationContext context) {
+        List<ILocalStructuralProperty> propsLocal = new LinkedList<ILocalStructuralProperty>();
+        if (!columnSet.isEmpty()) {
+            propsLocal.add(new LocalGroupingProperty(new HashSet<LogicalVariable>(columnSet)));
+        }
+        ILogicalOperator op2 = op.getInputs().get(0).getOperator();
+        IPhysicalPropertiesVector childProp = op2.getDeliveredPhysicalProperties();
+        deliveredProperties = new StructuralPropertiesVector(childProp.getPartitioningProperty(), propsLocal);
+    }
+
+    @Override
+    public PhysicalRequirements getRequiredPropertiesForChildren(ILogicalOperator op,
+            IPhysicalPropertiesVector reqdByParent) {
+        return emptyUnaryRequirements();
+    }
+
+    @Override
+    public void contributeRuntimeOperator(IHyracksJobBuilder builder, JobGenContext context, ILogicalOperator op,
+            IOperatorSchema opSchema, IOperatorSchema[] inputSchemas, IOperatorSchema outerPlanSchema)
+            throws AlgebricksException {
+        List<LogicalVariable> gbyCols = getGbyColumns();
+        int keys[] = JobGenHelper.variablesToFieldIndexes(gbyCols, inputSchemas[0]);
+        GroupByOperator gby = (GroupByOperator) op;
+        int numFds = gby.getDecorList().size();
+        int fdColumns[] = new int[numFds];
+        int j = 0;
+        for (Pair<LogicalVariable, LogicalExpressionReference> p : gby.getDecorList()) {
+            ILogicalExpression expr = p.second.getExpression();
+            if (expr.getExpressionTag() != LogicalExpressionTag.VARIABLE) {
+                throw new AlgebricksException("micro hash group-by expects variable references.");
+            }
+            VariableReferenceExpression v = (VariableReferenceExpression) expr;
+            LogicalVariable decor = v.getVariableReference();
+            fdColumns[j++] = inputSchemas[0].findVariable(decor);
+        }
+
+        if (gby.getNestedPlans().size() != 1 || gby.getNestedPlans().get(0).getRoots().size() != 1) {
+            throw new AlgebricksException(
+                    "Micro hash group-by currently works only for one nested plan with one root containing"
+                            + " an aggregate and a nested-tuple-source.");
+        }
+        ILogicalPlan p0 = gby.getNestedPlans().get(0);
+        AbstractLogicalOperator r0 = (AbstractLogicalOperator) p0.getRoots().get(0).getOperator();
+        AbstractLogicalOperator r1 = (AbstractLogicalOperator) r0.getInputs().get(0).getOperator();
+        if (r0.getOperatorTag() != LogicalOperatorTag.AGGREGATE
+                || r1.getOperatorTag() != LogicalOperatorTag.NESTEDTUPLESOURCE) {
+            throw new AlgebricksException(
+                    "Micro hash group-by currently works only for one nested plan with one root containing"
+                            + " an aggregate and a nested-tuple-source.");
+        }
+        AggregateOperator aggOp = (AggregateOperator) r0;
+
+        int n = aggOp.getExpressions().size();
+        ISerializableAggregateFunctionFactory[] aff = new ISerializableAggregateFunctionFactory[n];
+        int i = 0;
+        ILogicalExpressionJobGen exprJobGen = context.getExpressionJobGen();
+        IVariableTypeEnvironment aggOpInputEnv = context.getTypeEnvironment(aggOp.getInputs().get(0).getOperator());
+        for (LogicalExpressionReference exprRef : aggOp.getExpressions()) {
+            AggregateFunctionCallExpression aggFun = (AggregateFunctionCallExpression) exprRef.getExpression();
+            aff[i++] = exprJobGen.createSerializableAggregateFunctionFactory(aggFun, aggOpInputEnv, inputSchemas,
+                    context);
+        }
+
+        // compile subplans and set the gby op. schema accordingly
+        compileSubplans(inputSchemas[0], gby, opSchema, context);
+        IVariableTypeEnvironment env = context.getTypeEnvironment(op.getInputs().get(0).getOperator());
+        IBinaryComparatorFactory[] comparatorFactories = JobGenHelper.variablesToAscBinaryComparatorFactories(gbyCols,
+                env, context);
+        IBinaryHashFunctionFactory[] hashFunctionFactories = JobGenHelper.variablesToBinaryHashFunctionFactories(
+                gbyCols, env, context);
+        RecordDescriptor recordDescriptor = JobGenHelper.mkRecordDescriptor(op, opSchema, context);
+        MicroHashGroupByRuntimeFactory runtime = createRuntime(keys, fdColumns, comparatorFactories,
+                hashFunctionFactories, aff);
+        builder.contributeMicroOperator(gby, runtime, recordDescriptor);
+        ILogicalOperator src = op.getInputs().get(0).getOperator();
+        builder.contributeGraphEdge(src, 0, op, 0);
+    }
+
+    protected MicroHashGroupByRuntimeFactory createRuntime(int[] keys, int[] fdColumns,
+            IBinaryComparatorFactory[] comparatorFactories, IBinaryHashFunctionFactory[] hashFunctionFactories,
+            ISerializableAggregateFunctionFactory[] aff) {
+        return new MicroHashGroupByRuntimeFactory(keys, fdColumns, comparatorFactories, hashFunctionFactories, aff,
+                null);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.operators.physical;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.expr.IPartialAggregationTypeComputer;
+import edu.uci.ics.algebricks.api.expr.IVariableTypeEnvironment;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AggregateOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.GroupByOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema;
+import edu.uci.ics.algebricks.compiler.algebra.properties.ILocalStructuralProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPhysicalPropertiesVector;
+import edu.uci.ics.algebricks.compiler.algebra.properties.StructuralPropertiesVector;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.base.IHyracksJobBuilder;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.group.MicroHashGroupByRuntimeFactory;
+import edu.uci.ics.algebricks.utils.Pair;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+
+/**
+ * Pre-aggregates the input of a hash exchange feeding an external group-by
+ * that merges partial aggregates. The group-by has one nested plan, an
+ * aggregate over the nested-tuple-source, whose variables are the ones used by
+ * the merge expressions of the group-by it feeds, and it outputs their partial
+ * results. The groups are kept in at most frameLimit frames and flushed when
+ * they fill them, so a key may be output several times.
+ */
+public class PartialHashGroupByPOperator extends MicroHashGroupByPOperator {
+
+    private final int frameLimit;
+
+    public PartialHashGroupByPOperator(List<Pair<LogicalVariable, LogicalExpressionReference>> gbyList,
+            int frameLimit) {
+        super(gbyList);
+        this.frameLimit = frameLimit;
+    }
+
+    @Override
+    public PhysicalOperatorTag getOperatorTag() {
+        return PhysicalOperatorTag.PARTIAL_HASH_GROUP_BY;
+    }
+
+    public int getFrameLimit() {
+        return frameLimit;
+    }
+
+    @Override
+    public void computeDeliveredProperties(ILogicalOperator op, IOptimizationContext context) {
+        // early flushes break the grouping of the output
+        ILogicalOperator op2 = op.getInputs().get(0).getOperator();
+        IPhysicalPropertiesVector childProp = op2.getDeliveredPhysicalProperties();
+        deliveredProperties = new StructuralPropertiesVector(childProp.getPartitioningProperty(),
+                new LinkedList<ILocalStructuralProperty>());
+    }
+
+    @Override
+    public void contributeRuntimeOperator(IHyracksJobBuilder builder, JobGenContext context, ILogicalOperator op,
+            IOperatorSchema opSchema, IOperatorSchema[] inputSchemas, IOperatorSchema outerPlanSchema)
+            throws AlgebricksException {
+        // the output carries the intermediate types of the aggregates
+        GroupByOperator gby = (GroupByOperator) op;
+        AggregateOperator aggOp = (AggregateOperator) gby.getNestedPlans().get(0).getRoots().get(0).getOperator();
+        IPartialAggregationTypeComputer partialAggregationTypeComputer = context.getPartialAggregationTypeComputer();
+        IVariableTypeEnvironment aggOpInputEnv = context.getTypeEnvironment(aggOp.getInputs().get(0).getOperator());
+        IVariableTypeEnvironment outputEnv = context.getTypeEnvironment(op);
+        List<LogicalVariable> aggVars = aggOp.getVariables();
+        for (int i = 0; i < aggVars.size(); i++) {
+            AggregateFunctionCallExpression aggFun = (AggregateFunctionCallExpression) aggOp.getExpressions().get(i)
+                    .getExpression();
+            outputEnv.setVarType(aggVars.get(i), partialAggregationTypeComputer.getType(aggFun, aggOpInputEnv,
+                    context.getMetadataProvider()));
+        }
+        super.contributeRuntimeOperator(builder, context, op, opSchema, inputSchemas, outerPlanSchema);
+    }
+
+    @Override
+    protected MicroHashGroupByRuntimeFactory createRuntime(int[] keys, int[] fdColumns,
+            IBinaryComparatorFactory[] comparatorFactories, IBinaryHashFunctionFactory[] hashFunctionFactories,
+            ISerializableAggregateFunctionFactory[] aff) {
+        return new MicroHashGroupByRuntimeFactory(keys, fdColumns, comparatorFactories, hashFunctionFactories, aff,
+                true, frameLimit, null);
+    }
+}
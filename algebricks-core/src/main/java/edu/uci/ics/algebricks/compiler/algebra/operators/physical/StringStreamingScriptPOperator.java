@@ -21,13 +21,16 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.ScriptOperator;
 import edu.uci.ics.algebricks.compiler.algebra.properties.IPhysicalPropertiesVector;
 import edu.uci.ics.algebricks.compiler.algebra.properties.PhysicalRequirements;
+import edu.uci.ics.algebricks.compiler.algebra.scripting.FrameStreamingScriptDescription;
 import edu.uci.ics.algebricks.compiler.algebra.scripting.IScriptDescription;
 import edu.uci.ics.algebricks.compiler.algebra.scripting.StringStreamingScriptDescription;
 import edu.uci.ics.algebricks.compiler.algebra.scripting.IScriptDescription.ScriptKind;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.base.IHyracksJobBuilder;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenHelper;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.FrameStreamingRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.StringStreamingRuntimeFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 
@@ -55,12 +58,17 @@ public class StringStreamingScriptPOperator extends AbstractPropagatePropertiesF
             throws AlgebricksException {
         ScriptOperator scriptOp = (ScriptOperator) op;
         IScriptDescription scriptDesc = scriptOp.getScriptDescription();
-        if (scriptDesc.getKind() != ScriptKind.STRING_STREAMING) {
+        IPushRuntimeFactory runtime;
+        if (scriptDesc.getKind() == ScriptKind.STRING_STREAMING) {
+            StringStreamingScriptDescription sssd = (StringStreamingScriptDescription) scriptDesc;
+            runtime = new StringStreamingRuntimeFactory(sssd.getCommand(), sssd.getPrinterFactories(), sssd
+                    .getFieldDelimiter(), sssd.getParserFactory());
+        } else if (scriptDesc.getKind() == ScriptKind.FRAME_STREAMING) {
+            FrameStreamingScriptDescription fssd = (FrameStreamingScriptDescription) scriptDesc;
+            runtime = new FrameStreamingRuntimeFactory(fssd.getCommand(), fssd.getMaxIdleProcesses());
+        } else {
             throw new IllegalStateException();
         }
-        StringStreamingScriptDescription sssd = (StringStreamingScriptDescription) scriptDesc;
-        StringStreamingRuntimeFactory runtime = new StringStreamingRuntimeFactory(sssd.getCommand(), sssd
-                .getPrinterFactories(), sssd.getFieldDelimiter(), sssd.getParserFactory());
         RecordDescriptor recDesc = JobGenHelper.mkRecordDescriptor(op, propagatedSchema, context);
         builder.contributeMicroOperator(scriptOp, runtime, recDesc);
         // and contribute one edge from its child
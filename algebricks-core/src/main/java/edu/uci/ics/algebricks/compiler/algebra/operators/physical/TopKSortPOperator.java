@@ -0,0 +1,96 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.operators.physical;
+
+import edu.uci.ics.algebricks.api.data.IBinaryComparatorFactoryProvider;
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.expr.ILogicalExpressionJobGen;
+import edu.uci.ics.algebricks.api.expr.IVariableTypeEnvironment;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.OrderOperator;
+import edu.uci.ics.algebricks.compiler.algebra.properties.OrderColumn;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.base.IHyracksJobBuilder;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenHelper;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.sort.TopKSortRuntimeFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+
+/**
+ *
+ * Sort of an {@link OrderOperator} whose output is cut by a limit with
+ * constant bounds. Only the first maxObjects + offset tuples are kept.
+ *
+ */
+public class TopKSortPOperator extends AbstractStableSortPOperator {
+
+    private final ILogicalExpression maxObjects;
+    private final ILogicalExpression offset;
+
+    /**
+     * @param offset
+     *            May be null.
+     */
+    public TopKSortPOperator(ILogicalExpression maxObjects, ILogicalExpression offset) {
+        this.maxObjects = maxObjects;
+        this.offset = offset;
+    }
+
+    @Override
+    public PhysicalOperatorTag getOperatorTag() {
+        return PhysicalOperatorTag.TOP_K_SORT;
+    }
+
+    @Override
+    public boolean isMicroOperator() {
+        return true;
+    }
+
+    @Override
+    public void contributeRuntimeOperator(IHyracksJobBuilder builder, JobGenContext context, ILogicalOperator op,
+            IOperatorSchema opSchema, IOperatorSchema[] inputSchemas, IOperatorSchema outerPlanSchema)
+            throws AlgebricksException {
+        RecordDescriptor recDescriptor = JobGenHelper.mkRecordDescriptor(op, opSchema, context);
+        int n = sortColumns.length;
+        int[] sortFields = new int[n];
+        IBinaryComparatorFactory[] comps = new IBinaryComparatorFactory[n];
+        IVariableTypeEnvironment env = context.getTypeEnvironment(op);
+        IBinaryComparatorFactoryProvider bcfp = context.getBinaryComparatorFactoryProvider();
+        int i = 0;
+        for (OrderColumn oc : sortColumns) {
+            LogicalVariable var = oc.getColumn();
+            sortFields[i] = opSchema.findVariable(var);
+            comps[i] = bcfp.getBinaryComparatorFactory(env.getVarType(var), oc.getOrder());
+            i++;
+        }
+
+        ILogicalExpressionJobGen exprJobGen = context.getExpressionJobGen();
+        IEvaluatorFactory maxObjectsFact = exprJobGen.createEvaluatorFactory(maxObjects, env, inputSchemas, context);
+        IEvaluatorFactory offsetFact = (offset == null) ? null : exprJobGen.createEvaluatorFactory(offset, env,
+                inputSchemas, context);
+
+        IPushRuntimeFactory runtime = new TopKSortRuntimeFactory(sortFields, comps, maxObjectsFact, offsetFact,
+                context.getBinaryIntegerInspector(), null);
+        builder.contributeMicroOperator(op, runtime, recDescriptor);
+        ILogicalOperator src = op.getInputs().get(0).getOperator();
+        builder.contributeGraphEdge(src, 0, op, 0);
+    }
+}
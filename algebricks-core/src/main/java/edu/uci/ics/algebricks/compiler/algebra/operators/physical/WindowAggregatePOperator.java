@@ -0,0 +1,161 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.operators.physical;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
+import edu.uci.ics.algebricks.api.expr.ILogicalExpressionJobGen;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.StatefulFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator.ExecutionMode;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.OrderOperator.IOrder;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.OrderOperator.IOrder.OrderKind;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WindowAggregateOperator;
+import edu.uci.ics.algebricks.compiler.algebra.properties.ILocalStructuralProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPartitioningProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPartitioningRequirementsCoordinator;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPhysicalPropertiesVector;
+import edu.uci.ics.algebricks.compiler.algebra.properties.LocalOrderProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.OrderColumn;
+import edu.uci.ics.algebricks.compiler.algebra.properties.PhysicalRequirements;
+import edu.uci.ics.algebricks.compiler.algebra.properties.StructuralPropertiesVector;
+import edu.uci.ics.algebricks.compiler.algebra.properties.UnorderedPartitionedProperty;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IRunningAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.base.IHyracksJobBuilder;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenHelper;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.WindowAggregateRuntimeFactory;
+import edu.uci.ics.algebricks.utils.Pair;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+
+/**
+ * Evaluates a window aggregate in one pass over its input, which is required
+ * to be sorted on the partition variables and then on the order variables, and
+ * to be hash partitioned on the partition variables.
+ */
+public class WindowAggregatePOperator extends AbstractPhysicalOperator {
+
+    @Override
+    public PhysicalOperatorTag getOperatorTag() {
+        return PhysicalOperatorTag.WINDOW_AGGREGATE;
+    }
+
+    @Override
+    public boolean isMicroOperator() {
+        return true;
+    }
+
+    @Override
+    public void computeDeliveredProperties(ILogicalOperator op, IOptimizationContext context) {
+        AbstractLogicalOperator op2 = (AbstractLogicalOperator) op.getInputs().get(0).getOperator();
+        deliveredProperties = (StructuralPropertiesVector) op2.getDeliveredPhysicalProperties().clone();
+    }
+
+    @Override
+    public PhysicalRequirements getRequiredPropertiesForChildren(ILogicalOperator op,
+            IPhysicalPropertiesVector reqdByParent) {
+        WindowAggregateOperator win = (WindowAggregateOperator) op;
+        List<LogicalVariable> partitionVars = getPartitionVariables(win);
+        List<ILocalStructuralProperty> localProps = new ArrayList<ILocalStructuralProperty>();
+        for (LogicalVariable v : partitionVars) {
+            localProps.add(new LocalOrderProperty(new OrderColumn(v, OrderKind.ASC)));
+        }
+        for (Pair<IOrder, LogicalExpressionReference> p : win.getOrderExpressions()) {
+            OrderKind kind = p.first.getKind();
+            if (kind == OrderKind.FUNCTIONCALL) {
+                throw new NotImplementedException("Window aggregates cannot be ordered by a comparison function.");
+            }
+            localProps.add(new LocalOrderProperty(new OrderColumn(getVariable(p.second.getExpression()), kind)));
+        }
+        IPartitioningProperty pp = null;
+        if (win.getExecutionMode() == ExecutionMode.PARTITIONED) {
+            if (partitionVars.isEmpty()) {
+                pp = IPartitioningProperty.UNPARTITIONED;
+            } else {
+                pp = new UnorderedPartitionedProperty(new HashSet<LogicalVariable>(partitionVars), null);
+            }
+        }
+        StructuralPropertiesVector[] r = new StructuralPropertiesVector[] { new StructuralPropertiesVector(pp,
+                localProps) };
+        return new PhysicalRequirements(r, IPartitioningRequirementsCoordinator.NO_COORDINATION);
+    }
+
+    @Override
+    public void contributeRuntimeOperator(IHyracksJobBuilder builder, JobGenContext context, ILogicalOperator op,
+            IOperatorSchema opSchema, IOperatorSchema[] inputSchemas, IOperatorSchema outerPlanSchema)
+            throws AlgebricksException {
+        WindowAggregateOperator win = (WindowAggregateOperator) op;
+        List<LogicalVariable> variables = win.getVariables();
+        List<LogicalExpressionReference> expressions = win.getExpressions();
+        int[] outColumns = new int[variables.size()];
+        for (int i = 0; i < outColumns.length; i++) {
+            outColumns[i] = opSchema.findVariable(variables.get(i));
+        }
+        ILogicalOperator src = win.getInputs().get(0).getOperator();
+        IRunningAggregateFunctionFactory[] windowAggFuns = new IRunningAggregateFunctionFactory[expressions.size()];
+        ILogicalExpressionJobGen exprJobGen = context.getExpressionJobGen();
+        for (int i = 0; i < windowAggFuns.length; i++) {
+            StatefulFunctionCallExpression expr = (StatefulFunctionCallExpression) expressions.get(i).getExpression();
+            windowAggFuns[i] = exprJobGen.createRunningAggregateFunctionFactory(expr, context
+                    .getTypeEnvironment(src), inputSchemas, context);
+        }
+
+        List<LogicalVariable> partitionVars = getPartitionVariables(win);
+        int[] partitionFields = JobGenHelper.variablesToFieldIndexes(partitionVars, inputSchemas[0]);
+        IBinaryComparatorFactory[] comparatorFactories = JobGenHelper.variablesToAscBinaryComparatorFactories(
+                partitionVars, context.getTypeEnvironment(src), context);
+        int rowsPreceding = win.getRowsPreceding() == WindowAggregateOperator.UNBOUNDED_PRECEDING
+                ? WindowAggregateRuntimeFactory.UNBOUNDED_PRECEDING : win.getRowsPreceding();
+
+        int[] projectionList = JobGenHelper.projectAllVariables(opSchema);
+
+        WindowAggregateRuntimeFactory runtime = new WindowAggregateRuntimeFactory(partitionFields,
+                comparatorFactories, outColumns, windowAggFuns, rowsPreceding, projectionList);
+
+        RecordDescriptor recDesc = JobGenHelper.mkRecordDescriptor(op, opSchema, context);
+        builder.contributeMicroOperator(win, runtime, recDesc);
+        builder.contributeGraphEdge(src, 0, win, 0);
+    }
+
+    private static List<LogicalVariable> getPartitionVariables(WindowAggregateOperator win) {
+        List<LogicalVariable> vars = new ArrayList<LogicalVariable>(win.getPartitionExpressions().size());
+        for (LogicalExpressionReference exprRef : win.getPartitionExpressions()) {
+            vars.add(getVariable(exprRef.getExpression()));
+        }
+        return vars;
+    }
+
+    private static LogicalVariable getVariable(ILogicalExpression expr) {
+        if (expr.getExpressionTag() != LogicalExpressionTag.VARIABLE) {
+            throw new IllegalStateException("Window aggregates expect variable references, not " + expr + ".");
+        }
+        return ((VariableReferenceExpression) expr).getVariableReference();
+    }
+
+}
@@ -49,6 +49,7 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SubplanOperator
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnionAllOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestMapOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WindowAggregateOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteResultOperator;
 import edu.uci.ics.algebricks.compiler.algebra.visitors.ILogicalOperatorVisitor;
@@ -76,6 +77,25 @@ public class LogicalOperatorPrettyPrintVisitor implements ILogicalOperatorVisito
         return buffer.toString();
     }
 
+    @Override
+    public String visitWindowAggregateOperator(WindowAggregateOperator op, Integer indent) {
+        StringBuilder buffer = new StringBuilder();
+        addIndent(buffer, indent).append("window-aggregate ").append(op.getVariables()).append(" <- ");
+        pprintExprList(op.getExpressions(), buffer);
+        buffer.append(" partition ");
+        pprintExprList(op.getPartitionExpressions(), buffer);
+        buffer.append(" order ");
+        for (Pair<OrderOperator.IOrder, LogicalExpressionReference> p : op.getOrderExpressions()) {
+            buffer.append("(" + p.first.getKind() + ", " + p.second.getExpression() + ") ");
+        }
+        if (op.getRowsPreceding() == WindowAggregateOperator.UNBOUNDED_PRECEDING) {
+            buffer.append("rows unbounded preceding");
+        } else {
+            buffer.append("rows " + op.getRowsPreceding() + " preceding");
+        }
+        return buffer.toString();
+    }
+
     @Override
     public String visitEmptyTupleSourceOperator(EmptyTupleSourceOperator op, Integer indent) {
         StringBuilder buffer = new StringBuilder();
@@ -14,8 +14,17 @@
  */
 package edu.uci.ics.algebricks.compiler.algebra.properties;
 
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IColumnStatistics;
+
 public interface ILogicalPropertiesVector {
     public Integer getNumberOfTuples();
 
     public Integer getMaxOutputFrames();
+
+    /**
+     * @return the statistics of the values of the variable, or null if
+     *         unknown. The distinct count may exceed the number of tuples.
+     */
+    public IColumnStatistics getVariableStatistics(LogicalVariable var);
 }
@@ -14,9 +14,16 @@
  */
 package edu.uci.ics.algebricks.compiler.algebra.properties;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IColumnStatistics;
+
 public class LogicalPropertiesVectorImpl implements ILogicalPropertiesVector {
 
     private Integer numTuples, maxOutputFrames;
+    private final Map<LogicalVariable, IColumnStatistics> varStats = new HashMap<LogicalVariable, IColumnStatistics>();
 
     @Override
     public String toString() {
@@ -40,4 +47,22 @@ public class LogicalPropertiesVectorImpl implements ILogicalPropertiesVector {
     public void setMaxOutputFrames(Integer maxOutputFrames) {
         this.maxOutputFrames = maxOutputFrames;
     }
+
+    @Override
+    public IColumnStatistics getVariableStatistics(LogicalVariable var) {
+        return varStats.get(var);
+    }
+
+    public void setVariableStatistics(LogicalVariable var, IColumnStatistics stats) {
+        varStats.put(var, stats);
+    }
+
+    /**
+     * Copies the statistics of the variables of v.
+     */
+    public void addVariableStatistics(ILogicalPropertiesVector v) {
+        if (v instanceof LogicalPropertiesVectorImpl) {
+            varStats.putAll(((LogicalPropertiesVectorImpl) v).varStats);
+        }
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.algebra.scripting;
+
+import java.util.List;
+
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.FrameStreamingRuntimeFactory;
+import edu.uci.ics.algebricks.utils.Pair;
+
+/**
+ * A script that exchanges binary frames with the engine, see
+ * {@link FrameStreamingRuntimeFactory} for the protocol. The script must read
+ * and write tuples in the layout of the input and output record descriptors.
+ */
+public class FrameStreamingScriptDescription implements IScriptDescription {
+
+    private final String command;
+    private final int maxIdleProcesses;
+    private final List<Pair<LogicalVariable, Object>> varTypePairs;
+
+    public FrameStreamingScriptDescription(String command, List<Pair<LogicalVariable, Object>> varTypePairs) {
+        this(command, FrameStreamingRuntimeFactory.DEFAULT_MAX_IDLE_PROCESSES, varTypePairs);
+    }
+
+    public FrameStreamingScriptDescription(String command, int maxIdleProcesses,
+            List<Pair<LogicalVariable, Object>> varTypePairs) {
+        this.command = command;
+        this.maxIdleProcesses = maxIdleProcesses;
+        this.varTypePairs = varTypePairs;
+    }
+
+    @Override
+    public ScriptKind getKind() {
+        return ScriptKind.FRAME_STREAMING;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public int getMaxIdleProcesses() {
+        return maxIdleProcesses;
+    }
+
+    @Override
+    public List<Pair<LogicalVariable, Object>> getVarTypePairs() {
+        return varTypePairs;
+    }
+}
@@ -21,7 +21,8 @@ import edu.uci.ics.algebricks.utils.Pair;
 
 public interface IScriptDescription {
     public enum ScriptKind {
-        STRING_STREAMING
+        STRING_STREAMING,
+        FRAME_STREAMING
     }
 
     public ScriptKind getKind();
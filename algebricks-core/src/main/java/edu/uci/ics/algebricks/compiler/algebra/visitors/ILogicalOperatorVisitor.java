@@ -41,6 +41,7 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SubplanOperator
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnionAllOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestMapOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnnestOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WindowAggregateOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteResultOperator;
 
@@ -50,6 +51,8 @@ public interface ILogicalOperatorVisitor<R, T> {
 
     public R visitRunningAggregateOperator(RunningAggregateOperator op, T arg) throws AlgebricksException;
 
+    public R visitWindowAggregateOperator(WindowAggregateOperator op, T arg) throws AlgebricksException;
+
     public R visitEmptyTupleSourceOperator(EmptyTupleSourceOperator op, T arg) throws AlgebricksException;
 
     public R visitGroupByOperator(GroupByOperator op, T arg) throws AlgebricksException;
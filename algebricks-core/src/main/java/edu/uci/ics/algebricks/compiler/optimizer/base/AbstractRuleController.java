@@ -17,18 +17,20 @@ package edu.uci.ics.algebricks.compiler.optimizer.base;
 import java.util.Collection;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractOperatorWithNestedPlans;
-import edu.uci.ics.algebricks.compiler.algebra.prettyprint.LogicalOperatorPrettyPrintVisitor;
-import edu.uci.ics.algebricks.compiler.algebra.prettyprint.PlanPrettyPrinter;
-import edu.uci.ics.algebricks.config.AlgebricksConfig;
 
 public abstract class AbstractRuleController {
 
     protected IOptimizationContext context;
-    private LogicalOperatorPrettyPrintVisitor pvisitor = new LogicalOperatorPrettyPrintVisitor();
+    private IOptimizerTraceListener traceListener = LoggingOptimizerTraceListener.INSTANCE;
+    private OptimizerStatistics statistics;
+    // counters of the current application of a rule
+    private int firings;
+    private long visitedOperators;
 
     public AbstractRuleController() {
     }
@@ -37,6 +39,15 @@ public abstract class AbstractRuleController {
         this.context = context;
     }
 
+    /**
+     * @param statistics
+     *            where to record the work of the rules, or null
+     */
+    public void setTrace(IOptimizerTraceListener traceListener, OptimizerStatistics statistics) {
+        this.traceListener = traceListener;
+        this.statistics = statistics;
+    }
+
     /**
      * Each rewriting strategy may differ in the
      * 
@@ -58,26 +69,70 @@ public abstract class AbstractRuleController {
         return rewriteOperatorRef(opRef, rule, true, false);
     }
 
-    private void printRuleApplication(IAlgebraicRewriteRule rule, LogicalOperatorReference opRef)
-            throws AlgebricksException {
-        AlgebricksConfig.ALGEBRICKS_LOGGER.fine(">>>> Rule " + rule.getClass() + " fired.\n");
-        StringBuilder sb = new StringBuilder();
-        PlanPrettyPrinter.printOperator((AbstractLogicalOperator) opRef.getOperator(), sb, pvisitor, 0);
-        AlgebricksConfig.ALGEBRICKS_LOGGER.fine(sb.toString());
+    /**
+     * @return false if the rule declares that it cannot rewrite op.
+     */
+    protected static boolean mayMatch(IAlgebraicRewriteRule rule, ILogicalOperator op) {
+        return !(rule instanceof ITagFilteredRewriteRule)
+                || ((ITagFilteredRewriteRule) rule).getMatchedOperatorTags().contains(op.getOperatorTag());
+    }
+
+    /**
+     * Starts counting the work of an application of a rule to the plan.
+     * 
+     * @return the start time, to be passed to
+     *         {@link #endRuleApplication(IAlgebraicRewriteRule, long)}
+     */
+    protected long startRuleApplication() {
+        firings = 0;
+        visitedOperators = 0;
+        return System.nanoTime();
+    }
+
+    protected void endRuleApplication(IAlgebraicRewriteRule rule, long start) {
+        if (statistics != null) {
+            statistics.ruleApplied(rule, firings, visitedOperators, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * To be called each time the rule is tried on an operator.
+     */
+    protected void operatorVisited() {
+        visitedOperators++;
+    }
+
+    /**
+     * To be called each time the rule rewrites the operator in opRef.
+     */
+    protected void ruleFired(IAlgebraicRewriteRule rule, LogicalOperatorReference opRef) {
+        firings++;
+        traceListener.ruleFired(rule, new PlanRendering(opRef.getOperator()));
     }
 
     protected boolean rewriteOperatorRef(LogicalOperatorReference opRef, IAlgebraicRewriteRule rule,
             boolean enterNestedPlans, boolean fullDFS) throws AlgebricksException {
+        long start = startRuleApplication();
+        boolean rewritten = rewriteOperatorRefRec(opRef, rule, enterNestedPlans, fullDFS);
+        endRuleApplication(rule, start);
+        return rewritten;
+    }
 
-        if (rule.rewritePre(opRef, context)) {
-            printRuleApplication(rule, opRef);
-            return true;
+    private boolean rewriteOperatorRefRec(LogicalOperatorReference opRef, IAlgebraicRewriteRule rule,
+            boolean enterNestedPlans, boolean fullDFS) throws AlgebricksException {
+        boolean match = mayMatch(rule, opRef.getOperator());
+        if (match) {
+            operatorVisited();
+            if (rule.rewritePre(opRef, context)) {
+                ruleFired(rule, opRef);
+                return true;
+            }
         }
         boolean rewritten = false;
         AbstractLogicalOperator op = (AbstractLogicalOperator) opRef.getOperator();
 
         for (LogicalOperatorReference inp : op.getInputs()) {
-            if (rewriteOperatorRef(inp, rule, enterNestedPlans, fullDFS)) {
+            if (rewriteOperatorRefRec(inp, rule, enterNestedPlans, fullDFS)) {
                 rewritten = true;
                 if (!fullDFS) {
                     break;
@@ -89,7 +144,7 @@ public abstract class AbstractRuleController {
             AbstractOperatorWithNestedPlans o2 = (AbstractOperatorWithNestedPlans) op;
             for (ILogicalPlan p : o2.getNestedPlans()) {
                 for (LogicalOperatorReference r : p.getRoots()) {
-                    if (rewriteOperatorRef(r, rule, enterNestedPlans, fullDFS)) {
+                    if (rewriteOperatorRefRec(r, rule, enterNestedPlans, fullDFS)) {
                         rewritten = true;
                         if (!fullDFS) {
                             break;
@@ -102,8 +157,8 @@ public abstract class AbstractRuleController {
             }
         }
 
-        if (rule.rewritePost(opRef, context)) {
-            printRuleApplication(rule, opRef);
+        if (match && rule.rewritePost(opRef, context)) {
+            ruleFired(rule, opRef);
             return true;
         }
 
@@ -8,8 +8,6 @@ import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
 import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractOperatorWithNestedPlans;
-import edu.uci.ics.algebricks.compiler.algebra.prettyprint.LogicalOperatorPrettyPrintVisitor;
-import edu.uci.ics.algebricks.compiler.algebra.prettyprint.PlanPrettyPrinter;
 import edu.uci.ics.algebricks.config.AlgebricksConfig;
 import edu.uci.ics.algebricks.utils.Pair;
 
@@ -37,7 +35,8 @@ public class HeuristicOptimizer {
     private List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> logicalRewrites;
     private List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> physicalRewrites;
     private ILogicalPlan plan;
-    private LogicalOperatorPrettyPrintVisitor ppvisitor = new LogicalOperatorPrettyPrintVisitor();
+    private IOptimizerTraceListener traceListener = LoggingOptimizerTraceListener.INSTANCE;
+    private OptimizerStatistics statistics = new OptimizerStatistics();
 
     public HeuristicOptimizer(ILogicalPlan plan,
             List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> logicalRewrites,
@@ -49,6 +48,14 @@ public class HeuristicOptimizer {
         this.physicalRewrites = physicalRewrites;
     }
 
+    public void setTraceListener(IOptimizerTraceListener traceListener) {
+        this.traceListener = traceListener;
+    }
+
+    public OptimizerStatistics getStatistics() {
+        return statistics;
+    }
+
     public void optimize() throws AlgebricksException {
         if (plan == null) {
             return;
@@ -57,24 +64,28 @@ public class HeuristicOptimizer {
             AlgebricksConfig.ALGEBRICKS_LOGGER.fine("Starting logical optimizations.\n");
         }
 
-        StringBuilder sb = new StringBuilder();
-        PlanPrettyPrinter.printPlan(plan, sb, ppvisitor, 0);
-        AlgebricksConfig.ALGEBRICKS_LOGGER.fine("Logical Plan:\n" + sb.toString());
-        runOptimizationSets(plan, logicalRewrites);
+        traceListener.plan("Logical Plan", new PlanRendering(plan));
+        runOptimizationSets(plan, logicalRewrites, "logical");
         computeSchemaBottomUpForPlan(plan);
         runPhysicalOptimizations(plan, physicalRewrites);
-        StringBuilder sb2 = new StringBuilder();
-        PlanPrettyPrinter.printPlan(plan, sb2, ppvisitor, 0);
-        AlgebricksConfig.ALGEBRICKS_LOGGER.fine("Optimized Plan:\n" + sb2.toString());
+        traceListener.plan("Optimized Plan", new PlanRendering(plan));
+        traceListener.optimizationDone(statistics);
     }
 
     private void runOptimizationSets(ILogicalPlan plan,
-            List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> optimSet) throws AlgebricksException {
+            List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> optimSet, String phase)
+            throws AlgebricksException {
+        int index = 0;
         for (Pair<AbstractRuleController, List<IAlgebraicRewriteRule>> ruleList : optimSet) {
             for (LogicalOperatorReference r : plan.getRoots()) {
                 ruleList.first.setContext(context);
-                ruleList.first.rewriteWithRuleCollection(r, ruleList.second);
+                ruleList.first.setTrace(traceListener, statistics);
+                long start = System.nanoTime();
+                boolean fired = ruleList.first.rewriteWithRuleCollection(r, ruleList.second);
+                statistics.passDone(phase, index, ruleList.first, ruleList.second.size(), fired, System.nanoTime()
+                        - start);
             }
+            index++;
         }
     }
 
@@ -104,7 +115,7 @@ public class HeuristicOptimizer {
             AlgebricksConfig.ALGEBRICKS_LOGGER.fine("Starting physical optimizations.\n");
         }
         // PhysicalOptimizationsUtil.computeFDsAndEquivalenceClasses(plan);
-        runOptimizationSets(plan, physicalRewrites);
+        runOptimizationSets(plan, physicalRewrites, "physical");
     }
 
 }
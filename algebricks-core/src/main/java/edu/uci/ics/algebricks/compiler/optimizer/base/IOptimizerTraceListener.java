@@ -0,0 +1,40 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.optimizer.base;
+
+/**
+ * Follows the work of a {@link HeuristicOptimizer}. Plans are handed out as
+ * {@link PlanRendering}s, which build their text only when asked to, so a
+ * listener that does not look at them costs no pretty-printing.
+ */
+public interface IOptimizerTraceListener {
+
+    /**
+     * Called with the plan before the optimizations, titled "Logical Plan",
+     * and after them, titled "Optimized Plan".
+     */
+    public void plan(String title, PlanRendering plan);
+
+    /**
+     * Called each time a rule rewrites an operator, with the rewritten
+     * subtree.
+     */
+    public void ruleFired(IAlgebraicRewriteRule rule, PlanRendering subtree);
+
+    /**
+     * Called once the optimizations are over.
+     */
+    public void optimizationDone(OptimizerStatistics statistics);
+}
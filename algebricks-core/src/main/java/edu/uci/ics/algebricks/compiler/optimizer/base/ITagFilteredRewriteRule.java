@@ -0,0 +1,33 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.optimizer.base;
+
+import java.util.Set;
+
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+
+/**
+ * A rule that can only rewrite operators with some tags. Rule controllers do
+ * not call {@link #rewritePre} and {@link #rewritePost} on the other
+ * operators, they only visit their inputs and nested plans.
+ */
+public interface ITagFilteredRewriteRule extends IAlgebraicRewriteRule {
+
+    /**
+     * @return the tags of the operators the rule may rewrite, the same set
+     *         each time.
+     */
+    public Set<LogicalOperatorTag> getMatchedOperatorTags();
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.optimizer.base;
+
+import java.util.logging.Level;
+
+import edu.uci.ics.algebricks.config.AlgebricksConfig;
+
+/**
+ * Writes the plans, the rule firings and the statistics to the Algebricks
+ * logger at level FINE. Nothing is rendered when that level is off.
+ */
+public class LoggingOptimizerTraceListener implements IOptimizerTraceListener {
+
+    public static final LoggingOptimizerTraceListener INSTANCE = new LoggingOptimizerTraceListener();
+
+    private LoggingOptimizerTraceListener() {
+    }
+
+    @Override
+    public void plan(String title, PlanRendering plan) {
+        if (AlgebricksConfig.ALGEBRICKS_LOGGER.isLoggable(Level.FINE)) {
+            AlgebricksConfig.ALGEBRICKS_LOGGER.fine(title + ":\n" + plan);
+        }
+    }
+
+    @Override
+    public void ruleFired(IAlgebraicRewriteRule rule, PlanRendering subtree) {
+        if (AlgebricksConfig.ALGEBRICKS_LOGGER.isLoggable(Level.FINE)) {
+            AlgebricksConfig.ALGEBRICKS_LOGGER.fine(">>>> Rule " + rule.getClass() + " fired.\n");
+            AlgebricksConfig.ALGEBRICKS_LOGGER.fine(subtree.toString());
+        }
+    }
+
+    @Override
+    public void optimizationDone(OptimizerStatistics statistics) {
+        if (AlgebricksConfig.ALGEBRICKS_LOGGER.isLoggable(Level.FINE)) {
+            AlgebricksConfig.ALGEBRICKS_LOGGER.fine("Optimizer statistics:\n" + statistics);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.optimizer.base;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counters and wall times of one optimization, for every rule and every pass
+ * of a rule controller over a rule collection.
+ */
+public class OptimizerStatistics {
+
+    public static class RuleStatistics {
+        private final IAlgebraicRewriteRule rule;
+        private int applications;
+        private int firings;
+        private long visitedOperators;
+        private long nanos;
+
+        private RuleStatistics(IAlgebraicRewriteRule rule) {
+            this.rule = rule;
+        }
+
+        public IAlgebraicRewriteRule getRule() {
+            return rule;
+        }
+
+        /**
+         * @return how many times the rule was applied to a whole plan.
+         */
+        public int getApplications() {
+            return applications;
+        }
+
+        public int getFirings() {
+            return firings;
+        }
+
+        public long getVisitedOperators() {
+            return visitedOperators;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return rule.getClass().getName() + ": " + applications + " applications, " + firings + " firings, "
+                    + visitedOperators + " visited operators, " + (nanos / 1000) + " us";
+        }
+    }
+
+    public static class PassStatistics {
+        private final String phase;
+        private final int index;
+        private final AbstractRuleController controller;
+        private final int nRules;
+        private final boolean fired;
+        private final long nanos;
+
+        private PassStatistics(String phase, int index, AbstractRuleController controller, int nRules,
+                boolean fired, long nanos) {
+            this.phase = phase;
+            this.index = index;
+            this.controller = controller;
+            this.nRules = nRules;
+            this.fired = fired;
+            this.nanos = nanos;
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        /**
+         * @return the position of the rule collection in the rewrites of
+         *         the phase.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public AbstractRuleController getController() {
+            return controller;
+        }
+
+        public int getRuleCount() {
+            return nRules;
+        }
+
+        public boolean anyRuleFired() {
+            return fired;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return phase + " pass " + index + " (" + controller.getClass().getSimpleName() + ", " + nRules
+                    + " rules): " + (fired ? "fired" : "no change") + ", " + (nanos / 1000) + " us";
+        }
+    }
+
+    private final Map<IAlgebraicRewriteRule, RuleStatistics> rules =
+            new LinkedHashMap<IAlgebraicRewriteRule, RuleStatistics>();
+    private final List<PassStatistics> passes = new ArrayList<PassStatistics>();
+
+    public void ruleApplied(IAlgebraicRewriteRule rule, int firings, long visitedOperators, long nanos) {
+        RuleStatistics rs = rules.get(rule);
+        if (rs == null) {
+            rs = new RuleStatistics(rule);
+            rules.put(rule, rs);
+        }
+        rs.applications++;
+        rs.firings += firings;
+        rs.visitedOperators += visitedOperators;
+        rs.nanos += nanos;
+    }
+
+    public void passDone(String phase, int index, AbstractRuleController controller, int nRules, boolean fired,
+            long nanos) {
+        passes.add(new PassStatistics(phase, index, controller, nRules, fired, nanos));
+    }
+
+    /**
+     * @return the statistics of the rules, in the order they were first
+     *         applied.
+     */
+    public Collection<RuleStatistics> getRuleStatistics() {
+        return rules.values();
+    }
+
+    public List<PassStatistics> getPassStatistics() {
+        return passes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (PassStatistics ps : passes) {
+            sb.append(ps).append('\n');
+        }
+        for (RuleStatistics rs : rules.values()) {
+            sb.append(rs).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -7,10 +7,15 @@ public class PhysicalOptimizationConfig {
     private static final String FRAMESIZE = "FRAMESIZE";
     private static final String MAX_FRAMES_EXTERNAL_SORT = "MAX_FRAMES_EXTERNAL_SORT";
     private static final String MAX_FRAMES_EXTERNAL_GROUP_BY = "MAX_FRAMES_EXTERNAL_GROUP_BY";
+    private static final String MAX_FRAMES_HASH_DISTINCT = "MAX_FRAMES_HASH_DISTINCT";
+    private static final String MAX_FRAMES_PARTIAL_GROUP_BY = "MAX_FRAMES_PARTIAL_GROUP_BY";
+    private static final String MAX_FRAMES_PER_PARTITION = "MAX_FRAMES_PER_PARTITION";
+    private static final String PARTIAL_GROUP_BY = "PARTIAL_GROUP_BY";
 
     private static final String DEFAULT_HASH_GROUP_TABLE_SIZE = "DEFAULT_HASH_GROUP_TABLE_SIZE";
     private static final String DEFAULT_EXTERNAL_GROUP_TABLE_SIZE = "DEFAULT_EXTERNAL_GROUP_TABLE_SIZE";
     private static final String DEFAULT_IN_MEM_HASH_JOIN_TABLE_SIZE = "DEFAULT_IN_MEM_HASH_JOIN_TABLE_SIZE";
+    private static final String MAX_RELATIONS_EXHAUSTIVE_JOIN_ENUMERATION = "MAX_RELATIONS_EXHAUSTIVE_JOIN_ENUMERATION";
 
     private Properties properties = new Properties();
 
@@ -19,11 +24,17 @@ public class PhysicalOptimizationConfig {
         setInt(FRAMESIZE, frameSize);
         setInt(MAX_FRAMES_EXTERNAL_SORT, (int) (((long) 512 * MB) / frameSize));
         setInt(MAX_FRAMES_EXTERNAL_GROUP_BY, (int) (((long) 256 * MB) / frameSize));
+        setInt(MAX_FRAMES_HASH_DISTINCT, (int) (((long) 256 * MB) / frameSize));
+        setInt(MAX_FRAMES_PARTIAL_GROUP_BY, (int) (((long) 32 * MB) / frameSize));
+        setInt(MAX_FRAMES_PER_PARTITION, (int) (((long) 2048 * MB) / frameSize));
+        setBoolean(PARTIAL_GROUP_BY, true);
 
         // use http://www.rsok.com/~jrm/printprimes.html to find prime numbers
         setInt(DEFAULT_HASH_GROUP_TABLE_SIZE, 10485767);
         setInt(DEFAULT_EXTERNAL_GROUP_TABLE_SIZE, 10485767);
         setInt(DEFAULT_IN_MEM_HASH_JOIN_TABLE_SIZE, 10485767);
+
+        setInt(MAX_RELATIONS_EXHAUSTIVE_JOIN_ENUMERATION, 10);
     }
 
     public int getFrameSize() {
@@ -52,6 +63,50 @@ public class PhysicalOptimizationConfig {
         setInt(MAX_FRAMES_EXTERNAL_GROUP_BY, frameLimit);
     }
 
+    public int getMaxFramesHashDistinct() {
+        int frameSize = getFrameSize();
+        return getInt(MAX_FRAMES_HASH_DISTINCT, (int) (((long) 256 * MB) / frameSize));
+    }
+
+    public void setMaxFramesHashDistinct(int frameLimit) {
+        setInt(MAX_FRAMES_HASH_DISTINCT, frameLimit);
+    }
+
+    public int getMaxFramesPartialGroupBy() {
+        int frameSize = getFrameSize();
+        return getInt(MAX_FRAMES_PARTIAL_GROUP_BY, (int) (((long) 32 * MB) / frameSize));
+    }
+
+    public void setMaxFramesPartialGroupBy(int frameLimit) {
+        setInt(MAX_FRAMES_PARTIAL_GROUP_BY, frameLimit);
+    }
+
+    /**
+     * @return the number of frames the micro-operators of one partition of a
+     *         generated operator may borrow from their frame pool, 2GB by
+     *         default: enough for two external sorts in one pipeline.
+     */
+    public int getMaxFramesPerPartition() {
+        int frameSize = getFrameSize();
+        return getInt(MAX_FRAMES_PER_PARTITION, (int) (((long) 2048 * MB) / frameSize));
+    }
+
+    public void setMaxFramesPerPartition(int frameLimit) {
+        setInt(MAX_FRAMES_PER_PARTITION, frameLimit);
+    }
+
+    /**
+     * @return whether the input of external group-bys is pre-aggregated below
+     *         the hash exchange, true by default.
+     */
+    public boolean isPartialGroupByEnabled() {
+        return getBoolean(PARTIAL_GROUP_BY, true);
+    }
+
+    public void setPartialGroupByEnabled(boolean enabled) {
+        setBoolean(PARTIAL_GROUP_BY, enabled);
+    }
+
     public int getHashGroupByTableSize() {
         return getInt(DEFAULT_HASH_GROUP_TABLE_SIZE, 10485767);
     }
@@ -76,10 +131,34 @@ public class PhysicalOptimizationConfig {
         setInt(DEFAULT_IN_MEM_HASH_JOIN_TABLE_SIZE, tableSize);
     }
 
+    /**
+     * @return the largest number of joined relations whose join orders are
+     *         all enumerated; larger joins are ordered greedily.
+     */
+    public int getMaxRelationsExhaustiveJoinEnumeration() {
+        return getInt(MAX_RELATIONS_EXHAUSTIVE_JOIN_ENUMERATION, 10);
+    }
+
+    public void setMaxRelationsExhaustiveJoinEnumeration(int nRelations) {
+        setInt(MAX_RELATIONS_EXHAUSTIVE_JOIN_ENUMERATION, nRelations);
+    }
+
     private void setInt(String property, int value) {
         properties.setProperty(property, Integer.toString(value));
     }
 
+    private void setBoolean(String property, boolean value) {
+        properties.setProperty(property, Boolean.toString(value));
+    }
+
+    private boolean getBoolean(String property, boolean defaultValue) {
+        String value = properties.getProperty(property);
+        if (value == null)
+            return defaultValue;
+        else
+            return Boolean.parseBoolean(value);
+    }
+
     private int getInt(String property, int defaultValue) {
         String value = properties.getProperty(property);
         if (value == null)
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.optimizer.base;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.prettyprint.LogicalOperatorPrettyPrintVisitor;
+import edu.uci.ics.algebricks.compiler.algebra.prettyprint.PlanPrettyPrinter;
+
+/**
+ * A plan, or an operator and its inputs, pretty-printed on demand. The plan
+ * keeps being rewritten by the optimizer, so a rendering shows the state of
+ * the plan at the time {@link #render()} is called and should be rendered
+ * during the callback that received it.
+ */
+public class PlanRendering {
+
+    private final ILogicalPlan plan;
+    private final ILogicalOperator op;
+
+    public PlanRendering(ILogicalPlan plan) {
+        this.plan = plan;
+        this.op = null;
+    }
+
+    public PlanRendering(ILogicalOperator op) {
+        this.plan = null;
+        this.op = op;
+    }
+
+    public String render() throws AlgebricksException {
+        StringBuilder sb = new StringBuilder();
+        LogicalOperatorPrettyPrintVisitor pvisitor = new LogicalOperatorPrettyPrintVisitor();
+        if (plan != null) {
+            PlanPrettyPrinter.printPlan(plan, sb, pvisitor, 0);
+        } else {
+            PlanPrettyPrinter.printOperator((AbstractLogicalOperator) op, sb, pvisitor, 0);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return render();
+        } catch (AlgebricksException e) {
+            return "<could not print the plan: " + e.getMessage() + ">";
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.optimizer.rulecontrollers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractOperatorWithNestedPlans;
+import edu.uci.ics.algebricks.compiler.optimizer.base.AbstractRuleController;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
+
+/**
+ * Runs rules sequentially (round-robin), until one iteration over all rules
+ * produces no change, like {@link SequentialFixpointRuleController} with a
+ * full DFS, but does not revisit the parts of the plan that did not change.
+ * For each rule, the controller remembers the operators whose subtree the
+ * rule went through without firing. When a rule fires, the rewritten subtree
+ * and the operators above it are forgotten for all the rules, and the next
+ * iterations only visit them.
+ * This assumes that a rule only changes the subtree of the operator it is
+ * given, and that whether a rule fires on a subtree does not depend on the
+ * rest of the plan.
+ */
+public class WorklistRuleController extends AbstractRuleController {
+
+    // for each rule, the operators whose subtree is known not to be rewritten by the rule
+    private Map<IAlgebraicRewriteRule, Set<ILogicalOperator>> cleanOps;
+    // the operators from the root down to the one being visited
+    private final List<ILogicalOperator> path = new ArrayList<ILogicalOperator>();
+
+    public WorklistRuleController() {
+        super();
+    }
+
+    @Override
+    public boolean rewriteWithRuleCollection(LogicalOperatorReference root,
+            Collection<IAlgebraicRewriteRule> ruleCollection) throws AlgebricksException {
+        cleanOps = new IdentityHashMap<IAlgebraicRewriteRule, Set<ILogicalOperator>>();
+        for (IAlgebraicRewriteRule rule : ruleCollection) {
+            cleanOps.put(rule, Collections.newSetFromMap(new IdentityHashMap<ILogicalOperator, Boolean>()));
+        }
+        boolean anyRuleFired = false;
+        boolean anyChange = false;
+        try {
+            do {
+                anyChange = false;
+                for (IAlgebraicRewriteRule rule : ruleCollection) {
+                    long start = startRuleApplication();
+                    boolean ruleFired = rewriteDirty(root, rule, cleanOps.get(rule));
+                    endRuleApplication(rule, start);
+                    if (ruleFired) {
+                        anyChange = true;
+                        anyRuleFired = true;
+                    }
+                }
+            } while (anyChange);
+        } finally {
+            cleanOps = null;
+            path.clear();
+        }
+        return anyRuleFired;
+    }
+
+    private boolean rewriteDirty(LogicalOperatorReference opRef, IAlgebraicRewriteRule rule,
+            Set<ILogicalOperator> clean) throws AlgebricksException {
+        AbstractLogicalOperator op = (AbstractLogicalOperator) opRef.getOperator();
+        if (clean.contains(op)) {
+            return false;
+        }
+        boolean match = mayMatch(rule, op);
+        if (match) {
+            operatorVisited();
+            if (rule.rewritePre(opRef, context)) {
+                fired(rule, opRef);
+                return true;
+            }
+        }
+        boolean rewritten = false;
+        path.add(op);
+        for (LogicalOperatorReference inp : op.getInputs()) {
+            if (rewriteDirty(inp, rule, clean)) {
+                rewritten = true;
+            }
+        }
+        if (op.hasNestedPlans()) {
+            for (ILogicalPlan p : ((AbstractOperatorWithNestedPlans) op).getNestedPlans()) {
+                for (LogicalOperatorReference r : p.getRoots()) {
+                    if (rewriteDirty(r, rule, clean)) {
+                        rewritten = true;
+                    }
+                }
+            }
+        }
+        path.remove(path.size() - 1);
+        if (match && rule.rewritePost(opRef, context)) {
+            fired(rule, opRef);
+            return true;
+        }
+        if (!rewritten) {
+            clean.add(op);
+        }
+        return rewritten;
+    }
+
+    private void fired(IAlgebraicRewriteRule rule, LogicalOperatorReference opRef) {
+        ruleFired(rule, opRef);
+        for (Set<ILogicalOperator> clean : cleanOps.values()) {
+            clean.removeAll(path);
+            forgetSubtree(opRef.getOperator(), clean);
+        }
+    }
+
+    private static void forgetSubtree(ILogicalOperator op, Set<ILogicalOperator> clean) {
+        clean.remove(op);
+        for (LogicalOperatorReference inp : op.getInputs()) {
+            forgetSubtree(inp.getOperator(), clean);
+        }
+        AbstractLogicalOperator op2 = (AbstractLogicalOperator) op;
+        if (op2.hasNestedPlans()) {
+            for (ILogicalPlan p : ((AbstractOperatorWithNestedPlans) op2).getNestedPlans()) {
+                for (LogicalOperatorReference r : p.getRoots()) {
+                    forgetSubtree(r.getOperator(), clean);
+                }
+            }
+        }
+    }
+}
@@ -15,7 +15,9 @@
 package edu.uci.ics.algebricks.compiler.optimizer.rules;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
@@ -25,10 +27,17 @@ import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SelectOperator;
-import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.ITagFilteredRewriteRule;
 
-public class BreakSelectIntoConjunctsRule implements IAlgebraicRewriteRule {
+public class BreakSelectIntoConjunctsRule implements ITagFilteredRewriteRule {
+
+    private static final Set<LogicalOperatorTag> TAGS = EnumSet.of(LogicalOperatorTag.SELECT);
+
+    @Override
+    public Set<LogicalOperatorTag> getMatchedOperatorTags() {
+        return TAGS;
+    }
 
     private List<LogicalExpressionReference> conjs = new ArrayList<LogicalExpressionReference>();
 
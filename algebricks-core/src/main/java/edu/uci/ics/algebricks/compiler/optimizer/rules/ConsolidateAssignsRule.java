@@ -14,8 +14,10 @@
  */
 package edu.uci.ics.algebricks.compiler.optimizer.rules;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
@@ -24,10 +26,17 @@ import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AssignOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.visitors.VariableUtilities;
-import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.ITagFilteredRewriteRule;
 
-public class ConsolidateAssignsRule implements IAlgebraicRewriteRule {
+public class ConsolidateAssignsRule implements ITagFilteredRewriteRule {
+
+    private static final Set<LogicalOperatorTag> TAGS = EnumSet.of(LogicalOperatorTag.ASSIGN);
+
+    @Override
+    public Set<LogicalOperatorTag> getMatchedOperatorTags() {
+        return TAGS;
+    }
 
     @Override
     public boolean rewritePre(LogicalOperatorReference opRef, IOptimizationContext context) {
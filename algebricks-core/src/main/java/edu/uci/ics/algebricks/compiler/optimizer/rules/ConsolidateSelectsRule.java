@@ -14,7 +14,9 @@
  */
 package edu.uci.ics.algebricks.compiler.optimizer.rules;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
@@ -25,10 +27,17 @@ import edu.uci.ics.algebricks.compiler.algebra.expressions.ScalarFunctionCallExp
 import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SelectOperator;
-import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.ITagFilteredRewriteRule;
 
-public class ConsolidateSelectsRule implements IAlgebraicRewriteRule {
+public class ConsolidateSelectsRule implements ITagFilteredRewriteRule {
+
+    private static final Set<LogicalOperatorTag> TAGS = EnumSet.of(LogicalOperatorTag.SELECT);
+
+    @Override
+    public Set<LogicalOperatorTag> getMatchedOperatorTags() {
+        return TAGS;
+    }
 
     @Override
     public boolean rewritePost(LogicalOperatorReference opRef, IOptimizationContext context) {
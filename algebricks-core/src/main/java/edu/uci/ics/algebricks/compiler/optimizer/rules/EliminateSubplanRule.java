@@ -14,7 +14,9 @@
  */
 package edu.uci.ics.algebricks.compiler.optimizer.rules;
 
+import java.util.EnumSet;
 import java.util.LinkedList;
+import java.util.Set;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
@@ -26,12 +28,19 @@ import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.LeftOuterJoinOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SubplanOperator;
-import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.ITagFilteredRewriteRule;
 import edu.uci.ics.algebricks.compiler.optimizer.base.OperatorManipulationUtil;
 import edu.uci.ics.algebricks.compiler.optimizer.base.OptimizationUtil;
 
-public class EliminateSubplanRule implements IAlgebraicRewriteRule {
+public class EliminateSubplanRule implements ITagFilteredRewriteRule {
+
+    private static final Set<LogicalOperatorTag> TAGS = EnumSet.of(LogicalOperatorTag.SUBPLAN);
+
+    @Override
+    public Set<LogicalOperatorTag> getMatchedOperatorTags() {
+        return TAGS;
+    }
 
     @Override
     public boolean rewritePost(LogicalOperatorReference opRef, IOptimizationContext context) {
@@ -30,6 +30,7 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.logical.visitors.FDsAnd
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.AbstractStableSortPOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.BroadcastPOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.ExternalGroupByPOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.physical.HashDistinctPOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.HashPartitionExchangePOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.HashPartitionMergeExchangePOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.InMemoryStableSortPOperator;
@@ -303,6 +304,12 @@ public class EnforceStructuralPropertiesRule implements IAlgebraicRewriteRule {
                 preSortedDistinct.setDistinctByColumns(d.getDistinctByVarList());
                 break;
             }
+            case HASH_DISTINCT_BY: {
+                DistinctOperator d = (DistinctOperator) op;
+                HashDistinctPOperator hashDistinct = (HashDistinctPOperator) pOp;
+                hashDistinct.setDistinctByColumns(d.getDistinctByVarList());
+                break;
+            }
         }
     }
 
@@ -430,7 +437,8 @@ public class EnforceStructuralPropertiesRule implements IAlgebraicRewriteRule {
         OrderOperator oo = new OrderOperator(oe);
         oo.setExecutionMode(AbstractLogicalOperator.ExecutionMode.LOCAL);
         if (isMicroOp) {
-            oo.setPhysicalOperator(new InMemoryStableSortPOperator());
+            oo.setPhysicalOperator(new InMemoryStableSortPOperator(physicalOptimizationConfig
+                    .getMaxFramesExternalSort()));
         } else {
             oo.setPhysicalOperator(new StableSortPOperator(physicalOptimizationConfig.getMaxFramesExternalSort()));
         }
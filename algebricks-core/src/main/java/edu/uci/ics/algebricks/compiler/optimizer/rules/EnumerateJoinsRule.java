@@ -0,0 +1,398 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.optimizer.rules;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.IFunctionInfo;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ScalarFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.InnerJoinOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.visitors.LogicalPropertiesVisitor;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.visitors.VariableUtilities;
+import edu.uci.ics.algebricks.compiler.algebra.properties.ILogicalPropertiesVector;
+import edu.uci.ics.algebricks.compiler.algebra.properties.LogicalPropertiesVectorImpl;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.ITagFilteredRewriteRule;
+import edu.uci.ics.algebricks.config.AlgebricksConfig;
+
+/**
+ * Reorders a tree of inner joins. The tree is flattened into its inputs, the
+ * relations, and the conjuncts of its conditions, the predicates. A join
+ * order costs the sum of the estimated cardinalities of the joins it makes.
+ * Up to the number of relations set in the physical optimization config, the
+ * cheapest bushy tree is found by dynamic programming over the sets of
+ * relations; beyond that, a linear tree is built greedily by adding
+ * the relation that keeps the next join smallest. Cartesian products are
+ * only made when no predicate connects the two sides. The smaller side of
+ * each join is its second input, the one hash joins build on.
+ * The tree is only rebuilt if its cost goes down, and only when the
+ * cardinalities of all the relations can be estimated.
+ */
+public class EnumerateJoinsRule implements ITagFilteredRewriteRule {
+
+    private static final Set<LogicalOperatorTag> TAGS = EnumSet.of(LogicalOperatorTag.INNERJOIN);
+
+    // relations are numbered by the bits of a long
+    private static final int MAX_RELATIONS = 63;
+    // the dynamic programming keeps a tree for each set of relations
+    private static final int MAX_RELATIONS_EXHAUSTIVE = 20;
+
+    @Override
+    public Set<LogicalOperatorTag> getMatchedOperatorTags() {
+        return TAGS;
+    }
+
+    @Override
+    public boolean rewritePost(LogicalOperatorReference opRef, IOptimizationContext context) throws AlgebricksException {
+        return false;
+    }
+
+    @Override
+    public boolean rewritePre(LogicalOperatorReference opRef, IOptimizationContext context) throws AlgebricksException {
+        ILogicalOperator op = opRef.getOperator();
+        if (op.getOperatorTag() != LogicalOperatorTag.INNERJOIN || context.checkIfInDontApplySet(this, op)) {
+            return false;
+        }
+        context.addToDontApplySet(this, op);
+        List<LogicalOperatorReference> relations = new ArrayList<LogicalOperatorReference>();
+        List<ILogicalExpression> predicates = new ArrayList<ILogicalExpression>();
+        JoinTree original = flatten(op, relations, predicates);
+        int n = relations.size();
+        if (n < 3 || n > MAX_RELATIONS) {
+            return false;
+        }
+        JoinGraph graph = JoinGraph.create(relations, predicates, context);
+        if (graph == null) {
+            return false;
+        }
+        graph.computeCost(original);
+        JoinTree best;
+        int maxExhaustive = context.getPhysicalOptimizationConfig().getMaxRelationsExhaustiveJoinEnumeration();
+        if (n <= Math.min(maxExhaustive, MAX_RELATIONS_EXHAUSTIVE)) {
+            best = graph.enumerate();
+        } else {
+            best = graph.enumerateGreedily();
+        }
+        if (best.cost >= original.cost) {
+            return false;
+        }
+        AlgebricksConfig.ALGEBRICKS_LOGGER.fine("// Join order of cost " + original.cost + " replaced by one of cost "
+                + best.cost + "\n");
+        opRef.setOperator(buildJoins(best, graph, context));
+        return true;
+    }
+
+    /**
+     * Collects the inputs and the conjuncts of the conditions of the inner
+     * joins rooted at op.
+     *
+     * @return the shape of the joins
+     */
+    private JoinTree flatten(ILogicalOperator op, List<LogicalOperatorReference> relations,
+            List<ILogicalExpression> predicates) {
+        InnerJoinOperator join = (InnerJoinOperator) op;
+        JoinTree[] children = new JoinTree[2];
+        for (int i = 0; i < 2; i++) {
+            LogicalOperatorReference inputRef = join.getInputs().get(i);
+            if (inputRef.getOperator().getOperatorTag() == LogicalOperatorTag.INNERJOIN) {
+                children[i] = flatten(inputRef.getOperator(), relations, predicates);
+            } else {
+                children[i] = new JoinTree(relations.size());
+                relations.add(inputRef);
+            }
+        }
+        ILogicalExpression cond = join.getCondition().getExpression();
+        List<LogicalExpressionReference> conjuncts = new ArrayList<LogicalExpressionReference>();
+        if (cond.splitIntoConjuncts(conjuncts)) {
+            for (LogicalExpressionReference c : conjuncts) {
+                predicates.add(c.getExpression());
+            }
+        } else if (cond.getExpressionTag() != LogicalExpressionTag.CONSTANT
+                || !((ConstantExpression) cond).getValue().isTrue()) {
+            predicates.add(cond);
+        }
+        return new JoinTree(children[0], children[1]);
+    }
+
+    private ILogicalOperator buildJoins(JoinTree tree, JoinGraph graph, IOptimizationContext context)
+            throws AlgebricksException {
+        if (tree.left == null) {
+            return graph.relations.get(tree.relation).getOperator();
+        }
+        ILogicalOperator left = buildJoins(tree.left, graph, context);
+        ILogicalOperator right = buildJoins(tree.right, graph, context);
+        List<LogicalExpressionReference> conjuncts = new ArrayList<LogicalExpressionReference>();
+        for (int i = 0; i < graph.predicates.size(); i++) {
+            long p = graph.predicateMasks[i];
+            // a predicate is evaluated by the lowest join that sees all the
+            // relations it refers to
+            if (subsetOf(p, tree.mask) && !(subsetOf(p, tree.left.mask) && tree.left.left != null)
+                    && !(subsetOf(p, tree.right.mask) && tree.right.left != null)) {
+                conjuncts.add(new LogicalExpressionReference(graph.predicates.get(i)));
+            }
+        }
+        ILogicalExpression cond;
+        if (conjuncts.isEmpty()) {
+            cond = ConstantExpression.TRUE;
+        } else if (conjuncts.size() == 1) {
+            cond = conjuncts.get(0).getExpression();
+        } else {
+            IFunctionInfo finfo = AlgebricksBuiltinFunctions.getBuiltinFunctionInfo(AlgebricksBuiltinFunctions.AND);
+            cond = new ScalarFunctionCallExpression(finfo, conjuncts);
+        }
+        InnerJoinOperator join = new InnerJoinOperator(new LogicalExpressionReference(cond),
+                new LogicalOperatorReference(left), new LogicalOperatorReference(right));
+        context.computeAndSetTypeEnvironmentForOperator(join);
+        context.addToDontApplySet(this, join);
+        return join;
+    }
+
+    private static boolean subsetOf(long a, long b) {
+        return (a & ~b) == 0;
+    }
+
+    private static class JoinTree {
+        private final long mask;
+        private final int relation;
+        private final JoinTree left;
+        private final JoinTree right;
+        private double cardinality;
+        private double cost;
+
+        public JoinTree(int relation) {
+            this.mask = 1L << relation;
+            this.relation = relation;
+            this.left = null;
+            this.right = null;
+        }
+
+        public JoinTree(JoinTree left, JoinTree right) {
+            this.mask = left.mask | right.mask;
+            this.relation = -1;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private static class JoinGraph {
+        private final List<LogicalOperatorReference> relations;
+        private final List<ILogicalExpression> predicates;
+        private final double[] relationCardinalities;
+        private final long[] predicateMasks;
+        private final double[] selectivities;
+        private final long all;
+
+        private JoinGraph(List<LogicalOperatorReference> relations, List<ILogicalExpression> predicates,
+                double[] relationCardinalities, long[] predicateMasks, double[] selectivities) {
+            this.relations = relations;
+            this.predicates = predicates;
+            this.relationCardinalities = relationCardinalities;
+            this.predicateMasks = predicateMasks;
+            this.selectivities = selectivities;
+            this.all = (1L << relations.size()) - 1;
+        }
+
+        /**
+         * @return the graph, or null if the cardinality of a relation cannot
+         *         be estimated
+         */
+        public static JoinGraph create(List<LogicalOperatorReference> relations, List<ILogicalExpression> predicates,
+                IOptimizationContext context) throws AlgebricksException {
+            int n = relations.size();
+            double[] cards = new double[n];
+            Map<LogicalVariable, Integer> relationOfVar = new HashMap<LogicalVariable, Integer>();
+            LogicalPropertiesVectorImpl stats = new LogicalPropertiesVectorImpl();
+            for (int i = 0; i < n; i++) {
+                ILogicalOperator r = relations.get(i).getOperator();
+                LogicalPropertiesVisitor.computeLogicalPropertiesDFS(r, context);
+                ILogicalPropertiesVector v = context.getLogicalPropertiesVector(r);
+                if (v == null || v.getNumberOfTuples() == null) {
+                    return null;
+                }
+                cards[i] = v.getNumberOfTuples();
+                stats.addVariableStatistics(v);
+                List<LogicalVariable> vars = new ArrayList<LogicalVariable>();
+                VariableUtilities.getLiveVariables(r, vars);
+                for (LogicalVariable var : vars) {
+                    relationOfVar.put(var, i);
+                }
+            }
+            long all = (1L << n) - 1;
+            long[] masks = new long[predicates.size()];
+            double[] sels = new double[predicates.size()];
+            for (int i = 0; i < predicates.size(); i++) {
+                ILogicalExpression p = predicates.get(i);
+                List<LogicalVariable> vars = new ArrayList<LogicalVariable>();
+                p.getUsedVariables(vars);
+                long mask = 0;
+                for (LogicalVariable var : vars) {
+                    Integer r = relationOfVar.get(var);
+                    if (r != null) {
+                        mask |= 1L << r;
+                    }
+                }
+                // a predicate on none of the relations is left to the top join
+                masks[i] = mask == 0 ? all : mask;
+                sels[i] = LogicalPropertiesVisitor.estimateSelectivity(p, stats);
+            }
+            return new JoinGraph(relations, predicates, cards, masks, sels);
+        }
+
+        public double cardinality(long s) {
+            double card = 1;
+            for (int i = 0; i < relationCardinalities.length; i++) {
+                if ((s & (1L << i)) != 0) {
+                    card *= relationCardinalities[i];
+                }
+            }
+            for (int i = 0; i < predicateMasks.length; i++) {
+                if (subsetOf(predicateMasks[i], s)) {
+                    card *= selectivities[i];
+                }
+            }
+            return card;
+        }
+
+        public boolean connected(long s1, long s2) {
+            for (long p : predicateMasks) {
+                if ((p & s1) != 0 && (p & s2) != 0 && subsetOf(p, s1 | s2)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void computeCost(JoinTree tree) {
+            tree.cardinality = cardinality(tree.mask);
+            if (tree.left == null) {
+                tree.cost = 0;
+            } else {
+                computeCost(tree.left);
+                computeCost(tree.right);
+                tree.cost = tree.left.cost + tree.right.cost + tree.cardinality;
+            }
+        }
+
+        private JoinTree join(JoinTree t1, JoinTree t2) {
+            JoinTree t = t2.cardinality <= t1.cardinality ? new JoinTree(t1, t2) : new JoinTree(t2, t1);
+            t.cardinality = cardinality(t.mask);
+            t.cost = t1.cost + t2.cost + t.cardinality;
+            return t;
+        }
+
+        private JoinTree relation(int i) {
+            JoinTree t = new JoinTree(i);
+            t.cardinality = cardinality(t.mask);
+            return t;
+        }
+
+        /**
+         * Finds the cheapest tree by dynamic programming over the subsets of
+         * relations, which are visited in increasing order so that all the
+         * subsets of a set come before it.
+         */
+        public JoinTree enumerate() {
+            JoinTree[] best = new JoinTree[(int) all + 1];
+            for (int i = 0; i < relationCardinalities.length; i++) {
+                best[1 << i] = relation(i);
+            }
+            for (int s = 1; s <= all; s++) {
+                if (best[s] != null) {
+                    continue;
+                }
+                best[s] = bestSplit(s, best, false);
+                if (best[s] == null) {
+                    best[s] = bestSplit(s, best, true);
+                }
+            }
+            return best[(int) all];
+        }
+
+        private JoinTree bestSplit(int s, JoinTree[] best, boolean allowProducts) {
+            JoinTree bestTree = null;
+            // each split is seen from both sides, only one is tried
+            for (int s1 = (s - 1) & s; s1 > (s ^ s1); s1 = (s1 - 1) & s) {
+                int s2 = s ^ s1;
+                if (!allowProducts && !connected(s1, s2)) {
+                    continue;
+                }
+                JoinTree t = join(best[s1], best[s2]);
+                if (bestTree == null || t.cost < bestTree.cost) {
+                    bestTree = t;
+                }
+            }
+            return bestTree;
+        }
+
+        /**
+         * Builds a linear tree, starting with the smallest join of two
+         * relations and adding the relation that makes the smallest join.
+         * Joins with a predicate are preferred to products.
+         */
+        public JoinTree enumerateGreedily() {
+            int n = relationCardinalities.length;
+            JoinTree tree = null;
+            boolean treeConnected = false;
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    boolean c = connected(1L << i, 1L << j);
+                    JoinTree t = join(relation(i), relation(j));
+                    if (tree == null || better(t, c, tree, treeConnected)) {
+                        tree = t;
+                        treeConnected = c;
+                    }
+                }
+            }
+            while (tree.mask != all) {
+                JoinTree next = null;
+                boolean nextConnected = false;
+                for (int i = 0; i < n; i++) {
+                    if ((tree.mask & (1L << i)) == 0) {
+                        boolean c = connected(tree.mask, 1L << i);
+                        JoinTree t = join(tree, relation(i));
+                        if (next == null || better(t, c, next, nextConnected)) {
+                            next = t;
+                            nextConnected = c;
+                        }
+                    }
+                }
+                tree = next;
+            }
+            return tree;
+        }
+
+        private static boolean better(JoinTree t1, boolean connected1, JoinTree t2, boolean connected2) {
+            if (connected1 != connected2) {
+                return connected1;
+            }
+            return t1.cardinality < t2.cardinality;
+        }
+    }
+}
@@ -14,6 +14,9 @@
  */
 package edu.uci.ics.algebricks.compiler.optimizer.rules;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
@@ -25,13 +28,21 @@ import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpr
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.GroupByOperator;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.ITagFilteredRewriteRule;
 import edu.uci.ics.algebricks.utils.Pair;
 
 /**
  * Needed only bc. current Hyrax operators require keys to be fields.
  * 
  */
-public class ExtractGbyExpressionsRule extends AbstractExtractExprRule {
+public class ExtractGbyExpressionsRule extends AbstractExtractExprRule implements ITagFilteredRewriteRule {
+
+    private static final Set<LogicalOperatorTag> TAGS = EnumSet.of(LogicalOperatorTag.GROUP);
+
+    @Override
+    public Set<LogicalOperatorTag> getMatchedOperatorTags() {
+        return TAGS;
+    }
 
     @Override
     public boolean rewritePre(LogicalOperatorReference opRef, IOptimizationContext context) {
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.optimizer.rules;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator.ExecutionMode;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AggregateOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.GroupByOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.NestedTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.physical.AggregatePOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.physical.ExternalGroupByPOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.physical.NestedTupleSourcePOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.physical.PartialHashGroupByPOperator;
+import edu.uci.ics.algebricks.compiler.algebra.plan.ALogicalPlanImpl;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.ITagFilteredRewriteRule;
+import edu.uci.ics.algebricks.compiler.optimizer.base.OptimizationUtil;
+import edu.uci.ics.algebricks.compiler.optimizer.base.PhysicalOptimizationConfig;
+import edu.uci.ics.algebricks.utils.Pair;
+
+/**
+ * Pre-aggregates the input of an external group-by before it is hash
+ * partitioned: a partial hash group-by on the same keys is placed below the
+ * hash exchange, and the external group-by then merges the partial results
+ * with the merge expressions of its aggregate. Must run after the exchanges
+ * have been introduced. Does nothing unless
+ * {@link PhysicalOptimizationConfig#isPartialGroupByEnabled()}.
+ */
+public class IntroducePartialGroupByRule implements ITagFilteredRewriteRule {
+
+    private static final Set<LogicalOperatorTag> TAGS = EnumSet.of(LogicalOperatorTag.GROUP);
+
+    @Override
+    public Set<LogicalOperatorTag> getMatchedOperatorTags() {
+        return TAGS;
+    }
+
+    @Override
+    public boolean rewritePre(LogicalOperatorReference opRef, IOptimizationContext context) throws AlgebricksException {
+        return false;
+    }
+
+    @Override
+    public boolean rewritePost(LogicalOperatorReference opRef, IOptimizationContext context) throws AlgebricksException {
+        if (!context.getPhysicalOptimizationConfig().isPartialGroupByEnabled()) {
+            return false;
+        }
+        AbstractLogicalOperator op1 = (AbstractLogicalOperator) opRef.getOperator();
+        if (op1.getPhysicalOperator() == null
+                || op1.getPhysicalOperator().getOperatorTag() != PhysicalOperatorTag.EXTERNAL_GROUP_BY
+                || op1.getExecutionMode() != ExecutionMode.PARTITIONED) {
+            return false;
+        }
+        ExternalGroupByPOperator externalGby = (ExternalGroupByPOperator) op1.getPhysicalOperator();
+        if (externalGby.isMergingPartials()) {
+            return false;
+        }
+        AbstractLogicalOperator op2 = (AbstractLogicalOperator) op1.getInputs().get(0).getOperator();
+        if (op2.getPhysicalOperator() == null
+                || op2.getPhysicalOperator().getOperatorTag() != PhysicalOperatorTag.HASH_PARTITION_EXCHANGE) {
+            return false;
+        }
+        GroupByOperator gby = (GroupByOperator) op1;
+        AggregateOperator aggOp = getAggregateOverNts(gby);
+        if (aggOp == null) {
+            return false;
+        }
+        List<LogicalVariable> partialVars = getPartialVariables(aggOp);
+        if (partialVars == null) {
+            return false;
+        }
+        List<LogicalVariable> keyVars = getVariables(gby.getGroupByList());
+        List<LogicalVariable> decorVars = getVariables(gby.getDecorList());
+        if (keyVars == null || decorVars == null) {
+            return false;
+        }
+
+        GroupByOperator localGby = new GroupByOperator();
+        for (LogicalVariable v : keyVars) {
+            localGby.addGbyExpression(null, new VariableReferenceExpression(v));
+        }
+        for (LogicalVariable v : decorVars) {
+            localGby.addDecorExpression(null, new VariableReferenceExpression(v));
+        }
+        AbstractLogicalOperator nestedSource = (AbstractLogicalOperator) aggOp.getInputs().get(0).getOperator();
+        NestedTupleSourceOperator nts = new NestedTupleSourceOperator(new LogicalOperatorReference(localGby));
+        nts.setExecutionMode(nestedSource.getExecutionMode());
+        nts.setPhysicalOperator(new NestedTupleSourcePOperator());
+        List<LogicalExpressionReference> partialExprs = new ArrayList<LogicalExpressionReference>();
+        for (LogicalExpressionReference exprRef : aggOp.getExpressions()) {
+            partialExprs.add(new LogicalExpressionReference(exprRef.getExpression().cloneExpression()));
+        }
+        AggregateOperator partialAgg = new AggregateOperator(partialVars, partialExprs);
+        partialAgg.setExecutionMode(aggOp.getExecutionMode());
+        partialAgg.setPhysicalOperator(new AggregatePOperator());
+        partialAgg.getInputs().add(new LogicalOperatorReference(nts));
+        ILogicalPlan partialPlan = new ALogicalPlanImpl(new LogicalOperatorReference(partialAgg));
+        localGby.getNestedPlans().add(partialPlan);
+
+        LogicalOperatorReference exchangeInput = op2.getInputs().get(0);
+        AbstractLogicalOperator op3 = (AbstractLogicalOperator) exchangeInput.getOperator();
+        localGby.getInputs().add(new LogicalOperatorReference(op3));
+        localGby.setExecutionMode(op3.getExecutionMode());
+        localGby.setPhysicalOperator(new PartialHashGroupByPOperator(localGby.getGroupByList(), context
+                .getPhysicalOptimizationConfig().getMaxFramesPartialGroupBy()));
+        exchangeInput.setOperator(localGby);
+        externalGby.setMergingPartials(true);
+
+        OptimizationUtil.typePlan(partialPlan, context);
+        context.computeAndSetTypeEnvironmentForOperator(localGby);
+        context.computeAndSetTypeEnvironmentForOperator(op2);
+        nts.recomputeSchema();
+        partialAgg.recomputeSchema();
+        localGby.recomputeSchema();
+        op2.recomputeSchema();
+        nts.computeDeliveredPhysicalProperties(context);
+        partialAgg.computeDeliveredPhysicalProperties(context);
+        localGby.computeDeliveredPhysicalProperties(context);
+        op2.computeDeliveredPhysicalProperties(context);
+        return true;
+    }
+
+    private static AggregateOperator getAggregateOverNts(GroupByOperator gby) {
+        if (gby.getNestedPlans().size() != 1 || gby.getNestedPlans().get(0).getRoots().size() != 1) {
+            return null;
+        }
+        ILogicalOperator r0 = gby.getNestedPlans().get(0).getRoots().get(0).getOperator();
+        if (r0.getOperatorTag() != LogicalOperatorTag.AGGREGATE) {
+            return null;
+        }
+        ILogicalOperator r1 = r0.getInputs().get(0).getOperator();
+        if (r1.getOperatorTag() != LogicalOperatorTag.NESTEDTUPLESOURCE) {
+            return null;
+        }
+        return (AggregateOperator) r0;
+    }
+
+    /**
+     * @return the variables holding the partial results, one used by each
+     *         merge expression, or null if the aggregates cannot be split.
+     */
+    private static List<LogicalVariable> getPartialVariables(AggregateOperator aggOp) throws AlgebricksException {
+        List<LogicalExpressionReference> merges = aggOp.getMergeExpressions();
+        if (merges == null || merges.size() != aggOp.getExpressions().size()) {
+            return null;
+        }
+        for (LogicalExpressionReference exprRef : aggOp.getExpressions()) {
+            if (!(exprRef.getExpression() instanceof AggregateFunctionCallExpression)) {
+                return null;
+            }
+        }
+        List<LogicalVariable> partialVars = new ArrayList<LogicalVariable>();
+        for (LogicalExpressionReference mergeRef : merges) {
+            List<LogicalVariable> usedVars = new ArrayList<LogicalVariable>();
+            mergeRef.getExpression().getUsedVariables(usedVars);
+            if (usedVars.size() != 1 || partialVars.contains(usedVars.get(0))) {
+                return null;
+            }
+            partialVars.add(usedVars.get(0));
+        }
+        return partialVars;
+    }
+
+    private static List<LogicalVariable> getVariables(List<Pair<LogicalVariable, LogicalExpressionReference>> pairs) {
+        List<LogicalVariable> vars = new ArrayList<LogicalVariable>(pairs.size());
+        for (Pair<LogicalVariable, LogicalExpressionReference> p : pairs) {
+            ILogicalExpression expr = p.second.getExpression();
+            if (expr.getExpressionTag() != LogicalExpressionTag.VARIABLE) {
+                return null;
+            }
+            vars.add(((VariableReferenceExpression) expr).getVariableReference());
+        }
+        return vars;
+    }
+}
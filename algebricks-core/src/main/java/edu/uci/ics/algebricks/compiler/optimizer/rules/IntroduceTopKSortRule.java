@@ -0,0 +1,85 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.compiler.optimizer.rules;
+
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.IPhysicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.LimitOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.visitors.VariableUtilities;
+import edu.uci.ics.algebricks.compiler.algebra.operators.physical.TopKSortPOperator;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.ITagFilteredRewriteRule;
+
+public class IntroduceTopKSortRule implements ITagFilteredRewriteRule {
+
+    private static final Set<LogicalOperatorTag> TAGS = EnumSet.of(LogicalOperatorTag.LIMIT);
+
+    @Override
+    public Set<LogicalOperatorTag> getMatchedOperatorTags() {
+        return TAGS;
+    }
+
+    @Override
+    public boolean rewritePost(LogicalOperatorReference opRef, IOptimizationContext context) {
+        return false;
+    }
+
+    /**
+     * When a Limit whose bounds do not depend on any variable is found right
+     * above a sort, the sort is replaced by a top-k sort that only keeps the
+     * tuples the Limit can return. It should run after
+     * {@link PushLimitDownRule}, so the local Limit pushed under a merge
+     * exchange also turns the sort of each partition into a top-k sort.
+     */
+    @Override
+    public boolean rewritePre(LogicalOperatorReference opRef, IOptimizationContext context) throws AlgebricksException {
+        AbstractLogicalOperator op = (AbstractLogicalOperator) opRef.getOperator();
+        if (op.getOperatorTag() != LogicalOperatorTag.LIMIT) {
+            return false;
+        }
+        LimitOperator opLim = (LimitOperator) op;
+        AbstractLogicalOperator op2 = (AbstractLogicalOperator) opLim.getInputs().get(0).getOperator();
+        if (op2.getOperatorTag() != LogicalOperatorTag.ORDER) {
+            return false;
+        }
+        IPhysicalOperator pOp2 = op2.getPhysicalOperator();
+        if (pOp2 == null
+                || (pOp2.getOperatorTag() != PhysicalOperatorTag.STABLE_SORT && pOp2
+                        .getOperatorTag() != PhysicalOperatorTag.IN_MEMORY_STABLE_SORT)) {
+            return false;
+        }
+        LinkedList<LogicalVariable> usedVars = new LinkedList<LogicalVariable>();
+        VariableUtilities.getUsedVariables(opLim, usedVars);
+        if (!usedVars.isEmpty()) {
+            return false;
+        }
+
+        TopKSortPOperator topK = new TopKSortPOperator(opLim.getMaxObjects().getExpression(), opLim.getOffset()
+                .getExpression());
+        op2.setPhysicalOperator(topK);
+        topK.computeDeliveredProperties(op2, context);
+        return true;
+    }
+
+}
@@ -5,14 +5,20 @@ import java.util.List;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
+import edu.uci.ics.algebricks.api.expr.ILogicalExpressionJobGen;
 import edu.uci.ics.algebricks.api.expr.IMergeAggregationExpressionFactory;
+import edu.uci.ics.algebricks.api.expr.ISerializableAggregateJobGen;
+import edu.uci.ics.algebricks.api.expr.IVariableTypeEnvironment;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
 import edu.uci.ics.algebricks.compiler.algebra.base.OperatorAnnotations;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
 import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
 import edu.uci.ics.algebricks.compiler.algebra.metadata.IDataSource;
 import edu.uci.ics.algebricks.compiler.algebra.metadata.IMetadataProvider;
@@ -36,9 +42,11 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.physical.AssignPOperato
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.DataSourceScanPOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.EmptyTupleSourcePOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.ExternalGroupByPOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.physical.HashDistinctPOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.InMemoryStableSortPOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.IndexInsertDeletePOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.InsertDeletePOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.physical.MicroHashGroupByPOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.MicroPreclusteredGroupByPOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.NestedTupleSourcePOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.PreSortedDistinctByPOperator;
@@ -56,7 +64,11 @@ import edu.uci.ics.algebricks.compiler.algebra.operators.physical.StringStreamin
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.SubplanPOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.UnionAllPOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.UnnestPOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.physical.WindowAggregatePOperator;
 import edu.uci.ics.algebricks.compiler.algebra.operators.physical.WriteResultPOperator;
+import edu.uci.ics.algebricks.compiler.algebra.properties.ILocalStructuralProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPhysicalPropertiesVector;
+import edu.uci.ics.algebricks.compiler.algebra.properties.PhysicalRequirements;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
 import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
 import edu.uci.ics.algebricks.compiler.optimizer.base.JoinUtils;
@@ -65,6 +77,23 @@ import edu.uci.ics.algebricks.utils.Pair;
 
 public class SetAlgebricksPhysicalOperatorsRule implements IAlgebraicRewriteRule {
 
+    private final ILogicalExpressionJobGen exprJobGen;
+
+    public SetAlgebricksPhysicalOperatorsRule() {
+        this(null);
+    }
+
+    /**
+     * @param exprJobGen
+     *            the expression job generator of the language, which tells
+     *            whether a nested hash group-by can run its aggregates; if it
+     *            does not implement {@link ISerializableAggregateJobGen}, nested
+     *            group-bys are always pre-clustered
+     */
+    public SetAlgebricksPhysicalOperatorsRule(ILogicalExpressionJobGen exprJobGen) {
+        this.exprJobGen = exprJobGen;
+    }
+
     @Override
     public boolean rewritePost(LogicalOperatorReference opRef, IOptimizationContext context) throws AlgebricksException {
         return false;
@@ -85,7 +114,7 @@ public class SetAlgebricksPhysicalOperatorsRule implements IAlgebraicRewriteRule
         return true;
     }
 
-    private static void setPhysicalOperators(ILogicalPlan plan, boolean topLevelOp, IOptimizationContext context)
+    private void setPhysicalOperators(ILogicalPlan plan, boolean topLevelOp, IOptimizationContext context)
             throws AlgebricksException {
         for (LogicalOperatorReference root : plan.getRoots()) {
             computeDefaultPhysicalOp((AbstractLogicalOperator) root.getOperator(), topLevelOp, context);
@@ -93,7 +122,7 @@ public class SetAlgebricksPhysicalOperatorsRule implements IAlgebraicRewriteRule
     }
 
     @SuppressWarnings("unchecked")
-    private static void computeDefaultPhysicalOp(AbstractLogicalOperator op, boolean topLevelOp,
+    private void computeDefaultPhysicalOp(AbstractLogicalOperator op, boolean topLevelOp,
             IOptimizationContext context) throws AlgebricksException {
         PhysicalOptimizationConfig physicalOptimizationConfig = context.getPhysicalOptimizationConfig();
         if (op.getPhysicalOperator() == null) {
@@ -108,7 +137,12 @@ public class SetAlgebricksPhysicalOperatorsRule implements IAlgebraicRewriteRule
                 }
                 case DISTINCT: {
                     DistinctOperator distinct = (DistinctOperator) op;
-                    distinct.setPhysicalOperator(new PreSortedDistinctByPOperator(distinct.getDistinctByVarList()));
+                    if (topLevelOp) {
+                        distinct.setPhysicalOperator(new HashDistinctPOperator(distinct.getDistinctByVarList(),
+                                physicalOptimizationConfig.getMaxFramesHashDistinct()));
+                    } else {
+                        distinct.setPhysicalOperator(new PreSortedDistinctByPOperator(distinct.getDistinctByVarList()));
+                    }
                     break;
                 }
                 case EMPTYTUPLESOURCE: {
@@ -131,15 +165,19 @@ public class SetAlgebricksPhysicalOperatorsRule implements IAlgebraicRewriteRule
                             if (gby.getAnnotations().get(OperatorAnnotations.USE_HASH_GROUP_BY) == Boolean.TRUE
                                     || gby.getAnnotations().get(OperatorAnnotations.USE_EXTERNAL_GROUP_BY) == Boolean.TRUE) {
                                 if (!topLevelOp) {
-                                    throw new NotImplementedException(
-                                            "External hash group-by for nested grouping is not implemented.");
+                                    if (isMicroHashGroupByApplicable(gby, context)) {
+                                        op.setPhysicalOperator(new MicroHashGroupByPOperator(gby.getGroupByList()));
+                                        break;
+                                    }
+                                } else {
+                                    ExternalGroupByPOperator externalGby = new ExternalGroupByPOperator(
+                                            gby.getGroupByList(),
+                                            physicalOptimizationConfig.getMaxFramesExternalGroupBy(),
+                                            physicalOptimizationConfig.getExternalGroupByTableSize());
+                                    op.setPhysicalOperator(externalGby);
+                                    generateMergeAggregationExpressions(gby, context);
+                                    break;
                                 }
-                                ExternalGroupByPOperator externalGby = new ExternalGroupByPOperator(
-                                        gby.getGroupByList(), physicalOptimizationConfig.getMaxFramesExternalGroupBy(),
-                                        physicalOptimizationConfig.getExternalGroupByTableSize());
-                                op.setPhysicalOperator(externalGby);
-                                generateMergeAggregationExpressions(gby, context);
-                                break;
                             }
                         }
                     }
@@ -190,7 +228,8 @@ public class SetAlgebricksPhysicalOperatorsRule implements IAlgebraicRewriteRule
                         op.setPhysicalOperator(new StableSortPOperator(physicalOptimizationConfig
                                 .getMaxFramesExternalSort()));
                     } else {
-                        op.setPhysicalOperator(new InMemoryStableSortPOperator());
+                        op.setPhysicalOperator(new InMemoryStableSortPOperator(physicalOptimizationConfig
+                                .getMaxFramesExternalSort()));
                     }
                     break;
                 }
@@ -202,6 +241,10 @@ public class SetAlgebricksPhysicalOperatorsRule implements IAlgebraicRewriteRule
                     op.setPhysicalOperator(new RunningAggregatePOperator());
                     break;
                 }
+                case WINDOWAGGREGATE: {
+                    op.setPhysicalOperator(new WindowAggregatePOperator());
+                    break;
+                }
                 case REPLICATE: {
                     op.setPhysicalOperator(new ReplicatePOperator());
                     break;
@@ -284,11 +327,72 @@ public class SetAlgebricksPhysicalOperatorsRule implements IAlgebraicRewriteRule
                 setPhysicalOperators(p, false, context);
             }
         }
+        if (topLevelOp && op.getPhysicalOperator() != null) {
+            setPreSortedDistinctInputs(op);
+        }
         for (LogicalOperatorReference opRef : op.getInputs()) {
             computeDefaultPhysicalOp((AbstractLogicalOperator) opRef.getOperator(), topLevelOp, context);
         }
     }
 
+    /**
+     * A distinct below an operator that needs some local order or grouping of
+     * its input is implemented by sorting, since the sort is then shared with
+     * the parent. This has to run before the inputs of the parent are visited,
+     * otherwise {@link #computeDefaultPhysicalOp} hashes the distinct.
+     */
+    private static void setPreSortedDistinctInputs(AbstractLogicalOperator op) {
+        PhysicalRequirements reqs = null;
+        for (int i = 0; i < op.getInputs().size(); i++) {
+            AbstractLogicalOperator child = (AbstractLogicalOperator) op.getInputs().get(i).getOperator();
+            if (child.getOperatorTag() != LogicalOperatorTag.DISTINCT || child.getPhysicalOperator() != null) {
+                continue;
+            }
+            if (reqs == null) {
+                reqs = op.getPhysicalOperator().getRequiredPropertiesForChildren(op, null);
+            }
+            IPhysicalPropertiesVector[] reqdProps = reqs.getRequiredProperties();
+            if (reqdProps == null || reqdProps.length <= i || reqdProps[i] == null) {
+                continue;
+            }
+            List<ILocalStructuralProperty> localProps = reqdProps[i].getLocalProperties();
+            if (localProps != null && !localProps.isEmpty()) {
+                DistinctOperator distinct = (DistinctOperator) child;
+                distinct.setPhysicalOperator(new PreSortedDistinctByPOperator(distinct.getDistinctByVarList()));
+            }
+        }
+    }
+
+    /**
+     * The micro hash group-by only runs a single aggregate right on top of the
+     * nested-tuple-source, and only with serializable implementations of the
+     * aggregate functions.
+     */
+    private boolean isMicroHashGroupByApplicable(GroupByOperator gby, IOptimizationContext context)
+            throws AlgebricksException {
+        if (!(exprJobGen instanceof ISerializableAggregateJobGen)) {
+            return false;
+        }
+        ILogicalOperator r0 = gby.getNestedPlans().get(0).getRoots().get(0).getOperator();
+        if (r0.getOperatorTag() != LogicalOperatorTag.AGGREGATE) {
+            return false;
+        }
+        ILogicalOperator r1 = r0.getInputs().get(0).getOperator();
+        if (r1.getOperatorTag() != LogicalOperatorTag.NESTEDTUPLESOURCE) {
+            return false;
+        }
+        IVariableTypeEnvironment env = context.getOutputTypeEnvironment(r1);
+        for (LogicalExpressionReference exprRef : ((AggregateOperator) r0).getExpressions()) {
+            ILogicalExpression expr = exprRef.getExpression();
+            if (!(expr instanceof AggregateFunctionCallExpression)
+                    || !((ISerializableAggregateJobGen) exprJobGen).hasSerializableAggregateFunctionFactory(
+                            (AggregateFunctionCallExpression) expr, env)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static void getKeys(List<LogicalExpressionReference> keyExpressions, List<LogicalVariable> keys) {
         for (LogicalExpressionReference kExpr : keyExpressions) {
             ILogicalExpression e = kExpr.getExpression();
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.aggregators;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunction;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunctionFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+
+/**
+ * Counts tuples. The state is the count itself, stored as a 4-byte integer.
+ */
+public class SerializableTupleCountAggregateFunctionFactory implements ISerializableAggregateFunctionFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public ISerializableAggregateFunction createAggregateFunction() throws AlgebricksException {
+        return new ISerializableAggregateFunction() {
+
+            @Override
+            public void init(DataOutput state) throws AlgebricksException {
+                try {
+                    state.writeInt(0);
+                } catch (IOException e) {
+                    throw new AlgebricksException(e);
+                }
+            }
+
+            @Override
+            public void step(IFrameTupleReference tuple, byte[] data, int start, int len) throws AlgebricksException {
+                int cnt = IntegerSerializerDeserializer.getInt(data, start);
+                writeInt(cnt + 1, data, start);
+            }
+
+            @Override
+            public void finish(byte[] data, int start, int len, DataOutput result) throws AlgebricksException {
+                try {
+                    result.write(data, start, len);
+                } catch (IOException e) {
+                    throw new AlgebricksException(e);
+                }
+            }
+
+            @Override
+            public void finishPartial(byte[] data, int start, int len, DataOutput partialResult)
+                    throws AlgebricksException {
+                finish(data, start, len, partialResult);
+            }
+
+            private void writeInt(int value, byte[] data, int start) {
+                data[start] = (byte) ((value >>> 24) & 0xFF);
+                data[start + 1] = (byte) ((value >>> 16) & 0xFF);
+                data[start + 2] = (byte) ((value >>> 8) & 0xFF);
+                data[start + 3] = (byte) ((value >>> 0) & 0xFF);
+            }
+        };
+    }
+
+}
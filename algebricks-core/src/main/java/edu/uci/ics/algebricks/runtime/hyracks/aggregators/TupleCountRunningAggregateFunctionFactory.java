@@ -20,6 +20,7 @@ import java.io.IOException;
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IRunningAggregateFunction;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IRunningAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IWindowAggregateFunction;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.IDataOutputProvider;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
 
@@ -33,7 +34,7 @@ public class TupleCountRunningAggregateFunctionFactory implements IRunningAggreg
 
         final DataOutput out = provider.getDataOutput();
 
-        return new IRunningAggregateFunction() {
+        return new IWindowAggregateFunction() {
 
             int cnt;
 
@@ -47,6 +48,11 @@ public class TupleCountRunningAggregateFunctionFactory implements IRunningAggreg
                 }
             }
 
+            @Override
+            public void remove(IFrameTupleReference tuple) throws AlgebricksException {
+                --cnt;
+            }
+
             @Override
             public void init() throws AlgebricksException {
                 cnt = 0;
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.base;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+
+/**
+ * Frame-at-a-time counterpart of {@link IEvaluator}.
+ */
+public interface IBatchEvaluator {
+    /**
+     * Evaluates the expression for every tuple of the frame. The values are
+     * appended to the output one after another and the end offset of the
+     * value computed for tuple i is stored in valueEndOffsets[i].
+     *
+     * @param accessor
+     *            accessor positioned on the input frame
+     * @param valueEndOffsets
+     *            an array of at least accessor.getTupleCount() elements
+     * @throws AlgebricksException
+     */
+    public void evaluate(IFrameTupleAccessor accessor, int[] valueEndOffsets) throws AlgebricksException;
+}
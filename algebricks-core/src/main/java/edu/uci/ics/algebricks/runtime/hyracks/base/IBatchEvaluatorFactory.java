@@ -0,0 +1,29 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.base;
+
+import java.io.Serializable;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
+
+/**
+ * Optional capability of an {@link IEvaluatorFactory}. When the factory
+ * returned by the expression job generator also implements this interface,
+ * the runtimes evaluate it a whole frame at a time instead of once per tuple.
+ */
+public interface IBatchEvaluatorFactory extends Serializable {
+    public IBatchEvaluator createBatchEvaluator(ArrayBackedValueStorage output) throws AlgebricksException;
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.base;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+
+/**
+ * An unnesting function able to produce many values per call. The unnest
+ * runtime prefers {@link #stepBulk(int[])} over {@link #step()} when the
+ * function implements this interface.
+ */
+public interface IBulkUnnestingFunction extends IUnnestingFunction {
+    /**
+     * Writes the next values one after the other to the output of the
+     * function, at most valueLengths.length of them, and stores the length of
+     * each value in valueLengths.
+     * 
+     * @return the number of values written, 0 once the sequence is exhausted
+     */
+    public int stepBulk(int[] valueLengths) throws AlgebricksException;
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.base;
+
+/**
+ * A push runtime that can raise, or react to, an
+ * {@link InputTerminationSignal}. The pipeline assembler gives every such
+ * runtime the signal of its position in the pipeline.
+ */
+public interface IInputTerminationAware {
+    public void setInputTerminationSignal(InputTerminationSignal signal);
+}
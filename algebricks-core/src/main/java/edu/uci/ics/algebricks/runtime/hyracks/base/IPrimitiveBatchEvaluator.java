@@ -0,0 +1,36 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.base;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+
+/**
+ * Frame-at-a-time counterpart of {@link IPrimitiveEvaluator}. The expression
+ * is evaluated for the tuples whose indexes are the first n elements of the
+ * selection vector sel, and the value of tuple t is stored in values[t]; the
+ * other elements of values are left untouched. The value arrays must have at
+ * least accessor.getTupleCount() elements.
+ */
+public interface IPrimitiveBatchEvaluator {
+    public void evaluateBooleans(IFrameTupleAccessor accessor, int[] sel, int n, boolean[] values)
+            throws AlgebricksException;
+
+    public void evaluateLongs(IFrameTupleAccessor accessor, int[] sel, int n, long[] values)
+            throws AlgebricksException;
+
+    public void evaluateDoubles(IFrameTupleAccessor accessor, int[] sel, int n, double[] values)
+            throws AlgebricksException;
+}
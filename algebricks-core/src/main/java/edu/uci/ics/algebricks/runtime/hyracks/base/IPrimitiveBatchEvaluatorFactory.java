@@ -0,0 +1,26 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.base;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+
+/**
+ * Optional capability of an {@link IPrimitiveEvaluatorFactory}. Operators that
+ * only need the value of an expression, such as the condition of a select,
+ * evaluate it a frame at a time when its factory implements this interface.
+ */
+public interface IPrimitiveBatchEvaluatorFactory extends IPrimitiveEvaluatorFactory {
+    public IPrimitiveBatchEvaluator createPrimitiveBatchEvaluator() throws AlgebricksException;
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.base;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+
+/**
+ * Evaluator of a fixed-width value that returns its result as a Java
+ * primitive instead of serializing it. Integral results are returned by
+ * {@link #evaluateLong}, floating point results by {@link #evaluateDouble}
+ * and booleans by {@link #evaluateBoolean}; every evaluator answers all three,
+ * converting its result if needed.
+ */
+public interface IPrimitiveEvaluator {
+    public boolean evaluateBoolean(IFrameTupleReference tuple) throws AlgebricksException;
+
+    public long evaluateLong(IFrameTupleReference tuple) throws AlgebricksException;
+
+    public double evaluateDouble(IFrameTupleReference tuple) throws AlgebricksException;
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.base;
+
+/**
+ * Lets a push runtime tell the runtimes before it in its pipeline that it
+ * does not need any more input, e.g. once a limit has let its last tuple
+ * through. The signals of a pipeline share their state, but each one only
+ * sees the requests made by runtimes that come after it, so the runtimes
+ * that follow a limit keep working normally. A runtime that raises the signal
+ * resets it when it is opened, which happens before any data flows through
+ * the pipeline.
+ */
+public final class InputTerminationSignal {
+
+    // position of the last runtime that asked for no more input, shared by
+    // all the signals of a pipeline
+    private final int[] raisedBy;
+    private final int position;
+
+    private InputTerminationSignal(int[] raisedBy, int position) {
+        this.raisedBy = raisedBy;
+        this.position = position;
+    }
+
+    /**
+     * @return nRuntimes + 1 signals; the first one belongs to whatever feeds
+     *         the pipeline and the one at i + 1 to runtime i
+     */
+    public static InputTerminationSignal[] createPipelineSignals(int nRuntimes) {
+        int[] raisedBy = new int[] { -1 };
+        InputTerminationSignal[] signals = new InputTerminationSignal[nRuntimes + 1];
+        for (int i = 0; i <= nRuntimes; i++) {
+            signals[i] = new InputTerminationSignal(raisedBy, i - 1);
+        }
+        return signals;
+    }
+
+    /**
+     * @return a signal that is not part of any pipeline, and is never raised
+     */
+    public static InputTerminationSignal createUnconnected() {
+        return new InputTerminationSignal(new int[] { -1 }, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Tells the runtimes before the owner of this signal that it does not
+     * need more input.
+     */
+    public void raise() {
+        if (raisedBy[0] < position) {
+            raisedBy[0] = position;
+        }
+    }
+
+    /**
+     * @return true if a runtime after the owner of this signal does not need
+     *         more input, so the owner can stop producing
+     */
+    public boolean isRaised() {
+        return raisedBy[0] > position;
+    }
+
+    public void reset() {
+        raisedBy[0] = -1;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.context;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * Frames shared by the runtimes of one partition. A frame that is released is
+ * handed out again by the next call to allocate instead of a new one, and no
+ * more than maxFrames frames are ever allocated. New frames are heap buffers
+ * of frameSize bytes, like the ones of the stagelet context. Runtimes whose
+ * frames are allocated by Hyracks instead, like the external sort, reserve
+ * them from the same budget. The pool is used by the thread that runs the
+ * pipelines of the partition only.
+ */
+public class FramePool {
+
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final int frameSize;
+    private final int maxFrames;
+    private final ArrayList<ByteBuffer> free = new ArrayList<ByteBuffer>();
+    private int nAllocated = 0;
+    private int nReserved = 0;
+
+    public FramePool(int frameSize, int maxFrames) {
+        if (maxFrames < 1) {
+            throw new IllegalArgumentException("A frame pool needs at least one frame, not " + maxFrames + ".");
+        }
+        this.frameSize = frameSize;
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * @return a cleared frame, recycled if possible.
+     * @throws HyracksDataException
+     *             if all the frames of the budget are in use.
+     */
+    public ByteBuffer allocate() throws HyracksDataException {
+        if (!free.isEmpty()) {
+            ByteBuffer frame = free.remove(free.size() - 1);
+            frame.clear();
+            return frame;
+        }
+        if (getAvailableFrames() == 0) {
+            throw new HyracksDataException("All the " + maxFrames + " frames of the partition are in use.");
+        }
+        nAllocated++;
+        return ByteBuffer.allocate(frameSize);
+    }
+
+    /**
+     * Gives back a frame obtained from {@link #allocate()}. It must not be
+     * used by the caller afterwards.
+     */
+    public void release(ByteBuffer frame) {
+        free.add(frame);
+    }
+
+    /**
+     * Counts nFrames frames allocated outside the pool against the budget,
+     * until they are given back by {@link #unreserve(int)}. Recycled frames
+     * are dropped if needed to make room.
+     * 
+     * @throws HyracksDataException
+     *             if fewer than nFrames frames of the budget are left.
+     */
+    public void reserve(int nFrames) throws HyracksDataException {
+        while (getAvailableFrames() < nFrames && !free.isEmpty()) {
+            free.remove(free.size() - 1);
+            nAllocated--;
+        }
+        if (getAvailableFrames() < nFrames) {
+            throw new HyracksDataException("Cannot reserve " + nFrames + " frames: only " + getAvailableFrames()
+                    + " of the " + maxFrames + " frames of the partition are left.");
+        }
+        nReserved += nFrames;
+    }
+
+    public void unreserve(int nFrames) {
+        nReserved -= nFrames;
+    }
+
+    public int getMaxFrames() {
+        return maxFrames;
+    }
+
+    public int getAllocatedFrames() {
+        return nAllocated;
+    }
+
+    public int getFramesInUse() {
+        return nAllocated - free.size();
+    }
+
+    public int getReservedFrames() {
+        return nReserved;
+    }
+
+    private int getAvailableFrames() {
+        return maxFrames - nAllocated - nReserved;
+    }
+}
@@ -14,11 +14,16 @@
  */
 package edu.uci.ics.algebricks.runtime.hyracks.context;
 
+import java.nio.ByteBuffer;
+
 import edu.uci.ics.hyracks.api.context.IHyracksStageletContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 
 public class RuntimeContext {
 
     private IHyracksStageletContext hyracksContext;
+    private int frameBudget = FramePool.UNBOUNDED;
+    private FramePool framePool;
 
     public RuntimeContext() {
     }
@@ -29,6 +34,31 @@ public class RuntimeContext {
 
     public void setHyracksContext(IHyracksStageletContext hyracksContext) {
         this.hyracksContext = hyracksContext;
+        framePool = null;
+    }
+
+    /**
+     * Sets the maximum number of frames the runtimes sharing this context may
+     * allocate through {@link #allocateFrame()}.
+     */
+    public void setFrameBudget(int frameBudget) {
+        this.frameBudget = frameBudget;
+        framePool = null;
+    }
+
+    public FramePool getFramePool() {
+        if (framePool == null) {
+            framePool = new FramePool(hyracksContext.getFrameSize(), frameBudget);
+        }
+        return framePool;
+    }
+
+    public ByteBuffer allocateFrame() throws HyracksDataException {
+        return getFramePool().allocate();
+    }
+
+    public void releaseFrame(ByteBuffer frame) {
+        getFramePool().release(frame);
     }
 
-}
\ No newline at end of file
+}
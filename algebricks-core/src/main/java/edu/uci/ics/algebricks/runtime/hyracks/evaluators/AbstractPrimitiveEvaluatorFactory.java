@@ -0,0 +1,255 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.evaluators;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBatchEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveBatchEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluatorFactory;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.FrameTupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IDataOutputProvider;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+
+/**
+ * Base class of the primitive evaluator factories. The serializing
+ * {@link IEvaluator} is derived from the primitive one, so subclasses only
+ * implement {@link #createPrimitiveEvaluator()}. The frame-at-a-time
+ * evaluators default to running the primitive evaluator on each tuple;
+ * subclasses override {@link #createPrimitiveBatchEvaluator()} to work a
+ * column at a time.
+ */
+public abstract class AbstractPrimitiveEvaluatorFactory implements IPrimitiveBatchEvaluatorFactory,
+        IBatchEvaluatorFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final PrimitiveType type;
+
+    public AbstractPrimitiveEvaluatorFactory(PrimitiveType type) {
+        this.type = type;
+    }
+
+    @Override
+    public PrimitiveType getPrimitiveType() {
+        return type;
+    }
+
+    @Override
+    public IEvaluator createEvaluator(final IDataOutputProvider output) throws AlgebricksException {
+        final IPrimitiveEvaluator eval = createPrimitiveEvaluator();
+        return new IEvaluator() {
+
+            private DataOutput out = output.getDataOutput();
+
+            @Override
+            public void evaluate(IFrameTupleReference tuple) throws AlgebricksException {
+                try {
+                    if (type.isFloatingPoint()) {
+                        type.write(0, eval.evaluateDouble(tuple), out);
+                    } else {
+                        type.write(eval.evaluateLong(tuple), 0, out);
+                    }
+                } catch (IOException e) {
+                    throw new AlgebricksException(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public IPrimitiveBatchEvaluator createPrimitiveBatchEvaluator() throws AlgebricksException {
+        return new TupleAtATimeBatchEvaluator(createPrimitiveEvaluator());
+    }
+
+    @Override
+    public IBatchEvaluator createBatchEvaluator(final ArrayBackedValueStorage output) throws AlgebricksException {
+        final IPrimitiveBatchEvaluator eval = createPrimitiveBatchEvaluator();
+        return new IBatchEvaluator() {
+
+            private DataOutput out = output.getDataOutput();
+            private int[] allTuples = new int[0];
+            private long[] lValues = new long[0];
+            private double[] dValues = new double[0];
+
+            @Override
+            public void evaluate(IFrameTupleAccessor accessor, int[] valueEndOffsets) throws AlgebricksException {
+                int nTuple = accessor.getTupleCount();
+                allTuples = selectAll(allTuples, nTuple);
+                try {
+                    if (type.isFloatingPoint()) {
+                        if (dValues.length < nTuple) {
+                            dValues = new double[nTuple];
+                        }
+                        eval.evaluateDoubles(accessor, allTuples, nTuple, dValues);
+                        for (int t = 0; t < nTuple; t++) {
+                            type.write(0, dValues[t], out);
+                            valueEndOffsets[t] = output.getLength();
+                        }
+                    } else {
+                        if (lValues.length < nTuple) {
+                            lValues = new long[nTuple];
+                        }
+                        eval.evaluateLongs(accessor, allTuples, nTuple, lValues);
+                        for (int t = 0; t < nTuple; t++) {
+                            type.write(lValues[t], 0, out);
+                            valueEndOffsets[t] = output.getLength();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new AlgebricksException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return a frame-at-a-time evaluator of the factory, which runs its
+     *         primitive evaluator on each tuple if it has no batch version
+     */
+    public static IPrimitiveBatchEvaluator toBatchEvaluator(IPrimitiveEvaluatorFactory factory)
+            throws AlgebricksException {
+        if (factory instanceof IPrimitiveBatchEvaluatorFactory) {
+            return ((IPrimitiveBatchEvaluatorFactory) factory).createPrimitiveBatchEvaluator();
+        }
+        return new TupleAtATimeBatchEvaluator(factory.createPrimitiveEvaluator());
+    }
+
+    /**
+     * @return sel if it already selects tuples 0..nTuple-1 in order,
+     *         otherwise a new selection vector that does
+     */
+    public static int[] selectAll(int[] sel, int nTuple) {
+        if (sel.length >= nTuple) {
+            return sel;
+        }
+        int[] all = new int[nTuple];
+        for (int t = 0; t < nTuple; t++) {
+            all[t] = t;
+        }
+        return all;
+    }
+
+    private static class TupleAtATimeBatchEvaluator implements IPrimitiveBatchEvaluator {
+
+        private final IPrimitiveEvaluator eval;
+        private final FrameTupleReference tRef = new FrameTupleReference();
+
+        public TupleAtATimeBatchEvaluator(IPrimitiveEvaluator eval) {
+            this.eval = eval;
+        }
+
+        @Override
+        public void evaluateBooleans(IFrameTupleAccessor accessor, int[] sel, int n, boolean[] values)
+                throws AlgebricksException {
+            for (int i = 0; i < n; i++) {
+                tRef.reset(accessor, sel[i]);
+                values[sel[i]] = eval.evaluateBoolean(tRef);
+            }
+        }
+
+        @Override
+        public void evaluateLongs(IFrameTupleAccessor accessor, int[] sel, int n, long[] values)
+                throws AlgebricksException {
+            for (int i = 0; i < n; i++) {
+                tRef.reset(accessor, sel[i]);
+                values[sel[i]] = eval.evaluateLong(tRef);
+            }
+        }
+
+        @Override
+        public void evaluateDoubles(IFrameTupleAccessor accessor, int[] sel, int n, double[] values)
+                throws AlgebricksException {
+            for (int i = 0; i < n; i++) {
+                tRef.reset(accessor, sel[i]);
+                values[sel[i]] = eval.evaluateDouble(tRef);
+            }
+        }
+    }
+
+    /**
+     * Base class of batch evaluators producing booleans.
+     */
+    protected static abstract class BooleanBatchEvaluator implements IPrimitiveBatchEvaluator {
+
+        private boolean[] bValues = new boolean[0];
+
+        @Override
+        public void evaluateLongs(IFrameTupleAccessor accessor, int[] sel, int n, long[] values)
+                throws AlgebricksException {
+            boolean[] b = evaluateBooleans(accessor, sel, n);
+            for (int i = 0; i < n; i++) {
+                int t = sel[i];
+                values[t] = b[t] ? 1 : 0;
+            }
+        }
+
+        @Override
+        public void evaluateDoubles(IFrameTupleAccessor accessor, int[] sel, int n, double[] values)
+                throws AlgebricksException {
+            boolean[] b = evaluateBooleans(accessor, sel, n);
+            for (int i = 0; i < n; i++) {
+                int t = sel[i];
+                values[t] = b[t] ? 1 : 0;
+            }
+        }
+
+        private boolean[] evaluateBooleans(IFrameTupleAccessor accessor, int[] sel, int n) throws AlgebricksException {
+            if (bValues.length < accessor.getTupleCount()) {
+                bValues = new boolean[accessor.getTupleCount()];
+            }
+            evaluateBooleans(accessor, sel, n, bValues);
+            return bValues;
+        }
+    }
+
+    /**
+     * Base class of evaluators producing an integral or boolean value.
+     */
+    protected static abstract class IntegralEvaluator implements IPrimitiveEvaluator {
+        @Override
+        public boolean evaluateBoolean(IFrameTupleReference tuple) throws AlgebricksException {
+            return evaluateLong(tuple) != 0;
+        }
+
+        @Override
+        public double evaluateDouble(IFrameTupleReference tuple) throws AlgebricksException {
+            return evaluateLong(tuple);
+        }
+    }
+
+    /**
+     * Base class of evaluators producing a floating point value.
+     */
+    protected static abstract class FloatingPointEvaluator implements IPrimitiveEvaluator {
+        @Override
+        public boolean evaluateBoolean(IFrameTupleReference tuple) throws AlgebricksException {
+            return evaluateDouble(tuple) != 0;
+        }
+
+        @Override
+        public long evaluateLong(IFrameTupleReference tuple) throws AlgebricksException {
+            return (long) evaluateDouble(tuple);
+        }
+    }
+}
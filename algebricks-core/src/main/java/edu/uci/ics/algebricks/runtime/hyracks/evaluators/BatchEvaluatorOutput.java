@@ -0,0 +1,57 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.evaluators;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBatchEvaluatorFactory;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
+
+/**
+ * Holds the column of values produced by an {@link IBatchEvaluator} for one
+ * frame.
+ */
+public class BatchEvaluatorOutput {
+
+    private final ArrayBackedValueStorage storage = new ArrayBackedValueStorage();
+    private final IBatchEvaluator eval;
+    private int[] endOffsets = new int[0];
+
+    public BatchEvaluatorOutput(IBatchEvaluatorFactory factory) throws AlgebricksException {
+        this.eval = factory.createBatchEvaluator(storage);
+    }
+
+    public void evaluate(IFrameTupleAccessor accessor) throws AlgebricksException {
+        int nTuple = accessor.getTupleCount();
+        if (endOffsets.length < nTuple) {
+            endOffsets = new int[nTuple];
+        }
+        storage.reset();
+        eval.evaluate(accessor, endOffsets);
+    }
+
+    public byte[] getBytes() {
+        return storage.getBytes();
+    }
+
+    public int getStart(int tIndex) {
+        return tIndex == 0 ? storage.getStartIndex() : endOffsets[tIndex - 1];
+    }
+
+    public int getLength(int tIndex) {
+        return endOffsets[tIndex] - getStart(tIndex);
+    }
+}
@@ -18,12 +18,16 @@ import java.io.DataOutput;
 import java.io.IOException;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBatchEvaluatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluator;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.IDataOutputProvider;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
 
-public class ColumnAccessEvalFactory implements IEvaluatorFactory {
+public class ColumnAccessEvalFactory implements IEvaluatorFactory, IBatchEvaluatorFactory {
 
     private static final long serialVersionUID = 1L;
 
@@ -58,4 +62,29 @@ public class ColumnAccessEvalFactory implements IEvaluatorFactory {
         };
     }
 
+    @Override
+    public IBatchEvaluator createBatchEvaluator(final ArrayBackedValueStorage output) throws AlgebricksException {
+        return new IBatchEvaluator() {
+
+            private DataOutput out = output.getDataOutput();
+
+            @Override
+            public void evaluate(IFrameTupleAccessor accessor, int[] valueEndOffsets) throws AlgebricksException {
+                byte[] buffer = accessor.getBuffer().array();
+                int fieldSlotsLength = accessor.getFieldSlotsLength();
+                int nTuple = accessor.getTupleCount();
+                try {
+                    for (int t = 0; t < nTuple; t++) {
+                        int start = accessor.getTupleStartOffset(t) + fieldSlotsLength
+                                + accessor.getFieldStartOffset(t, fieldIndex);
+                        out.write(buffer, start, accessor.getFieldLength(t, fieldIndex));
+                        valueEndOffsets[t] = output.getLength();
+                    }
+                } catch (IOException ioe) {
+                    throw new AlgebricksException(ioe);
+                }
+            }
+        };
+    }
+
 }
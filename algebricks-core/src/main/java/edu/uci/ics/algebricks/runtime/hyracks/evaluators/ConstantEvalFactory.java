@@ -18,12 +18,16 @@ import java.io.DataOutput;
 import java.io.IOException;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBatchEvaluatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluator;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.IDataOutputProvider;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
 
-public class ConstantEvalFactory implements IEvaluatorFactory {
+public class ConstantEvalFactory implements IEvaluatorFactory, IBatchEvaluatorFactory {
     private static final long serialVersionUID = 1L;
 
     private byte[] value;
@@ -32,6 +36,10 @@ public class ConstantEvalFactory implements IEvaluatorFactory {
         this.value = value;
     }
 
+    public byte[] getValue() {
+        return value;
+    }
+
     @Override
     public String toString() {
         return "Constant";
@@ -54,4 +62,25 @@ public class ConstantEvalFactory implements IEvaluatorFactory {
         };
     }
 
+    @Override
+    public IBatchEvaluator createBatchEvaluator(final ArrayBackedValueStorage output) throws AlgebricksException {
+        return new IBatchEvaluator() {
+
+            private DataOutput out = output.getDataOutput();
+
+            @Override
+            public void evaluate(IFrameTupleAccessor accessor, int[] valueEndOffsets) throws AlgebricksException {
+                int nTuple = accessor.getTupleCount();
+                try {
+                    for (int t = 0; t < nTuple; t++) {
+                        out.write(value, 0, value.length);
+                        valueEndOffsets[t] = output.getLength();
+                    }
+                } catch (IOException ioe) {
+                    throw new AlgebricksException(ioe);
+                }
+            }
+        };
+    }
+
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.evaluators;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluatorFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+
+/**
+ * Arithmetic on two primitive values, with the result type given by
+ * {@link PrimitiveType#promote}. Integer results wrap around like Java ints.
+ */
+public class PrimitiveArithmeticEvalFactory extends AbstractPrimitiveEvaluatorFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum ArithmeticKind {
+        ADD,
+        SUB,
+        MUL,
+        DIV,
+        MOD
+    }
+
+    private final ArithmeticKind kind;
+    private final IPrimitiveEvaluatorFactory evalLeftFactory;
+    private final IPrimitiveEvaluatorFactory evalRightFactory;
+
+    public PrimitiveArithmeticEvalFactory(ArithmeticKind kind, IPrimitiveEvaluatorFactory evalLeftFactory,
+            IPrimitiveEvaluatorFactory evalRightFactory) {
+        super(PrimitiveType.promote(evalLeftFactory.getPrimitiveType(), evalRightFactory.getPrimitiveType()));
+        this.kind = kind;
+        this.evalLeftFactory = evalLeftFactory;
+        this.evalRightFactory = evalRightFactory;
+    }
+
+    @Override
+    public String toString() {
+        return kind + "(" + evalLeftFactory + ", " + evalRightFactory + ")";
+    }
+
+    @Override
+    public IPrimitiveEvaluator createPrimitiveEvaluator() throws AlgebricksException {
+        final IPrimitiveEvaluator evalLeft = evalLeftFactory.createPrimitiveEvaluator();
+        final IPrimitiveEvaluator evalRight = evalRightFactory.createPrimitiveEvaluator();
+        if (type.isFloatingPoint()) {
+            return new FloatingPointEvaluator() {
+
+                @Override
+                public double evaluateDouble(IFrameTupleReference tuple) throws AlgebricksException {
+                    double l = evalLeft.evaluateDouble(tuple);
+                    double r = evalRight.evaluateDouble(tuple);
+                    double v;
+                    switch (kind) {
+                        case ADD:
+                            v = l + r;
+                            break;
+                        case SUB:
+                            v = l - r;
+                            break;
+                        case MUL:
+                            v = l * r;
+                            break;
+                        case DIV:
+                            v = l / r;
+                            break;
+                        default:
+                            v = l % r;
+                            break;
+                    }
+                    return type == PrimitiveType.FLOAT ? (float) v : v;
+                }
+            };
+        }
+        return new IntegralEvaluator() {
+
+            @Override
+            public long evaluateLong(IFrameTupleReference tuple) throws AlgebricksException {
+                long l = evalLeft.evaluateLong(tuple);
+                long r = evalRight.evaluateLong(tuple);
+                long v;
+                switch (kind) {
+                    case ADD:
+                        v = l + r;
+                        break;
+                    case SUB:
+                        v = l - r;
+                        break;
+                    case MUL:
+                        v = l * r;
+                        break;
+                    default:
+                        if (r == 0) {
+                            throw new AlgebricksException("Division by zero in " + PrimitiveArithmeticEvalFactory.this);
+                        }
+                        v = kind == ArithmeticKind.DIV ? l / r : l % r;
+                        break;
+                }
+                return type == PrimitiveType.INT ? (int) v : v;
+            }
+        };
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.evaluators;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluatorFactory;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+
+/**
+ * Conjunction, disjunction or negation of primitive conditions. AND and OR
+ * take any number of arguments and stop at the first one deciding the result;
+ * NOT takes exactly one.
+ */
+public class PrimitiveBooleanEvalFactory extends AbstractPrimitiveEvaluatorFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum BooleanKind {
+        AND,
+        OR,
+        NOT
+    }
+
+    private final BooleanKind kind;
+    private final IPrimitiveEvaluatorFactory[] argFactories;
+
+    public PrimitiveBooleanEvalFactory(BooleanKind kind, IPrimitiveEvaluatorFactory... argFactories) {
+        super(PrimitiveType.BOOLEAN);
+        if (kind == BooleanKind.NOT && argFactories.length != 1) {
+            throw new IllegalArgumentException("NOT takes exactly one argument.");
+        }
+        this.kind = kind;
+        this.argFactories = argFactories;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(kind).append('(');
+        for (int i = 0; i < argFactories.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(argFactories[i]);
+        }
+        return sb.append(')').toString();
+    }
+
+    @Override
+    public IPrimitiveEvaluator createPrimitiveEvaluator() throws AlgebricksException {
+        final IPrimitiveEvaluator[] args = new IPrimitiveEvaluator[argFactories.length];
+        for (int i = 0; i < argFactories.length; i++) {
+            args[i] = argFactories[i].createPrimitiveEvaluator();
+        }
+        return new IntegralEvaluator() {
+
+            @Override
+            public boolean evaluateBoolean(IFrameTupleReference tuple) throws AlgebricksException {
+                switch (kind) {
+                    case NOT:
+                        return !args[0].evaluateBoolean(tuple);
+                    case AND:
+                        for (int i = 0; i < args.length; i++) {
+                            if (!args[i].evaluateBoolean(tuple)) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    default:
+                        for (int i = 0; i < args.length; i++) {
+                            if (args[i].evaluateBoolean(tuple)) {
+                                return true;
+                            }
+                        }
+                        return false;
+                }
+            }
+
+            @Override
+            public long evaluateLong(IFrameTupleReference tuple) throws AlgebricksException {
+                return evaluateBoolean(tuple) ? 1 : 0;
+            }
+        };
+    }
+
+    /**
+     * AND and OR evaluate each argument only on the tuples that the previous
+     * ones left undecided, so a frame sees the same short-circuit semantics
+     * as a single tuple.
+     */
+    @Override
+    public IPrimitiveBatchEvaluator createPrimitiveBatchEvaluator() throws AlgebricksException {
+        final IPrimitiveBatchEvaluator[] args = new IPrimitiveBatchEvaluator[argFactories.length];
+        for (int i = 0; i < argFactories.length; i++) {
+            args[i] = toBatchEvaluator(argFactories[i]);
+        }
+        return new BooleanBatchEvaluator() {
+
+            private boolean[] argValues = new boolean[0];
+            private int[] undecided = new int[0];
+
+            @Override
+            public void evaluateBooleans(IFrameTupleAccessor accessor, int[] sel, int n, boolean[] values)
+                    throws AlgebricksException {
+                if (kind == BooleanKind.NOT) {
+                    args[0].evaluateBooleans(accessor, sel, n, values);
+                    for (int i = 0; i < n; i++) {
+                        values[sel[i]] = !values[sel[i]];
+                    }
+                    return;
+                }
+                int nTuple = accessor.getTupleCount();
+                if (argValues.length < nTuple) {
+                    argValues = new boolean[nTuple];
+                    undecided = new int[nTuple];
+                }
+                // an AND is decided by a false argument, an OR by a true one
+                boolean decisive = kind == BooleanKind.OR;
+                for (int i = 0; i < n; i++) {
+                    values[sel[i]] = !decisive;
+                }
+                System.arraycopy(sel, 0, undecided, 0, n);
+                int nUndecided = n;
+                for (int a = 0; a < args.length && nUndecided > 0; a++) {
+                    args[a].evaluateBooleans(accessor, undecided, nUndecided, argValues);
+                    int k = 0;
+                    for (int i = 0; i < nUndecided; i++) {
+                        int t = undecided[i];
+                        if (argValues[t] == decisive) {
+                            values[t] = decisive;
+                        } else {
+                            undecided[k++] = t;
+                        }
+                    }
+                    nUndecided = k;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.evaluators;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluator;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+
+/**
+ * Reads a fixed-width field of the input tuple directly from the frame.
+ */
+public class PrimitiveColumnAccessEvalFactory extends AbstractPrimitiveEvaluatorFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int fieldIndex;
+
+    public PrimitiveColumnAccessEvalFactory(int fieldIndex, PrimitiveType type) {
+        super(type);
+        this.fieldIndex = fieldIndex;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnAccess(" + fieldIndex + ", " + type + ")";
+    }
+
+    @Override
+    public IPrimitiveEvaluator createPrimitiveEvaluator() throws AlgebricksException {
+        return new IPrimitiveEvaluator() {
+
+            @Override
+            public boolean evaluateBoolean(IFrameTupleReference tuple) throws AlgebricksException {
+                return type.readLong(tuple.getFieldData(fieldIndex), tuple.getFieldStart(fieldIndex)) != 0;
+            }
+
+            @Override
+            public long evaluateLong(IFrameTupleReference tuple) throws AlgebricksException {
+                return type.readLong(tuple.getFieldData(fieldIndex), tuple.getFieldStart(fieldIndex));
+            }
+
+            @Override
+            public double evaluateDouble(IFrameTupleReference tuple) throws AlgebricksException {
+                return type.readDouble(tuple.getFieldData(fieldIndex), tuple.getFieldStart(fieldIndex));
+            }
+        };
+    }
+
+    @Override
+    public IPrimitiveBatchEvaluator createPrimitiveBatchEvaluator() throws AlgebricksException {
+        return new IPrimitiveBatchEvaluator() {
+
+            @Override
+            public void evaluateBooleans(IFrameTupleAccessor accessor, int[] sel, int n, boolean[] values)
+                    throws AlgebricksException {
+                byte[] buffer = accessor.getBuffer().array();
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = type.readLong(buffer, getFieldStart(accessor, t)) != 0;
+                }
+            }
+
+            @Override
+            public void evaluateLongs(IFrameTupleAccessor accessor, int[] sel, int n, long[] values)
+                    throws AlgebricksException {
+                byte[] buffer = accessor.getBuffer().array();
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = type.readLong(buffer, getFieldStart(accessor, t));
+                }
+            }
+
+            @Override
+            public void evaluateDoubles(IFrameTupleAccessor accessor, int[] sel, int n, double[] values)
+                    throws AlgebricksException {
+                byte[] buffer = accessor.getBuffer().array();
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = type.readDouble(buffer, getFieldStart(accessor, t));
+                }
+            }
+        };
+    }
+
+    private int getFieldStart(IFrameTupleAccessor accessor, int tIndex) {
+        return accessor.getTupleStartOffset(tIndex) + accessor.getFieldSlotsLength()
+                + accessor.getFieldStartOffset(tIndex, fieldIndex);
+    }
+}
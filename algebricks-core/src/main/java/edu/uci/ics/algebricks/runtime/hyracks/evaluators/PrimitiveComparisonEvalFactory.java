@@ -0,0 +1,243 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.evaluators;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluatorFactory;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+
+/**
+ * Compares two primitive values. Integral operands are compared as longs, and
+ * as doubles as soon as one of them is a floating point value, with the IEEE
+ * semantics of the Java operators.
+ */
+public class PrimitiveComparisonEvalFactory extends AbstractPrimitiveEvaluatorFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum ComparisonKind {
+        EQ,
+        NEQ,
+        LT,
+        LE,
+        GT,
+        GE
+    }
+
+    private final ComparisonKind kind;
+    private final IPrimitiveEvaluatorFactory evalLeftFactory;
+    private final IPrimitiveEvaluatorFactory evalRightFactory;
+
+    public PrimitiveComparisonEvalFactory(ComparisonKind kind, IPrimitiveEvaluatorFactory evalLeftFactory,
+            IPrimitiveEvaluatorFactory evalRightFactory) {
+        super(PrimitiveType.BOOLEAN);
+        this.kind = kind;
+        this.evalLeftFactory = evalLeftFactory;
+        this.evalRightFactory = evalRightFactory;
+    }
+
+    @Override
+    public String toString() {
+        return kind + "(" + evalLeftFactory + ", " + evalRightFactory + ")";
+    }
+
+    @Override
+    public IPrimitiveEvaluator createPrimitiveEvaluator() throws AlgebricksException {
+        final IPrimitiveEvaluator evalLeft = evalLeftFactory.createPrimitiveEvaluator();
+        final IPrimitiveEvaluator evalRight = evalRightFactory.createPrimitiveEvaluator();
+        final boolean floatingPoint = PrimitiveType.promote(evalLeftFactory.getPrimitiveType(),
+                evalRightFactory.getPrimitiveType()).isFloatingPoint();
+        return new IntegralEvaluator() {
+
+            @Override
+            public boolean evaluateBoolean(IFrameTupleReference tuple) throws AlgebricksException {
+                if (floatingPoint) {
+                    return compare(evalLeft.evaluateDouble(tuple), evalRight.evaluateDouble(tuple));
+                } else {
+                    return compare(evalLeft.evaluateLong(tuple), evalRight.evaluateLong(tuple));
+                }
+            }
+
+            @Override
+            public long evaluateLong(IFrameTupleReference tuple) throws AlgebricksException {
+                return evaluateBoolean(tuple) ? 1 : 0;
+            }
+        };
+    }
+
+    @Override
+    public IPrimitiveBatchEvaluator createPrimitiveBatchEvaluator() throws AlgebricksException {
+        final IPrimitiveBatchEvaluator evalLeft = toBatchEvaluator(evalLeftFactory);
+        final IPrimitiveBatchEvaluator evalRight = toBatchEvaluator(evalRightFactory);
+        final boolean floatingPoint = PrimitiveType.promote(evalLeftFactory.getPrimitiveType(),
+                evalRightFactory.getPrimitiveType()).isFloatingPoint();
+        return new BooleanBatchEvaluator() {
+
+            private long[] lLeft = new long[0];
+            private long[] lRight = new long[0];
+            private double[] dLeft = new double[0];
+            private double[] dRight = new double[0];
+
+            @Override
+            public void evaluateBooleans(IFrameTupleAccessor accessor, int[] sel, int n, boolean[] values)
+                    throws AlgebricksException {
+                int nTuple = accessor.getTupleCount();
+                if (floatingPoint) {
+                    if (dLeft.length < nTuple) {
+                        dLeft = new double[nTuple];
+                        dRight = new double[nTuple];
+                    }
+                    evalLeft.evaluateDoubles(accessor, sel, n, dLeft);
+                    evalRight.evaluateDoubles(accessor, sel, n, dRight);
+                    compare(dLeft, dRight, sel, n, values);
+                } else {
+                    if (lLeft.length < nTuple) {
+                        lLeft = new long[nTuple];
+                        lRight = new long[nTuple];
+                    }
+                    evalLeft.evaluateLongs(accessor, sel, n, lLeft);
+                    evalRight.evaluateLongs(accessor, sel, n, lRight);
+                    compare(lLeft, lRight, sel, n, values);
+                }
+            }
+        };
+    }
+
+    /**
+     * One loop per kind, so that the comparison is not dispatched per tuple.
+     */
+    private void compare(long[] l, long[] r, int[] sel, int n, boolean[] values) {
+        switch (kind) {
+            case EQ:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] == r[t];
+                }
+                break;
+            case NEQ:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] != r[t];
+                }
+                break;
+            case LT:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] < r[t];
+                }
+                break;
+            case LE:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] <= r[t];
+                }
+                break;
+            case GT:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] > r[t];
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] >= r[t];
+                }
+                break;
+        }
+    }
+
+    private void compare(double[] l, double[] r, int[] sel, int n, boolean[] values) {
+        switch (kind) {
+            case EQ:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] == r[t];
+                }
+                break;
+            case NEQ:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] != r[t];
+                }
+                break;
+            case LT:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] < r[t];
+                }
+                break;
+            case LE:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] <= r[t];
+                }
+                break;
+            case GT:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] > r[t];
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    int t = sel[i];
+                    values[t] = l[t] >= r[t];
+                }
+                break;
+        }
+    }
+
+    private boolean compare(long l, long r) {
+        switch (kind) {
+            case EQ:
+                return l == r;
+            case NEQ:
+                return l != r;
+            case LT:
+                return l < r;
+            case LE:
+                return l <= r;
+            case GT:
+                return l > r;
+            default:
+                return l >= r;
+        }
+    }
+
+    /**
+     * Uses the operators of the language, so that any comparison with NaN
+     * but NEQ is false and -0.0 equals 0.0.
+     */
+    private boolean compare(double l, double r) {
+        switch (kind) {
+            case EQ:
+                return l == r;
+            case NEQ:
+                return l != r;
+            case LT:
+                return l < r;
+            case LE:
+                return l <= r;
+            case GT:
+                return l > r;
+            default:
+                return l >= r;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.evaluators;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluator;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+
+public class PrimitiveConstantEvalFactory extends AbstractPrimitiveEvaluatorFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long lValue;
+    private final double dValue;
+
+    public PrimitiveConstantEvalFactory(boolean value) {
+        this(PrimitiveType.BOOLEAN, value ? 1 : 0, value ? 1 : 0);
+    }
+
+    public PrimitiveConstantEvalFactory(int value) {
+        this(PrimitiveType.INT, value, value);
+    }
+
+    public PrimitiveConstantEvalFactory(long value) {
+        this(PrimitiveType.LONG, value, value);
+    }
+
+    public PrimitiveConstantEvalFactory(float value) {
+        this(PrimitiveType.FLOAT, (long) value, value);
+    }
+
+    public PrimitiveConstantEvalFactory(double value) {
+        this(PrimitiveType.DOUBLE, (long) value, value);
+    }
+
+    private PrimitiveConstantEvalFactory(PrimitiveType type, long lValue, double dValue) {
+        super(type);
+        this.lValue = lValue;
+        this.dValue = dValue;
+    }
+
+    /**
+     * @return a constant of the given type, read from its serialized form
+     */
+    public static PrimitiveConstantEvalFactory fromBytes(PrimitiveType type, byte[] bytes) {
+        return new PrimitiveConstantEvalFactory(type, type.readLong(bytes, 0), type.readDouble(bytes, 0));
+    }
+
+    /**
+     * @return the value in the serialized form of its type
+     */
+    public byte[] getValue() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            type.write(lValue, dValue, new DataOutputStream(baos));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return type.isFloatingPoint() ? String.valueOf(dValue) : type == PrimitiveType.BOOLEAN ? String
+                .valueOf(lValue != 0) : String.valueOf(lValue);
+    }
+
+    @Override
+    public IPrimitiveEvaluator createPrimitiveEvaluator() throws AlgebricksException {
+        return new IPrimitiveEvaluator() {
+
+            @Override
+            public boolean evaluateBoolean(IFrameTupleReference tuple) throws AlgebricksException {
+                return type.isFloatingPoint() ? dValue != 0 : lValue != 0;
+            }
+
+            @Override
+            public long evaluateLong(IFrameTupleReference tuple) throws AlgebricksException {
+                return lValue;
+            }
+
+            @Override
+            public double evaluateDouble(IFrameTupleReference tuple) throws AlgebricksException {
+                return dValue;
+            }
+        };
+    }
+
+    @Override
+    public IPrimitiveBatchEvaluator createPrimitiveBatchEvaluator() throws AlgebricksException {
+        return new IPrimitiveBatchEvaluator() {
+
+            @Override
+            public void evaluateBooleans(IFrameTupleAccessor accessor, int[] sel, int n, boolean[] values)
+                    throws AlgebricksException {
+                boolean value = type.isFloatingPoint() ? dValue != 0 : lValue != 0;
+                for (int i = 0; i < n; i++) {
+                    values[sel[i]] = value;
+                }
+            }
+
+            @Override
+            public void evaluateLongs(IFrameTupleAccessor accessor, int[] sel, int n, long[] values)
+                    throws AlgebricksException {
+                for (int i = 0; i < n; i++) {
+                    values[sel[i]] = lValue;
+                }
+            }
+
+            @Override
+            public void evaluateDoubles(IFrameTupleAccessor accessor, int[] sel, int n, double[] values)
+                    throws AlgebricksException {
+                for (int i = 0; i < n; i++) {
+                    values[sel[i]] = dValue;
+                }
+            }
+        };
+    }
+}
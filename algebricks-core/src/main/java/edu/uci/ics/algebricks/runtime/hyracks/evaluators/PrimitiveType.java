@@ -0,0 +1,108 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.evaluators;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The fixed-width types handled by the primitive evaluators, with the same
+ * serialized form as the corresponding DataOutput methods (big-endian).
+ */
+public enum PrimitiveType {
+    BOOLEAN(false),
+    INT(false),
+    LONG(false),
+    FLOAT(true),
+    DOUBLE(true);
+
+    private final boolean floatingPoint;
+
+    private PrimitiveType(boolean floatingPoint) {
+        this.floatingPoint = floatingPoint;
+    }
+
+    public boolean isFloatingPoint() {
+        return floatingPoint;
+    }
+
+    /**
+     * @return the type of the result of an arithmetic operation on values of
+     *         types t1 and t2. Booleans are treated as integers.
+     */
+    public static PrimitiveType promote(PrimitiveType t1, PrimitiveType t2) {
+        PrimitiveType t = t1.ordinal() >= t2.ordinal() ? t1 : t2;
+        return t == BOOLEAN ? INT : t;
+    }
+
+    public long readLong(byte[] bytes, int start) {
+        switch (this) {
+            case BOOLEAN:
+                return bytes[start] != 0 ? 1 : 0;
+            case INT:
+                return readInt(bytes, start);
+            case LONG:
+                return readLong64(bytes, start);
+            case FLOAT:
+                return (long) Float.intBitsToFloat(readInt(bytes, start));
+            default:
+                return (long) Double.longBitsToDouble(readLong64(bytes, start));
+        }
+    }
+
+    public double readDouble(byte[] bytes, int start) {
+        switch (this) {
+            case FLOAT:
+                return Float.intBitsToFloat(readInt(bytes, start));
+            case DOUBLE:
+                return Double.longBitsToDouble(readLong64(bytes, start));
+            default:
+                return readLong(bytes, start);
+        }
+    }
+
+    /**
+     * Writes a value of this type, given as a long if the type is integral or
+     * as a double otherwise.
+     */
+    public void write(long lValue, double dValue, DataOutput out) throws IOException {
+        switch (this) {
+            case BOOLEAN:
+                out.writeBoolean(lValue != 0);
+                break;
+            case INT:
+                out.writeInt((int) lValue);
+                break;
+            case LONG:
+                out.writeLong(lValue);
+                break;
+            case FLOAT:
+                out.writeFloat((float) dValue);
+                break;
+            default:
+                out.writeDouble(dValue);
+                break;
+        }
+    }
+
+    private static int readInt(byte[] bytes, int start) {
+        return ((bytes[start] & 0xff) << 24) + ((bytes[start + 1] & 0xff) << 16) + ((bytes[start + 2] & 0xff) << 8)
+                + ((bytes[start + 3] & 0xff) << 0);
+    }
+
+    private static long readLong64(byte[] bytes, int start) {
+        return (((long) readInt(bytes, start)) << 32) + (readInt(bytes, start + 4) & 0xffffffffL);
+    }
+}
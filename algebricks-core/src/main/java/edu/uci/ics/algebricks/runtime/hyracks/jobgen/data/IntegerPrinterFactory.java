@@ -17,13 +17,16 @@ package edu.uci.ics.algebricks.runtime.hyracks.jobgen.data;
 import java.io.IOException;
 import java.io.PrintStream;
 
+import edu.uci.ics.algebricks.api.data.IBytePrinter;
+import edu.uci.ics.algebricks.api.data.IBytePrinterFactory;
 import edu.uci.ics.algebricks.api.data.IPrinter;
 import edu.uci.ics.algebricks.api.data.IPrinterFactory;
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.utils.PrintBuffer;
 import edu.uci.ics.algebricks.utils.WriteValueTools;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
 
-public class IntegerPrinterFactory implements IPrinterFactory {
+public class IntegerPrinterFactory implements IPrinterFactory, IBytePrinterFactory {
 
     private static final long serialVersionUID = 1L;
     public static final IntegerPrinterFactory INSTANCE = new IntegerPrinterFactory();
@@ -51,4 +54,19 @@ public class IntegerPrinterFactory implements IPrinterFactory {
         };
     }
 
+    @Override
+    public IBytePrinter createBytePrinter() {
+        return new IBytePrinter() {
+
+            @Override
+            public void print(byte[] b, int s, int l, PrintBuffer buf) throws AlgebricksException {
+                WriteValueTools.writeInt(IntegerSerializerDeserializer.getInt(b, s), buf);
+            }
+
+            @Override
+            public void init() throws AlgebricksException {
+            }
+        };
+    }
+
 }
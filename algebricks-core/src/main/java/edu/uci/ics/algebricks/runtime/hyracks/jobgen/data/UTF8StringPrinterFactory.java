@@ -16,12 +16,16 @@ package edu.uci.ics.algebricks.runtime.hyracks.jobgen.data;
 
 import java.io.PrintStream;
 
+import edu.uci.ics.algebricks.api.data.IBytePrinter;
+import edu.uci.ics.algebricks.api.data.IBytePrinterFactory;
 import edu.uci.ics.algebricks.api.data.IPrinter;
 import edu.uci.ics.algebricks.api.data.IPrinterFactory;
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.utils.PrintBuffer;
+import edu.uci.ics.algebricks.utils.WriteValueTools;
 import edu.uci.ics.hyracks.dataflow.common.data.util.StringUtils;
 
-public class UTF8StringPrinterFactory implements IPrinterFactory {
+public class UTF8StringPrinterFactory implements IPrinterFactory, IBytePrinterFactory {
 
     private static final long serialVersionUID = 1L;
 
@@ -60,4 +64,19 @@ public class UTF8StringPrinterFactory implements IPrinterFactory {
         };
     }
 
+    @Override
+    public IBytePrinter createBytePrinter() {
+        return new IBytePrinter() {
+
+            @Override
+            public void print(byte[] b, int s, int l, PrintBuffer buf) throws AlgebricksException {
+                WriteValueTools.writeUTF8String(b, s, l, buf);
+            }
+
+            @Override
+            public void init() throws AlgebricksException {
+            }
+        };
+    }
+
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.expr.ILogicalExpressionJobGen;
+import edu.uci.ics.algebricks.api.expr.IVariableTypeEnvironment;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AbstractFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AbstractFunctionCallExpression.FunctionKind;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.IFunctionInfo;
+import edu.uci.ics.algebricks.compiler.algebra.functions.IFunctionalFunctionInfo;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+
+/**
+ * Compiles the expressions of one operator so that every scalar function call
+ * occurring more than once among them is evaluated only once per tuple.
+ * 
+ * Each shared sub-expression gets a memo slot: a fresh variable that is
+ * appended to the input schema and that replaces all occurrences of the
+ * sub-expression in (copies of) the expressions. The memo slots are evaluated
+ * in the order of {@link #getMemoFactories()}, which is such that a slot only
+ * depends on input fields and on earlier slots, and their values are
+ * appended to the input tuple before the expressions are evaluated.
+ * Only calls of functional functions are shared, and the types of the memo
+ * slots are kept in an environment of the compiler on top of the one of the
+ * input, which is left untouched.
+ */
+public class CommonSubexpressionCompiler {
+
+    private final MemoTypeEnvironment env;
+    private final JobGenContext context;
+    private final IOperatorSchema extendedSchema;
+
+    private final Map<ILogicalExpression, Integer> occurrences = new HashMap<ILogicalExpression, Integer>();
+    private final Map<ILogicalExpression, LogicalVariable> memoVars = new HashMap<ILogicalExpression,
+            LogicalVariable>();
+    private final List<ILogicalExpression> memoExprs = new ArrayList<ILogicalExpression>();
+    private IEvaluatorFactory[] memoFactories;
+
+    public CommonSubexpressionCompiler(IOperatorSchema inputSchema, IVariableTypeEnvironment env,
+            JobGenContext context) {
+        this.env = new MemoTypeEnvironment(env, context);
+        this.context = context;
+        this.extendedSchema = new OperatorSchemaImpl();
+        extendedSchema.addAllVariables(inputSchema);
+    }
+
+    /**
+     * @return the evaluator factories of the expressions, to be run on the
+     *         input tuple extended with the memo slots if
+     *         {@link #getMemoFactories()} is not empty
+     */
+    public IEvaluatorFactory[] compile(List<ILogicalExpression> exprs) throws AlgebricksException {
+        occurrences.clear();
+        memoVars.clear();
+        memoExprs.clear();
+        for (ILogicalExpression e : exprs) {
+            countOccurrences(e);
+        }
+        List<ILogicalExpression> rewritten = new ArrayList<ILogicalExpression>(exprs.size());
+        for (ILogicalExpression e : exprs) {
+            rewritten.add(replaceShared(e));
+        }
+
+        ILogicalExpressionJobGen exprJobGen = context.getExpressionJobGen();
+        IOperatorSchema[] schemas = new IOperatorSchema[] { extendedSchema };
+        memoFactories = new IEvaluatorFactory[memoExprs.size()];
+        for (int i = 0; i < memoFactories.length; i++) {
+            memoFactories[i] = exprJobGen.createEvaluatorFactory(memoExprs.get(i), env, schemas, context);
+        }
+        IEvaluatorFactory[] evalFactories = new IEvaluatorFactory[rewritten.size()];
+        for (int i = 0; i < evalFactories.length; i++) {
+            evalFactories[i] = exprJobGen.createEvaluatorFactory(rewritten.get(i), env, schemas, context);
+        }
+        return evalFactories;
+    }
+
+    public IEvaluatorFactory[] getMemoFactories() {
+        return memoFactories;
+    }
+
+    private static boolean isShareable(ILogicalExpression expr) {
+        if (expr.getExpressionTag() != LogicalExpressionTag.FUNCTION_CALL) {
+            return false;
+        }
+        AbstractFunctionCallExpression f = (AbstractFunctionCallExpression) expr;
+        // two calls of a function that is not functional may return different values
+        IFunctionInfo fInfo = f.getFunctionInfo();
+        return f.getKind() == FunctionKind.SCALAR && fInfo instanceof IFunctionalFunctionInfo
+                && ((IFunctionalFunctionInfo) fInfo).isFunctional();
+    }
+
+    /**
+     * Counts how many times each shareable sub-expression occurs. The
+     * sub-expressions of an already seen expression are not counted again,
+     * so that only the outermost shared expressions get a memo slot unless
+     * their parts are also used elsewhere.
+     */
+    private void countOccurrences(ILogicalExpression expr) {
+        if (!isShareable(expr)) {
+            return;
+        }
+        Integer n = occurrences.get(expr);
+        if (n != null) {
+            occurrences.put(expr, n + 1);
+            return;
+        }
+        occurrences.put(expr, 1);
+        for (LogicalExpressionReference arg : ((AbstractFunctionCallExpression) expr).getArguments()) {
+            countOccurrences(arg.getExpression());
+        }
+    }
+
+    private ILogicalExpression replaceShared(ILogicalExpression expr) throws AlgebricksException {
+        if (!isShareable(expr)) {
+            return expr;
+        }
+        Integer n = occurrences.get(expr);
+        if (n != null && n > 1) {
+            LogicalVariable var = memoVars.get(expr);
+            if (var == null) {
+                ILogicalExpression def = replaceSharedArguments(expr);
+                var = context.createNewVar();
+                env.setVarType(var, context.getType(expr, env));
+                memoExprs.add(def);
+                memoVars.put(expr, var);
+                extendedSchema.addVariable(var);
+            }
+            return new VariableReferenceExpression(var);
+        }
+        return replaceSharedArguments(expr);
+    }
+
+    private ILogicalExpression replaceSharedArguments(ILogicalExpression expr) throws AlgebricksException {
+        AbstractFunctionCallExpression copy = (AbstractFunctionCallExpression) expr.cloneExpression();
+        for (LogicalExpressionReference arg : copy.getArguments()) {
+            arg.setExpression(replaceShared(arg.getExpression()));
+        }
+        return copy;
+    }
+
+    /**
+     * The types of the memo slots, over the environment of the input.
+     */
+    private static class MemoTypeEnvironment implements IVariableTypeEnvironment {
+        private final IVariableTypeEnvironment inputEnv;
+        private final JobGenContext context;
+        private final Map<LogicalVariable, Object> memoTypes = new HashMap<LogicalVariable, Object>();
+
+        public MemoTypeEnvironment(IVariableTypeEnvironment inputEnv, JobGenContext context) {
+            this.inputEnv = inputEnv;
+            this.context = context;
+        }
+
+        @Override
+        public Object getVarType(LogicalVariable var) throws AlgebricksException {
+            if (memoTypes.containsKey(var)) {
+                return memoTypes.get(var);
+            }
+            return inputEnv.getVarType(var);
+        }
+
+        @Override
+        public Object getVarType(LogicalVariable var, List<LogicalVariable> nonNullVariables)
+                throws AlgebricksException {
+            if (memoTypes.containsKey(var)) {
+                return memoTypes.get(var);
+            }
+            return inputEnv.getVarType(var, nonNullVariables);
+        }
+
+        @Override
+        public void setVarType(LogicalVariable var, Object type) {
+            memoTypes.put(var, type);
+        }
+
+        @Override
+        public Object getType(ILogicalExpression expr) throws AlgebricksException {
+            return context.getType(expr, this);
+        }
+
+        @Override
+        public boolean substituteProducedVariable(LogicalVariable v1, LogicalVariable v2) throws AlgebricksException {
+            if (!memoTypes.containsKey(v1)) {
+                return false;
+            }
+            memoTypes.put(v2, memoTypes.remove(v1));
+            return true;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import edu.uci.ics.algebricks.api.constraints.AlgebricksPartitionConstraintHelpe
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.context.FramePool;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.base.IHyracksJobBuilder;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.meta.AlgebricksMetaOperatorDescriptor;
 import edu.uci.ics.algebricks.utils.Pair;
@@ -39,6 +40,7 @@ public class JobBuilder implements IHyracksJobBuilder {
 
     private JobSpecification jobSpec;
     private AlgebricksPartitionConstraint clusterLocations;
+    private final int frameBudget;
 
     private Map<ILogicalOperator, ArrayList<ILogicalOperator>> outEdges = new HashMap<ILogicalOperator, ArrayList<ILogicalOperator>>();
     private Map<ILogicalOperator, ArrayList<ILogicalOperator>> inEdges = new HashMap<ILogicalOperator, ArrayList<ILogicalOperator>>();
@@ -56,8 +58,13 @@ public class JobBuilder implements IHyracksJobBuilder {
     private final Map<IOperatorDescriptor, AlgebricksPartitionConstraint> partitionConstraintMap = new HashMap<IOperatorDescriptor, AlgebricksPartitionConstraint>();
 
     public JobBuilder(JobSpecification jobSpec, AlgebricksPartitionConstraint clusterLocations) {
+        this(jobSpec, clusterLocations, FramePool.UNBOUNDED);
+    }
+
+    public JobBuilder(JobSpecification jobSpec, AlgebricksPartitionConstraint clusterLocations, int frameBudget) {
         this.jobSpec = jobSpec;
         this.clusterLocations = clusterLocations;
+        this.frameBudget = frameBudget;
     }
 
     @Override
@@ -262,8 +269,10 @@ public class JobBuilder implements IHyracksJobBuilder {
         ArrayList<ILogicalOperator> inOps = inEdges.get(firstLogicalOp);
         int inArity = (inOps == null) ? 0 : inOps.size();
         // boolean isLeafOp = inEdges.get(firstLogicalOp) == null;
-        return new AlgebricksMetaOperatorDescriptor(jobSpec, inArity, outArity, runtimeFactories,
-                internalRecordDescriptors);
+        AlgebricksMetaOperatorDescriptor opDesc = new AlgebricksMetaOperatorDescriptor(jobSpec, inArity, outArity,
+                runtimeFactories, internalRecordDescriptors);
+        opDesc.setFrameBudget(frameBudget);
+        return opDesc;
     }
 
     private void addMicroOpToMetaRuntimeOp(ILogicalOperator aop) {
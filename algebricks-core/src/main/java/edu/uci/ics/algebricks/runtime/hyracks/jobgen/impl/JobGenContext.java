@@ -39,6 +39,7 @@ import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
 import edu.uci.ics.algebricks.compiler.algebra.metadata.IMetadataProvider;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema;
 import edu.uci.ics.algebricks.compiler.algebra.typing.ITypingContext;
+import edu.uci.ics.algebricks.runtime.hyracks.context.FramePool;
 import edu.uci.ics.hyracks.api.dataflow.value.INullWriterFactory;
 
 public class JobGenContext {
@@ -60,6 +61,7 @@ public class JobGenContext {
     private final IExpressionEvalSizeComputer expressionEvalSizeComputer;
     private final IPartialAggregationTypeComputer partialAggregationTypeComputer;
     private final int frameSize;
+    private int frameBudget = FramePool.UNBOUNDED;
     private AlgebricksPartitionConstraint clusterLocations;
     private int varCounter;
     private final ITypingContext typingContext;
@@ -180,6 +182,18 @@ public class JobGenContext {
         return frameSize;
     }
 
+    /**
+     * @return the number of frames the micro-operators of one partition of
+     *         each generated operator may borrow from their frame pool
+     */
+    public int getFrameBudget() {
+        return frameBudget;
+    }
+
+    public void setFrameBudget(int frameBudget) {
+        this.frameBudget = frameBudget;
+    }
+
     public IPartialAggregationTypeComputer getPartialAggregationTypeComputer() {
         return partialAggregationTypeComputer;
     }
@@ -43,7 +43,7 @@ public class PlanCompiler {
     public JobSpecification compilePlan(ILogicalPlan plan, IOperatorSchema outerPlanSchema) throws AlgebricksException {
         JobSpecification spec = new JobSpecification();
         List<ILogicalOperator> rootOps = new ArrayList<ILogicalOperator>();
-        IHyracksJobBuilder builder = new JobBuilder(spec, context.getClusterLocations());
+        IHyracksJobBuilder builder = new JobBuilder(spec, context.getClusterLocations(), context.getFrameBudget());
         for (LogicalOperatorReference opRef : plan.getRoots()) {
             compileOpRef(opRef, spec, builder, outerPlanSchema);
             rootOps.add(opRef.getOperator());
@@ -54,6 +54,10 @@ public class AggregateRuntimeFactory extends AbstractOneInputOneOutputRuntimeFac
         return sb.toString();
     }
 
+    public IAggregateFunctionFactory[] getAggregFactories() {
+        return aggregFactories;
+    }
+
     @Override
     public AbstractOneInputOneOutputOneFramePushRuntime createOneOutputPushRuntime(final RuntimeContext context)
             throws AlgebricksException {
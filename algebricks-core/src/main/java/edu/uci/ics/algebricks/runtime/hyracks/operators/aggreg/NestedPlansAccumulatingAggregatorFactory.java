@@ -21,6 +21,7 @@ import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
 import edu.uci.ics.algebricks.runtime.hyracks.base.AlgebricksPipeline;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntime;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.context.FramePool;
 import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.NestedTupleSourceRuntimeFactory.NestedTupleSourceRuntime;
 import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
@@ -40,22 +41,44 @@ public class NestedPlansAccumulatingAggregatorFactory implements IAccumulatingAg
     private AlgebricksPipeline[] subplans;
     private int[] keyFieldIdx;
     private int[] decorFieldIdx;
+    private int frameBudget;
 
     public NestedPlansAccumulatingAggregatorFactory(AlgebricksPipeline[] subplans, int[] keyFieldIdx,
             int[] decorFieldIdx) {
+        this(subplans, keyFieldIdx, decorFieldIdx, FramePool.UNBOUNDED);
+    }
+
+    /**
+     * @param frameBudget
+     *            the frames the nested pipelines may take from the frame pool
+     *            when the aggregator is created by a Hyracks group-by.
+     */
+    public NestedPlansAccumulatingAggregatorFactory(AlgebricksPipeline[] subplans, int[] keyFieldIdx,
+            int[] decorFieldIdx, int frameBudget) {
         this.subplans = subplans;
         this.keyFieldIdx = keyFieldIdx;
         this.decorFieldIdx = decorFieldIdx;
+        this.frameBudget = frameBudget;
     }
 
     @Override
     public IAccumulatingAggregator createAggregator(IHyracksStageletContext ctx, RecordDescriptor inRecordDesc,
             RecordDescriptor outRecordDescriptor) throws HyracksDataException {
-
-        final RuntimeContext rc = new RuntimeContext();
+        RuntimeContext rc = new RuntimeContext();
         rc.setHyracksContext(ctx);
-        final AggregatorOutput outputWriter = new AggregatorOutput(ctx.getFrameSize(), subplans, keyFieldIdx.length,
-                decorFieldIdx.length);
+        rc.setFrameBudget(frameBudget);
+        return createAggregator(rc, inRecordDesc, outRecordDescriptor);
+    }
+
+    /**
+     * Creates an aggregator whose nested pipelines borrow their frames from
+     * the frame pool of the runtime context of the enclosing pipeline.
+     */
+    public IAccumulatingAggregator createAggregator(RuntimeContext rc, RecordDescriptor inRecordDesc,
+            RecordDescriptor outRecordDescriptor) throws HyracksDataException {
+
+        final AggregatorOutput outputWriter = new AggregatorOutput(rc.getHyracksContext().getFrameSize(), subplans,
+                keyFieldIdx.length, decorFieldIdx.length);
         final NestedTupleSourceRuntime[] pipelines = new NestedTupleSourceRuntime[subplans.length];
         for (int i = 0; i < subplans.length; i++) {
             try {
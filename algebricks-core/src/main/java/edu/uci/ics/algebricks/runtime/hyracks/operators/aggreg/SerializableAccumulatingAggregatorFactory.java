@@ -0,0 +1,142 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.aggreg;
+
+import java.io.DataOutput;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunction;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunctionFactory;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.context.IHyracksStageletContext;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.FrameTupleReference;
+import edu.uci.ics.hyracks.dataflow.std.group.IAccumulatingAggregator;
+import edu.uci.ics.hyracks.dataflow.std.group.IAccumulatingAggregatorFactory;
+
+/**
+ * Aggregator for group-bys whose nested plan is an aggregate right on top of
+ * the nested-tuple-source. Instead of pushing every tuple of a group through a
+ * nested pipeline, the states of all the aggregate functions are kept next to
+ * each other in one byte array and updated in place.
+ */
+public class SerializableAccumulatingAggregatorFactory implements IAccumulatingAggregatorFactory {
+
+    private static final long serialVersionUID = 1L;
+    private ISerializableAggregateFunctionFactory[] aggFactories;
+    private int[] keys;
+    private int[] fdColumns;
+
+    public SerializableAccumulatingAggregatorFactory(ISerializableAggregateFunctionFactory[] aggFactories,
+            int[] keys, int[] fdColumns) {
+        this.aggFactories = aggFactories;
+        this.keys = keys;
+        this.fdColumns = fdColumns;
+    }
+
+    @Override
+    public IAccumulatingAggregator createAggregator(IHyracksStageletContext ctx, RecordDescriptor inRecordDesc,
+            RecordDescriptor outRecordDescriptor) throws HyracksDataException {
+
+        final ISerializableAggregateFunction[] agg = new ISerializableAggregateFunction[aggFactories.length];
+        for (int i = 0; i < agg.length; i++) {
+            try {
+                agg[i] = aggFactories[i].createAggregateFunction();
+            } catch (AlgebricksException e) {
+                throw new HyracksDataException(e);
+            }
+        }
+
+        return new IAccumulatingAggregator() {
+
+            private FrameTupleReference ftr = new FrameTupleReference();
+            private ArrayTupleBuilder tb = new ArrayTupleBuilder(keys.length + fdColumns.length + agg.length);
+            private ArrayBackedValueStorage state = new ArrayBackedValueStorage();
+            // stateEnds[i] is the end offset of the state of agg[i] in state
+            private int[] stateEnds = new int[agg.length];
+            private boolean pending;
+
+            @Override
+            public void init(IFrameTupleAccessor accessor, int tIndex) throws HyracksDataException {
+                pending = false;
+                state.reset();
+                DataOutput out = state.getDataOutput();
+                for (int i = 0; i < agg.length; i++) {
+                    try {
+                        agg[i].init(out);
+                    } catch (AlgebricksException e) {
+                        throw new HyracksDataException(e);
+                    }
+                    stateEnds[i] = state.getLength();
+                }
+                tb.reset();
+                for (int i = 0; i < keys.length; ++i) {
+                    tb.addField(accessor, tIndex, keys[i]);
+                }
+                for (int i = 0; i < fdColumns.length; i++) {
+                    tb.addField(accessor, tIndex, fdColumns[i]);
+                }
+            }
+
+            @Override
+            public void accumulate(IFrameTupleAccessor accessor, int tIndex) throws HyracksDataException {
+                ftr.reset(accessor, tIndex);
+                byte[] data = state.getBytes();
+                int start = state.getStartIndex();
+                int begin = 0;
+                for (int i = 0; i < agg.length; i++) {
+                    try {
+                        agg[i].step(ftr, data, start + begin, stateEnds[i] - begin);
+                    } catch (AlgebricksException e) {
+                        throw new HyracksDataException(e);
+                    }
+                    begin = stateEnds[i];
+                }
+            }
+
+            @Override
+            public boolean output(FrameTupleAppender appender, IFrameTupleAccessor accessor, int tIndex,
+                    int[] keyFieldIndexes) throws HyracksDataException {
+                if (!pending) {
+                    byte[] data = state.getBytes();
+                    int start = state.getStartIndex();
+                    int begin = 0;
+                    DataOutput out = tb.getDataOutput();
+                    for (int i = 0; i < agg.length; i++) {
+                        try {
+                            agg[i].finish(data, start + begin, stateEnds[i] - begin, out);
+                        } catch (AlgebricksException e) {
+                            throw new HyracksDataException(e);
+                        }
+                        tb.addFieldEndOffset();
+                        begin = stateEnds[i];
+                    }
+                }
+                if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                    pending = true;
+                    return false;
+                } else {
+                    return true;
+                }
+            }
+
+        };
+    }
+
+}
@@ -17,6 +17,7 @@ package edu.uci.ics.algebricks.runtime.hyracks.operators.base;
 import java.nio.ByteBuffer;
 
 import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.hyracks.api.comm.FrameHelper;
 import edu.uci.ics.hyracks.api.context.IHyracksStageletContext;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
@@ -24,6 +25,7 @@ import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
 import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.FrameTupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
 
 public abstract class AbstractOneInputOneOutputOneFramePushRuntime extends AbstractOneInputOneOutputPushRuntime {
 
@@ -31,18 +33,28 @@ public abstract class AbstractOneInputOneOutputOneFramePushRuntime extends Abstr
     protected ByteBuffer frame;
     protected FrameTupleAccessor tAccess;
     protected FrameTupleReference tRef;
+    // the context the output frame was taken from
+    private RuntimeContext frameContext;
 
+    /**
+     * Gives the output frame back to the frame pool; it is taken again when
+     * the runtime next appends a tuple.
+     */
     @Override
     public void close() throws HyracksDataException {
-        if (appender.getTupleCount() > 0) {
-            FrameUtils.flushFrame(frame, writer);
+        try {
+            if (frame != null && appender.getTupleCount() > 0) {
+                FrameUtils.flushFrame(frame, writer);
+            }
+            writer.close();
+        } finally {
+            releaseFrame();
         }
-        writer.close();
-        appender.reset(frame, true);
     }
 
     @Override
     public void flush() throws HyracksDataException {
+        ensureFrame();
         if (appender.getTupleCount() > 0) {
             FrameUtils.flushFrame(frame, writer);
         }
@@ -51,6 +63,7 @@ public abstract class AbstractOneInputOneOutputOneFramePushRuntime extends Abstr
     }
 
     protected void appendToFrameFromTupleBuilder(ArrayTupleBuilder tb) throws HyracksDataException {
+        ensureFrame();
         if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
             FrameUtils.flushFrame(frame, writer);
             appender.reset(frame, true);
@@ -62,6 +75,7 @@ public abstract class AbstractOneInputOneOutputOneFramePushRuntime extends Abstr
     }
 
     protected void appendProjectionToFrame(int tIndex, int[] projectionList) throws HyracksDataException {
+        ensureFrame();
         if (!appender.appendProjection(tAccess, tIndex, projectionList)) {
             FrameUtils.flushFrame(frame, writer);
             appender.reset(frame, true);
@@ -73,6 +87,7 @@ public abstract class AbstractOneInputOneOutputOneFramePushRuntime extends Abstr
     }
 
     protected void appendTupleToFrame(int tIndex) throws HyracksDataException {
+        ensureFrame();
         if (!appender.append(tAccess, tIndex)) {
             FrameUtils.flushFrame(frame, writer);
             appender.reset(frame, true);
@@ -83,17 +98,181 @@ public abstract class AbstractOneInputOneOutputOneFramePushRuntime extends Abstr
         }
     }
 
-    protected final void initAccessAppend(RuntimeContext context) {
+    /**
+     * Copies the tuples [tStart, tEnd) of the current input frame to the
+     * output frame, moving as many consecutive tuples as fit with a single
+     * array copy.
+     */
+    protected void appendTupleRunToFrame(int tStart, int tEnd) throws HyracksDataException {
+        ensureFrame();
+        int t = tStart;
+        while (t < tEnd) {
+            int n = appendTupleRun(t, tEnd);
+            if (n == 0) {
+                if (appender.getTupleCount() == 0) {
+                    throw new IllegalStateException(
+                            "Could not write frame (AbstractOneInputOneOutputOneFramePushRuntime.appendTupleRunToFrame).");
+                }
+                FrameUtils.flushFrame(frame, writer);
+                appender.reset(frame, true);
+            } else {
+                t += n;
+            }
+        }
+    }
+
+    /**
+     * Sends the input frame downstream unchanged, after any tuples already
+     * buffered in the output frame.
+     */
+    protected void forwardFrame(ByteBuffer buffer) throws HyracksDataException {
+        if (frame != null && appender.getTupleCount() > 0) {
+            FrameUtils.flushFrame(frame, writer);
+            appender.reset(frame, true);
+        }
+        FrameUtils.flushFrame(buffer, writer);
+    }
+
+    /**
+     * Appends the tuple whose field f is field computedFields[f] of computed
+     * if computedFields[f] >= 0, and field projectionList[f] of input tuple
+     * tIndex otherwise. The fields are written straight to the output frame,
+     * each block of consecutive input fields with a single array copy.
+     */
+    protected void appendSplicedTupleToFrame(int tIndex, int[] projectionList, int[] computedFields,
+            IFrameTupleReference computed) throws HyracksDataException {
+        ensureFrame();
+        if (!appendSplicedTuple(tIndex, projectionList, computedFields, computed)) {
+            if (appender.getTupleCount() == 0) {
+                throw new IllegalStateException(
+                        "Could not write frame (AbstractOneInputOneOutputOneFramePushRuntime.appendSplicedTupleToFrame).");
+            }
+            FrameUtils.flushFrame(frame, writer);
+            appender.reset(frame, true);
+            if (!appendSplicedTuple(tIndex, projectionList, computedFields, computed)) {
+                throw new IllegalStateException(
+                        "Could not write frame (AbstractOneInputOneOutputOneFramePushRuntime.appendSplicedTupleToFrame).");
+            }
+        }
+    }
+
+    private boolean appendSplicedTuple(int tIndex, int[] projectionList, int[] computedFields,
+            IFrameTupleReference computed) {
+        int nFields = projectionList.length;
+        int dataLength = 0;
+        for (int f = 0; f < nFields; f++) {
+            int c = computedFields[f];
+            dataLength += c >= 0 ? computed.getFieldLength(c) : tAccess.getFieldLength(tIndex, projectionList[f]);
+        }
+        int countOffset = FrameHelper.getTupleCountOffset(frame.capacity());
+        int outCount = frame.getInt(countOffset);
+        int outDataEnd = outCount == 0 ? 0 : frame.getInt(countOffset - 4 * outCount);
+        if (outDataEnd + 4 * nFields + dataLength + 4 * (outCount + 1) > countOffset) {
+            return false;
+        }
+        byte[] out = frame.array();
+        byte[] in = tAccess.getBuffer().array();
+        int inFieldsStart = tAccess.getTupleStartOffset(tIndex) + tAccess.getFieldSlotsLength();
+        int outFieldsStart = outDataEnd + 4 * nFields;
+        int pos = outFieldsStart;
+        int f = 0;
+        while (f < nFields) {
+            int c = computedFields[f];
+            if (c >= 0) {
+                int length = computed.getFieldLength(c);
+                System.arraycopy(computed.getFieldData(c), computed.getFieldStart(c), out, pos, length);
+                pos += length;
+                frame.putInt(outDataEnd + 4 * f, pos - outFieldsStart);
+                f++;
+            } else {
+                int g = f + 1;
+                while (g < nFields && computedFields[g] < 0 && projectionList[g] == projectionList[g - 1] + 1) {
+                    g++;
+                }
+                int blockStart = inFieldsStart + tAccess.getFieldStartOffset(tIndex, projectionList[f]);
+                System.arraycopy(in, blockStart, out, pos, inFieldsStart
+                        + tAccess.getFieldEndOffset(tIndex, projectionList[g - 1]) - blockStart);
+                for (; f < g; f++) {
+                    pos += tAccess.getFieldLength(tIndex, projectionList[f]);
+                    frame.putInt(outDataEnd + 4 * f, pos - outFieldsStart);
+                }
+            }
+        }
+        frame.putInt(countOffset - 4 * (outCount + 1), pos);
+        frame.putInt(countOffset, outCount + 1);
+        // re-read the tuple count and data end offset from the frame
+        appender.reset(frame, false);
+        return true;
+    }
+
+    private int appendTupleRun(int tStart, int tEnd) {
+        int countOffset = FrameHelper.getTupleCountOffset(frame.capacity());
+        int outCount = frame.getInt(countOffset);
+        int outDataEnd = outCount == 0 ? 0 : frame.getInt(countOffset - 4 * outCount);
+        int runStart = tAccess.getTupleStartOffset(tStart);
+        int n = 0;
+        while (tStart + n < tEnd) {
+            int runLength = tAccess.getTupleEndOffset(tStart + n) - runStart;
+            if (outDataEnd + runLength + 4 * (outCount + n + 1) > countOffset) {
+                break;
+            }
+            n++;
+        }
+        if (n == 0) {
+            return 0;
+        }
+        int runEnd = tAccess.getTupleEndOffset(tStart + n - 1);
+        System.arraycopy(tAccess.getBuffer().array(), runStart, frame.array(), outDataEnd, runEnd - runStart);
+        int delta = outDataEnd - runStart;
+        for (int i = 0; i < n; i++) {
+            frame.putInt(countOffset - 4 * (outCount + i + 1), tAccess.getTupleEndOffset(tStart + i) + delta);
+        }
+        frame.putInt(countOffset, outCount + n);
+        // re-read the tuple count and data end offset from the frame
+        appender.reset(frame, false);
+        return n;
+    }
+
+    /**
+     * Takes the output frame from the frame pool of the context. Calling it
+     * again, e.g. each time the runtime is opened, keeps the same frame.
+     */
+    protected final void initAccessAppend(RuntimeContext context) throws HyracksDataException {
         IHyracksStageletContext hCtx = context.getHyracksContext();
+        frameContext = context;
         // if (allocFrame) {
-        frame = hCtx.allocateFrame();
+        if (frame == null) {
+            frame = context.allocateFrame();
+        }
         appender = new FrameTupleAppender(hCtx.getFrameSize());
         appender.reset(frame, true);
         // }
         tAccess = new FrameTupleAccessor(hCtx.getFrameSize(), inputRecordDesc);
     }
 
-    protected final void initAccessAppendRef(RuntimeContext context) {
+    /**
+     * Takes an output frame from the pool again if close() gave it back.
+     * Subclasses writing to {@link #frame} directly call it first.
+     */
+    protected final void ensureFrame() throws HyracksDataException {
+        if (frame == null) {
+            frame = frameContext.allocateFrame();
+            appender.reset(frame, true);
+        }
+    }
+
+    /**
+     * Gives the output frame back to the frame pool, for subclasses that
+     * close without calling {@link #close()}.
+     */
+    protected final void releaseFrame() {
+        if (frame != null && frameContext != null) {
+            frameContext.releaseFrame(frame);
+            frame = null;
+        }
+    }
+
+    protected final void initAccessAppendRef(RuntimeContext context) throws HyracksDataException {
         initAccessAppend(context);
         tRef = new FrameTupleReference();
     }
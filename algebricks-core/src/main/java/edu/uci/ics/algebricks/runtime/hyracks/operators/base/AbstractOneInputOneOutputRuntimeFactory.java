@@ -29,6 +29,10 @@ public abstract class AbstractOneInputOneOutputRuntimeFactory implements IPushRu
         this.projectionList = projectionList;
     }
 
+    public int[] getProjectionList() {
+        return projectionList;
+    }
+
     @Override
     public IPushRuntime createPushRuntime(RuntimeContext context) throws AlgebricksException {
         return createOneOutputPushRuntime(context);
@@ -14,13 +14,16 @@
  */
 package edu.uci.ics.algebricks.runtime.hyracks.operators.base;
 
+import edu.uci.ics.algebricks.runtime.hyracks.base.IInputTerminationAware;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.base.InputTerminationSignal;
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 
-public abstract class AbstractOneInputPushRuntime implements IPushRuntime {
+public abstract class AbstractOneInputPushRuntime implements IPushRuntime, IInputTerminationAware {
     protected IFrameWriter writer;
     protected RecordDescriptor outputRecordDesc;
+    protected InputTerminationSignal inputTermination = InputTerminationSignal.createUnconnected();
 
     @Override
     public void setFrameWriter(int index, IFrameWriter writer, RecordDescriptor recordDesc) {
@@ -28,4 +31,9 @@ public abstract class AbstractOneInputPushRuntime implements IPushRuntime {
         this.outputRecordDesc = recordDesc;
     }
 
+    @Override
+    public void setInputTerminationSignal(InputTerminationSignal signal) {
+        this.inputTermination = signal;
+    }
+
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.base;
+
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+
+/**
+ * A tuple whose fields point into arbitrary byte arrays. It is used to pass
+ * intermediate tuples between runtimes that have been fused together without
+ * materializing them in a frame. The frame tuple accessor and tuple index are
+ * those of the input tuple the fields were derived from.
+ */
+public class FieldArrayTupleReference implements IFrameTupleReference {
+
+    private final byte[][] fieldData;
+    private final int[] fieldStarts;
+    private final int[] fieldLengths;
+    private IFrameTupleAccessor accessor;
+    private int tIndex;
+
+    public FieldArrayTupleReference(int nFields) {
+        fieldData = new byte[nFields][];
+        fieldStarts = new int[nFields];
+        fieldLengths = new int[nFields];
+    }
+
+    public void reset(IFrameTupleAccessor accessor, int tIndex) {
+        this.accessor = accessor;
+        this.tIndex = tIndex;
+    }
+
+    /**
+     * Points the first fields to the corresponding fields of tuple tIndex of
+     * the frame. Any remaining fields are left untouched.
+     */
+    public void resetToFrameTuple(IFrameTupleAccessor accessor, int tIndex) {
+        reset(accessor, tIndex);
+        byte[] data = accessor.getBuffer().array();
+        int fieldsStart = accessor.getTupleStartOffset(tIndex) + accessor.getFieldSlotsLength();
+        int n = Math.min(fieldData.length, accessor.getFieldCount());
+        for (int f = 0; f < n; f++) {
+            fieldData[f] = data;
+            fieldStarts[f] = fieldsStart + accessor.getFieldStartOffset(tIndex, f);
+            fieldLengths[f] = accessor.getFieldLength(tIndex, f);
+        }
+    }
+
+    public void setField(int fIndex, byte[] data, int start, int length) {
+        fieldData[fIndex] = data;
+        fieldStarts[fIndex] = start;
+        fieldLengths[fIndex] = length;
+    }
+
+    public void setField(int fIndex, FieldArrayTupleReference source, int sourceFIndex) {
+        fieldData[fIndex] = source.fieldData[sourceFIndex];
+        fieldStarts[fIndex] = source.fieldStarts[sourceFIndex];
+        fieldLengths[fIndex] = source.fieldLengths[sourceFIndex];
+    }
+
+    @Override
+    public IFrameTupleAccessor getFrameTupleAccessor() {
+        return accessor;
+    }
+
+    @Override
+    public int getTupleIndex() {
+        return tIndex;
+    }
+
+    @Override
+    public int getFieldCount() {
+        return fieldData.length;
+    }
+
+    @Override
+    public byte[] getFieldData(int fIdx) {
+        return fieldData[fIdx];
+    }
+
+    @Override
+    public int getFieldStart(int fIdx) {
+        return fieldStarts[fIdx];
+    }
+
+    @Override
+    public int getFieldLength(int fIdx) {
+        return fieldLengths[fIdx];
+    }
+
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.group;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
+import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.hyracks.api.context.IHyracksStageletContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunction;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+
+/**
+ * Removes the tuples whose key fields are equal to the ones of a previous
+ * tuple. The serialized keys seen so far are kept in an open-addressing hash
+ * table whose entries live in frames, and the first tuple with a given key is
+ * output as soon as it arrives. Once the frames are full, the tuples with a
+ * key that is not in the table are spilled to one of several partition files
+ * by hash value. When the input is closed, each partition is deduplicated the
+ * same way with a fresh table, spilling again with a different hash function
+ * if it still does not fit. A partition that is not split by its hash values,
+ * because its keys collide or because it is spilled more than
+ * MAX_SPILL_LEVEL times, is deduplicated by nested loops instead: each pass
+ * outputs the keys that fit in the frames and spills the tuples with other
+ * keys to a single file, which is read by the next pass. The maxFrames frames
+ * hold the keys, the output frame of each spilled partition and the frame
+ * partitions are read back into.
+ */
+public class HashDistinctRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_TABLE_SIZE = 64;
+    private static final int SPILL_PARTITIONS_LOG2 = 3;
+    private static final int SPILL_PARTITIONS = 1 << SPILL_PARTITIONS_LOG2;
+    private static final int MAX_SPILL_LEVEL = 4;
+
+    // one frame for the keys, one per spilled partition and the read frame
+    public static final int MIN_FRAMES = SPILL_PARTITIONS + 2;
+
+    private final int[] keyFields;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final IBinaryHashFunctionFactory[] hashFunctionFactories;
+    private final int maxFrames;
+    private final int maxKeyFrames;
+
+    public HashDistinctRuntimeFactory(int[] keyFields, IBinaryComparatorFactory[] comparatorFactories,
+            IBinaryHashFunctionFactory[] hashFunctionFactories, int maxFrames, int[] projectionList) {
+        super(projectionList);
+        if (projectionList != null) {
+            throw new NotImplementedException("Cannot push projection into HashDistinctRuntime.");
+        }
+        if (maxFrames < MIN_FRAMES) {
+            throw new IllegalArgumentException("A hash distinct needs at least " + MIN_FRAMES + " frames, not "
+                    + maxFrames + ".");
+        }
+        this.keyFields = keyFields;
+        this.comparatorFactories = comparatorFactories;
+        this.hashFunctionFactories = hashFunctionFactories;
+        this.maxFrames = maxFrames;
+        this.maxKeyFrames = maxFrames - SPILL_PARTITIONS - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "hash-distinct " + Arrays.toString(keyFields) + " " + maxFrames + " frames";
+    }
+
+    @Override
+    public AbstractOneInputOneOutputOneFramePushRuntime createOneOutputPushRuntime(final RuntimeContext context)
+            throws AlgebricksException {
+
+        return new AbstractOneInputOneOutputOneFramePushRuntime() {
+
+            private IHyracksStageletContext hCtx;
+            private IBinaryComparator[] comparators;
+            private IBinaryHashFunction[] hashFunctions;
+
+            // the keys seen so far, field i of an entry is keyFields[i]
+            private List<ByteBuffer> keyFrames;
+            private int nFrames;
+            private FrameTupleAppender keyAppender;
+            private FrameTupleAccessor keyAccess;
+            private ArrayTupleBuilder keyBuilder;
+            private int[] entryFrame;
+            private int[] entryTuple;
+            private int[] entryHash;
+            private int nEntries;
+
+            // slot i holds the index of an entry or -1
+            private int[] table;
+
+            // the partitions being spilled while deduplicating at level
+            private int level;
+            private boolean nestedLoop;
+            private SpilledPartition[] spilling;
+            private LinkedList<SpilledPartition> spilled;
+            private ByteBuffer readFrame;
+
+            @Override
+            public void open() throws HyracksDataException {
+                if (comparators == null) {
+                    initAccessAppend(context);
+                    hCtx = context.getHyracksContext();
+                    comparators = new IBinaryComparator[comparatorFactories.length];
+                    for (int i = 0; i < comparatorFactories.length; i++) {
+                        comparators[i] = comparatorFactories[i].createBinaryComparator();
+                    }
+                    hashFunctions = new IBinaryHashFunction[hashFunctionFactories.length];
+                    for (int i = 0; i < hashFunctionFactories.length; i++) {
+                        hashFunctions[i] = hashFunctionFactories[i].createBinaryHashFunction();
+                    }
+                    keyFrames = new ArrayList<ByteBuffer>();
+                    keyAppender = new FrameTupleAppender(hCtx.getFrameSize());
+                    keyAccess = new FrameTupleAccessor(hCtx.getFrameSize(), new RecordDescriptor(
+                            new ISerializerDeserializer[keyFields.length]));
+                    keyBuilder = new ArrayTupleBuilder(keyFields.length);
+                    entryFrame = new int[INITIAL_TABLE_SIZE / 2];
+                    entryTuple = new int[INITIAL_TABLE_SIZE / 2];
+                    entryHash = new int[INITIAL_TABLE_SIZE / 2];
+                    table = new int[INITIAL_TABLE_SIZE];
+                    spilling = new SpilledPartition[SPILL_PARTITIONS];
+                    spilled = new LinkedList<SpilledPartition>();
+                }
+                level = 0;
+                nestedLoop = false;
+                clearTable();
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                tAccess.reset(buffer);
+                int nTuple = tAccess.getTupleCount();
+                for (int t = 0; t < nTuple; t++) {
+                    distinct(t);
+                }
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                try {
+                    closeSpilling();
+                    while (!spilled.isEmpty()) {
+                        SpilledPartition p = spilled.getFirst();
+                        level = p.level + 1;
+                        nestedLoop = p.nestedLoop || level > MAX_SPILL_LEVEL;
+                        clearTable();
+                        if (readFrame == null) {
+                            readFrame = context.allocateFrame();
+                        }
+                        p.open();
+                        while (p.read(readFrame)) {
+                            tAccess.reset(readFrame);
+                            int nTuple = tAccess.getTupleCount();
+                            for (int t = 0; t < nTuple; t++) {
+                                distinct(t);
+                            }
+                        }
+                        checkSplit(p);
+                        closeSpilling();
+                        spilled.removeFirst().delete();
+                    }
+                } finally {
+                    deleteSpilled();
+                }
+                super.close();
+                for (ByteBuffer frame : keyFrames) {
+                    context.releaseFrame(frame);
+                }
+                keyFrames.clear();
+                if (readFrame != null) {
+                    context.releaseFrame(readFrame);
+                    readFrame = null;
+                }
+            }
+
+            private void distinct(int tIdx) throws HyracksDataException {
+                int h = hash(tIdx);
+                int mask = table.length - 1;
+                int slot = h & mask;
+                while (true) {
+                    int e = table[slot];
+                    if (e < 0) {
+                        break;
+                    }
+                    if (entryHash[e] == h && sameKey(tIdx, e)) {
+                        return;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                if (insertEntry(tIdx, h)) {
+                    table[slot] = nEntries - 1;
+                    if (2 * nEntries > table.length) {
+                        growTable();
+                    }
+                    appendTupleToFrame(tIdx);
+                } else {
+                    spill(tIdx, h);
+                }
+            }
+
+            private int hash(int tIdx) {
+                byte[] data = tAccess.getBuffer().array();
+                int fieldsStart = tAccess.getTupleStartOffset(tIdx) + tAccess.getFieldSlotsLength();
+                int h = 0;
+                for (int i = 0; i < keyFields.length; i++) {
+                    int f = keyFields[i];
+                    h = h * 31
+                            + hashFunctions[i].hash(data, fieldsStart + tAccess.getFieldStartOffset(tIdx, f), tAccess
+                                    .getFieldLength(tIdx, f));
+                }
+                return h ^ (h >>> 16);
+            }
+
+            private boolean sameKey(int tIdx, int e) {
+                keyAccess.reset(keyFrames.get(entryFrame[e]));
+                int et = entryTuple[e];
+                byte[] data = tAccess.getBuffer().array();
+                byte[] keyData = keyAccess.getBuffer().array();
+                int fieldsStart = tAccess.getTupleStartOffset(tIdx) + tAccess.getFieldSlotsLength();
+                int keyFieldsStart = keyAccess.getTupleStartOffset(et) + keyAccess.getFieldSlotsLength();
+                for (int i = 0; i < keyFields.length; i++) {
+                    int f = keyFields[i];
+                    int c = comparators[i].compare(data, fieldsStart + tAccess.getFieldStartOffset(tIdx, f), tAccess
+                            .getFieldLength(tIdx, f), keyData, keyFieldsStart + keyAccess.getFieldStartOffset(et, i),
+                            keyAccess.getFieldLength(et, i));
+                    if (c != 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            /**
+             * @return false if the key of the tuple does not fit in the frames
+             *         left.
+             */
+            private boolean insertEntry(int tIdx, int h) throws HyracksDataException {
+                keyBuilder.reset();
+                for (int i = 0; i < keyFields.length; i++) {
+                    keyBuilder.addField(tAccess, tIdx, keyFields[i]);
+                }
+                if (nFrames == 0
+                        || !keyAppender.append(keyBuilder.getFieldEndOffsets(), keyBuilder.getByteArray(), 0,
+                                keyBuilder.getSize())) {
+                    if (nFrames == maxKeyFrames) {
+                        return false;
+                    }
+                    if (nFrames == keyFrames.size()) {
+                        keyFrames.add(context.allocateFrame());
+                    }
+                    keyAppender.reset(keyFrames.get(nFrames++), true);
+                    if (!keyAppender.append(keyBuilder.getFieldEndOffsets(), keyBuilder.getByteArray(), 0,
+                            keyBuilder.getSize())) {
+                        throw new IllegalStateException(
+                                "Could not write frame (HashDistinctRuntimeFactory.insertEntry).");
+                    }
+                }
+                if (nEntries == entryFrame.length) {
+                    entryFrame = Arrays.copyOf(entryFrame, 2 * nEntries);
+                    entryTuple = Arrays.copyOf(entryTuple, 2 * nEntries);
+                    entryHash = Arrays.copyOf(entryHash, 2 * nEntries);
+                }
+                entryFrame[nEntries] = nFrames - 1;
+                entryTuple[nEntries] = keyAppender.getTupleCount() - 1;
+                entryHash[nEntries] = h;
+                nEntries++;
+                return true;
+            }
+
+            private void growTable() {
+                table = new int[2 * table.length];
+                Arrays.fill(table, -1);
+                int mask = table.length - 1;
+                for (int e = 0; e < nEntries; e++) {
+                    int slot = entryHash[e] & mask;
+                    while (table[slot] >= 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = e;
+                }
+            }
+
+            private void clearTable() {
+                Arrays.fill(table, -1);
+                nFrames = 0;
+                nEntries = 0;
+            }
+
+            /**
+             * Tuples with equal keys have equal hash values, so they always end
+             * up in the same partition. The hash value is scrambled with the
+             * level so that a partition is split again when it is read back.
+             * Nested-loop passes spill everything to one partition.
+             */
+            private void spill(int tIdx, int h) throws HyracksDataException {
+                int p = 0;
+                if (!nestedLoop) {
+                    int ph = (h ^ (0x9E3779B9 * (level + 1))) * 0x85EBCA6B;
+                    p = ph >>> (32 - SPILL_PARTITIONS_LOG2);
+                }
+                if (spilling[p] == null) {
+                    spilling[p] = new SpilledPartition(level, nestedLoop, context.allocateFrame());
+                    spilled.add(spilling[p]);
+                }
+                spilling[p].append(tIdx);
+            }
+
+            /**
+             * If all the tuples of partition p that did not fit went to the
+             * same partition, its hash values do not tell its keys apart, and
+             * that partition is deduplicated by nested loops.
+             */
+            private void checkSplit(SpilledPartition p) {
+                if (nestedLoop) {
+                    return;
+                }
+                SpilledPartition only = null;
+                for (int i = 0; i < SPILL_PARTITIONS; i++) {
+                    if (spilling[i] != null) {
+                        if (only != null) {
+                            return;
+                        }
+                        only = spilling[i];
+                    }
+                }
+                if (only != null) {
+                    only.nestedLoop = true;
+                }
+            }
+
+            private void closeSpilling() throws HyracksDataException {
+                for (int p = 0; p < SPILL_PARTITIONS; p++) {
+                    if (spilling[p] != null) {
+                        spilling[p].closeWrite();
+                        context.releaseFrame(spilling[p].frame);
+                        spilling[p] = null;
+                    }
+                }
+            }
+
+            private void deleteSpilled() {
+                for (int p = 0; p < SPILL_PARTITIONS; p++) {
+                    if (spilling[p] != null) {
+                        spilling[p].delete();
+                        context.releaseFrame(spilling[p].frame);
+                        spilling[p] = null;
+                    }
+                }
+                while (!spilled.isEmpty()) {
+                    spilled.removeFirst().delete();
+                }
+            }
+
+            /**
+             * The tuples of one partition, written whole frame by whole frame
+             * to a workspace file of the stagelet.
+             */
+            class SpilledPartition {
+                private final int level;
+                private boolean nestedLoop;
+                private final ByteBuffer frame;
+                private final FrameTupleAppender partitionAppender;
+                private File file;
+                private FileChannel channel;
+
+                SpilledPartition(int level, boolean nestedLoop, ByteBuffer frame) {
+                    this.level = level;
+                    this.nestedLoop = nestedLoop;
+                    this.frame = frame;
+                    this.partitionAppender = new FrameTupleAppender(frame.capacity());
+                    partitionAppender.reset(frame, true);
+                }
+
+                void append(int tIdx) throws HyracksDataException {
+                    if (!partitionAppender.append(tAccess, tIdx)) {
+                        writeFrame();
+                        if (!partitionAppender.append(tAccess, tIdx)) {
+                            throw new IllegalStateException(
+                                    "Could not write frame (HashDistinctRuntimeFactory.SpilledPartition.append).");
+                        }
+                    }
+                }
+
+                void closeWrite() throws HyracksDataException {
+                    if (partitionAppender.getTupleCount() > 0) {
+                        writeFrame();
+                    }
+                    try {
+                        if (channel != null) {
+                            channel.close();
+                            channel = null;
+                        }
+                    } catch (IOException e) {
+                        throw new HyracksDataException(e);
+                    }
+                }
+
+                void open() throws HyracksDataException {
+                    try {
+                        channel = new RandomAccessFile(file, "r").getChannel();
+                    } catch (IOException e) {
+                        throw new HyracksDataException(e);
+                    }
+                }
+
+                /**
+                 * @return false if all the frames have been read.
+                 */
+                boolean read(ByteBuffer buffer) throws HyracksDataException {
+                    buffer.clear();
+                    try {
+                        while (buffer.hasRemaining()) {
+                            if (channel.read(buffer) < 0) {
+                                if (buffer.position() > 0) {
+                                    throw new HyracksDataException("Truncated frame in " + file + ".");
+                                }
+                                return false;
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new HyracksDataException(e);
+                    }
+                    buffer.flip();
+                    return true;
+                }
+
+                void delete() {
+                    try {
+                        if (channel != null) {
+                            channel.close();
+                            channel = null;
+                        }
+                    } catch (IOException e) {
+                        // the file is deleted anyway
+                    }
+                    if (file != null) {
+                        file.delete();
+                        file = null;
+                    }
+                }
+
+                private void writeFrame() throws HyracksDataException {
+                    try {
+                        if (file == null) {
+                            file = hCtx.createWorkspaceFile(HashDistinctRuntimeFactory.class.getSimpleName())
+                                    .getFile();
+                            channel = new RandomAccessFile(file, "rw").getChannel();
+                        }
+                        frame.clear();
+                        while (frame.hasRemaining()) {
+                            channel.write(frame);
+                        }
+                    } catch (IOException e) {
+                        throw new HyracksDataException(e);
+                    }
+                    partitionAppender.reset(frame, true);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.group;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunction;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.hyracks.api.context.IHyracksStageletContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunction;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+
+/**
+ * Groups its input, which does not need to be clustered, with an
+ * open-addressing hash table. Every group is a record made of the key fields,
+ * the decor fields and one field with the state of each aggregate function,
+ * stored in frames. The states are updated in place, the way
+ * SerializableAggregatorDescriptorFactory does it, and the groups are output
+ * in the order they were first seen when the input is closed.
+ * <p>
+ * In partial mode the runtime is a bounded-memory pre-aggregation for a
+ * downstream merge: the groups are output with
+ * {@link ISerializableAggregateFunction#finishPartial}, and when they fill
+ * frameLimit frames all of them are output early and the table is emptied, so
+ * the same key may be output several times.
+ */
+public class MicroHashGroupByRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_TABLE_SIZE = 64;
+
+    private final int[] keyFields;
+    private final int[] decorFields;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final IBinaryHashFunctionFactory[] hashFunctionFactories;
+    private final ISerializableAggregateFunctionFactory[] aggregateFactories;
+    private final boolean partial;
+    private final int frameLimit;
+
+    public MicroHashGroupByRuntimeFactory(int[] keyFields, int[] decorFields,
+            IBinaryComparatorFactory[] comparatorFactories, IBinaryHashFunctionFactory[] hashFunctionFactories,
+            ISerializableAggregateFunctionFactory[] aggregateFactories, int[] projectionList) {
+        this(keyFields, decorFields, comparatorFactories, hashFunctionFactories, aggregateFactories, false,
+                Integer.MAX_VALUE, projectionList);
+    }
+
+    /**
+     * @param partial
+     *            whether to output partial aggregates and to flush the groups
+     *            early
+     * @param frameLimit
+     *            the number of frames the groups may fill before they are
+     *            flushed, in partial mode
+     */
+    public MicroHashGroupByRuntimeFactory(int[] keyFields, int[] decorFields,
+            IBinaryComparatorFactory[] comparatorFactories, IBinaryHashFunctionFactory[] hashFunctionFactories,
+            ISerializableAggregateFunctionFactory[] aggregateFactories, boolean partial, int frameLimit,
+            int[] projectionList) {
+        super(projectionList);
+        if (partial && frameLimit < 1) {
+            throw new IllegalArgumentException("A partial group-by needs at least one frame, not " + frameLimit
+                    + ".");
+        }
+        if (projectionList != null) {
+            throw new NotImplementedException("Cannot push projection into MicroHashGroupByRuntime.");
+        }
+        this.keyFields = keyFields;
+        this.decorFields = decorFields;
+        this.comparatorFactories = comparatorFactories;
+        this.hashFunctionFactories = hashFunctionFactories;
+        this.aggregateFactories = aggregateFactories;
+        this.partial = partial;
+        this.frameLimit = frameLimit;
+    }
+
+    @Override
+    public AbstractOneInputOneOutputOneFramePushRuntime createOneOutputPushRuntime(final RuntimeContext context)
+            throws AlgebricksException {
+
+        return new AbstractOneInputOneOutputOneFramePushRuntime() {
+
+            private IHyracksStageletContext hCtx;
+            private IBinaryComparator[] comparators;
+            private IBinaryHashFunction[] hashFunctions;
+            private ISerializableAggregateFunction[] aggs;
+            private int firstStateField;
+
+            // the group records
+            private List<ByteBuffer> groupFrames;
+            private int nFrames;
+            private FrameTupleAppender groupAppender;
+            private FrameTupleAccessor groupAccess;
+            private ArrayTupleBuilder groupBuilder;
+            private ArrayTupleBuilder outputBuilder;
+            private int[] groupFrame;
+            private int[] groupTuple;
+            private int[] groupHash;
+            private int nGroups;
+
+            // slot i holds the index of a group or -1
+            private int[] table;
+            // set when the table was emptied by the last insertGroup
+            private boolean flushed;
+
+            @Override
+            public void open() throws HyracksDataException {
+                if (aggs == null) {
+                    initAccessAppendRef(context);
+                    hCtx = context.getHyracksContext();
+                    comparators = new IBinaryComparator[comparatorFactories.length];
+                    for (int i = 0; i < comparatorFactories.length; i++) {
+                        comparators[i] = comparatorFactories[i].createBinaryComparator();
+                    }
+                    hashFunctions = new IBinaryHashFunction[hashFunctionFactories.length];
+                    for (int i = 0; i < hashFunctionFactories.length; i++) {
+                        hashFunctions[i] = hashFunctionFactories[i].createBinaryHashFunction();
+                    }
+                    aggs = new ISerializableAggregateFunction[aggregateFactories.length];
+                    try {
+                        for (int i = 0; i < aggregateFactories.length; i++) {
+                            aggs[i] = aggregateFactories[i].createAggregateFunction();
+                        }
+                    } catch (AlgebricksException e) {
+                        throw new HyracksDataException(e);
+                    }
+                    firstStateField = keyFields.length + decorFields.length;
+                    groupFrames = new ArrayList<ByteBuffer>();
+                    groupAppender = new FrameTupleAppender(hCtx.getFrameSize());
+                    groupAccess = new FrameTupleAccessor(hCtx.getFrameSize(), outputRecordDesc);
+                    groupBuilder = new ArrayTupleBuilder(firstStateField + aggs.length);
+                    outputBuilder = new ArrayTupleBuilder(firstStateField + aggs.length);
+                    groupFrame = new int[INITIAL_TABLE_SIZE / 2];
+                    groupTuple = new int[INITIAL_TABLE_SIZE / 2];
+                    groupHash = new int[INITIAL_TABLE_SIZE / 2];
+                    table = new int[INITIAL_TABLE_SIZE];
+                }
+                Arrays.fill(table, -1);
+                nFrames = 0;
+                nGroups = 0;
+                flushed = false;
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                tAccess.reset(buffer);
+                int nTuple = tAccess.getTupleCount();
+                for (int t = 0; t < nTuple; t++) {
+                    int h = hash(t);
+                    int mask = table.length - 1;
+                    int slot = h & mask;
+                    int g;
+                    while (true) {
+                        g = table[slot];
+                        if (g < 0) {
+                            g = insertGroup(t, h);
+                            if (flushed) {
+                                // the slot was probed in the emptied table
+                                flushed = false;
+                                slot = h & mask;
+                            }
+                            table[slot] = g;
+                            break;
+                        }
+                        if (groupHash[g] == h && sameKey(t, g)) {
+                            break;
+                        }
+                        slot = (slot + 1) & mask;
+                    }
+                    step(t, g);
+                    if (2 * nGroups > table.length) {
+                        growTable();
+                    }
+                }
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                outputGroups();
+                super.close();
+                for (ByteBuffer frame : groupFrames) {
+                    context.releaseFrame(frame);
+                }
+                groupFrames.clear();
+            }
+
+            private void outputGroups() throws HyracksDataException {
+                for (int g = 0; g < nGroups; g++) {
+                    groupAccess.reset(groupFrames.get(groupFrame[g]));
+                    int gt = groupTuple[g];
+                    outputBuilder.reset();
+                    for (int f = 0; f < firstStateField; f++) {
+                        outputBuilder.addField(groupAccess, gt, f);
+                    }
+                    byte[] data = groupAccess.getBuffer().array();
+                    int fieldsStart = groupAccess.getTupleStartOffset(gt) + groupAccess.getFieldSlotsLength();
+                    for (int i = 0; i < aggs.length; i++) {
+                        int f = firstStateField + i;
+                        int start = fieldsStart + groupAccess.getFieldStartOffset(gt, f);
+                        int len = groupAccess.getFieldLength(gt, f);
+                        try {
+                            if (partial) {
+                                aggs[i].finishPartial(data, start, len, outputBuilder.getDataOutput());
+                            } else {
+                                aggs[i].finish(data, start, len, outputBuilder.getDataOutput());
+                            }
+                        } catch (AlgebricksException e) {
+                            throw new HyracksDataException(e);
+                        }
+                        outputBuilder.addFieldEndOffset();
+                    }
+                    appendToFrameFromTupleBuilder(outputBuilder);
+                }
+            }
+
+            /**
+             * Outputs the partial aggregates of all the groups and empties the
+             * table, keeping its frames for the groups to come.
+             */
+            private void flushGroups() throws HyracksDataException {
+                outputGroups();
+                Arrays.fill(table, -1);
+                nFrames = 0;
+                nGroups = 0;
+                flushed = true;
+            }
+
+            private int hash(int tIdx) {
+                byte[] data = tAccess.getBuffer().array();
+                int fieldsStart = tAccess.getTupleStartOffset(tIdx) + tAccess.getFieldSlotsLength();
+                int h = 0;
+                for (int i = 0; i < keyFields.length; i++) {
+                    int f = keyFields[i];
+                    h = h * 31
+                            + hashFunctions[i].hash(data, fieldsStart + tAccess.getFieldStartOffset(tIdx, f), tAccess
+                                    .getFieldLength(tIdx, f));
+                }
+                return h ^ (h >>> 16);
+            }
+
+            private boolean sameKey(int tIdx, int g) {
+                groupAccess.reset(groupFrames.get(groupFrame[g]));
+                int gt = groupTuple[g];
+                byte[] data = tAccess.getBuffer().array();
+                byte[] groupData = groupAccess.getBuffer().array();
+                int fieldsStart = tAccess.getTupleStartOffset(tIdx) + tAccess.getFieldSlotsLength();
+                int groupFieldsStart = groupAccess.getTupleStartOffset(gt) + groupAccess.getFieldSlotsLength();
+                for (int i = 0; i < keyFields.length; i++) {
+                    int f = keyFields[i];
+                    int c = comparators[i].compare(data, fieldsStart + tAccess.getFieldStartOffset(tIdx, f), tAccess
+                            .getFieldLength(tIdx, f), groupData, groupFieldsStart
+                            + groupAccess.getFieldStartOffset(gt, i), groupAccess.getFieldLength(gt, i));
+                    if (c != 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            /**
+             * In partial mode, the groups are flushed first if they fill all
+             * their frames, in which case flushed is set.
+             */
+            private int insertGroup(int tIdx, int h) throws HyracksDataException {
+                groupBuilder.reset();
+                for (int i = 0; i < keyFields.length; i++) {
+                    groupBuilder.addField(tAccess, tIdx, keyFields[i]);
+                }
+                for (int i = 0; i < decorFields.length; i++) {
+                    groupBuilder.addField(tAccess, tIdx, decorFields[i]);
+                }
+                for (int i = 0; i < aggs.length; i++) {
+                    try {
+                        aggs[i].init(groupBuilder.getDataOutput());
+                    } catch (AlgebricksException e) {
+                        throw new HyracksDataException(e);
+                    }
+                    groupBuilder.addFieldEndOffset();
+                }
+                if (nFrames == 0
+                        || !groupAppender.append(groupBuilder.getFieldEndOffsets(), groupBuilder.getByteArray(), 0,
+                                groupBuilder.getSize())) {
+                    if (partial && nFrames == frameLimit) {
+                        flushGroups();
+                    }
+                    if (nFrames == groupFrames.size()) {
+                        groupFrames.add(context.allocateFrame());
+                    }
+                    groupAppender.reset(groupFrames.get(nFrames++), true);
+                    if (!groupAppender.append(groupBuilder.getFieldEndOffsets(), groupBuilder.getByteArray(), 0,
+                            groupBuilder.getSize())) {
+                        throw new IllegalStateException(
+                                "Could not write frame (MicroHashGroupByRuntimeFactory.insertGroup).");
+                    }
+                }
+                if (nGroups == groupFrame.length) {
+                    groupFrame = Arrays.copyOf(groupFrame, 2 * nGroups);
+                    groupTuple = Arrays.copyOf(groupTuple, 2 * nGroups);
+                    groupHash = Arrays.copyOf(groupHash, 2 * nGroups);
+                }
+                groupFrame[nGroups] = nFrames - 1;
+                groupTuple[nGroups] = groupAppender.getTupleCount() - 1;
+                groupHash[nGroups] = h;
+                return nGroups++;
+            }
+
+            private void step(int tIdx, int g) throws HyracksDataException {
+                groupAccess.reset(groupFrames.get(groupFrame[g]));
+                int gt = groupTuple[g];
+                byte[] data = groupAccess.getBuffer().array();
+                int fieldsStart = groupAccess.getTupleStartOffset(gt) + groupAccess.getFieldSlotsLength();
+                tRef.reset(tAccess, tIdx);
+                for (int i = 0; i < aggs.length; i++) {
+                    int f = firstStateField + i;
+                    try {
+                        aggs[i].step(tRef, data, fieldsStart + groupAccess.getFieldStartOffset(gt, f), groupAccess
+                                .getFieldLength(gt, f));
+                    } catch (AlgebricksException e) {
+                        throw new HyracksDataException(e);
+                    }
+                }
+            }
+
+            private void growTable() {
+                table = new int[2 * table.length];
+                Arrays.fill(table, -1);
+                int mask = table.length - 1;
+                for (int g = 0; g < nGroups; g++) {
+                    int slot = groupHash[g] & mask;
+                    while (table[slot] >= 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = g;
+                }
+            }
+        };
+    }
+}
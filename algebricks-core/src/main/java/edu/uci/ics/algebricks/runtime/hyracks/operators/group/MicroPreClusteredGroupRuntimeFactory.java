@@ -5,6 +5,7 @@ import java.nio.ByteBuffer;
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
 import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.aggreg.NestedPlansAccumulatingAggregatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputPushRuntime;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
 import edu.uci.ics.hyracks.api.context.IHyracksStageletContext;
@@ -12,8 +13,6 @@ import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
 import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
-import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
-import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
 import edu.uci.ics.hyracks.dataflow.std.group.IAccumulatingAggregator;
 import edu.uci.ics.hyracks.dataflow.std.group.IAccumulatingAggregatorFactory;
 import edu.uci.ics.hyracks.dataflow.std.group.PreclusteredGroupWriter;
@@ -51,14 +50,14 @@ public class MicroPreClusteredGroupRuntimeFactory extends AbstractOneInputOneOut
                 comparators[i] = comparatorFactories[i].createBinaryComparator();
             }
             final IHyracksStageletContext ctx = context.getHyracksContext();
-            final IAccumulatingAggregator aggregator = aggregatorFactory.createAggregator(ctx, inRecordDesc,
-                    outRecordDesc);
-            final ByteBuffer copyFrame = ctx.allocateFrame();
-            final FrameTupleAccessor copyFrameAccessor = new FrameTupleAccessor(ctx.getFrameSize(), inRecordDesc);
-            copyFrameAccessor.reset(copyFrame);
-            ByteBuffer outFrame = ctx.allocateFrame();
-            final FrameTupleAppender appender = new FrameTupleAppender(ctx.getFrameSize());
-            appender.reset(outFrame, true);
+            final IAccumulatingAggregator aggregator;
+            if (aggregatorFactory instanceof NestedPlansAccumulatingAggregatorFactory) {
+                // the nested pipelines share the frames of this one
+                aggregator = ((NestedPlansAccumulatingAggregatorFactory) aggregatorFactory).createAggregator(context,
+                        inRecordDesc, outRecordDesc);
+            } else {
+                aggregator = aggregatorFactory.createAggregator(ctx, inRecordDesc, outRecordDesc);
+            }
 
             return new AbstractOneInputOneOutputPushRuntime() {
 
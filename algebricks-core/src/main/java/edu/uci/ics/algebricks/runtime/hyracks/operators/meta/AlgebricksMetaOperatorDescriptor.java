@@ -23,6 +23,7 @@ import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
 import edu.uci.ics.algebricks.runtime.hyracks.base.AlgebricksPipeline;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.context.FramePool;
 import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
 import edu.uci.ics.hyracks.api.context.IHyracksStageletContext;
@@ -43,6 +44,10 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
     // array of factories for building the local runtime pipeline
     private final AlgebricksPipeline pipeline;
 
+    private IMicroOperatorStatsSink statsSink = null;
+
+    private int frameBudget = FramePool.UNBOUNDED;
+
     public AlgebricksMetaOperatorDescriptor(JobSpecification spec, int inputArity, int outputArity,
             IPushRuntimeFactory[] runtimeFactories, RecordDescriptor[] internalRecordDescriptors) {
         super(spec, inputArity, outputArity);
@@ -56,6 +61,32 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
         return pipeline;
     }
 
+    /**
+     * Instruments the pipeline of every partition and publishes its counters
+     * to the given sink when the partition is closed, e.g. to
+     * {@link CounterMicroOperatorStatsSink#INSTANCE} to report them in the job
+     * profile. Null, the default, turns the instrumentation off.
+     */
+    public void setStatsSink(IMicroOperatorStatsSink statsSink) {
+        this.statsSink = statsSink;
+    }
+
+    public IMicroOperatorStatsSink getStatsSink() {
+        return statsSink;
+    }
+
+    /**
+     * Bounds the number of frames the micro-operators of one partition may
+     * borrow from their shared frame pool. Unbounded by default.
+     */
+    public void setFrameBudget(int frameBudget) {
+        this.frameBudget = frameBudget;
+    }
+
+    public int getFrameBudget() {
+        return frameBudget;
+    }
+
     @Override
     public JSONObject toJSON() throws JSONException {
         JSONObject json = super.toJSON();
@@ -63,6 +94,20 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
         return json;
     }
 
+    private PipelineAssembler createPipelineAssembler(RecordDescriptor pipelineInputRecordDescriptor,
+            RecordDescriptor pipelineOutputRecordDescriptor) {
+        PipelineAssembler pa = new PipelineAssembler(pipeline, inputArity, outputArity,
+                pipelineInputRecordDescriptor, pipelineOutputRecordDescriptor);
+        pa.setInstrumented(statsSink != null);
+        return pa;
+    }
+
+    private void publishStats(PipelineAssembler pa, IHyracksStageletContext ctx, int partition) {
+        if (statsSink != null) {
+            statsSink.publish(ctx.getCounterContext(), getOperatorId().toString(), partition, pa.getStats());
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -89,7 +134,8 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
     }
 
     private IOperatorNodePushable createSourceInputPushRuntime(final IHyracksStageletContext ctx,
-            IOperatorEnvironment env, final IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions) {
+            IOperatorEnvironment env, final IRecordDescriptorProvider recordDescProvider, final int partition,
+            int nPartitions) {
         return new AbstractUnaryOutputSourceOperatorNodePushable() {
 
             public void initialize() throws HyracksDataException {
@@ -97,26 +143,29 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
                 RecordDescriptor pipelineOutputRecordDescriptor = outputArity > 0 ? AlgebricksMetaOperatorDescriptor.this.recordDescriptors[0]
                         : null;
 
-                PipelineAssembler pa = new PipelineAssembler(pipeline, inputArity, outputArity, null,
-                        pipelineOutputRecordDescriptor);
+                PipelineAssembler pa = createPipelineAssembler(null, pipelineOutputRecordDescriptor);
                 try {
                     RuntimeContext rc = new RuntimeContext();
                     rc.setHyracksContext(ctx);
+                    rc.setFrameBudget(frameBudget);
                     startOfPipeline = pa.assemblePipeline(writer, rc);
                 } catch (AlgebricksException e) {
                     throw new HyracksDataException(e);
                 }
                 startOfPipeline.open();
                 startOfPipeline.close();
+                publishStats(pa, ctx, partition);
             }
         };
     }
 
     private IOperatorNodePushable createOneInputOneOutputPushRuntime(final IHyracksStageletContext ctx,
-            IOperatorEnvironment env, final IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions) {
+            IOperatorEnvironment env, final IRecordDescriptorProvider recordDescProvider, final int partition,
+            int nPartitions) {
         return new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
 
             private IFrameWriter startOfPipeline;
+            private PipelineAssembler pa;
 
             @Override
             public void open() throws HyracksDataException {
@@ -125,11 +174,11 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
                             : null;
                     RecordDescriptor pipelineInputRecordDescriptor = recordDescProvider.getInputRecordDescriptor(
                             AlgebricksMetaOperatorDescriptor.this.getOperatorId(), 0);
-                    PipelineAssembler pa = new PipelineAssembler(pipeline, inputArity, outputArity,
-                            pipelineInputRecordDescriptor, pipelineOutputRecordDescriptor);
+                    pa = createPipelineAssembler(pipelineInputRecordDescriptor, pipelineOutputRecordDescriptor);
                     try {
                         RuntimeContext rc = new RuntimeContext();
                         rc.setHyracksContext(ctx);
+                        rc.setFrameBudget(frameBudget);
                         startOfPipeline = pa.assemblePipeline(writer, rc);
                     } catch (AlgebricksException ae) {
                         throw new HyracksDataException(ae);
@@ -140,12 +189,17 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
 
             @Override
             public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                if (pa.getInputTerminationSignal().isRaised()) {
+                    // the pipeline does not need more input
+                    return;
+                }
                 startOfPipeline.nextFrame(buffer);
             }
 
             @Override
             public void close() throws HyracksDataException {
                 startOfPipeline.close();
+                publishStats(pa, ctx, partition);
             }
 
             @Override
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.meta;
+
+import java.util.Map;
+
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounterContext;
+
+/**
+ * Adds the stats of each partition to the counters of the stagelet that ran
+ * it. Hyracks collects these counters in the profile of jobs run with
+ * profiling on, so the stats reach the cluster controller wherever the
+ * partitions ran. The counters are named operator.index.counter, with the
+ * counter names of {@link MicroOperatorStats#getCounters()}.
+ */
+public class CounterMicroOperatorStatsSink implements IMicroOperatorStatsSink {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final CounterMicroOperatorStatsSink INSTANCE = new CounterMicroOperatorStatsSink();
+
+    protected CounterMicroOperatorStatsSink() {
+    }
+
+    public static String getCounterName(String operatorName, int index, String counter) {
+        return operatorName + "." + index + "." + counter;
+    }
+
+    @Override
+    public void publish(ICounterContext counters, String operatorName, int partition, MicroOperatorStats[] stats) {
+        for (int i = 0; i < stats.length; i++) {
+            for (Map.Entry<String, Long> e : stats[i].getCounters().entrySet()) {
+                update(counters, getCounterName(operatorName, i, e.getKey()), e.getValue());
+            }
+        }
+    }
+
+    protected void update(ICounterContext counters, String name, long value) {
+        counters.getCounter(name, true).update(value);
+    }
+}
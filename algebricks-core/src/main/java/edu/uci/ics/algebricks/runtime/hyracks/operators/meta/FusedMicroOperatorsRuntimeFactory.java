@@ -0,0 +1,118 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.meta;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.FieldArrayTupleReference;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * Runs a chain of assign, select, project and limit micro-operators as a
+ * single push runtime. Every input tuple is passed through all the stages
+ * without being materialized in between, and only the tuples that survive
+ * the whole chain are written to the output frame.
+ */
+public class FusedMicroOperatorsRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AbstractOneInputOneOutputRuntimeFactory[] stages;
+
+    public FusedMicroOperatorsRuntimeFactory(AbstractOneInputOneOutputRuntimeFactory[] stages) {
+        super(null);
+        this.stages = stages;
+    }
+
+    public static boolean isFusible(IPushRuntimeFactory factory) {
+        return MicroOperatorChain.isFusible(factory);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("fused [");
+        for (int i = 0; i < stages.length; i++) {
+            if (i > 0) {
+                sb.append("; ");
+            }
+            sb.append(stages[i]);
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+    @Override
+    public AbstractOneInputOneOutputOneFramePushRuntime createOneOutputPushRuntime(final RuntimeContext context)
+            throws AlgebricksException {
+        return new AbstractOneInputOneOutputOneFramePushRuntime() {
+
+            private MicroOperatorChain chain;
+            private FieldArrayTupleReference inputTuple;
+            // all the output fields are taken from the tuple of the chain
+            private int[] outputFields;
+            private boolean done;
+
+            @Override
+            public void open() throws HyracksDataException {
+                if (chain == null) {
+                    initAccessAppend(context);
+                    int width = inputRecordDesc.getFields().length;
+                    inputTuple = new FieldArrayTupleReference(width);
+                    try {
+                        chain = new MicroOperatorChain(stages, width);
+                    } catch (AlgebricksException ae) {
+                        throw new HyracksDataException(ae);
+                    }
+                    outputFields = new int[chain.getOutputWidth()];
+                    for (int f = 0; f < outputFields.length; f++) {
+                        outputFields[f] = f;
+                    }
+                }
+                chain.open();
+                done = false;
+                inputTermination.reset();
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                if (done) {
+                    // a limit in the chain has been reached
+                    return;
+                }
+                tAccess.reset(buffer);
+                chain.prepare(tAccess);
+                int nTuple = tAccess.getTupleCount();
+                for (int t = 0; t < nTuple && !done; t++) {
+                    inputTuple.resetToFrameTuple(tAccess, t);
+                    FieldArrayTupleReference tuple = chain.process(inputTuple);
+                    done = chain.isExhausted();
+                    if (done) {
+                        inputTermination.raise();
+                    }
+                    if (tuple != null) {
+                        appendSplicedTupleToFrame(t, outputFields, outputFields, tuple);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.meta;
+
+import java.io.Serializable;
+
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounterContext;
+
+/**
+ * Receives the counters of the micro-operators of an instrumented
+ * {@link AlgebricksMetaOperatorDescriptor}. The sink is serialized with the
+ * descriptor and called on the node controller running each partition.
+ */
+public interface IMicroOperatorStatsSink extends Serializable {
+    /**
+     * Called when the pipeline of a partition is closed, with one entry per
+     * micro-operator in pipeline order.
+     * 
+     * @param counters
+     *            the counters of the stagelet running the partition, which
+     *            Hyracks reports in the job profile
+     * @param operatorName
+     *            identifies the meta-operator in the job
+     */
+    public void publish(ICounterContext counters, String operatorName, int partition, MicroOperatorStats[] stats);
+}
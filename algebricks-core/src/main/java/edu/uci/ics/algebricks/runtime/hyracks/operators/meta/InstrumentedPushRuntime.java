@@ -0,0 +1,160 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.meta;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntime;
+import edu.uci.ics.hyracks.api.comm.FrameHelper;
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * Wraps a push runtime and the writers it pushes to in order to fill a
+ * {@link MicroOperatorStats}.
+ */
+class InstrumentedPushRuntime implements IPushRuntime {
+
+    private final IPushRuntime runtime;
+    private final MicroOperatorStats stats;
+
+    public InstrumentedPushRuntime(IPushRuntime runtime, MicroOperatorStats stats) {
+        this.runtime = runtime;
+        this.stats = stats;
+    }
+
+    @Override
+    public void setFrameWriter(int index, IFrameWriter writer, RecordDescriptor recordDesc) {
+        runtime.setFrameWriter(index, new CountingFrameWriter(writer), recordDesc);
+    }
+
+    @Override
+    public void setInputRecordDescriptor(int index, RecordDescriptor recordDescriptor) {
+        runtime.setInputRecordDescriptor(index, recordDescriptor);
+    }
+
+    @Override
+    public void open() throws HyracksDataException {
+        stats.opens++;
+        long start = System.nanoTime();
+        try {
+            runtime.open();
+        } finally {
+            stats.totalNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        stats.framesIn++;
+        stats.tuplesIn += getTupleCount(buffer);
+        stats.bytesIn += getDataLength(buffer);
+        long start = System.nanoTime();
+        try {
+            runtime.nextFrame(buffer);
+        } finally {
+            long t = System.nanoTime() - start;
+            stats.nextFrameNanos += t;
+            stats.totalNanos += t;
+        }
+    }
+
+    @Override
+    public void flush() throws HyracksDataException {
+        long start = System.nanoTime();
+        try {
+            runtime.flush();
+        } finally {
+            stats.totalNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        stats.closes++;
+        long start = System.nanoTime();
+        try {
+            runtime.close();
+        } finally {
+            stats.totalNanos += System.nanoTime() - start;
+        }
+    }
+
+    private static int getTupleCount(ByteBuffer buffer) {
+        return buffer.getInt(FrameHelper.getTupleCountOffset(buffer.capacity()));
+    }
+
+    /**
+     * @return the number of bytes taken by the tuples of the frame, including
+     *         their field and tuple offsets
+     */
+    private static int getDataLength(ByteBuffer buffer) {
+        int countOffset = FrameHelper.getTupleCountOffset(buffer.capacity());
+        int n = buffer.getInt(countOffset);
+        return n == 0 ? 0 : buffer.getInt(countOffset - 4 * n) + 4 * n;
+    }
+
+    private class CountingFrameWriter implements IFrameWriter {
+        private final IFrameWriter writer;
+
+        public CountingFrameWriter(IFrameWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+            long start = System.nanoTime();
+            try {
+                writer.open();
+            } finally {
+                stats.downstreamNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            stats.framesOut++;
+            stats.tuplesOut += getTupleCount(buffer);
+            stats.bytesOut += getDataLength(buffer);
+            long start = System.nanoTime();
+            try {
+                writer.nextFrame(buffer);
+            } finally {
+                stats.downstreamNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void flush() throws HyracksDataException {
+            long start = System.nanoTime();
+            try {
+                writer.flush();
+            } finally {
+                stats.downstreamNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+            long start = System.nanoTime();
+            try {
+                writer.close();
+            } finally {
+                stats.downstreamNanos += System.nanoTime() - start;
+            }
+        }
+    }
+}
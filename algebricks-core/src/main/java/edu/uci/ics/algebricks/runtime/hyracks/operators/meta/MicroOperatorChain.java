@@ -0,0 +1,408 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.meta;
+
+import java.util.Arrays;
+
+import edu.uci.ics.algebricks.api.data.IBinaryBooleanInspector;
+import edu.uci.ics.algebricks.api.data.IBinaryIntegerInspector;
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.AbstractPrimitiveEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.FieldArrayTupleReference;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.AssignRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.StreamLimitRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.StreamProjectRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.StreamSelectRuntimeFactory;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
+
+/**
+ * Evaluates a chain of assign, select, project and limit micro-operators one
+ * tuple at a time, passing the intermediate tuples between the stages by
+ * reference instead of materializing them in frames. The primitive conditions
+ * of the selects at the head of the chain, which see the fields of the input
+ * frame, are evaluated a frame at a time by {@link #prepare}.
+ */
+class MicroOperatorChain {
+
+    private final Stage[] chain;
+    private final int outputWidth;
+    // chain[0..nLeadingSelects) are selects evaluated by prepare()
+    private final int nLeadingSelects;
+    private int[] allTuples = new int[0];
+
+    public MicroOperatorChain(IPushRuntimeFactory[] factories, int inputWidth) throws AlgebricksException {
+        chain = new Stage[factories.length];
+        int width = inputWidth;
+        for (int i = 0; i < factories.length; i++) {
+            chain[i] = createStage(factories[i], width);
+            width = chain[i].getOutputWidth();
+        }
+        outputWidth = width;
+        int n = 0;
+        while (n < chain.length && chain[n] instanceof SelectStage && ((SelectStage) chain[n]).batchEval != null) {
+            n++;
+            if (chain[n - 1].projectionList != null) {
+                // the conditions after a projection no longer see the frame
+                break;
+            }
+        }
+        nLeadingSelects = n;
+    }
+
+    public static boolean isFusible(IPushRuntimeFactory factory) {
+        return factory instanceof AssignRuntimeFactory || factory instanceof StreamSelectRuntimeFactory
+                || factory instanceof StreamProjectRuntimeFactory || factory instanceof StreamLimitRuntimeFactory;
+    }
+
+    public int getOutputWidth() {
+        return outputWidth;
+    }
+
+    public void open() throws HyracksDataException {
+        for (int i = 0; i < chain.length; i++) {
+            chain[i].open();
+        }
+    }
+
+    /**
+     * Evaluates the leading selects on a whole frame, each one on the tuples
+     * that passed the previous ones. Must be called for every frame whose
+     * tuples are then passed to {@link #process}.
+     */
+    public void prepare(IFrameTupleAccessor accessor) throws HyracksDataException {
+        if (nLeadingSelects == 0) {
+            return;
+        }
+        int nTuple = accessor.getTupleCount();
+        allTuples = AbstractPrimitiveEvaluatorFactory.selectAll(allTuples, nTuple);
+        int[] sel = allTuples;
+        int n = nTuple;
+        for (int i = 0; i < nLeadingSelects; i++) {
+            SelectStage select = (SelectStage) chain[i];
+            n = select.prepare(accessor, sel, n);
+            sel = select.survivors;
+        }
+    }
+
+    /**
+     * @return the tuple produced by the last stage, or null if one of the
+     *         stages filtered the input out
+     */
+    public FieldArrayTupleReference process(FieldArrayTupleReference input) throws HyracksDataException {
+        FieldArrayTupleReference tuple = input;
+        for (int i = 0; i < chain.length && tuple != null; i++) {
+            tuple = chain[i].process(tuple);
+        }
+        return tuple;
+    }
+
+    /**
+     * @return true if a limit in the chain will not let any more tuples
+     *         through until the chain is opened again
+     */
+    public boolean isExhausted() {
+        for (int i = 0; i < chain.length; i++) {
+            if (chain[i].isExhausted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Stage createStage(IPushRuntimeFactory factory, int inputWidth) throws AlgebricksException {
+        if (factory instanceof AssignRuntimeFactory) {
+            return new AssignStage((AssignRuntimeFactory) factory, inputWidth);
+        } else if (factory instanceof StreamSelectRuntimeFactory) {
+            return new SelectStage((StreamSelectRuntimeFactory) factory, inputWidth);
+        } else if (factory instanceof StreamProjectRuntimeFactory) {
+            return new Stage(((AbstractOneInputOneOutputRuntimeFactory) factory).getProjectionList(), inputWidth);
+        } else if (factory instanceof StreamLimitRuntimeFactory) {
+            return new LimitStage((StreamLimitRuntimeFactory) factory, inputWidth);
+        }
+        throw new AlgebricksException("Cannot fuse micro-operator " + factory);
+    }
+
+    /**
+     * A stream-project; the other stages specialize it.
+     */
+    private static class Stage {
+        protected final int[] projectionList;
+        protected final FieldArrayTupleReference output;
+        private final int outputWidth;
+
+        public Stage(int[] projectionList, int inputWidth) {
+            this.projectionList = projectionList;
+            this.output = projectionList == null ? null : new FieldArrayTupleReference(projectionList.length);
+            this.outputWidth = projectionList == null ? inputWidth : projectionList.length;
+        }
+
+        public int getOutputWidth() {
+            return outputWidth;
+        }
+
+        public void open() throws HyracksDataException {
+        }
+
+        /**
+         * @return the transformed tuple, or null if the tuple was filtered
+         *         out
+         */
+        public FieldArrayTupleReference process(FieldArrayTupleReference input) throws HyracksDataException {
+            return project(input);
+        }
+
+        public boolean isExhausted() {
+            return false;
+        }
+
+        protected FieldArrayTupleReference project(FieldArrayTupleReference input) {
+            if (projectionList == null) {
+                return input;
+            }
+            output.reset(input.getFrameTupleAccessor(), input.getTupleIndex());
+            for (int f = 0; f < projectionList.length; f++) {
+                output.setField(f, input, projectionList[f]);
+            }
+            return output;
+        }
+
+        protected static IEvaluator createEvaluator(IEvaluatorFactory factory, ArrayBackedValueStorage evalOutput)
+                throws AlgebricksException {
+            return factory == null ? null : factory.createEvaluator(evalOutput);
+        }
+    }
+
+    private static class AssignStage extends Stage {
+        private final int[] projectionToOutColumns;
+        private final IEvaluator[] evals;
+        private final ArrayBackedValueStorage[] evalOutputs;
+        private final IEvaluator[] memoEvals;
+        private final ArrayBackedValueStorage[] memoOutputs;
+        private final FieldArrayTupleReference memoTuple;
+        private final int inputWidth;
+
+        public AssignStage(AssignRuntimeFactory factory, int inputWidth) throws AlgebricksException {
+            super(factory.getProjectionList(), factory.getProjectionList().length);
+            int[] outColumns = factory.getOutColumns();
+            IEvaluatorFactory[] evalFactories = factory.getEvalFactories();
+            projectionToOutColumns = new int[projectionList.length];
+            for (int j = 0; j < projectionList.length; j++) {
+                projectionToOutColumns[j] = Arrays.binarySearch(outColumns, projectionList[j]);
+            }
+            evals = new IEvaluator[evalFactories.length];
+            evalOutputs = new ArrayBackedValueStorage[evalFactories.length];
+            for (int i = 0; i < evalFactories.length; i++) {
+                // each value must survive until the fused tuple is written
+                evalOutputs[i] = new ArrayBackedValueStorage();
+                evals[i] = createEvaluator(evalFactories[i], evalOutputs[i]);
+            }
+            this.inputWidth = inputWidth;
+            IEvaluatorFactory[] memoFactories = factory.getMemoFactories();
+            memoEvals = new IEvaluator[memoFactories.length];
+            memoOutputs = new ArrayBackedValueStorage[memoFactories.length];
+            for (int i = 0; i < memoFactories.length; i++) {
+                memoOutputs[i] = new ArrayBackedValueStorage();
+                memoEvals[i] = createEvaluator(memoFactories[i], memoOutputs[i]);
+            }
+            memoTuple = memoFactories.length == 0 ? null : new FieldArrayTupleReference(inputWidth
+                    + memoFactories.length);
+        }
+
+        @Override
+        public FieldArrayTupleReference process(FieldArrayTupleReference input) throws HyracksDataException {
+            FieldArrayTupleReference evalInput = input;
+            if (memoTuple != null) {
+                memoTuple.reset(input.getFrameTupleAccessor(), input.getTupleIndex());
+                for (int f = 0; f < inputWidth; f++) {
+                    memoTuple.setField(f, input, f);
+                }
+                for (int i = 0; i < memoEvals.length; i++) {
+                    memoOutputs[i].reset();
+                    try {
+                        memoEvals[i].evaluate(memoTuple);
+                    } catch (AlgebricksException ae) {
+                        throw new HyracksDataException(ae);
+                    }
+                    memoTuple.setField(inputWidth + i, memoOutputs[i].getBytes(), memoOutputs[i].getStartIndex(),
+                            memoOutputs[i].getLength());
+                }
+                evalInput = memoTuple;
+            }
+            output.reset(input.getFrameTupleAccessor(), input.getTupleIndex());
+            for (int f = 0; f < projectionList.length; f++) {
+                int k = projectionToOutColumns[f];
+                if (k >= 0) {
+                    ArrayBackedValueStorage evalOutput = evalOutputs[k];
+                    evalOutput.reset();
+                    try {
+                        evals[k].evaluate(evalInput);
+                    } catch (AlgebricksException ae) {
+                        throw new HyracksDataException(ae);
+                    }
+                    output.setField(f, evalOutput.getBytes(), evalOutput.getStartIndex(), evalOutput.getLength());
+                } else {
+                    output.setField(f, input, projectionList[f]);
+                }
+            }
+            return output;
+        }
+    }
+
+    private static class SelectStage extends Stage {
+        private final ArrayBackedValueStorage evalOutput = new ArrayBackedValueStorage();
+        private final IEvaluator eval;
+        private final IPrimitiveEvaluator primitiveEval;
+        private final IPrimitiveBatchEvaluator batchEval;
+        private final IBinaryBooleanInspector binaryBooleanInspector;
+        // outcome of the condition on the tuples of the prepared frame
+        private boolean[] qualifying = new boolean[0];
+        private int[] survivors = new int[0];
+        private boolean prepared;
+
+        public SelectStage(StreamSelectRuntimeFactory factory, int inputWidth) throws AlgebricksException {
+            super(factory.getProjectionList(), inputWidth);
+            IEvaluatorFactory cond = factory.getCondition();
+            if (cond instanceof IPrimitiveEvaluatorFactory) {
+                IPrimitiveEvaluatorFactory primitiveCond = (IPrimitiveEvaluatorFactory) cond;
+                this.primitiveEval = primitiveCond.createPrimitiveEvaluator();
+                this.batchEval = AbstractPrimitiveEvaluatorFactory.toBatchEvaluator(primitiveCond);
+                this.eval = null;
+            } else {
+                this.primitiveEval = null;
+                this.batchEval = null;
+                this.eval = createEvaluator(cond, evalOutput);
+            }
+            this.binaryBooleanInspector = factory.getBinaryBooleanInspector();
+        }
+
+        /**
+         * Evaluates the condition on the tuples sel[0..n) of the frame.
+         * 
+         * @return the number of qualifying tuples, left at the start of
+         *         {@link #survivors}
+         */
+        public int prepare(IFrameTupleAccessor accessor, int[] sel, int n) throws HyracksDataException {
+            int nTuple = accessor.getTupleCount();
+            if (qualifying.length < nTuple) {
+                qualifying = new boolean[nTuple];
+                survivors = new int[nTuple];
+            }
+            try {
+                batchEval.evaluateBooleans(accessor, sel, n, qualifying);
+            } catch (AlgebricksException ae) {
+                throw new HyracksDataException(ae);
+            }
+            int nSurvivors = 0;
+            for (int i = 0; i < n; i++) {
+                if (qualifying[sel[i]]) {
+                    survivors[nSurvivors++] = sel[i];
+                }
+            }
+            prepared = true;
+            return nSurvivors;
+        }
+
+        @Override
+        public FieldArrayTupleReference process(FieldArrayTupleReference input) throws HyracksDataException {
+            boolean qualifies;
+            try {
+                if (prepared) {
+                    qualifies = qualifying[input.getTupleIndex()];
+                } else if (primitiveEval != null) {
+                    qualifies = primitiveEval.evaluateBoolean(input);
+                } else {
+                    evalOutput.reset();
+                    eval.evaluate(input);
+                    qualifies = binaryBooleanInspector.getBooleanValue(evalOutput.getBytes(), 0,
+                            evalOutput.getLength());
+                }
+            } catch (AlgebricksException ae) {
+                throw new HyracksDataException(ae);
+            }
+            if (!qualifies) {
+                return null;
+            }
+            return project(input);
+        }
+    }
+
+    private static class LimitStage extends Stage {
+        private final ArrayBackedValueStorage evalOutput = new ArrayBackedValueStorage();
+        private final IEvaluator evalMaxObjects;
+        private final IEvaluator evalOffset;
+        private final IBinaryIntegerInspector binaryIntegerInspector;
+        private boolean firstTuple;
+        private int toWrite;
+        private int toSkip;
+
+        public LimitStage(StreamLimitRuntimeFactory factory, int inputWidth) throws AlgebricksException {
+            super(factory.getProjectionList(), inputWidth);
+            this.evalMaxObjects = createEvaluator(factory.getMaxObjectsEvalFactory(), evalOutput);
+            this.evalOffset = createEvaluator(factory.getOffsetEvalFactory(), evalOutput);
+            this.binaryIntegerInspector = factory.getBinaryIntegerInspector();
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+            firstTuple = true;
+            toWrite = 0;
+            toSkip = 0;
+        }
+
+        @Override
+        public FieldArrayTupleReference process(FieldArrayTupleReference input) throws HyracksDataException {
+            if (firstTuple) {
+                firstTuple = false;
+                toWrite = evaluateInteger(evalMaxObjects, input);
+                if (evalOffset != null) {
+                    toSkip = evaluateInteger(evalOffset, input);
+                }
+            }
+            if (toSkip > 0) {
+                toSkip--;
+                return null;
+            }
+            if (toWrite <= 0) {
+                return null;
+            }
+            toWrite--;
+            return project(input);
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return !firstTuple && toSkip == 0 && toWrite <= 0;
+        }
+
+        private int evaluateInteger(IEvaluator eval, FieldArrayTupleReference input) throws HyracksDataException {
+            evalOutput.reset();
+            try {
+                eval.evaluate(input);
+            } catch (AlgebricksException ae) {
+                throw new HyracksDataException(ae);
+            }
+            return binaryIntegerInspector.getIntegerValue(evalOutput.getBytes(), 0, evalOutput.getLength());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.meta;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Counters collected for one micro-operator of a pipeline, in one partition.
+ * The times include the time spent by the downstream micro-operators, which is
+ * also counted separately, so that the time spent in the micro-operator
+ * itself is {@link #getSelfNanos()}.
+ */
+public class MicroOperatorStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+
+    long opens;
+    long closes;
+    long framesIn;
+    long tuplesIn;
+    long bytesIn;
+    long framesOut;
+    long tuplesOut;
+    long bytesOut;
+    long nextFrameNanos;
+    long totalNanos;
+    long downstreamNanos;
+
+    public MicroOperatorStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getOpens() {
+        return opens;
+    }
+
+    public long getCloses() {
+        return closes;
+    }
+
+    public long getFramesIn() {
+        return framesIn;
+    }
+
+    public long getTuplesIn() {
+        return tuplesIn;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getFramesOut() {
+        return framesOut;
+    }
+
+    public long getTuplesOut() {
+        return tuplesOut;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * @return the time spent in nextFrame(), downstream operators included
+     */
+    public long getNextFrameNanos() {
+        return nextFrameNanos;
+    }
+
+    /**
+     * @return the time spent in open(), nextFrame(), flush() and close(),
+     *         downstream operators included
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getSelfNanos() {
+        return totalNanos - downstreamNanos;
+    }
+
+    /**
+     * @return the counters by name, in a fixed order
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new LinkedHashMap<String, Long>();
+        counters.put("opens", opens);
+        counters.put("closes", closes);
+        counters.put("frames-in", framesIn);
+        counters.put("tuples-in", tuplesIn);
+        counters.put("bytes-in", bytesIn);
+        counters.put("frames-out", framesOut);
+        counters.put("tuples-out", tuplesOut);
+        counters.put("bytes-out", bytesOut);
+        counters.put("next-frame-nanos", nextFrameNanos);
+        counters.put("total-nanos", totalNanos);
+        counters.put("self-nanos", getSelfNanos());
+        return counters;
+    }
+
+    public JSONObject toJSON() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("name", name);
+        for (Map.Entry<String, Long> e : getCounters().entrySet()) {
+            json.put(e.getKey(), e.getValue().longValue());
+        }
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return name + " {in: " + tuplesIn + " tuples/" + framesIn + " frames, out: " + tuplesOut + " tuples/"
+                + framesOut + " frames, self: " + getSelfNanos() + " ns}";
+    }
+}
@@ -14,10 +14,17 @@
  */
 package edu.uci.ics.algebricks.runtime.hyracks.operators.meta;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.runtime.hyracks.base.AlgebricksPipeline;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IInputTerminationAware;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.InputTerminationSignal;
 import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 
@@ -31,20 +38,59 @@ public class PipelineAssembler {
     private final int outputArity;
     private final AlgebricksPipeline pipeline;
 
+    private boolean instrumented = false;
+    private MicroOperatorStats[] stats = null;
+    private InputTerminationSignal[] terminationSignals = null;
+
     public PipelineAssembler(AlgebricksPipeline pipeline, int inputArity, int outputArity,
             RecordDescriptor pipelineInputRecordDescriptor, RecordDescriptor pipelineOutputRecordDescriptor) {
-        this.pipeline = pipeline;
+        this.pipeline = fuseMicroOperators(pipeline);
         this.pipelineInputRecordDescriptor = pipelineInputRecordDescriptor;
         this.pipelineOutputRecordDescriptor = pipelineOutputRecordDescriptor;
         this.inputArity = inputArity;
         this.outputArity = outputArity;
     }
 
+    /**
+     * When set, every runtime of the assembled pipeline is wrapped so that it
+     * counts the frames, tuples and bytes going through it and the time it
+     * takes. Fused micro-operators are counted as one.
+     */
+    public void setInstrumented(boolean instrumented) {
+        this.instrumented = instrumented;
+    }
+
+    /**
+     * @return the counters of the last assembled pipeline, in pipeline order,
+     *         or null if it was not instrumented
+     */
+    public MicroOperatorStats[] getStats() {
+        return stats;
+    }
+
+    /**
+     * @return the signal raised when the last assembled pipeline does not
+     *         need more input
+     */
+    public InputTerminationSignal getInputTerminationSignal() {
+        return terminationSignals[0];
+    }
+
     public IFrameWriter assemblePipeline(IFrameWriter writer, RuntimeContext rc) throws AlgebricksException {
+        IPushRuntimeFactory[] factories = pipeline.getRuntimeFactories();
+        stats = instrumented ? new MicroOperatorStats[factories.length] : null;
+        terminationSignals = InputTerminationSignal.createPipelineSignals(factories.length);
         // plug the operators
         IFrameWriter start = writer;// this.writer;
         for (int i = pipeline.getRuntimeFactories().length - 1; i >= 0; i--) {
-            IPushRuntime newRuntime = pipeline.getRuntimeFactories()[i].createPushRuntime(rc);
+            IPushRuntime newRuntime = factories[i].createPushRuntime(rc);
+            if (newRuntime instanceof IInputTerminationAware) {
+                ((IInputTerminationAware) newRuntime).setInputTerminationSignal(terminationSignals[i + 1]);
+            }
+            if (instrumented) {
+                stats[i] = new MicroOperatorStats(factories[i].toString());
+                newRuntime = new InstrumentedPushRuntime(newRuntime, stats[i]);
+            }
             if (i == pipeline.getRuntimeFactories().length - 1) {
                 if (outputArity == 1) {
                     newRuntime.setFrameWriter(0, start, pipelineOutputRecordDescriptor);
@@ -61,4 +107,43 @@ public class PipelineAssembler {
         }
         return start;
     }
+
+    /**
+     * Replaces every run of two or more adjacent assign, select, project and
+     * limit runtimes by a single fused runtime, so that each tuple is written
+     * to a frame only once per run.
+     */
+    private static AlgebricksPipeline fuseMicroOperators(AlgebricksPipeline pipeline) {
+        IPushRuntimeFactory[] factories = pipeline.getRuntimeFactories();
+        RecordDescriptor[] recDescs = pipeline.getRecordDescriptors();
+        List<IPushRuntimeFactory> fusedFactories = new ArrayList<IPushRuntimeFactory>();
+        List<RecordDescriptor> fusedRecDescs = new ArrayList<RecordDescriptor>();
+        boolean fused = false;
+        int i = 0;
+        while (i < factories.length) {
+            int j = i;
+            while (j < factories.length && FusedMicroOperatorsRuntimeFactory.isFusible(factories[j])) {
+                j++;
+            }
+            if (j - i >= 2) {
+                AbstractOneInputOneOutputRuntimeFactory[] stages = new AbstractOneInputOneOutputRuntimeFactory[j - i];
+                for (int k = i; k < j; k++) {
+                    stages[k - i] = (AbstractOneInputOneOutputRuntimeFactory) factories[k];
+                }
+                fusedFactories.add(new FusedMicroOperatorsRuntimeFactory(stages));
+                fusedRecDescs.add(recDescs[j - 1]);
+                fused = true;
+                i = j;
+            } else {
+                fusedFactories.add(factories[i]);
+                fusedRecDescs.add(recDescs[i]);
+                i++;
+            }
+        }
+        if (!fused) {
+            return pipeline;
+        }
+        return new AlgebricksPipeline(fusedFactories.toArray(new IPushRuntimeFactory[fusedFactories.size()]),
+                fusedRecDescs.toArray(new RecordDescriptor[fusedRecDescs.size()]));
+    }
 }
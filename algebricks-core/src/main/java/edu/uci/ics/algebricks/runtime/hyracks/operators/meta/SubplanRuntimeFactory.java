@@ -14,27 +14,34 @@
  */
 package edu.uci.ics.algebricks.runtime.hyracks.operators.meta;
 
-import java.io.DataOutput;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
-import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
 import edu.uci.ics.algebricks.runtime.hyracks.base.AlgebricksPipeline;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IAggregateFunction;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IAggregateFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IUnnestingFunction;
 import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.aggreg.AggregateRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputPushRuntime;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.FieldArrayTupleReference;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.NestedTupleSourceRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.NestedTupleSourceRuntimeFactory.NestedTupleSourceRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.UnnestRuntimeFactory;
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
 import edu.uci.ics.hyracks.api.context.IHyracksStageletContext;
 import edu.uci.ics.hyracks.api.dataflow.value.INullWriter;
 import edu.uci.ics.hyracks.api.dataflow.value.INullWriterFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
-import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
-import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.FrameTupleReference;
 
 public class SubplanRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
 
@@ -50,9 +57,6 @@ public class SubplanRuntimeFactory extends AbstractOneInputOneOutputRuntimeFacto
         this.pipeline = pipeline;
         this.nullWriterFactories = nullWriterFactories;
         this.inputRecordDesc = inputRecordDesc;
-        if (projectionList != null) {
-            throw new NotImplementedException();
-        }
     }
 
     @Override
@@ -69,15 +73,18 @@ public class SubplanRuntimeFactory extends AbstractOneInputOneOutputRuntimeFacto
     @Override
     public AbstractOneInputOneOutputPushRuntime createOneOutputPushRuntime(final RuntimeContext context)
             throws AlgebricksException {
+        final INullWriter[] nullWriters = new INullWriter[nullWriterFactories.length];
+        for (int i = 0; i < nullWriterFactories.length; i++) {
+            nullWriters[i] = nullWriterFactories[i].createNullWriter();
+        }
+        if (canRunBatched(pipeline.getRuntimeFactories())) {
+            return createBatchedRuntime(context, nullWriters);
+        }
 
         RecordDescriptor pipelineOutputRecordDescriptor = null;
 
         final PipelineAssembler pa = new PipelineAssembler(pipeline, 1, 1, inputRecordDesc,
                 pipelineOutputRecordDescriptor);
-        final INullWriter[] nullWriters = new INullWriter[nullWriterFactories.length];
-        for (int i = 0; i < nullWriterFactories.length; i++) {
-            nullWriters[i] = nullWriterFactories[i].createNullWriter();
-        }
 
         return new AbstractOneInputOneOutputOneFramePushRuntime() {
 
@@ -94,7 +101,7 @@ public class SubplanRuntimeFactory extends AbstractOneInputOneOutputRuntimeFacto
                 private int frameSize = hCtx.getFrameSize();
                 private FrameTupleAccessor ta = new FrameTupleAccessor(frameSize,
                         pipeline.getRecordDescriptors()[pipeline.getRecordDescriptors().length - 1]);
-                private ArrayTupleBuilder tb = new ArrayTupleBuilder(nullWriters.length);
+                private FrameTupleReference innerRef = new FrameTupleReference();
 
                 @Override
                 public void open() throws HyracksDataException {
@@ -106,13 +113,8 @@ public class SubplanRuntimeFactory extends AbstractOneInputOneOutputRuntimeFacto
                     ta.reset(buffer);
                     int nTuple = ta.getTupleCount();
                     for (int t = 0; t < nTuple; t++) {
-                        if (!appender.appendConcat(tRef.getFrameTupleAccessor(), tRef.getTupleIndex(), ta, t)) {
-                            FrameUtils.flushFrame(frame, writer);
-                            appender.reset(frame, true);
-                            if (!appender.appendConcat(tRef.getFrameTupleAccessor(), tRef.getTupleIndex(), ta, t)) {
-                                throw new IllegalStateException("Could not write frame.");
-                            }
-                        }
+                        innerRef.reset(ta, t);
+                        appendSplicedTupleToFrame(tRef.getTupleIndex(), op.splicedFields, op.innerFields, innerRef);
                     }
                     smthWasWritten = true;
                 }
@@ -121,8 +123,8 @@ public class SubplanRuntimeFactory extends AbstractOneInputOneOutputRuntimeFacto
                 public void close() throws HyracksDataException {
                     if (!smthWasWritten) {
                         // the case when we need to write nulls
-                        appendNullsToTuple();
-                        appendToFrameFromTupleBuilder(tb);
+                        appendSplicedTupleToFrame(tRef.getTupleIndex(), op.splicedFields, op.innerFields,
+                                op.getNullTuple());
                     }
                 }
 
@@ -130,21 +132,10 @@ public class SubplanRuntimeFactory extends AbstractOneInputOneOutputRuntimeFacto
                 public void flush() throws HyracksDataException {
                 }
 
-                private void appendNullsToTuple() throws HyracksDataException {
-                    tb.reset();
-                    int n0 = tRef.getFieldCount();
-                    for (int f = 0; f < n0; f++) {
-                        tb.addField(tRef.getFrameTupleAccessor(), tRef.getTupleIndex(), f);
-                    }
-                    DataOutput dos = tb.getDataOutput();
-                    for (int i = 0; i < nullWriters.length; i++) {
-                        nullWriters[i].writeNull(dos);
-                        tb.addFieldEndOffset();
-                    }
-                }
-
             }
 
+            OuterProduct op = new OuterProduct(projectionList, inputRecordDesc.getFields().length, nullWriters);
+
             IFrameWriter endPipe = new TupleOuterProduct();
 
             NestedTupleSourceRuntime startOfPipeline = (NestedTupleSourceRuntime) pa.assemblePipeline(endPipe, context);
@@ -173,4 +164,279 @@ public class SubplanRuntimeFactory extends AbstractOneInputOneOutputRuntimeFacto
             }
         };
     }
+
+    /**
+     * A nested plan can run batched if it consists of the nested tuple source
+     * followed by unnests and by micro-operators that produce at most one
+     * tuple per input tuple, optionally topped by an aggregate.
+     */
+    private static boolean canRunBatched(IPushRuntimeFactory[] factories) {
+        if (!(factories[0] instanceof NestedTupleSourceRuntimeFactory)) {
+            return false;
+        }
+        for (int i = 1; i < factories.length; i++) {
+            if (!MicroOperatorChain.isFusible(factories[i]) && !(factories[i] instanceof UnnestRuntimeFactory)
+                    && !(i == factories.length - 1 && factories[i] instanceof AggregateRuntimeFactory)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs a whole frame of outer tuples through the nested plan without
+     * assembling it as a pipeline. The micro-operators between two unnests
+     * are fused into a chain, and each unnested value is pushed through the
+     * rest of the plan before the next one is produced. Every tuple the
+     * nested plan produces is tagged with the index of the outer tuple it was
+     * derived from, so the outer product is spliced together in the same pass
+     * and written straight to the output frame.
+     */
+    private AbstractOneInputOneOutputPushRuntime createBatchedRuntime(final RuntimeContext context,
+            final INullWriter[] nullWriters) throws AlgebricksException {
+        IPushRuntimeFactory[] factories = pipeline.getRuntimeFactories();
+        int nStages = factories.length - 1;
+        final IAggregateFunctionFactory[] aggregFactories;
+        if (factories[factories.length - 1] instanceof AggregateRuntimeFactory) {
+            aggregFactories = ((AggregateRuntimeFactory) factories[factories.length - 1]).getAggregFactories();
+            nStages--;
+        } else {
+            aggregFactories = null;
+        }
+        final int outerWidth = inputRecordDesc.getFields().length;
+        final List<MicroOperatorChain> chainList = new ArrayList<MicroOperatorChain>();
+        final List<UnnestRuntimeFactory> unnestList = new ArrayList<UnnestRuntimeFactory>();
+        List<IPushRuntimeFactory> segment = new ArrayList<IPushRuntimeFactory>();
+        int width = outerWidth;
+        for (int i = 1; i <= nStages; i++) {
+            if (factories[i] instanceof UnnestRuntimeFactory) {
+                UnnestRuntimeFactory unnest = (UnnestRuntimeFactory) factories[i];
+                chainList.add(new MicroOperatorChain(segment.toArray(new IPushRuntimeFactory[segment.size()]), width));
+                unnestList.add(unnest);
+                width = unnest.getProjectionList().length;
+                segment.clear();
+            } else {
+                segment.add(factories[i]);
+            }
+        }
+        chainList.add(new MicroOperatorChain(segment.toArray(new IPushRuntimeFactory[segment.size()]), width));
+        final MicroOperatorChain[] chains = chainList.toArray(new MicroOperatorChain[chainList.size()]);
+
+        return new AbstractOneInputOneOutputOneFramePushRuntime() {
+
+            private FieldArrayTupleReference outerTuple = new FieldArrayTupleReference(outerWidth);
+            private OuterProduct op = new OuterProduct(projectionList, outerWidth, nullWriters);
+            private UnnestStep[] unnests;
+            private IAggregateFunction[] aggregs;
+            private ArrayBackedValueStorage[] aggregOutputs;
+            private FieldArrayTupleReference aggregTuple;
+            private boolean produced;
+            private boolean first = true;
+
+            @Override
+            public void open() throws HyracksDataException {
+                if (first) {
+                    first = false;
+                    initAccessAppend(context);
+                    try {
+                        unnests = new UnnestStep[unnestList.size()];
+                        for (int i = 0; i < unnests.length; i++) {
+                            unnests[i] = new UnnestStep(unnestList.get(i));
+                        }
+                        if (aggregFactories != null) {
+                            aggregs = new IAggregateFunction[aggregFactories.length];
+                            aggregOutputs = new ArrayBackedValueStorage[aggregFactories.length];
+                            aggregTuple = new FieldArrayTupleReference(aggregFactories.length);
+                            for (int i = 0; i < aggregFactories.length; i++) {
+                                aggregOutputs[i] = new ArrayBackedValueStorage();
+                                aggregs[i] = aggregFactories[i].createAggregateFunction(aggregOutputs[i]);
+                            }
+                        }
+                    } catch (AlgebricksException e) {
+                        throw new HyracksDataException(e);
+                    }
+                }
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                tAccess.reset(buffer);
+                // the first chain is fed the outer tuples
+                chains[0].prepare(tAccess);
+                int nTuple = tAccess.getTupleCount();
+                try {
+                    for (int t = 0; t < nTuple; t++) {
+                        outerTuple.resetToFrameTuple(tAccess, t);
+                        for (int i = 0; i < chains.length; i++) {
+                            chains[i].open();
+                        }
+                        produced = false;
+                        if (aggregs != null) {
+                            for (int i = 0; i < aggregs.length; i++) {
+                                aggregs[i].init();
+                            }
+                        }
+                        process(0, outerTuple);
+                        if (aggregs != null) {
+                            appendSplicedTupleToFrame(t, op.splicedFields, op.innerFields, finishAggregates(t));
+                        } else if (!produced) {
+                            appendSplicedTupleToFrame(t, op.splicedFields, op.innerFields, op.getNullTuple());
+                        }
+                    }
+                } catch (AlgebricksException e) {
+                    throw new HyracksDataException(e);
+                }
+            }
+
+            /**
+             * Pushes a tuple through chain s and, if it gets through, through
+             * the unnest after it and the rest of the plan.
+             */
+            private void process(int s, FieldArrayTupleReference input) throws HyracksDataException,
+                    AlgebricksException {
+                FieldArrayTupleReference tuple = chains[s].process(input);
+                if (tuple == null) {
+                    return;
+                }
+                if (s == unnests.length) {
+                    emit(tuple);
+                    return;
+                }
+                UnnestStep unnest = unnests[s];
+                unnest.init(tuple);
+                while (!isExhausted(s + 1) && unnest.step()) {
+                    process(s + 1, unnest.getOutput());
+                }
+            }
+
+            private boolean isExhausted(int s) {
+                for (int i = s; i < chains.length; i++) {
+                    if (chains[i].isExhausted()) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            /**
+             * The tuple is still tagged with the index of the outer tuple it
+             * was derived from.
+             */
+            private void emit(FieldArrayTupleReference tuple) throws HyracksDataException, AlgebricksException {
+                if (aggregs != null) {
+                    for (int i = 0; i < aggregs.length; i++) {
+                        aggregs[i].step(tuple);
+                    }
+                } else {
+                    appendSplicedTupleToFrame(tuple.getTupleIndex(), op.splicedFields, op.innerFields, tuple);
+                    produced = true;
+                }
+            }
+
+            private FieldArrayTupleReference finishAggregates(int tIndex) throws AlgebricksException {
+                aggregTuple.reset(tAccess, tIndex);
+                for (int i = 0; i < aggregs.length; i++) {
+                    aggregOutputs[i].reset();
+                    aggregs[i].finish();
+                    aggregTuple.setField(i, aggregOutputs[i].getBytes(), aggregOutputs[i].getStartIndex(),
+                            aggregOutputs[i].getLength());
+                }
+                return aggregTuple;
+            }
+        };
+    }
+
+    /**
+     * Evaluates an unnest of the nested plan on tuples passed by reference.
+     * The tuple built for each value shares the fields of the input tuple and
+     * keeps its outer tuple index.
+     */
+    private static class UnnestStep {
+        private final int outCol;
+        private final int[] projectionList;
+        private final ArrayBackedValueStorage evalOutput = new ArrayBackedValueStorage();
+        private final IUnnestingFunction unnesting;
+        private final FieldArrayTupleReference output;
+        private FieldArrayTupleReference input;
+
+        public UnnestStep(UnnestRuntimeFactory factory) throws AlgebricksException {
+            this.outCol = factory.getOutCol();
+            this.projectionList = factory.getProjectionList();
+            this.unnesting = factory.getUnnestingFactory().createUnnestingFunction(evalOutput);
+            this.output = new FieldArrayTupleReference(projectionList.length);
+        }
+
+        public void init(FieldArrayTupleReference input) throws AlgebricksException {
+            this.input = input;
+            unnesting.init(input);
+        }
+
+        public boolean step() throws AlgebricksException {
+            evalOutput.reset();
+            if (!unnesting.step()) {
+                return false;
+            }
+            output.reset(input.getFrameTupleAccessor(), input.getTupleIndex());
+            for (int f = 0; f < projectionList.length; f++) {
+                if (projectionList[f] == outCol) {
+                    output.setField(f, evalOutput.getBytes(), evalOutput.getStartIndex(), evalOutput.getLength());
+                } else {
+                    output.setField(f, input, projectionList[f]);
+                }
+            }
+            return true;
+        }
+
+        public FieldArrayTupleReference getOutput() {
+            return output;
+        }
+    }
+
+    /**
+     * Describes the concatenation of an outer tuple with a tuple produced by
+     * the nested plan, after the projection list is applied, in the form
+     * taken by appendSplicedTupleToFrame: field f of the result is field
+     * innerFields[f] of the inner tuple if that is not negative, and field
+     * splicedFields[f] of the outer tuple otherwise.
+     */
+    private static class OuterProduct {
+        private final int[] splicedFields;
+        private final int[] innerFields;
+        private final INullWriter[] nullWriters;
+        private FieldArrayTupleReference nullTuple;
+
+        public OuterProduct(int[] projectionList, int outerWidth, INullWriter[] nullWriters) {
+            this.nullWriters = nullWriters;
+            int n = projectionList == null ? outerWidth + nullWriters.length : projectionList.length;
+            splicedFields = new int[n];
+            innerFields = new int[n];
+            for (int f = 0; f < n; f++) {
+                int g = projectionList == null ? f : projectionList[f];
+                splicedFields[f] = g;
+                innerFields[f] = g < outerWidth ? -1 : g - outerWidth;
+            }
+        }
+
+        /**
+         * @return the tuple standing for an empty result of the nested plan,
+         *         whose fields are all nulls
+         */
+        public FieldArrayTupleReference getNullTuple() throws HyracksDataException {
+            if (nullTuple == null) {
+                ArrayBackedValueStorage nulls = new ArrayBackedValueStorage();
+                int[] ends = new int[nullWriters.length];
+                for (int i = 0; i < nullWriters.length; i++) {
+                    nullWriters[i].writeNull(nulls.getDataOutput());
+                    ends[i] = nulls.getLength();
+                }
+                nullTuple = new FieldArrayTupleReference(nullWriters.length);
+                for (int i = 0; i < nullWriters.length; i++) {
+                    int start = i == 0 ? 0 : ends[i - 1];
+                    nullTuple.setField(i, nulls.getBytes(), nulls.getStartIndex() + start, ends[i] - start);
+                }
+            }
+            return nullTuple;
+        }
+    }
 }
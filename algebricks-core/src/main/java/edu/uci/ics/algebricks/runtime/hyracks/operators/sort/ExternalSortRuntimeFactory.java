@@ -0,0 +1,140 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.sort;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.std.sort.ExternalSortRunGenerator;
+import edu.uci.ics.hyracks.dataflow.std.sort.ExternalSortRunMerger;
+
+/**
+ * Sort micro-operator with a bounded memory budget. Frames are sorted in
+ * memory until the budget is exhausted, after which sorted runs are written to
+ * workspace files and merged when the input is closed.
+ */
+public class ExternalSortRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] sortFields;
+    private final INormalizedKeyComputerFactory firstKeyNormalizerFactory;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final int maxNumberOfFrames;
+
+    public ExternalSortRuntimeFactory(int[] sortFields, INormalizedKeyComputerFactory firstKeyNormalizerFactory,
+            IBinaryComparatorFactory[] comparatorFactories, int maxNumberOfFrames, int[] projectionList) {
+        super(projectionList);
+        this.sortFields = sortFields;
+        this.firstKeyNormalizerFactory = firstKeyNormalizerFactory;
+        this.comparatorFactories = comparatorFactories;
+        this.maxNumberOfFrames = maxNumberOfFrames;
+    }
+
+    @Override
+    public String toString() {
+        return "external-sort " + maxNumberOfFrames + " frames";
+    }
+
+    @Override
+    public AbstractOneInputOneOutputOneFramePushRuntime createOneOutputPushRuntime(final RuntimeContext context)
+            throws AlgebricksException {
+
+        return new AbstractOneInputOneOutputOneFramePushRuntime() {
+
+            private ExternalSortRunGenerator runGenerator = null;
+
+            /**
+             * Receives the sorted output of the merger. The merger opens and
+             * closes its writer itself, while the downstream writer must stay
+             * open until this runtime is closed.
+             */
+            private IFrameWriter sortedOutput = new IFrameWriter() {
+
+                @Override
+                public void open() throws HyracksDataException {
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    if (projectionList == null) {
+                        forwardFrame(buffer);
+                    } else {
+                        tAccess.reset(buffer);
+                        int nTuple = tAccess.getTupleCount();
+                        for (int t = 0; t < nTuple; t++) {
+                            appendProjectionToFrame(t, projectionList);
+                        }
+                    }
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                }
+
+                @Override
+                public void flush() throws HyracksDataException {
+                }
+            };
+
+            /**
+             * The run generator and the merger allocate their frames from the
+             * stagelet context, so they are reserved from the frame pool
+             * while the runtime is open.
+             */
+            @Override
+            public void open() throws HyracksDataException {
+                context.getFramePool().reserve(maxNumberOfFrames);
+                if (runGenerator == null) {
+                    initAccessAppend(context);
+                    runGenerator = new ExternalSortRunGenerator(context.getHyracksContext(), sortFields,
+                            firstKeyNormalizerFactory, comparatorFactories, inputRecordDesc, maxNumberOfFrames);
+                }
+                runGenerator.open();
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                runGenerator.nextFrame(buffer);
+            }
+
+            @Override
+            public void flush() throws HyracksDataException {
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                try {
+                    runGenerator.close();
+                    ExternalSortRunMerger merger = new ExternalSortRunMerger(context.getHyracksContext(),
+                            runGenerator.getFrameSorter(), runGenerator.getRuns(), sortFields, comparatorFactories,
+                            inputRecordDesc, maxNumberOfFrames, sortedOutput);
+                    merger.process();
+                    super.close();
+                } finally {
+                    context.getFramePool().unreserve(maxNumberOfFrames);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.sort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.data.IBinaryIntegerInspector;
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.context.IHyracksStageletContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
+
+/**
+ * Sorts its input but only keeps, and outputs, the first maxObjects + offset
+ * tuples in the sort order. The retained tuples are copied into frames and
+ * indexed by a binary heap whose root is the last tuple in the sort order, so
+ * an incoming tuple is either discarded after one comparison or replaces the
+ * root. Ties are broken by arrival order, which keeps the sort stable.
+ */
+public class TopKSortRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_HEAP_CAPACITY = 64;
+
+    private final int[] sortFields;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final IEvaluatorFactory maxObjectsEvalFactory;
+    private final IEvaluatorFactory offsetEvalFactory;
+    private final IBinaryIntegerInspector binaryIntegerInspector;
+
+    /**
+     * @param offsetEvalFactory
+     *            May be null.
+     */
+    public TopKSortRuntimeFactory(int[] sortFields, IBinaryComparatorFactory[] comparatorFactories,
+            IEvaluatorFactory maxObjectsEvalFactory, IEvaluatorFactory offsetEvalFactory,
+            IBinaryIntegerInspector binaryIntegerInspector, int[] projectionList) {
+        super(projectionList);
+        this.sortFields = sortFields;
+        this.comparatorFactories = comparatorFactories;
+        this.maxObjectsEvalFactory = maxObjectsEvalFactory;
+        this.offsetEvalFactory = offsetEvalFactory;
+        this.binaryIntegerInspector = binaryIntegerInspector;
+    }
+
+    @Override
+    public String toString() {
+        String s = "top-k-sort " + maxObjectsEvalFactory.toString();
+        if (offsetEvalFactory != null) {
+            return s + ", " + offsetEvalFactory.toString();
+        } else {
+            return s;
+        }
+    }
+
+    @Override
+    public AbstractOneInputOneOutputOneFramePushRuntime createOneOutputPushRuntime(final RuntimeContext context)
+            throws AlgebricksException {
+
+        return new AbstractOneInputOneOutputOneFramePushRuntime() {
+
+            private IHyracksStageletContext hCtx;
+            private IBinaryComparator[] comparators;
+            private IEvaluator evalMaxObjects;
+            private IEvaluator evalOffset;
+            private ArrayBackedValueStorage evalOutput;
+
+            // frames holding the retained tuples, and spare frames used when
+            // they are compacted
+            private List<ByteBuffer> buffers;
+            private List<ByteBuffer> spareBuffers;
+            private int nFrames;
+            private FrameTupleAppender storeAppender;
+            private FrameTupleAccessor fta1;
+            private FrameTupleAccessor fta2;
+
+            // the heap; entry i is the tuple heapTuple[i] of frame heapFrame[i]
+            private int[] heapFrame;
+            private int[] heapTuple;
+            private long[] heapSeq;
+            private int heapSize;
+            private int k;
+            private long seq;
+            private int garbage;
+            private boolean firstTuple;
+
+            @Override
+            public void open() throws HyracksDataException {
+                if (comparators == null) {
+                    initAccessAppendRef(context);
+                    hCtx = context.getHyracksContext();
+                    comparators = new IBinaryComparator[comparatorFactories.length];
+                    for (int i = 0; i < comparatorFactories.length; i++) {
+                        comparators[i] = comparatorFactories[i].createBinaryComparator();
+                    }
+                    evalOutput = new ArrayBackedValueStorage();
+                    try {
+                        evalMaxObjects = maxObjectsEvalFactory.createEvaluator(evalOutput);
+                        if (offsetEvalFactory != null) {
+                            evalOffset = offsetEvalFactory.createEvaluator(evalOutput);
+                        }
+                    } catch (AlgebricksException ae) {
+                        throw new HyracksDataException(ae);
+                    }
+                    buffers = new ArrayList<ByteBuffer>();
+                    spareBuffers = new ArrayList<ByteBuffer>();
+                    storeAppender = new FrameTupleAppender(hCtx.getFrameSize());
+                    fta1 = new FrameTupleAccessor(hCtx.getFrameSize(), inputRecordDesc);
+                    fta2 = new FrameTupleAccessor(hCtx.getFrameSize(), inputRecordDesc);
+                    heapFrame = new int[0];
+                    heapTuple = new int[0];
+                    heapSeq = new long[0];
+                }
+                nFrames = 0;
+                heapSize = 0;
+                seq = 0;
+                garbage = 0;
+                firstTuple = true;
+                inputTermination.reset();
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                tAccess.reset(buffer);
+                int nTuple = tAccess.getTupleCount();
+                for (int t = 0; t < nTuple; t++) {
+                    if (firstTuple) {
+                        firstTuple = false;
+                        initHeap(t);
+                        if (k <= 0) {
+                            // nothing will ever be output
+                            inputTermination.raise();
+                            return;
+                        }
+                    }
+                    if (heapSize < k) {
+                        storeTuple(tAccess, t);
+                        heapSeq[heapSize] = seq;
+                        siftUp(heapSize++);
+                    } else if (k > 0) {
+                        fta1.reset(buffers.get(heapFrame[0]));
+                        // on equal keys the tuple that arrived first wins
+                        if (compare(tAccess, t, fta1, heapTuple[0]) < 0) {
+                            storeTuple(tAccess, t);
+                            heapFrame[0] = heapFrame[heapSize];
+                            heapTuple[0] = heapTuple[heapSize];
+                            heapSeq[0] = seq;
+                            siftDown(0);
+                            if (++garbage >= k) {
+                                compact();
+                            }
+                        }
+                    }
+                    seq++;
+                }
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                // pop the heap from the last tuple in the order to the first
+                int n = heapSize;
+                int[] outFrame = new int[n];
+                int[] outTuple = new int[n];
+                for (int i = n - 1; i >= 0; i--) {
+                    outFrame[i] = heapFrame[0];
+                    outTuple[i] = heapTuple[0];
+                    heapSize--;
+                    swap(0, heapSize);
+                    siftDown(0);
+                }
+                for (int i = 0; i < n; i++) {
+                    tAccess.reset(buffers.get(outFrame[i]));
+                    if (projectionList != null) {
+                        appendProjectionToFrame(outTuple[i], projectionList);
+                    } else {
+                        appendTupleToFrame(outTuple[i]);
+                    }
+                }
+                super.close();
+                releaseFrames(buffers);
+                releaseFrames(spareBuffers);
+            }
+
+            private void releaseFrames(List<ByteBuffer> frames) {
+                for (ByteBuffer frame : frames) {
+                    context.releaseFrame(frame);
+                }
+                frames.clear();
+            }
+
+            private void initHeap(int tIdx) throws HyracksDataException {
+                long n = evaluateInteger(evalMaxObjects, tIdx);
+                if (evalOffset != null) {
+                    n += evaluateInteger(evalOffset, tIdx);
+                }
+                // a limit meaning "all" must neither overflow nor allocate
+                k = (int) Math.min(n, Integer.MAX_VALUE - 1);
+            }
+
+            /**
+             * Makes room for an entry in heap slot heapSize. The heap grows with
+             * the number of retained tuples, up to k entries plus one extra slot
+             * that receives the tuple being stored before it replaces the root.
+             */
+            private void ensureHeapCapacity() {
+                if (heapSize < heapFrame.length) {
+                    return;
+                }
+                long capacity = Math.max(INITIAL_HEAP_CAPACITY, 2L * heapFrame.length);
+                int newLength = (int) Math.min(capacity, k + 1L);
+                int[] newFrame = new int[newLength];
+                int[] newTuple = new int[newLength];
+                long[] newSeq = new long[newLength];
+                System.arraycopy(heapFrame, 0, newFrame, 0, heapSize);
+                System.arraycopy(heapTuple, 0, newTuple, 0, heapSize);
+                System.arraycopy(heapSeq, 0, newSeq, 0, heapSize);
+                heapFrame = newFrame;
+                heapTuple = newTuple;
+                heapSeq = newSeq;
+            }
+
+            /**
+             * Copies the tuple to the retained frames and records its position
+             * in heap slot heapSize.
+             */
+            private void storeTuple(IFrameTupleAccessor accessor, int tIdx) throws HyracksDataException {
+                ensureHeapCapacity();
+                if (nFrames == 0 || !storeAppender.append(accessor, tIdx)) {
+                    nextStoreFrame(buffers);
+                    if (!storeAppender.append(accessor, tIdx)) {
+                        throw new IllegalStateException("Could not write frame (TopKSortRuntimeFactory.storeTuple).");
+                    }
+                }
+                heapFrame[heapSize] = nFrames - 1;
+                heapTuple[heapSize] = storeAppender.getTupleCount() - 1;
+            }
+
+            private void nextStoreFrame(List<ByteBuffer> frames) throws HyracksDataException {
+                if (nFrames == frames.size()) {
+                    frames.add(context.allocateFrame());
+                }
+                storeAppender.reset(frames.get(nFrames++), true);
+            }
+
+            /**
+             * Copies the live tuples to the spare frames once as many tuples
+             * have been replaced as are retained.
+             */
+            private void compact() throws HyracksDataException {
+                nFrames = 0;
+                for (int i = 0; i < heapSize; i++) {
+                    fta1.reset(buffers.get(heapFrame[i]));
+                    if (nFrames == 0 || !storeAppender.append(fta1, heapTuple[i])) {
+                        nextStoreFrame(spareBuffers);
+                        if (!storeAppender.append(fta1, heapTuple[i])) {
+                            throw new IllegalStateException("Could not write frame (TopKSortRuntimeFactory.compact).");
+                        }
+                    }
+                    heapFrame[i] = nFrames - 1;
+                    heapTuple[i] = storeAppender.getTupleCount() - 1;
+                }
+                List<ByteBuffer> tmp = buffers;
+                buffers = spareBuffers;
+                spareBuffers = tmp;
+                garbage = 0;
+            }
+
+            private void siftUp(int i) {
+                while (i > 0) {
+                    int parent = (i - 1) / 2;
+                    if (compareEntries(i, parent) <= 0) {
+                        break;
+                    }
+                    swap(i, parent);
+                    i = parent;
+                }
+            }
+
+            private void siftDown(int i) {
+                while (true) {
+                    int largest = i;
+                    int left = 2 * i + 1;
+                    int right = left + 1;
+                    if (left < heapSize && compareEntries(left, largest) > 0) {
+                        largest = left;
+                    }
+                    if (right < heapSize && compareEntries(right, largest) > 0) {
+                        largest = right;
+                    }
+                    if (largest == i) {
+                        break;
+                    }
+                    swap(i, largest);
+                    i = largest;
+                }
+            }
+
+            private void swap(int i, int j) {
+                int f = heapFrame[i];
+                heapFrame[i] = heapFrame[j];
+                heapFrame[j] = f;
+                int t = heapTuple[i];
+                heapTuple[i] = heapTuple[j];
+                heapTuple[j] = t;
+                long s = heapSeq[i];
+                heapSeq[i] = heapSeq[j];
+                heapSeq[j] = s;
+            }
+
+            private int compareEntries(int i, int j) {
+                fta1.reset(buffers.get(heapFrame[i]));
+                fta2.reset(buffers.get(heapFrame[j]));
+                int c = compare(fta1, heapTuple[i], fta2, heapTuple[j]);
+                if (c != 0) {
+                    return c;
+                }
+                return heapSeq[i] < heapSeq[j] ? -1 : (heapSeq[i] > heapSeq[j] ? 1 : 0);
+            }
+
+            private int compare(IFrameTupleAccessor a1, int t1, IFrameTupleAccessor a2, int t2) {
+                byte[] b1 = a1.getBuffer().array();
+                byte[] b2 = a2.getBuffer().array();
+                int s1 = a1.getTupleStartOffset(t1) + a1.getFieldSlotsLength();
+                int s2 = a2.getTupleStartOffset(t2) + a2.getFieldSlotsLength();
+                for (int i = 0; i < sortFields.length; i++) {
+                    int f = sortFields[i];
+                    int fStart1 = a1.getFieldStartOffset(t1, f);
+                    int fStart2 = a2.getFieldStartOffset(t2, f);
+                    int c = comparators[i].compare(b1, s1 + fStart1, a1.getFieldEndOffset(t1, f) - fStart1, b2, s2
+                            + fStart2, a2.getFieldEndOffset(t2, f) - fStart2);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return 0;
+            }
+
+            private int evaluateInteger(IEvaluator eval, int tIdx) throws HyracksDataException {
+                tRef.reset(tAccess, tIdx);
+                evalOutput.reset();
+                try {
+                    eval.evaluate(tRef);
+                } catch (AlgebricksException ae) {
+                    throw new HyracksDataException(ae);
+                }
+                return binaryIntegerInspector.getIntegerValue(evalOutput.getBytes(), 0, evalOutput.getLength());
+            }
+        };
+    }
+}
@@ -18,23 +18,27 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBatchEvaluatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluator;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.BatchEvaluatorOutput;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
-import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.FieldArrayTupleReference;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
-import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
-import edu.uci.ics.hyracks.dataflow.common.data.accessors.FrameTupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
 
 public class AssignRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
 
     private static final long serialVersionUID = 1L;
 
+    private static final IEvaluatorFactory[] NO_MEMO = new IEvaluatorFactory[0];
+
     private int[] outColumns;
     private IEvaluatorFactory[] evalFactories;
+    private IEvaluatorFactory[] memoFactories;
 
     /**
      * 
@@ -46,9 +50,34 @@ public class AssignRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactor
      */
 
     public AssignRuntimeFactory(int[] outColumns, IEvaluatorFactory[] evalFactories, int[] projectionList) {
+        this(outColumns, evalFactories, NO_MEMO, projectionList);
+    }
+
+    /**
+     * @param memoFactories
+     *            evaluators of the sub-expressions shared by the
+     *            evalFactories. They are evaluated once per tuple, in order,
+     *            and their results are appended to the input tuple seen by the
+     *            following memo evaluators and by the evalFactories.
+     */
+    public AssignRuntimeFactory(int[] outColumns, IEvaluatorFactory[] evalFactories,
+            IEvaluatorFactory[] memoFactories, int[] projectionList) {
         super(projectionList);
         this.outColumns = outColumns;
         this.evalFactories = evalFactories;
+        this.memoFactories = memoFactories;
+    }
+
+    public int[] getOutColumns() {
+        return outColumns;
+    }
+
+    public IEvaluatorFactory[] getEvalFactories() {
+        return evalFactories;
+    }
+
+    public IEvaluatorFactory[] getMemoFactories() {
+        return memoFactories;
     }
 
     @Override
@@ -69,33 +98,72 @@ public class AssignRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactor
             sb.append(evalFactories[i]);
         }
         sb.append("]");
+        if (memoFactories.length > 0) {
+            sb.append(" memo [");
+            for (int i = 0; i < memoFactories.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(memoFactories[i]);
+            }
+            sb.append("]");
+        }
         return sb.toString();
     }
 
     @Override
     public AbstractOneInputOneOutputOneFramePushRuntime createOneOutputPushRuntime(final RuntimeContext context)
             throws AlgebricksException {
+        // -1 for the columns passed through from the input
         final int[] projectionToOutColumns = new int[projectionList.length];
         for (int j = 0; j < projectionList.length; j++) {
-            projectionToOutColumns[j] = Arrays.binarySearch(outColumns, projectionList[j]);
+            projectionToOutColumns[j] = Math.max(Arrays.binarySearch(outColumns, projectionList[j]), -1);
         }
 
         return new AbstractOneInputOneOutputOneFramePushRuntime() {
 
-            private ArrayBackedValueStorage evalOutput = new ArrayBackedValueStorage();
+            private ArrayBackedValueStorage[] evalOutputs = new ArrayBackedValueStorage[evalFactories.length];
             private IEvaluator[] eval = new IEvaluator[evalFactories.length];
-            private ArrayTupleBuilder tupleBuilder = new ArrayTupleBuilder(projectionList.length);
+            // non-null entries are evaluated a frame at a time
+            private BatchEvaluatorOutput[] batchOutputs = new BatchEvaluatorOutput[evalFactories.length];
+            private boolean hasBatchEval = false;
+            // the computed fields, spliced between the input fields
+            private FieldArrayTupleReference computed = new FieldArrayTupleReference(evalFactories.length);
             private boolean first = true;
+            // the input tuple extended with the values of the memo slots
+            private IEvaluator[] memoEvals = new IEvaluator[memoFactories.length];
+            private ArrayBackedValueStorage[] memoOutputs = new ArrayBackedValueStorage[memoFactories.length];
+            private FieldArrayTupleReference memoTuple;
+            private int memoStart;
 
             @Override
             public void open() throws HyracksDataException {
                 if (first) {
                     initAccessAppendRef(context);
                     first = false;
+                    memoStart = inputRecordDesc.getFields().length;
+                    if (memoFactories.length > 0) {
+                        memoTuple = new FieldArrayTupleReference(memoStart + memoFactories.length);
+                        for (int i = 0; i < memoFactories.length; i++) {
+                            memoOutputs[i] = new ArrayBackedValueStorage();
+                            try {
+                                memoEvals[i] = memoFactories[i].createEvaluator(memoOutputs[i]);
+                            } catch (AlgebricksException ae) {
+                                throw new HyracksDataException(ae);
+                            }
+                        }
+                    }
                     int n = evalFactories.length;
                     for (int i = 0; i < n; i++) {
                         try {
-                            eval[i] = evalFactories[i].createEvaluator(evalOutput);
+                            // batch evaluators cannot see the memo slots
+                            if (memoTuple == null && evalFactories[i] instanceof IBatchEvaluatorFactory) {
+                                batchOutputs[i] = new BatchEvaluatorOutput((IBatchEvaluatorFactory) evalFactories[i]);
+                                hasBatchEval = true;
+                            } else {
+                                evalOutputs[i] = new ArrayBackedValueStorage();
+                                eval[i] = evalFactories[i].createEvaluator(evalOutputs[i]);
+                            }
                         } catch (AlgebricksException ae) {
                             throw new HyracksDataException(ae);
                         }
@@ -108,28 +176,61 @@ public class AssignRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactor
             public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
                 tAccess.reset(buffer);
                 int nTuple = tAccess.getTupleCount();
+                if (hasBatchEval) {
+                    try {
+                        for (int i = 0; i < batchOutputs.length; i++) {
+                            if (batchOutputs[i] != null) {
+                                batchOutputs[i].evaluate(tAccess);
+                            }
+                        }
+                    } catch (AlgebricksException ae) {
+                        throw new HyracksDataException(ae);
+                    }
+                }
                 for (int t = 0; t < nTuple; t++) {
-                    tRef.reset(tAccess, t);
-                    produceTuple(tupleBuilder, tAccess, t, tRef);
-                    appendToFrameFromTupleBuilder(tupleBuilder);
+                    IFrameTupleReference tupleRef;
+                    if (memoTuple != null) {
+                        evaluateMemo(t);
+                        tupleRef = memoTuple;
+                    } else {
+                        tRef.reset(tAccess, t);
+                        tupleRef = tRef;
+                    }
+                    computeFields(t, tupleRef);
+                    appendSplicedTupleToFrame(t, projectionList, projectionToOutColumns, computed);
+                }
+            }
+
+            private void evaluateMemo(int tIndex) throws HyracksDataException {
+                memoTuple.resetToFrameTuple(tAccess, tIndex);
+                for (int i = 0; i < memoEvals.length; i++) {
+                    ArrayBackedValueStorage memoOutput = memoOutputs[i];
+                    memoOutput.reset();
+                    try {
+                        memoEvals[i].evaluate(memoTuple);
+                    } catch (AlgebricksException ae) {
+                        throw new HyracksDataException(ae);
+                    }
+                    memoTuple.setField(memoStart + i, memoOutput.getBytes(), memoOutput.getStartIndex(),
+                            memoOutput.getLength());
                 }
             }
 
-            private void produceTuple(ArrayTupleBuilder tb, IFrameTupleAccessor accessor, int tIndex,
-                    FrameTupleReference tupleRef) throws HyracksDataException {
-                tb.reset();
+            private void computeFields(int tIndex, IFrameTupleReference tupleRef) throws HyracksDataException {
                 for (int f = 0; f < projectionList.length; f++) {
                     int k = projectionToOutColumns[f];
-                    if (k >= 0) {
+                    if (k >= 0 && batchOutputs[k] != null) {
+                        BatchEvaluatorOutput bo = batchOutputs[k];
+                        computed.setField(k, bo.getBytes(), bo.getStart(tIndex), bo.getLength(tIndex));
+                    } else if (k >= 0) {
+                        ArrayBackedValueStorage evalOutput = evalOutputs[k];
                         evalOutput.reset();
                         try {
                             eval[k].evaluate(tupleRef);
                         } catch (AlgebricksException e) {
                             throw new HyracksDataException(e);
                         }
-                        tb.addField(evalOutput.getBytes(), evalOutput.getStartIndex(), evalOutput.getLength());
-                    } else {
-                        tb.addField(accessor, tIndex, projectionList[f]);
+                        computed.setField(k, evalOutput.getBytes(), evalOutput.getStartIndex(), evalOutput.getLength());
                     }
                 }
             }
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.std;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import edu.uci.ics.algebricks.api.data.IBytePrinter;
+import edu.uci.ics.algebricks.api.data.IBytePrinterFactory;
+import edu.uci.ics.algebricks.api.data.IPrinterFactory;
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputSinkPushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.writers.PrinterBasedWriterFactory;
+import edu.uci.ics.algebricks.utils.PrintBuffer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+
+/**
+ * Writes the same text as {@link SinkWriterRuntimeFactory} with a
+ * {@link edu.uci.ics.algebricks.runtime.hyracks.writers.PrinterBasedWriterFactory},
+ * one tuple per line and fields separated by "; ", but prints whole frames
+ * into a large byte buffer that is written to the file through a
+ * {@link FileChannel} when full. With double buffering, the writes happen on
+ * a background thread while the next buffer is being filled.
+ */
+public class BufferedFileSinkRuntimeFactory implements IPushRuntimeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] FIELD_SEPARATOR = "; ".getBytes();
+    private static final byte LINE_SEPARATOR = '\n';
+
+    private final int[] fields;
+    private final IBytePrinterFactory[] printerFactories;
+    private final File outputFile;
+    private final int bufferSize;
+    private final boolean doubleBuffered;
+
+    public BufferedFileSinkRuntimeFactory(int[] fields, IBytePrinterFactory[] printerFactories, File outputFile) {
+        this(fields, printerFactories, outputFile, DEFAULT_BUFFER_SIZE, false);
+    }
+
+    public BufferedFileSinkRuntimeFactory(int[] fields, IBytePrinterFactory[] printerFactories, File outputFile,
+            int bufferSize, boolean doubleBuffered) {
+        this.fields = fields;
+        this.printerFactories = printerFactories;
+        this.outputFile = outputFile;
+        this.bufferSize = bufferSize;
+        this.doubleBuffered = doubleBuffered;
+    }
+
+    /**
+     * Creates the runtime of a file write for the printers of a metadata
+     * provider: a buffered sink if all of them can print to a byte buffer,
+     * otherwise a {@link SinkWriterRuntimeFactory} writing the same text.
+     */
+    public static IPushRuntimeFactory createWriteFileRuntime(int[] fields, IPrinterFactory[] printerFactories,
+            File outputFile, RecordDescriptor inputDesc) {
+        IBytePrinterFactory[] bytePrinterFactories = new IBytePrinterFactory[printerFactories.length];
+        for (int i = 0; i < printerFactories.length; i++) {
+            if (!(printerFactories[i] instanceof IBytePrinterFactory)) {
+                return new SinkWriterRuntimeFactory(fields, printerFactories, outputFile,
+                        PrinterBasedWriterFactory.INSTANCE, inputDesc);
+            }
+            bytePrinterFactories[i] = (IBytePrinterFactory) printerFactories[i];
+        }
+        return new BufferedFileSinkRuntimeFactory(fields, bytePrinterFactories, outputFile);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        buf.append("buffered-sink-write " + "[");
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                buf.append("; ");
+            }
+            buf.append(fields[i]);
+        }
+        buf.append("] outputFile");
+        return buf.toString();
+    }
+
+    @Override
+    public IPushRuntime createPushRuntime(final RuntimeContext context) throws AlgebricksException {
+        final IBytePrinter[] printers = new IBytePrinter[printerFactories.length];
+        for (int i = 0; i < printerFactories.length; i++) {
+            printers[i] = printerFactories[i].createBytePrinter();
+        }
+
+        return new AbstractOneInputSinkPushRuntime() {
+
+            private FileChannel channel;
+            private FrameTupleAccessor tAccess;
+            private PrintBuffer buf;
+            private BackgroundWriter backgroundWriter;
+            private boolean first = true;
+            // whether the file was opened before, a reopened sink appends
+            private boolean append = false;
+
+            @Override
+            public void open() throws HyracksDataException {
+                if (first) {
+                    first = false;
+                    tAccess = new FrameTupleAccessor(context.getHyracksContext().getFrameSize(), inputRecordDesc);
+                    buf = new PrintBuffer(bufferSize);
+                    try {
+                        for (int i = 0; i < printers.length; i++) {
+                            printers[i].init();
+                        }
+                    } catch (AlgebricksException e) {
+                        throw new HyracksDataException(e);
+                    }
+                }
+                if (channel == null) {
+                    try {
+                        channel = new FileOutputStream(outputFile, append).getChannel();
+                    } catch (IOException e) {
+                        throw new HyracksDataException(e);
+                    }
+                    append = true;
+                }
+                // the writer of a previous open was stopped by its close
+                if (doubleBuffered && backgroundWriter == null) {
+                    backgroundWriter = new BackgroundWriter(channel, new PrintBuffer(bufferSize));
+                    backgroundWriter.start();
+                }
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                checkOpen();
+                boolean done = false;
+                try {
+                    printFrame(buffer);
+                    if (buf.getLength() >= bufferSize) {
+                        writeBuffer();
+                    }
+                    done = true;
+                } finally {
+                    if (!done) {
+                        fail();
+                    }
+                }
+            }
+
+            @Override
+            public void flush() throws HyracksDataException {
+                checkOpen();
+                boolean done = false;
+                try {
+                    writeBuffer();
+                    done = true;
+                } finally {
+                    if (!done) {
+                        fail();
+                    }
+                }
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                if (channel == null) {
+                    // the sink failed, the file is already closed
+                    return;
+                }
+                boolean done = false;
+                try {
+                    writeBuffer();
+                    if (backgroundWriter != null) {
+                        backgroundWriter.finish();
+                        backgroundWriter = null;
+                    }
+                    done = true;
+                } finally {
+                    if (!done) {
+                        fail();
+                    }
+                }
+                FileChannel c = channel;
+                channel = null;
+                try {
+                    c.close();
+                } catch (IOException e) {
+                    throw new HyracksDataException(e);
+                }
+            }
+
+            private void printFrame(ByteBuffer buffer) throws HyracksDataException {
+                tAccess.reset(buffer);
+                byte[] b = buffer.array();
+                int nTuple = tAccess.getTupleCount();
+                for (int t = 0; t < nTuple; t++) {
+                    int fieldsStart = tAccess.getTupleStartOffset(t) + tAccess.getFieldSlotsLength();
+                    for (int i = 0; i < fields.length; i++) {
+                        if (i > 0) {
+                            buf.append(FIELD_SEPARATOR, 0, FIELD_SEPARATOR.length);
+                        }
+                        try {
+                            printers[i].print(b, fieldsStart + tAccess.getFieldStartOffset(t, fields[i]),
+                                    tAccess.getFieldLength(t, fields[i]), buf);
+                        } catch (AlgebricksException e) {
+                            throw new HyracksDataException(e);
+                        }
+                    }
+                    buf.append(LINE_SEPARATOR);
+                }
+            }
+
+            private void checkOpen() throws HyracksDataException {
+                if (channel == null) {
+                    throw new HyracksDataException("The sink writing to " + outputFile
+                            + " failed earlier or is not open.");
+                }
+            }
+
+            /**
+             * Stops the background writer and closes the file, the rest of
+             * the output is dropped.
+             */
+            private void fail() {
+                if (backgroundWriter != null) {
+                    backgroundWriter.abort();
+                    backgroundWriter = null;
+                }
+                buf.reset();
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // the error that made the sink fail is the one reported
+                }
+                channel = null;
+            }
+
+            private void writeBuffer() throws HyracksDataException {
+                if (buf.getLength() == 0) {
+                    return;
+                }
+                if (backgroundWriter != null) {
+                    buf = backgroundWriter.swap(buf);
+                } else {
+                    try {
+                        writeFully(channel, buf);
+                    } catch (IOException e) {
+                        throw new HyracksDataException(e);
+                    }
+                }
+                buf.reset();
+            }
+        };
+    }
+
+    private static void writeFully(FileChannel channel, PrintBuffer buf) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buf.getBytes(), 0, buf.getLength());
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+
+    /**
+     * Writes full buffers to the channel while the runtime fills the other
+     * one.
+     */
+    private static class BackgroundWriter extends Thread {
+        // an empty buffer handed over to make the thread stop
+        private static final PrintBuffer END = new PrintBuffer(0);
+
+        private final FileChannel channel;
+        private final BlockingQueue<PrintBuffer> full = new ArrayBlockingQueue<PrintBuffer>(1);
+        private final BlockingQueue<PrintBuffer> free = new ArrayBlockingQueue<PrintBuffer>(1);
+        private volatile IOException error;
+
+        public BackgroundWriter(FileChannel channel, PrintBuffer spare) {
+            this.channel = channel;
+            free.add(spare);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    PrintBuffer b = full.take();
+                    if (b == END) {
+                        return;
+                    }
+                    if (error == null) {
+                        try {
+                            writeFully(channel, b);
+                        } catch (IOException e) {
+                            error = e;
+                        }
+                    }
+                    free.put(b);
+                }
+            } catch (InterruptedException e) {
+                error = new IOException(e.getMessage());
+            }
+        }
+
+        /**
+         * Hands a full buffer over and returns an empty one.
+         */
+        public PrintBuffer swap(PrintBuffer b) throws HyracksDataException {
+            checkError();
+            try {
+                full.put(b);
+                return free.take();
+            } catch (InterruptedException e) {
+                throw new HyracksDataException(e);
+            }
+        }
+
+        /**
+         * Stops the thread without waiting for the pending buffer.
+         */
+        public void abort() {
+            interrupt();
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Waits for the pending buffer to be written.
+         */
+        public void finish() throws HyracksDataException {
+            try {
+                full.put(END);
+                join();
+            } catch (InterruptedException e) {
+                throw new HyracksDataException(e);
+            }
+            checkError();
+        }
+
+        private void checkError() throws HyracksDataException {
+            if (error != null) {
+                throw new HyracksDataException(error);
+            }
+        }
+    }
+}
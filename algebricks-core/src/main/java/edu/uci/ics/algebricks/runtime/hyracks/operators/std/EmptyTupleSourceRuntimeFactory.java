@@ -43,18 +43,19 @@ public class EmptyTupleSourceRuntimeFactory implements IPushRuntimeFactory {
         return new AbstractOneInputSourcePushRuntime() {
 
             private IHyracksStageletContext hCtx = context.getHyracksContext();
-            private ByteBuffer frame = hCtx.allocateFrame();
             private ArrayTupleBuilder tb = new ArrayTupleBuilder(0);
             private FrameTupleAppender appender = new FrameTupleAppender(hCtx.getFrameSize());
 
             @Override
             public void open() throws HyracksDataException {
                 writer.open();
+                ByteBuffer frame = context.allocateFrame();
                 appender.reset(frame, true);
                 if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
                     throw new IllegalStateException();
                 }
                 FrameUtils.flushFrame(frame, writer);
+                context.releaseFrame(frame);
                 writer.close();
             }
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.std;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+
+/**
+ * Binary counterpart of {@link StringStreamingRuntimeFactory}. Whole frames
+ * are exchanged with the script, which runs in a long-lived process taken
+ * from the {@link ScriptProcessPool} of the node.
+ * 
+ * The protocol works in lock step. When started, the process receives the
+ * frame size as a 4-byte integer. Then, for each input frame, it receives the
+ * frame length followed by the frame, and answers with any number of output
+ * frames, each preceded by its length, followed by a 0 length. At the end of
+ * the stream, it receives a 0 length and answers the same way, after which it
+ * must be ready for a new stream. All frames have the frame size and the
+ * Hyracks frame layout.
+ */
+public class FrameStreamingRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_MAX_IDLE_PROCESSES = 4;
+
+    private final String command;
+    private final int maxIdleProcesses;
+
+    public FrameStreamingRuntimeFactory(String command) {
+        this(command, DEFAULT_MAX_IDLE_PROCESSES);
+    }
+
+    public FrameStreamingRuntimeFactory(String command, int maxIdleProcesses) {
+        super(null);
+        this.command = command;
+        this.maxIdleProcesses = maxIdleProcesses;
+    }
+
+    @Override
+    public String toString() {
+        return "frame-streaming-script \"" + command + "\"";
+    }
+
+    @Override
+    public AbstractOneInputOneOutputOneFramePushRuntime createOneOutputPushRuntime(final RuntimeContext context)
+            throws AlgebricksException {
+
+        return new AbstractOneInputOneOutputOneFramePushRuntime() {
+
+            private ScriptProcessPool.Worker worker;
+            private DataOutputStream toScript;
+            private DataInputStream fromScript;
+            private boolean first = true;
+
+            @Override
+            public void open() throws HyracksDataException {
+                if (first) {
+                    first = false;
+                    initAccessAppend(context);
+                }
+                ensureFrame();
+                try {
+                    worker = ScriptProcessPool.acquire(command, frame.capacity());
+                } catch (IOException e) {
+                    throw new HyracksDataException(e);
+                }
+                toScript = worker.getOutput();
+                fromScript = worker.getInput();
+                boolean done = false;
+                try {
+                    writer.open();
+                    done = true;
+                } finally {
+                    if (!done) {
+                        fail();
+                    }
+                }
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                if (worker == null) {
+                    throw new HyracksDataException("Script \"" + command + "\" failed earlier in the stream.");
+                }
+                // any exception, also one of the writer, leaves the worker in
+                // the middle of an answer
+                boolean done = false;
+                try {
+                    toScript.writeInt(buffer.capacity());
+                    toScript.write(buffer.array(), 0, buffer.capacity());
+                    toScript.flush();
+                    forwardScriptOutput();
+                    done = true;
+                } catch (IOException e) {
+                    throw new HyracksDataException(e);
+                } finally {
+                    if (!done) {
+                        fail();
+                    }
+                }
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                try {
+                    closeScript();
+                } finally {
+                    releaseFrame();
+                }
+            }
+
+            /**
+             * Ends the stream of the script and pushes its last answer. The
+             * writer is closed even if that fails.
+             */
+            private void closeScript() throws HyracksDataException {
+                try {
+                    if (worker == null) {
+                        // the stream failed, the worker is already discarded
+                        return;
+                    }
+                    boolean done = false;
+                    try {
+                        toScript.writeInt(0);
+                        toScript.flush();
+                        forwardScriptOutput();
+                        done = true;
+                    } catch (IOException e) {
+                        throw new HyracksDataException(e);
+                    } finally {
+                        if (done) {
+                            ScriptProcessPool.release(worker, maxIdleProcesses);
+                            worker = null;
+                        } else {
+                            fail();
+                        }
+                    }
+                } finally {
+                    writer.close();
+                }
+            }
+
+            /**
+             * Reads frames from the script into the output frame and pushes
+             * them, up to the 0 length that ends the answer.
+             */
+            private void forwardScriptOutput() throws IOException, HyracksDataException {
+                while (true) {
+                    int length = fromScript.readInt();
+                    if (length == 0) {
+                        return;
+                    }
+                    if (length != frame.capacity()) {
+                        throw new HyracksDataException("Script \"" + command + "\" sent a frame of " + length
+                                + " bytes instead of " + frame.capacity() + ".");
+                    }
+                    fromScript.readFully(frame.array(), 0, length);
+                    FrameUtils.flushFrame(frame, writer);
+                }
+            }
+
+            private void fail() {
+                if (worker != null) {
+                    ScriptProcessPool.discard(worker);
+                    worker = null;
+                }
+            }
+        };
+    }
+}
@@ -16,6 +16,7 @@ package edu.uci.ics.algebricks.runtime.hyracks.operators.std;
 
 import java.nio.ByteBuffer;
 
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntime;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
@@ -35,13 +36,17 @@ public class NestedTupleSourceRuntimeFactory implements IPushRuntimeFactory {
     }
 
     @Override
-    public IPushRuntime createPushRuntime(RuntimeContext context) {
-        return new NestedTupleSourceRuntime(context);
+    public IPushRuntime createPushRuntime(RuntimeContext context) throws AlgebricksException {
+        try {
+            return new NestedTupleSourceRuntime(context);
+        } catch (HyracksDataException e) {
+            throw new AlgebricksException(e);
+        }
     }
 
     public static class NestedTupleSourceRuntime extends AbstractOneInputOneOutputOneFramePushRuntime {
 
-        public NestedTupleSourceRuntime(RuntimeContext rc) {
+        public NestedTupleSourceRuntime(RuntimeContext rc) throws HyracksDataException {
             initAccessAppend(rc);
         }
 
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.std;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the processes started by {@link FrameStreamingRuntimeFactory} alive
+ * between uses, so that a node starts each script only a few times instead of
+ * once per pipeline. Processes are pooled per command and frame size.
+ */
+public class ScriptProcessPool {
+
+    private static final Map<String, LinkedList<Worker>> idleWorkers = new HashMap<String, LinkedList<Worker>>();
+
+    private static int startedProcesses;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                destroyIdleWorkers();
+            }
+        });
+    }
+
+    private ScriptProcessPool() {
+    }
+
+    /**
+     * Returns an idle process running the command, or starts a new one. A
+     * new process first receives the frame size as a 4-byte integer.
+     */
+    public static Worker acquire(String command, int frameSize) throws IOException {
+        String key = getKey(command, frameSize);
+        synchronized (idleWorkers) {
+            LinkedList<Worker> idle = idleWorkers.get(key);
+            while (idle != null && !idle.isEmpty()) {
+                Worker w = idle.removeFirst();
+                if (w.isAlive()) {
+                    return w;
+                }
+                w.destroy();
+            }
+        }
+        Worker w = new Worker(key, command, frameSize);
+        synchronized (idleWorkers) {
+            ++startedProcesses;
+        }
+        return w;
+    }
+
+    /**
+     * @return the number of processes started since the node started.
+     */
+    public static int getStartedProcessCount() {
+        synchronized (idleWorkers) {
+            return startedProcesses;
+        }
+    }
+
+    /**
+     * Gives back a process that completed its stream. It is kept for reuse
+     * unless maxIdle processes for the same command are already idle.
+     */
+    public static void release(Worker w, int maxIdle) {
+        synchronized (idleWorkers) {
+            LinkedList<Worker> idle = idleWorkers.get(w.key);
+            if (idle == null) {
+                idle = new LinkedList<Worker>();
+                idleWorkers.put(w.key, idle);
+            }
+            if (idle.size() < maxIdle && w.isAlive()) {
+                idle.addLast(w);
+                return;
+            }
+        }
+        w.destroy();
+    }
+
+    /**
+     * Kills a process whose state is unknown, e.g. after an error in the
+     * middle of a stream.
+     */
+    public static void discard(Worker w) {
+        w.destroy();
+    }
+
+    public static void destroyIdleWorkers() {
+        List<Worker> all = new ArrayList<Worker>();
+        synchronized (idleWorkers) {
+            for (LinkedList<Worker> idle : idleWorkers.values()) {
+                all.addAll(idle);
+            }
+            idleWorkers.clear();
+        }
+        for (Worker w : all) {
+            w.destroy();
+        }
+    }
+
+    private static String getKey(String command, int frameSize) {
+        return frameSize + ":" + command;
+    }
+
+    public static class Worker {
+        private static final int BUFFER_SIZE = 65536;
+
+        private final String key;
+        private final Process process;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+
+        private Worker(String key, String command, int frameSize) throws IOException {
+            this.key = key;
+            process = Runtime.getRuntime().exec(command);
+            out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream(), BUFFER_SIZE));
+            in = new DataInputStream(new BufferedInputStream(process.getInputStream(), BUFFER_SIZE));
+            final BufferedReader err = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+            Thread dumpStderr = new Thread() {
+                @Override
+                public void run() {
+                    String s;
+                    try {
+                        while ((s = err.readLine()) != null) {
+                            System.err.println(s);
+                        }
+                    } catch (IOException e) {
+                        // the process is gone
+                    }
+                }
+            };
+            dumpStderr.setDaemon(true);
+            dumpStderr.start();
+            out.writeInt(frameSize);
+            out.flush();
+        }
+
+        public DataOutputStream getOutput() {
+            return out;
+        }
+
+        public DataInputStream getInput() {
+            return in;
+        }
+
+        private boolean isAlive() {
+            try {
+                process.exitValue();
+                return false;
+            } catch (IllegalThreadStateException e) {
+                return true;
+            }
+        }
+
+        private void destroy() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // ignore, the process is killed anyway
+            }
+            process.destroy();
+        }
+    }
+}
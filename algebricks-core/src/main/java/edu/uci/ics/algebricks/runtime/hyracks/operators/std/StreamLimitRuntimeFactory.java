@@ -28,6 +28,18 @@ public class StreamLimitRuntimeFactory extends AbstractOneInputOneOutputRuntimeF
         this.binaryIntegerInspector = binaryIntegerInspector;
     }
 
+    public IEvaluatorFactory getMaxObjectsEvalFactory() {
+        return maxObjectsEvalFactory;
+    }
+
+    public IEvaluatorFactory getOffsetEvalFactory() {
+        return offsetEvalFactory;
+    }
+
+    public IBinaryIntegerInspector getBinaryIntegerInspector() {
+        return binaryIntegerInspector;
+    }
+
     @Override
     public String toString() {
         String s = "stream-limit " + maxObjectsEvalFactory.toString();
@@ -45,10 +57,10 @@ public class StreamLimitRuntimeFactory extends AbstractOneInputOneOutputRuntimeF
             private IEvaluator evalMaxObjects;
             private ArrayBackedValueStorage evalOutput;
             private IEvaluator evalOffset = null;
-            private int toWrite = 0; // how many tuples still to write
-            private int toSkip = 0; // how many tuples still to skip
-            private boolean firstTuple = true;
-            private boolean afterLastTuple = false;
+            private int toWrite; // how many tuples still to write
+            private int toSkip; // how many tuples still to skip
+            private boolean firstTuple;
+            private boolean afterLastTuple;
 
             @Override
             public void open() throws HyracksDataException {
@@ -66,7 +78,13 @@ public class StreamLimitRuntimeFactory extends AbstractOneInputOneOutputRuntimeF
                     }
                 }
                 writer.open();
+                // every open starts a new stream, e.g. for each outer tuple of
+                // a nested plan, so the limit is evaluated again
+                firstTuple = true;
+                toWrite = 0;
+                toSkip = 0;
                 afterLastTuple = false;
+                inputTermination.reset();
             }
 
             @Override
@@ -102,9 +120,14 @@ public class StreamLimitRuntimeFactory extends AbstractOneInputOneOutputRuntimeF
                         } else {
                             appendTupleToFrame(t);
                         }
+                        if (toWrite == 0) {
+                            // the runtimes before this one can stop
+                            inputTermination.raise();
+                        }
                     } else {
                         // close();
                         afterLastTuple = true;
+                        inputTermination.raise();
                         break;
                     }
                 }
@@ -18,9 +18,14 @@ import java.nio.ByteBuffer;
 
 import edu.uci.ics.algebricks.api.data.IBinaryBooleanInspector;
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBatchEvaluatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluator;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveBatchEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.AbstractPrimitiveEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.BatchEvaluatorOutput;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
@@ -47,6 +52,14 @@ public class StreamSelectRuntimeFactory extends AbstractOneInputOneOutputRuntime
         this.binaryBooleanInspector = binaryBooleanInspector;
     }
 
+    public IEvaluatorFactory getCondition() {
+        return cond;
+    }
+
+    public IBinaryBooleanInspector getBinaryBooleanInspector() {
+        return binaryBooleanInspector;
+    }
+
     @Override
     public String toString() {
         return "stream-select " + cond.toString();
@@ -57,15 +70,28 @@ public class StreamSelectRuntimeFactory extends AbstractOneInputOneOutputRuntime
         return new AbstractOneInputOneOutputOneFramePushRuntime() {
 
             private IEvaluator eval;
+            private IPrimitiveBatchEvaluator primitiveEval;
             private ArrayBackedValueStorage evalOutput;
+            private BatchEvaluatorOutput batchOutput;
+            private int[] selection = new int[0];
+            private int[] allTuples = new int[0];
+            private boolean[] qualifies = new boolean[0];
 
             @Override
             public void open() throws HyracksDataException {
-                if (eval == null) {
+                if (eval == null && primitiveEval == null && batchOutput == null) {
                     initAccessAppendRef(context);
                     evalOutput = new ArrayBackedValueStorage();
                     try {
-                        eval = cond.createEvaluator(evalOutput);
+                        if (cond instanceof IPrimitiveEvaluatorFactory) {
+                            // no need to serialize and inspect the outcome
+                            primitiveEval = AbstractPrimitiveEvaluatorFactory
+                                    .toBatchEvaluator((IPrimitiveEvaluatorFactory) cond);
+                        } else if (cond instanceof IBatchEvaluatorFactory) {
+                            batchOutput = new BatchEvaluatorOutput((IBatchEvaluatorFactory) cond);
+                        } else {
+                            eval = cond.createEvaluator(evalOutput);
+                        }
                     } catch (AlgebricksException ae) {
                         throw new HyracksDataException(ae);
                     }
@@ -77,22 +103,84 @@ public class StreamSelectRuntimeFactory extends AbstractOneInputOneOutputRuntime
             public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
                 tAccess.reset(buffer);
                 int nTuple = tAccess.getTupleCount();
-                for (int t = 0; t < nTuple; t++) {
-                    tRef.reset(tAccess, t);
-                    evalOutput.reset();
+                int nSelected = computeSelection(nTuple);
+                if (nSelected == 0) {
+                    return;
+                }
+                if (projectionList != null) {
+                    for (int i = 0; i < nSelected; i++) {
+                        appendProjectionToFrame(selection[i], projectionList);
+                    }
+                } else if (nSelected == nTuple) {
+                    forwardFrame(buffer);
+                } else {
+                    // copy each run of consecutive survivors in one go
+                    int i = 0;
+                    while (i < nSelected) {
+                        int j = i + 1;
+                        while (j < nSelected && selection[j] == selection[j - 1] + 1) {
+                            j++;
+                        }
+                        appendTupleRunToFrame(selection[i], selection[j - 1] + 1);
+                        i = j;
+                    }
+                }
+            }
+
+            /**
+             * Fills the selection vector with the indexes of the qualifying
+             * tuples of the current frame.
+             * 
+             * @return the number of qualifying tuples
+             */
+            private int computeSelection(int nTuple) throws HyracksDataException {
+                if (selection.length < nTuple) {
+                    selection = new int[nTuple];
+                }
+                int nSelected = 0;
+                if (primitiveEval != null) {
+                    allTuples = AbstractPrimitiveEvaluatorFactory.selectAll(allTuples, nTuple);
+                    if (qualifies.length < nTuple) {
+                        qualifies = new boolean[nTuple];
+                    }
                     try {
-                        eval.evaluate(tRef);
+                        primitiveEval.evaluateBooleans(tAccess, allTuples, nTuple, qualifies);
                     } catch (AlgebricksException ae) {
                         throw new HyracksDataException(ae);
                     }
-                    if (binaryBooleanInspector.getBooleanValue(evalOutput.getBytes(), 0, evalOutput.getLength())) {
-                        if (projectionList != null) {
-                            appendProjectionToFrame(t, projectionList);
-                        } else {
-                            appendTupleToFrame(t);
+                    for (int t = 0; t < nTuple; t++) {
+                        if (qualifies[t]) {
+                            selection[nSelected++] = t;
+                        }
+                    }
+                } else if (batchOutput != null) {
+                    try {
+                        batchOutput.evaluate(tAccess);
+                    } catch (AlgebricksException ae) {
+                        throw new HyracksDataException(ae);
+                    }
+                    byte[] bytes = batchOutput.getBytes();
+                    for (int t = 0; t < nTuple; t++) {
+                        if (binaryBooleanInspector.getBooleanValue(bytes, batchOutput.getStart(t),
+                                batchOutput.getLength(t))) {
+                            selection[nSelected++] = t;
+                        }
+                    }
+                } else {
+                    for (int t = 0; t < nTuple; t++) {
+                        tRef.reset(tAccess, t);
+                        evalOutput.reset();
+                        try {
+                            eval.evaluate(tRef);
+                        } catch (AlgebricksException ae) {
+                            throw new HyracksDataException(ae);
+                        }
+                        if (binaryBooleanInspector.getBooleanValue(evalOutput.getBytes(), 0, evalOutput.getLength())) {
+                            selection[nSelected++] = t;
                         }
                     }
                 }
+                return nSelected;
             }
 
         };
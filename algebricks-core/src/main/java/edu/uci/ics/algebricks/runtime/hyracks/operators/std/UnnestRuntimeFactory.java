@@ -15,15 +15,18 @@
 package edu.uci.ics.algebricks.runtime.hyracks.operators.std;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBulkUnnestingFunction;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IUnnestingFunction;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IUnnestingFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.hyracks.api.comm.FrameHelper;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
-import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
 
 public class UnnestRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
@@ -35,6 +38,9 @@ public class UnnestRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactor
     private int outColPos;
     private final boolean outColIsProjected;
 
+    // number of values asked at once to an IBulkUnnestingFunction
+    private static final int BULK_SIZE = 256;
+
     // Each time step() is called on the aggregate, a new value is written in
     // its output. One byte is written before that value and is neglected.
     // By convention, if the aggregate function writes nothing, it means it
@@ -53,6 +59,14 @@ public class UnnestRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactor
         outColIsProjected = outColPos >= 0;
     }
 
+    public int getOutCol() {
+        return outCol;
+    }
+
+    public IUnnestingFunctionFactory getUnnestingFactory() {
+        return unnestingFactory;
+    }
+
     @Override
     public String toString() {
         return "unnest " + outCol + " <- " + unnestingFactory;
@@ -66,7 +80,15 @@ public class UnnestRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactor
 
             private ArrayBackedValueStorage evalOutput;
             private IUnnestingFunction agg;
-            private ArrayTupleBuilder tupleBuilder;
+            private IBulkUnnestingFunction bulkAgg;
+            private int[] valueLengths;
+            // the projected fields of the current input tuple, copied once and
+            // shared by all the tuples unnested from it; the unnested value is
+            // inserted after the first parentSplit bytes
+            private byte[] parent;
+            private int parentLength;
+            private int parentSplit;
+            private int[] parentEnds;
 
             @Override
             public void open() throws HyracksDataException {
@@ -77,7 +99,12 @@ public class UnnestRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactor
                 } catch (AlgebricksException ae) {
                     throw new HyracksDataException(ae);
                 }
-                tupleBuilder = new ArrayTupleBuilder(projectionList.length);
+                if (agg instanceof IBulkUnnestingFunction) {
+                    bulkAgg = (IBulkUnnestingFunction) agg;
+                    valueLengths = new int[BULK_SIZE];
+                }
+                parent = new byte[64];
+                parentEnds = new int[projectionList.length];
                 writer.open();
             }
 
@@ -85,37 +112,106 @@ public class UnnestRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactor
             public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
                 tAccess.reset(buffer);
                 int nTuple = tAccess.getTupleCount();
-                for (int t = 0; t < nTuple; t++) {
+                // stop unnesting as soon as the runtimes after this one do
+                // not need more tuples
+                for (int t = 0; t < nTuple && !inputTermination.isRaised(); t++) {
                     tRef.reset(tAccess, t);
                     try {
                         agg.init(tRef);
-                        boolean goon = true;
-                        do {
-                            tupleBuilder.reset();
-                            evalOutput.reset();
-                            if (!agg.step()) {
-                                goon = false;
-                            } else {
-                                if (!outColIsProjected) {
-                                    appendProjectionToFrame(t, projectionList);
-                                } else {
-                                    for (int f = 0; f < outColPos; f++) {
-                                        tupleBuilder.addField(tAccess, t, f);
-                                    }
-                                    tupleBuilder.addField(evalOutput.getBytes(), evalOutput.getStartIndex(), evalOutput
-                                            .getLength());
-                                    for (int f = outColPos + 1; f < projectionList.length; f++) {
-                                        tupleBuilder.addField(tAccess, t, f);
-                                    }
+                        copyParent(t);
+                        if (bulkAgg != null) {
+                            int n;
+                            do {
+                                evalOutput.reset();
+                                n = bulkAgg.stepBulk(valueLengths);
+                                int start = evalOutput.getStartIndex();
+                                for (int i = 0; i < n; i++) {
+                                    appendChildToFrame(evalOutput.getBytes(), start, valueLengths[i]);
+                                    start += valueLengths[i];
                                 }
-                                appendToFrameFromTupleBuilder(tupleBuilder);
+                            } while (n > 0 && !inputTermination.isRaised());
+                        } else {
+                            while (!inputTermination.isRaised()) {
+                                evalOutput.reset();
+                                if (!agg.step()) {
+                                    break;
+                                }
+                                appendChildToFrame(evalOutput.getBytes(), evalOutput.getStartIndex(),
+                                        evalOutput.getLength());
                             }
-                        } while (goon);
+                        }
                     } catch (AlgebricksException ae) {
                         throw new HyracksDataException(ae);
                     }
                 }
             }
+
+            private void copyParent(int tIndex) {
+                byte[] in = tAccess.getBuffer().array();
+                int inFieldsStart = tAccess.getTupleStartOffset(tIndex) + tAccess.getFieldSlotsLength();
+                parentLength = 0;
+                parentSplit = 0;
+                for (int f = 0; f < projectionList.length; f++) {
+                    if (f == outColPos) {
+                        parentSplit = parentLength;
+                    } else {
+                        int length = tAccess.getFieldLength(tIndex, projectionList[f]);
+                        if (parentLength + length > parent.length) {
+                            parent = Arrays.copyOf(parent, Math.max(2 * parent.length, parentLength + length));
+                        }
+                        System.arraycopy(in, inFieldsStart + tAccess.getFieldStartOffset(tIndex, projectionList[f]),
+                                parent, parentLength, length);
+                        parentLength += length;
+                    }
+                    parentEnds[f] = parentLength;
+                }
+            }
+
+            private void appendChildToFrame(byte[] value, int valueStart, int valueLength)
+                    throws HyracksDataException {
+                ensureFrame();
+                if (!appendChild(value, valueStart, valueLength)) {
+                    if (appender.getTupleCount() == 0) {
+                        throw new IllegalStateException(
+                                "Could not write frame (UnnestRuntimeFactory.appendChildToFrame).");
+                    }
+                    FrameUtils.flushFrame(frame, writer);
+                    appender.reset(frame, true);
+                    if (!appendChild(value, valueStart, valueLength)) {
+                        throw new IllegalStateException(
+                                "Could not write frame (UnnestRuntimeFactory.appendChildToFrame).");
+                    }
+                }
+            }
+
+            private boolean appendChild(byte[] value, int valueStart, int valueLength) {
+                int nFields = projectionList.length;
+                if (!outColIsProjected) {
+                    valueLength = 0;
+                }
+                int countOffset = FrameHelper.getTupleCountOffset(frame.capacity());
+                int outCount = frame.getInt(countOffset);
+                int outDataEnd = outCount == 0 ? 0 : frame.getInt(countOffset - 4 * outCount);
+                if (outDataEnd + 4 * nFields + parentLength + valueLength + 4 * (outCount + 1) > countOffset) {
+                    return false;
+                }
+                for (int f = 0; f < nFields; f++) {
+                    frame.putInt(outDataEnd + 4 * f, f < outColPos ? parentEnds[f] : parentEnds[f] + valueLength);
+                }
+                byte[] out = frame.array();
+                int pos = outDataEnd + 4 * nFields;
+                System.arraycopy(parent, 0, out, pos, parentSplit);
+                pos += parentSplit;
+                System.arraycopy(value, valueStart, out, pos, valueLength);
+                pos += valueLength;
+                System.arraycopy(parent, parentSplit, out, pos, parentLength - parentSplit);
+                pos += parentLength - parentSplit;
+                frame.putInt(countOffset - 4 * (outCount + 1), pos);
+                frame.putInt(countOffset, outCount + 1);
+                // re-read the tuple count and data end offset from the frame
+                appender.reset(frame, false);
+                return true;
+            }
         };
     }
 
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.runtime.hyracks.operators.std;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IRunningAggregateFunction;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IRunningAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IWindowAggregateFunction;
+import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputOneFramePushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.FrameTupleReference;
+
+/**
+ * Running aggregates over input sorted on the partition fields. The
+ * aggregates are initialized again each time the partition fields change.
+ * When rowsPreceding is not negative, each aggregate only covers the current
+ * tuple and the rowsPreceding tuples of the partition before it: the tuples of
+ * the window are copied to frames of the runtime context, and a tuple leaving
+ * the window is removed from the aggregates implementing
+ * {@link IWindowAggregateFunction}. The other aggregates are stepped over the
+ * whole window again for every tuple.
+ */
+public class WindowAggregateRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int UNBOUNDED_PRECEDING = -1;
+
+    private int[] partitionFields;
+    private IBinaryComparatorFactory[] comparatorFactories;
+    private int[] outColumns;
+    private IRunningAggregateFunctionFactory[] windowAggregates;
+    private int rowsPreceding;
+
+    /**
+     * @param partitionFields
+     *            the columns on which the input is sorted, a new partition
+     *            starts when one of them changes
+     * @param outColumns
+     *            a sorted array of columns into which the result is written to
+     * @param rowsPreceding
+     *            the number of tuples before the current one the aggregates
+     *            see, or UNBOUNDED_PRECEDING
+     * @param projectionList
+     *            an array of columns to be projected
+     */
+    public WindowAggregateRuntimeFactory(int[] partitionFields, IBinaryComparatorFactory[] comparatorFactories,
+            int[] outColumns, IRunningAggregateFunctionFactory[] windowAggregates, int rowsPreceding,
+            int[] projectionList) {
+        super(projectionList);
+        this.partitionFields = partitionFields;
+        this.comparatorFactories = comparatorFactories;
+        this.outColumns = outColumns;
+        this.windowAggregates = windowAggregates;
+        this.rowsPreceding = rowsPreceding;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("window-aggregate [");
+        for (int i = 0; i < outColumns.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(outColumns[i]);
+        }
+        sb.append("] := [");
+        for (int i = 0; i < windowAggregates.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(windowAggregates[i]);
+        }
+        sb.append("] partition ").append(Arrays.toString(partitionFields));
+        if (rowsPreceding >= 0) {
+            sb.append(" rows " + rowsPreceding + " preceding");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public AbstractOneInputOneOutputOneFramePushRuntime createOneOutputPushRuntime(final RuntimeContext context)
+            throws AlgebricksException {
+        final int[] projectionToOutColumns = new int[projectionList.length];
+        for (int j = 0; j < projectionList.length; j++) {
+            projectionToOutColumns[j] = Arrays.binarySearch(outColumns, projectionList[j]);
+        }
+
+        return new AbstractOneInputOneOutputOneFramePushRuntime() {
+
+            private IRunningAggregateFunction[] waggs = new IRunningAggregateFunction[windowAggregates.length];
+            private ArrayBackedValueStorage[] waggOutputs = new ArrayBackedValueStorage[windowAggregates.length];
+            private IBinaryComparator[] comparators;
+            private ArrayTupleBuilder tupleBuilder = new ArrayTupleBuilder(projectionList.length);
+            // the partition fields of the first tuple of the partition
+            private ArrayTupleBuilder partitionKey = new ArrayTupleBuilder(partitionFields.length);
+            private boolean first = true;
+            private boolean newPartition;
+
+            // copies of the tuples of the window, the oldest one is tuple
+            // windowHead of the first frame
+            private LinkedList<ByteBuffer> windowFrames;
+            private FrameTupleAppender windowAppender;
+            private FrameTupleAccessor windowAccess;
+            private FrameTupleReference windowRef;
+            private int windowHead;
+            private int windowSize;
+
+            @Override
+            public void open() throws HyracksDataException {
+                initAccessAppendRef(context);
+                if (first) {
+                    first = false;
+                    for (int i = 0; i < windowAggregates.length; i++) {
+                        waggOutputs[i] = new ArrayBackedValueStorage();
+                        try {
+                            waggs[i] = windowAggregates[i].createRunningAggregateFunction(waggOutputs[i]);
+                        } catch (AlgebricksException ae) {
+                            throw new HyracksDataException(ae);
+                        }
+                    }
+                    comparators = new IBinaryComparator[comparatorFactories.length];
+                    for (int i = 0; i < comparatorFactories.length; i++) {
+                        comparators[i] = comparatorFactories[i].createBinaryComparator();
+                    }
+                    if (rowsPreceding >= 0) {
+                        int frameSize = context.getHyracksContext().getFrameSize();
+                        windowFrames = new LinkedList<ByteBuffer>();
+                        windowAppender = new FrameTupleAppender(frameSize);
+                        windowAccess = new FrameTupleAccessor(frameSize, inputRecordDesc);
+                        windowRef = new FrameTupleReference();
+                    }
+                }
+                newPartition = true;
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                tAccess.reset(buffer);
+                int nTuple = tAccess.getTupleCount();
+                for (int t = 0; t < nTuple; t++) {
+                    if (newPartition || !samePartition(t)) {
+                        startPartition(t);
+                    }
+                    tRef.reset(tAccess, t);
+                    try {
+                        if (windowFrames != null) {
+                            slideWindow(t);
+                        }
+                        for (int k = 0; k < waggs.length; k++) {
+                            if (windowFrames == null || waggs[k] instanceof IWindowAggregateFunction) {
+                                waggOutputs[k].reset();
+                                waggs[k].step(tRef);
+                            } else {
+                                stepOverWindow(k);
+                            }
+                        }
+                    } catch (AlgebricksException e) {
+                        throw new HyracksDataException(e);
+                    }
+                    produceTuple(t);
+                    appendToFrameFromTupleBuilder(tupleBuilder);
+                }
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                super.close();
+                if (windowFrames != null) {
+                    clearWindow();
+                }
+            }
+
+            private boolean samePartition(int tIdx) {
+                byte[] data = tAccess.getBuffer().array();
+                int fieldsStart = tAccess.getTupleStartOffset(tIdx) + tAccess.getFieldSlotsLength();
+                byte[] keyData = partitionKey.getByteArray();
+                int[] keyEnds = partitionKey.getFieldEndOffsets();
+                for (int i = 0; i < partitionFields.length; i++) {
+                    int f = partitionFields[i];
+                    int keyStart = i == 0 ? 0 : keyEnds[i - 1];
+                    int c = comparators[i].compare(data, fieldsStart + tAccess.getFieldStartOffset(tIdx, f), tAccess
+                            .getFieldLength(tIdx, f), keyData, keyStart, keyEnds[i] - keyStart);
+                    if (c != 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            private void startPartition(int tIdx) throws HyracksDataException {
+                newPartition = false;
+                partitionKey.reset();
+                for (int i = 0; i < partitionFields.length; i++) {
+                    partitionKey.addField(tAccess, tIdx, partitionFields[i]);
+                }
+                for (int k = 0; k < waggs.length; k++) {
+                    try {
+                        waggs[k].init();
+                    } catch (AlgebricksException e) {
+                        throw new HyracksDataException(e);
+                    }
+                }
+                if (windowFrames != null) {
+                    clearWindow();
+                }
+            }
+
+            /**
+             * Drops the oldest tuple if the window is full and adds the
+             * current one.
+             */
+            private void slideWindow(int tIdx) throws HyracksDataException, AlgebricksException {
+                if (windowSize > rowsPreceding) {
+                    windowAccess.reset(windowFrames.getFirst());
+                    windowRef.reset(windowAccess, windowHead);
+                    for (int k = 0; k < waggs.length; k++) {
+                        if (waggs[k] instanceof IWindowAggregateFunction) {
+                            ((IWindowAggregateFunction) waggs[k]).remove(windowRef);
+                        }
+                    }
+                    windowHead++;
+                    windowSize--;
+                    if (windowHead == windowAccess.getTupleCount()) {
+                        if (windowFrames.size() > 1) {
+                            context.releaseFrame(windowFrames.removeFirst());
+                        } else {
+                            // the window is empty, the appender starts over
+                            windowAppender.reset(windowFrames.getFirst(), true);
+                        }
+                        windowHead = 0;
+                    }
+                }
+                if (windowFrames.isEmpty() || !windowAppender.append(tAccess, tIdx)) {
+                    ByteBuffer frame = context.allocateFrame();
+                    windowFrames.addLast(frame);
+                    windowAppender.reset(frame, true);
+                    if (!windowAppender.append(tAccess, tIdx)) {
+                        throw new IllegalStateException(
+                                "Could not write frame (WindowAggregateRuntimeFactory.slideWindow).");
+                    }
+                }
+                windowSize++;
+            }
+
+            /**
+             * Steps aggregate k over all the tuples of the window, the last
+             * one being the current tuple.
+             */
+            private void stepOverWindow(int k) throws AlgebricksException {
+                waggs[k].init();
+                int start = windowHead;
+                for (ByteBuffer frame : windowFrames) {
+                    windowAccess.reset(frame);
+                    int n = windowAccess.getTupleCount();
+                    for (int i = start; i < n; i++) {
+                        windowRef.reset(windowAccess, i);
+                        waggOutputs[k].reset();
+                        waggs[k].step(windowRef);
+                    }
+                    start = 0;
+                }
+            }
+
+            private void clearWindow() {
+                for (ByteBuffer frame : windowFrames) {
+                    context.releaseFrame(frame);
+                }
+                windowFrames.clear();
+                windowHead = 0;
+                windowSize = 0;
+            }
+
+            private void produceTuple(int tIdx) {
+                tupleBuilder.reset();
+                for (int f = 0; f < projectionList.length; f++) {
+                    int k = projectionToOutColumns[f];
+                    if (k >= 0) {
+                        tupleBuilder.addField(waggOutputs[k].getBytes(), waggOutputs[k].getStartIndex(),
+                                waggOutputs[k].getLength());
+                    } else {
+                        tupleBuilder.addField(tAccess, tIdx, projectionList[f]);
+                    }
+                }
+            }
+
+        };
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.utils;
+
+import java.util.Arrays;
+
+/**
+ * Unsynchronized growable byte array that byte printers write their textual
+ * output into.
+ */
+public final class PrintBuffer {
+
+    private byte[] bytes;
+    private int length;
+
+    public PrintBuffer(int initialCapacity) {
+        bytes = new byte[initialCapacity];
+        length = 0;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public void reset() {
+        length = 0;
+    }
+
+    /**
+     * Makes room for n more bytes, after which they can be written directly
+     * to {@link #getBytes()} starting at {@link #getLength()} and committed
+     * with {@link #setLength(int)}.
+     */
+    public void ensureFree(int n) {
+        if (length + n > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + n));
+        }
+    }
+
+    public void setLength(int length) {
+        this.length = length;
+    }
+
+    public void append(byte b) {
+        ensureFree(1);
+        bytes[length++] = b;
+    }
+
+    public void append(byte[] b, int s, int l) {
+        ensureFree(l);
+        System.arraycopy(b, s, bytes, length, l);
+        length += l;
+    }
+}
@@ -11,6 +11,8 @@ public final class WriteValueTools {
             Integer.MAX_VALUE };
     private final static int[] INT_DIVIDERS = { 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000 };
     private final static int[] DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' };
+    private final static byte[] INT_MIN_VALUE = "-2147483648".getBytes();
+    private final static byte[] LONG_MIN_VALUE = "-9223372036854775808".getBytes();
 
     public static void writeInt(int i, OutputStream os) throws IOException {
         if (i < 0) {
@@ -103,4 +105,76 @@ public final class WriteValueTools {
         }
     }
 
+    public static void writeInt(int i, PrintBuffer buf) {
+        if (i == Integer.MIN_VALUE) {
+            buf.append(INT_MIN_VALUE, 0, INT_MIN_VALUE.length);
+            return;
+        }
+        buf.ensureFree(11);
+        byte[] out = buf.getBytes();
+        int pos = buf.getLength();
+        if (i < 0) {
+            out[pos++] = '-';
+            i = -i;
+        }
+        int k = 0;
+        for (; k < INT_INTERVALS.length; k++) {
+            if (i <= INT_INTERVALS[k]) {
+                break;
+            }
+        }
+        // digits are written from the units up
+        int end = pos + k + 1;
+        for (int p = end - 1; p >= pos; p--) {
+            out[p] = (byte) DIGITS[i % 10];
+            i /= 10;
+        }
+        buf.setLength(end);
+    }
+
+    public static void writeLong(long d, PrintBuffer buf) {
+        if (d == Long.MIN_VALUE) {
+            buf.append(LONG_MIN_VALUE, 0, LONG_MIN_VALUE.length);
+            return;
+        }
+        buf.ensureFree(20);
+        byte[] out = buf.getBytes();
+        int pos = buf.getLength();
+        if (d < 0) {
+            out[pos++] = '-';
+            d = -d;
+        }
+        int nDigits = 1;
+        for (long x = d / 10; x > 0; x /= 10) {
+            nDigits++;
+        }
+        int end = pos + nDigits;
+        for (int p = end - 1; p >= pos; p--) {
+            out[p] = (byte) DIGITS[(int) (d % 10)];
+            d /= 10;
+        }
+        buf.setLength(end);
+    }
+
+    public static void writeUTF8String(byte[] b, int s, int l, PrintBuffer buf) {
+        int stringLength = StringUtils.getUTFLen(b, s);
+        int position = s + 2;
+        int maxPosition = position + stringLength;
+        // at worst, every byte is escaped
+        buf.ensureFree(2 * stringLength + 2);
+        byte[] out = buf.getBytes();
+        int pos = buf.getLength();
+        out[pos++] = '\"';
+        while (position < maxPosition) {
+            byte c = b[position];
+            if (c == '\\' || c == '"') {
+                out[pos++] = '\\';
+            }
+            out[pos++] = c;
+            position++;
+        }
+        out[pos++] = '\"';
+        buf.setLength(pos);
+    }
+
 }
@@ -151,7 +151,7 @@ public class PigletCompiler {
         compiler.optimize();
         if (LOGGER.isLoggable(Level.INFO)) {
             LOGGER.info("Optimized Plan:");
-            LOGGER.info(getPrettyPrintedPlan(plan));
+            LOGGER.info(getPrettyPrintedPlan(compiler.getOptimizedPlan()));
         }
         return compiler.createJob(null);
     }
@@ -289,7 +289,11 @@ public class PigletCompiler {
         return null;
     }
 
-    private IFunctionInfo lookupFunction(FunctionTag functionTag, String functionName) throws PigletException {
+    /**
+     * @return the info of a piglet function. They are all Algebricks
+     *         builtins, which are functional.
+     */
+    static IFunctionInfo lookupFunction(FunctionTag functionTag, String functionName) throws PigletException {
         switch (functionTag) {
             case EQ:
                 return AlgebricksBuiltinFunctions.getBuiltinFunctionInfo(AlgebricksBuiltinFunctions.EQ);
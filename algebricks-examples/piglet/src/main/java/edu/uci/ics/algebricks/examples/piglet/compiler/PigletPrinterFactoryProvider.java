@@ -3,12 +3,15 @@ package edu.uci.ics.algebricks.examples.piglet.compiler;
 import java.io.IOException;
 import java.io.PrintStream;
 
+import edu.uci.ics.algebricks.api.data.IBytePrinter;
+import edu.uci.ics.algebricks.api.data.IBytePrinterFactory;
 import edu.uci.ics.algebricks.api.data.IPrinter;
 import edu.uci.ics.algebricks.api.data.IPrinterFactory;
 import edu.uci.ics.algebricks.api.data.IPrinterFactoryProvider;
 import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
 import edu.uci.ics.algebricks.examples.piglet.types.Type;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.data.IntegerPrinterFactory;
+import edu.uci.ics.algebricks.utils.PrintBuffer;
 import edu.uci.ics.algebricks.utils.WriteValueTools;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.FloatSerializerDeserializer;
 
@@ -35,7 +38,7 @@ public class PigletPrinterFactoryProvider implements IPrinterFactoryProvider {
         }
     }
 
-    public static class CharArrayPrinterFactory implements IPrinterFactory {
+    public static class CharArrayPrinterFactory implements IPrinterFactory, IBytePrinterFactory {
 
         private static final long serialVersionUID = 1L;
 
@@ -61,9 +64,23 @@ public class PigletPrinterFactoryProvider implements IPrinterFactoryProvider {
                 }
             };
         }
+
+        @Override
+        public IBytePrinter createBytePrinter() {
+            return new IBytePrinter() {
+                @Override
+                public void init() throws AlgebricksException {
+                }
+
+                @Override
+                public void print(byte[] b, int s, int l, PrintBuffer buf) throws AlgebricksException {
+                    WriteValueTools.writeUTF8String(b, s, l, buf);
+                }
+            };
+        }
     }
 
-    public static class FloatPrinterFactory implements IPrinterFactory {
+    public static class FloatPrinterFactory implements IPrinterFactory, IBytePrinterFactory {
 
         private static final long serialVersionUID = 1L;
 
@@ -85,6 +102,21 @@ public class PigletPrinterFactoryProvider implements IPrinterFactoryProvider {
                 }
             };
         }
+
+        @Override
+        public IBytePrinter createBytePrinter() {
+            return new IBytePrinter() {
+                @Override
+                public void init() throws AlgebricksException {
+                }
+
+                @Override
+                public void print(byte[] b, int s, int l, PrintBuffer buf) throws AlgebricksException {
+                    byte[] text = String.valueOf(FloatSerializerDeserializer.getFloat(b, s)).getBytes();
+                    buf.append(text, 0, text.length);
+                }
+            };
+        }
     }
 
 }
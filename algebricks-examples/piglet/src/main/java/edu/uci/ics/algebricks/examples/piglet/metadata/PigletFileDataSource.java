@@ -6,6 +6,7 @@ import java.util.List;
 import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
 import edu.uci.ics.algebricks.compiler.algebra.metadata.IDataSource;
 import edu.uci.ics.algebricks.compiler.algebra.metadata.IDataSourcePropertiesProvider;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IDataSourceStatisticsProvider;
 import edu.uci.ics.algebricks.compiler.algebra.properties.FileSplitDomain;
 import edu.uci.ics.algebricks.compiler.algebra.properties.FunctionalDependency;
 import edu.uci.ics.algebricks.compiler.algebra.properties.ILocalStructuralProperty;
@@ -56,6 +57,11 @@ public class PigletFileDataSource implements IDataSource<String> {
         return propProvider;
     }
 
+    @Override
+    public IDataSourceStatisticsProvider getStatisticsProvider() {
+        return null;
+    }
+
     @Override
     public void computeFDs(List<LogicalVariable> scanVariables, List<FunctionalDependency> fdList) {
     }
@@ -11,12 +11,15 @@ import edu.uci.ics.algebricks.compiler.optimizer.rules.ConsolidateAssignsRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.ConsolidateSelectsRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.EliminateSubplanRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.EnforceStructuralPropertiesRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.EnumerateJoinsRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.ExtractCommonOperatorsRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.ExtractGbyExpressionsRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.FactorRedundantGroupAndDecorVarsRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.InferTypesRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.InlineVariablesRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.IntroduceGroupByForStandaloneAggregRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.IntroducePartialGroupByRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.IntroduceTopKSortRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.IsolateHyracksOperatorsRule;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.PullSelectOutOfEqJoin;
 import edu.uci.ics.algebricks.compiler.optimizer.rules.PushLimitDownRule;
@@ -60,6 +63,7 @@ public class PigletRewriteRuleset {
         List<IAlgebraicRewriteRule> joinInference = new LinkedList<IAlgebraicRewriteRule>();
         joinInference.add(new InlineVariablesRule());
         joinInference.add(new ComplexJoinInferenceRule());
+        joinInference.add(new EnumerateJoinsRule());
         return joinInference;
     }
 
@@ -91,12 +95,15 @@ public class PigletRewriteRuleset {
         physicalPlanRewrites.add(new EnforceStructuralPropertiesRule());
         physicalPlanRewrites.add(new PushProjectDownRule());
         physicalPlanRewrites.add(new PushLimitDownRule());
+        physicalPlanRewrites.add(new IntroduceTopKSortRule());
         return physicalPlanRewrites;
     }
 
     public final static List<IAlgebraicRewriteRule> buildPhysicalRewritesTopLevelRuleCollection() {
         List<IAlgebraicRewriteRule> physicalPlanRewrites = new LinkedList<IAlgebraicRewriteRule>();
         physicalPlanRewrites.add(new PushLimitDownRule());
+        physicalPlanRewrites.add(new IntroduceTopKSortRule());
+        physicalPlanRewrites.add(new IntroducePartialGroupByRule());
         return physicalPlanRewrites;
     }
 
@@ -16,6 +16,8 @@ import edu.uci.ics.algebricks.compiler.algebra.expressions.ScalarFunctionCallExp
 import edu.uci.ics.algebricks.compiler.algebra.expressions.StatefulFunctionCallExpression;
 import edu.uci.ics.algebricks.compiler.algebra.expressions.UnnestingFunctionCallExpression;
 import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionIdentifier;
 import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema;
 import edu.uci.ics.algebricks.examples.piglet.compiler.ConstantValue;
 import edu.uci.ics.algebricks.examples.piglet.exceptions.PigletException;
@@ -23,14 +25,21 @@ import edu.uci.ics.algebricks.examples.piglet.runtime.functions.PigletFunctionRe
 import edu.uci.ics.algebricks.examples.piglet.types.Type;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IAggregateFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IRunningAggregateFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IUnnestingFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.evaluators.ColumnAccessEvalFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.evaluators.ConstantEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveBooleanEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveBooleanEvalFactory.BooleanKind;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveColumnAccessEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveComparisonEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveComparisonEvalFactory.ComparisonKind;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveConstantEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveType;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.ArrayBackedValueStorage;
-import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
 import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
 
 public class PigletExpressionJobGen implements ILogicalExpressionJobGen {
@@ -42,17 +51,12 @@ public class PigletExpressionJobGen implements ILogicalExpressionJobGen {
                 ConstantValue cv = (ConstantValue) ((ConstantExpression) expr).getValue();
                 Type type = cv.getType();
                 String image = cv.getImage();
+                if (type.getTag() == Type.Tag.INTEGER) {
+                    return new PrimitiveConstantEvalFactory(Integer.parseInt(image));
+                }
                 ArrayBackedValueStorage abvs = new ArrayBackedValueStorage();
                 DataOutput dos = abvs.getDataOutput();
                 switch (type.getTag()) {
-                    case INTEGER:
-                        try {
-                            IntegerSerializerDeserializer.INSTANCE.serialize(Integer.valueOf(image), dos);
-                        } catch (Exception e) {
-                            throw new AlgebricksException(e);
-                        }
-                        break;
-
                     case CHAR_ARRAY:
                         try {
                             UTF8StringSerializerDeserializer.INSTANCE.serialize(image, dos);
@@ -76,6 +80,10 @@ public class PigletExpressionJobGen implements ILogicalExpressionJobGen {
                     LogicalExpressionReference er = argExprs.get(i);
                     argEvalFactories[i] = createEvaluatorFactory(er.getExpression(), env, inputSchemas, context);
                 }
+                IEvaluatorFactory primitiveEvalFactory = createPrimitiveEvaluatorFactory(sfce, argEvalFactories);
+                if (primitiveEvalFactory != null) {
+                    return primitiveEvalFactory;
+                }
                 IEvaluatorFactory funcEvalFactory;
                 try {
                     funcEvalFactory = PigletFunctionRegistry.createFunctionEvaluatorFactory(sfce
@@ -89,6 +97,10 @@ public class PigletExpressionJobGen implements ILogicalExpressionJobGen {
             case VARIABLE: {
                 LogicalVariable var = ((VariableReferenceExpression) expr).getVariableReference();
                 int index = inputSchemas[0].findVariable(var);
+                PrimitiveType type = getPrimitiveType(env.getVarType(var));
+                if (type != null) {
+                    return new PrimitiveColumnAccessEvalFactory(index, type);
+                }
                 return new ColumnAccessEvalFactory(index);
             }
         }
@@ -122,4 +134,51 @@ public class PigletExpressionJobGen implements ILogicalExpressionJobGen {
             throws AlgebricksException {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Evaluates comparisons and boolean connectives of numeric values without
+     * serializing the intermediate results, if the arguments allow it.
+     * 
+     * @return null if the function or one of its arguments is not primitive
+     */
+    private static IEvaluatorFactory createPrimitiveEvaluatorFactory(ScalarFunctionCallExpression sfce,
+            IEvaluatorFactory[] argEvalFactories) {
+        IPrimitiveEvaluatorFactory[] args = new IPrimitiveEvaluatorFactory[argEvalFactories.length];
+        for (int i = 0; i < args.length; i++) {
+            if (!(argEvalFactories[i] instanceof IPrimitiveEvaluatorFactory)) {
+                return null;
+            }
+            args[i] = (IPrimitiveEvaluatorFactory) argEvalFactories[i];
+        }
+        FunctionIdentifier fid = sfce.getFunctionIdentifier();
+        if (AlgebricksBuiltinFunctions.isComparisonFunction(fid)) {
+            ComparisonKind kind = ComparisonKind.valueOf(AlgebricksBuiltinFunctions.getComparisonType(fid).name());
+            return new PrimitiveComparisonEvalFactory(kind, args[0], args[1]);
+        } else if (fid.equals(AlgebricksBuiltinFunctions.AND)) {
+            return new PrimitiveBooleanEvalFactory(BooleanKind.AND, args);
+        } else if (fid.equals(AlgebricksBuiltinFunctions.OR)) {
+            return new PrimitiveBooleanEvalFactory(BooleanKind.OR, args);
+        } else if (fid.equals(AlgebricksBuiltinFunctions.NOT)) {
+            return new PrimitiveBooleanEvalFactory(BooleanKind.NOT, args);
+        }
+        return null;
+    }
+
+    /**
+     * @return the primitive type the values of a variable of the given type
+     *         are serialized as, or null if there is none
+     */
+    private static PrimitiveType getPrimitiveType(Object type) {
+        if (!(type instanceof Type)) {
+            return null;
+        }
+        switch (((Type) type).getTag()) {
+            case INTEGER:
+                return PrimitiveType.INT;
+            case FLOAT:
+                return PrimitiveType.FLOAT;
+            default:
+                return null;
+        }
+    }
 }
\ No newline at end of file
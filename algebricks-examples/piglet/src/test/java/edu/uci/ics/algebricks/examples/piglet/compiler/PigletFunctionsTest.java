@@ -0,0 +1,32 @@
+package edu.uci.ics.algebricks.examples.piglet.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.compiler.algebra.functions.IFunctionInfo;
+import edu.uci.ics.algebricks.compiler.algebra.functions.IFunctionalFunctionInfo;
+import edu.uci.ics.algebricks.examples.piglet.ast.FunctionTag;
+import edu.uci.ics.algebricks.examples.piglet.exceptions.PigletException;
+
+public class PigletFunctionsTest {
+
+    /**
+     * Repeated calls of the comparisons of a piglet script are evaluated once
+     * per tuple only if their functions are known to be functional.
+     */
+    @Test
+    public void comparisonsAreFunctional() throws Exception {
+        FunctionTag[] comparisons = new FunctionTag[] { FunctionTag.EQ, FunctionTag.NEQ, FunctionTag.LT,
+                FunctionTag.LTE, FunctionTag.GT, FunctionTag.GTE };
+        for (FunctionTag tag : comparisons) {
+            IFunctionInfo fInfo = PigletCompiler.lookupFunction(tag, tag.name());
+            Assert.assertTrue(tag.name(), fInfo instanceof IFunctionalFunctionInfo);
+            Assert.assertTrue(tag.name(), ((IFunctionalFunctionInfo) fInfo).isFunctional());
+        }
+    }
+
+    @Test(expected = PigletException.class)
+    public void unsupportedFunctionIsRejected() throws Exception {
+        PigletCompiler.lookupFunction(FunctionTag.MOD, "mod");
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.compiler.HeuristicCompilerFactoryBuilder;
+import edu.uci.ics.algebricks.api.data.IBinaryComparatorFactoryProvider;
+import edu.uci.ics.algebricks.api.data.IBinaryHashFunctionFactoryProvider;
+import edu.uci.ics.algebricks.api.data.IPrinterFactory;
+import edu.uci.ics.algebricks.api.data.IPrinterFactoryProvider;
+import edu.uci.ics.algebricks.api.data.ISerializerDeserializerProvider;
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.OrderOperator.IOrder.OrderKind;
+import edu.uci.ics.algebricks.compiler.optimizer.base.AbstractRuleController;
+import edu.uci.ics.algebricks.compiler.optimizer.base.HeuristicOptimizer;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rulecontrollers.SequentialFixpointRuleController;
+import edu.uci.ics.algebricks.compiler.optimizer.rulecontrollers.SequentialOnceRuleController;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.BreakSelectIntoConjunctsRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.ConsolidateAssignsRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.EnforceStructuralPropertiesRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.ExtractCommonOperatorsRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.ExtractGbyExpressionsRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.InferTypesRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.InlineVariablesRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.IntroducePartialGroupByRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.IsolateHyracksOperatorsRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.PullSelectOutOfEqJoin;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.PushProjectDownRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.PushSelectDownRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.PushSelectIntoJoinRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.ReinferAllTypesRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.RemoveUnusedAssignAndAggregateRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.SetAlgebricksPhysicalOperatorsRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.SetExecutionModeRule;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.data.BinaryBooleanInspectorImpl;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.data.BinaryIntegerInspectorImpl;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.data.IntegerPrinterFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.data.NoopNullWriterFactory;
+import edu.uci.ics.algebricks.utils.Pair;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.comparators.IntegerBinaryComparatorFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.hash.IntegerBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+
+/**
+ * The rewrites and the providers of a compiler for plans over
+ * {@link SimpleFileDataSource}s, built by hand with the functions of
+ * AlgebricksBuiltinFunctions and {@link SimpleFunctions}.
+ */
+public class SimpleCompiler {
+
+    public static final int FRAME_SIZE = 32768;
+
+    public static List<IAlgebraicRewriteRule> buildNormalizationRuleCollection() {
+        List<IAlgebraicRewriteRule> normalization = new LinkedList<IAlgebraicRewriteRule>();
+        normalization.add(new BreakSelectIntoConjunctsRule());
+        normalization.add(new PushSelectIntoJoinRule());
+        normalization.add(new ExtractGbyExpressionsRule());
+        return normalization;
+    }
+
+    public static List<IAlgebraicRewriteRule> buildCondPushDownRuleCollection() {
+        List<IAlgebraicRewriteRule> condPushDown = new LinkedList<IAlgebraicRewriteRule>();
+        condPushDown.add(new PushSelectDownRule());
+        condPushDown.add(new InlineVariablesRule());
+        return condPushDown;
+    }
+
+    public static List<IAlgebraicRewriteRule> buildConsolidationRuleCollection() {
+        List<IAlgebraicRewriteRule> consolidation = new LinkedList<IAlgebraicRewriteRule>();
+        consolidation.add(new ConsolidateAssignsRule());
+        consolidation.add(new RemoveUnusedAssignAndAggregateRule());
+        return consolidation;
+    }
+
+    public static List<IAlgebraicRewriteRule> buildPhysicalRewritesAllLevelsRuleCollection() {
+        List<IAlgebraicRewriteRule> physicalPlanRewrites = new LinkedList<IAlgebraicRewriteRule>();
+        physicalPlanRewrites.add(new PullSelectOutOfEqJoin());
+        physicalPlanRewrites.add(new SetAlgebricksPhysicalOperatorsRule(new SimpleExpressionJobGen()));
+        physicalPlanRewrites.add(new EnforceStructuralPropertiesRule());
+        physicalPlanRewrites.add(new PushProjectDownRule());
+        physicalPlanRewrites.add(new IntroducePartialGroupByRule());
+        return physicalPlanRewrites;
+    }
+
+    public static List<IAlgebraicRewriteRule> prepareForJobGenRuleCollection() {
+        List<IAlgebraicRewriteRule> prepareForJobGenRewrites = new LinkedList<IAlgebraicRewriteRule>();
+        prepareForJobGenRewrites.add(new IsolateHyracksOperatorsRule(
+                HeuristicOptimizer.hyraxOperatorsBelowWhichJobGenIsDisabled));
+        prepareForJobGenRewrites.add(new ExtractCommonOperatorsRule());
+        prepareForJobGenRewrites.add(new ReinferAllTypesRule());
+        return prepareForJobGenRewrites;
+    }
+
+    /**
+     * @return the logical rewrites, to which a test can append its own
+     */
+    public static List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> buildLogicalRewrites() {
+        List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> logicalRewrites =
+                new ArrayList<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>>();
+        SequentialFixpointRuleController seqCtrlNoDfs = new SequentialFixpointRuleController(false);
+        SequentialFixpointRuleController seqCtrlFullDfs = new SequentialFixpointRuleController(true);
+        SequentialOnceRuleController seqOnceCtrl = new SequentialOnceRuleController(true);
+        List<IAlgebraicRewriteRule> typeInfer = new LinkedList<IAlgebraicRewriteRule>();
+        typeInfer.add(new InferTypesRule());
+        logicalRewrites.add(new Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>(seqOnceCtrl, typeInfer));
+        logicalRewrites.add(new Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>(seqCtrlFullDfs,
+                buildNormalizationRuleCollection()));
+        logicalRewrites.add(new Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>(seqCtrlNoDfs,
+                buildCondPushDownRuleCollection()));
+        List<IAlgebraicRewriteRule> dataExchange = new LinkedList<IAlgebraicRewriteRule>();
+        dataExchange.add(new SetExecutionModeRule());
+        logicalRewrites.add(new Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>(seqOnceCtrl, dataExchange));
+        logicalRewrites.add(new Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>(seqCtrlNoDfs,
+                buildConsolidationRuleCollection()));
+        return logicalRewrites;
+    }
+
+    /**
+     * @return the physical rewrites: the physical operators and the
+     *         exchanges are set by the first pair, a test can insert rules
+     *         that need them after it.
+     */
+    public static List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> buildPhysicalRewrites() {
+        List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> physicalRewrites =
+                new ArrayList<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>>();
+        SequentialOnceRuleController seqOnceCtrlAllLevels = new SequentialOnceRuleController(true);
+        physicalRewrites.add(new Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>(seqOnceCtrlAllLevels,
+                buildPhysicalRewritesAllLevelsRuleCollection()));
+        physicalRewrites.add(new Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>(seqOnceCtrlAllLevels,
+                prepareForJobGenRuleCollection()));
+        return physicalRewrites;
+    }
+
+    /**
+     * @return a builder set up with the default rewrites and the providers
+     *         of the integer and boolean types
+     */
+    public static HeuristicCompilerFactoryBuilder createBuilder() {
+        HeuristicCompilerFactoryBuilder builder = new HeuristicCompilerFactoryBuilder();
+        builder.setLogicalRewrites(buildLogicalRewrites());
+        builder.setPhysicalRewrites(buildPhysicalRewrites());
+        builder.setSerializerDeserializerProvider(new ISerializerDeserializerProvider() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public ISerializerDeserializer getSerializerDeserializer(Object type) throws AlgebricksException {
+                return type == SimpleType.INTEGER ? IntegerSerializerDeserializer.INSTANCE : null;
+            }
+        });
+        builder.setHashFunctionFactoryProvider(new IBinaryHashFunctionFactoryProvider() {
+            @Override
+            public IBinaryHashFunctionFactory getBinaryHashFunctionFactory(Object type) throws AlgebricksException {
+                checkInteger(type);
+                return IntegerBinaryHashFunctionFactory.INSTANCE;
+            }
+        });
+        builder.setComparatorFactoryProvider(new IBinaryComparatorFactoryProvider() {
+            @Override
+            public IBinaryComparatorFactory getBinaryComparatorFactory(Object type, OrderKind orderKind)
+                    throws AlgebricksException {
+                checkInteger(type);
+                if (orderKind != OrderKind.ASC) {
+                    throw new AlgebricksException("Only ascending orders are supported.");
+                }
+                return IntegerBinaryComparatorFactory.INSTANCE;
+            }
+        });
+        builder.setPrinterProvider(new IPrinterFactoryProvider() {
+            @Override
+            public IPrinterFactory getPrinterFactory(Object type) throws AlgebricksException {
+                checkInteger(type);
+                return IntegerPrinterFactory.INSTANCE;
+            }
+        });
+        builder.setBinaryBooleanInspector(BinaryBooleanInspectorImpl.INSTANCE);
+        builder.setBinaryIntegerInspector(BinaryIntegerInspectorImpl.INSTANCE);
+        builder.setNullWriterFactory(NoopNullWriterFactory.INSTANCE);
+        builder.setExprJobGen(new SimpleExpressionJobGen());
+        builder.setExpressionTypeComputer(SimpleTypeComputer.INSTANCE);
+        builder.setPartialAggregationTypeComputer(SimpleTypeComputer.INSTANCE);
+        builder.setNullableTypeComputer(SimpleTypeComputer.INSTANCE);
+        builder.setIMergeAggregationExpressionFactory(SimpleMergeAggregationExpressionFactory.INSTANCE);
+        builder.setFrameSize(FRAME_SIZE);
+        return builder;
+    }
+
+    private static void checkInteger(Object type) throws AlgebricksException {
+        if (type != SimpleType.INTEGER) {
+            throw new AlgebricksException("Type " + type + " is not supported.");
+        }
+    }
+}
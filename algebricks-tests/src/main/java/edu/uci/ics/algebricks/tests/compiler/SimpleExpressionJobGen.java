@@ -0,0 +1,195 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.util.List;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
+import edu.uci.ics.algebricks.api.expr.ISerializableAggregateJobGen;
+import edu.uci.ics.algebricks.api.expr.IVariableTypeEnvironment;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AbstractFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.IAlgebricksConstantValue;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.StatefulFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.UnnestingFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionIdentifier;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.IOperatorSchema;
+import edu.uci.ics.algebricks.runtime.hyracks.aggregators.SerializableTupleCountAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IRunningAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IUnnestingFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.ColumnAccessEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.ConstantEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveArithmeticEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveArithmeticEvalFactory.ArithmeticKind;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveColumnAccessEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveComparisonEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveComparisonEvalFactory.ComparisonKind;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveConstantEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveType;
+import edu.uci.ics.algebricks.runtime.hyracks.jobgen.impl.JobGenContext;
+import edu.uci.ics.algebricks.tests.pushruntime.SerializableIntegerSumAggregateFunctionFactory;
+
+/**
+ * Compiles integer constants, variables, eq, gt and numeric-add, and the
+ * serializable count and sum aggregates. The functions are compiled to
+ * primitive evaluators, so that selects evaluate them a frame at a time.
+ */
+public class SimpleExpressionJobGen implements ISerializableAggregateJobGen {
+
+    @Override
+    public IEvaluatorFactory createEvaluatorFactory(ILogicalExpression expr, IVariableTypeEnvironment env,
+            IOperatorSchema[] inputSchemas, JobGenContext context) throws AlgebricksException {
+        switch (expr.getExpressionTag()) {
+            case CONSTANT: {
+                return new ConstantEvalFactory(serializeConstant(((ConstantExpression) expr).getValue()));
+            }
+            case VARIABLE: {
+                LogicalVariable var = ((VariableReferenceExpression) expr).getVariableReference();
+                return new ColumnAccessEvalFactory(findColumn(var, inputSchemas));
+            }
+            case FUNCTION_CALL: {
+                AbstractFunctionCallExpression fce = (AbstractFunctionCallExpression) expr;
+                FunctionIdentifier fid = fce.getFunctionIdentifier();
+                List<LogicalExpressionReference> args = fce.getArguments();
+                if (args.size() == 2) {
+                    IPrimitiveEvaluatorFactory left = createPrimitiveEvaluatorFactory(args.get(0).getExpression(),
+                            env, inputSchemas, context);
+                    IPrimitiveEvaluatorFactory right = createPrimitiveEvaluatorFactory(args.get(1).getExpression(),
+                            env, inputSchemas, context);
+                    if (fid.equals(AlgebricksBuiltinFunctions.EQ)) {
+                        return new PrimitiveComparisonEvalFactory(ComparisonKind.EQ, left, right);
+                    }
+                    if (fid.equals(AlgebricksBuiltinFunctions.GT)) {
+                        return new PrimitiveComparisonEvalFactory(ComparisonKind.GT, left, right);
+                    }
+                    if (fid.equals(AlgebricksBuiltinFunctions.NUMERIC_ADD)) {
+                        return new PrimitiveArithmeticEvalFactory(ArithmeticKind.ADD, left, right);
+                    }
+                }
+                throw new NotImplementedException("Function " + fid + " is not supported.");
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private IPrimitiveEvaluatorFactory createPrimitiveEvaluatorFactory(ILogicalExpression expr,
+            IVariableTypeEnvironment env, IOperatorSchema[] inputSchemas, JobGenContext context)
+            throws AlgebricksException {
+        switch (expr.getExpressionTag()) {
+            case CONSTANT: {
+                IAlgebricksConstantValue value = ((ConstantExpression) expr).getValue();
+                PrimitiveType type = value.isTrue() || value.isFalse() ? PrimitiveType.BOOLEAN : PrimitiveType.INT;
+                return PrimitiveConstantEvalFactory.fromBytes(type, serializeConstant(value));
+            }
+            case VARIABLE: {
+                LogicalVariable var = ((VariableReferenceExpression) expr).getVariableReference();
+                PrimitiveType type = env != null && env.getVarType(var) == SimpleType.BOOLEAN ? PrimitiveType.BOOLEAN
+                        : PrimitiveType.INT;
+                return new PrimitiveColumnAccessEvalFactory(findColumn(var, inputSchemas), type);
+            }
+            default: {
+                return (IPrimitiveEvaluatorFactory) createEvaluatorFactory(expr, env, inputSchemas, context);
+            }
+        }
+    }
+
+    /**
+     * Integers are written on 4 bytes and booleans on 1 byte.
+     */
+    protected byte[] serializeConstant(IAlgebricksConstantValue value) throws AlgebricksException {
+        if (value.isTrue()) {
+            return new byte[] { 1 };
+        }
+        if (value.isFalse()) {
+            return new byte[] { 0 };
+        }
+        if (value instanceof IntegerConstantValue) {
+            int v = ((IntegerConstantValue) value).getValue();
+            return new byte[] { (byte) (v >>> 24), (byte) (v >>> 16), (byte) (v >>> 8), (byte) v };
+        }
+        throw new NotImplementedException("Constant " + value + " is not supported.");
+    }
+
+    @Override
+    public IAggregateFunctionFactory createAggregateFunctionFactory(AggregateFunctionCallExpression expr,
+            IVariableTypeEnvironment env, IOperatorSchema[] inputSchemas, JobGenContext context)
+            throws AlgebricksException {
+        throw new NotImplementedException("Only serializable aggregates are supported.");
+    }
+
+    @Override
+    public boolean hasSerializableAggregateFunctionFactory(AggregateFunctionCallExpression expr,
+            IVariableTypeEnvironment env) throws AlgebricksException {
+        FunctionIdentifier fid = expr.getFunctionIdentifier();
+        if (fid.equals(SimpleFunctions.COUNT)) {
+            return true;
+        }
+        return fid.equals(SimpleFunctions.SUM)
+                && expr.getArguments().get(0).getExpression().getExpressionTag() == LogicalExpressionTag.VARIABLE;
+    }
+
+    @Override
+    public ISerializableAggregateFunctionFactory createSerializableAggregateFunctionFactory(
+            AggregateFunctionCallExpression expr, IVariableTypeEnvironment env, IOperatorSchema[] inputSchemas,
+            JobGenContext context) throws AlgebricksException {
+        FunctionIdentifier fid = expr.getFunctionIdentifier();
+        if (fid.equals(SimpleFunctions.COUNT)) {
+            return new SerializableTupleCountAggregateFunctionFactory();
+        }
+        if (fid.equals(SimpleFunctions.SUM)) {
+            ILogicalExpression arg = expr.getArguments().get(0).getExpression();
+            if (arg.getExpressionTag() != LogicalExpressionTag.VARIABLE) {
+                throw new NotImplementedException("Only variables can be summed.");
+            }
+            LogicalVariable var = ((VariableReferenceExpression) arg).getVariableReference();
+            return new SerializableIntegerSumAggregateFunctionFactory(findColumn(var, inputSchemas));
+        }
+        throw new NotImplementedException("Aggregate " + fid + " is not supported.");
+    }
+
+    @Override
+    public IRunningAggregateFunctionFactory createRunningAggregateFunctionFactory(StatefulFunctionCallExpression expr,
+            IVariableTypeEnvironment env, IOperatorSchema[] inputSchemas, JobGenContext context)
+            throws AlgebricksException {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public IUnnestingFunctionFactory createUnnestingFunctionFactory(UnnestingFunctionCallExpression expr,
+            IVariableTypeEnvironment env, IOperatorSchema[] inputSchemas, JobGenContext context)
+            throws AlgebricksException {
+        throw new NotImplementedException();
+    }
+
+    private static int findColumn(LogicalVariable var, IOperatorSchema[] inputSchemas) throws AlgebricksException {
+        int column = inputSchemas[0].findVariable(var);
+        if (column < 0) {
+            throw new AlgebricksException("Variable " + var + " is not in the input schema.");
+        }
+        return column;
+    }
+}
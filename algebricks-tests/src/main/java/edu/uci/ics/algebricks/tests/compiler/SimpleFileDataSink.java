@@ -0,0 +1,54 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IDataSink;
+import edu.uci.ics.algebricks.compiler.algebra.properties.FileSplitDomain;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPartitioningProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.RandomPartitioningProperty;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+/**
+ * A file written by a single node.
+ */
+public class SimpleFileDataSink implements IDataSink {
+    private final FileSplit fileSplit;
+
+    private final IPartitioningProperty partProp;
+
+    public SimpleFileDataSink(FileSplit fileSplit) {
+        this.fileSplit = fileSplit;
+        partProp = new RandomPartitioningProperty(new FileSplitDomain(new FileSplit[] { fileSplit }));
+    }
+
+    @Override
+    public Object getId() {
+        return fileSplit.getNodeName() + ":" + fileSplit.getLocalFile().getFile().getPath();
+    }
+
+    public FileSplit getFileSplit() {
+        return fileSplit;
+    }
+
+    @Override
+    public Object[] getSchemaTypes() {
+        return null;
+    }
+
+    @Override
+    public IPartitioningProperty getPartitioningProperty() {
+        return partProp;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IDataSource;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IDataSourcePropertiesProvider;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IDataSourceStatisticsProvider;
+import edu.uci.ics.algebricks.compiler.algebra.properties.FileSplitDomain;
+import edu.uci.ics.algebricks.compiler.algebra.properties.FunctionalDependency;
+import edu.uci.ics.algebricks.compiler.algebra.properties.ILocalStructuralProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.IPhysicalPropertiesVector;
+import edu.uci.ics.algebricks.compiler.algebra.properties.RandomPartitioningProperty;
+import edu.uci.ics.algebricks.compiler.algebra.properties.StructuralPropertiesVector;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+/**
+ * Files of integer columns separated by '|', one file split per partition.
+ */
+public class SimpleFileDataSource implements IDataSource<String> {
+    private final String id;
+
+    private final FileSplit[] fileSplits;
+
+    private final Object[] types;
+
+    private final IDataSourcePropertiesProvider propProvider;
+
+    private IDataSourceStatisticsProvider statisticsProvider;
+
+    public SimpleFileDataSource(String id, FileSplit[] fileSplits, int nColumns) {
+        this.id = id;
+        this.fileSplits = fileSplits;
+        types = new Object[nColumns];
+        Arrays.fill(types, SimpleType.INTEGER);
+        final IPhysicalPropertiesVector vec = new StructuralPropertiesVector(new RandomPartitioningProperty(
+                new FileSplitDomain(fileSplits)), new ArrayList<ILocalStructuralProperty>());
+        propProvider = new IDataSourcePropertiesProvider() {
+            @Override
+            public IPhysicalPropertiesVector computePropertiesVector(List<LogicalVariable> scanVariables) {
+                return vec;
+            }
+        };
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Object[] getSchemaTypes() {
+        return types;
+    }
+
+    public FileSplit[] getFileSplits() {
+        return fileSplits;
+    }
+
+    @Override
+    public IDataSourcePropertiesProvider getPropertiesProvider() {
+        return propProvider;
+    }
+
+    public void setStatisticsProvider(IDataSourceStatisticsProvider statisticsProvider) {
+        this.statisticsProvider = statisticsProvider;
+    }
+
+    @Override
+    public IDataSourceStatisticsProvider getStatisticsProvider() {
+        return statisticsProvider;
+    }
+
+    @Override
+    public void computeFDs(List<LogicalVariable> scanVariables, List<FunctionalDependency> fdList) {
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
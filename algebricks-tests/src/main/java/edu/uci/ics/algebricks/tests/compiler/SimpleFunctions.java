@@ -0,0 +1,33 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionIdentifier;
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionInfoImpl;
+import edu.uci.ics.algebricks.compiler.algebra.functions.IFunctionInfo;
+
+/**
+ * The aggregates of the test compiler, the scalar functions are the ones of
+ * AlgebricksBuiltinFunctions.
+ */
+public class SimpleFunctions {
+    public static final String SIMPLE_NS = "simple";
+
+    public final static FunctionIdentifier COUNT = new FunctionIdentifier(SIMPLE_NS, "count", 0, true);
+    public final static FunctionIdentifier SUM = new FunctionIdentifier(SIMPLE_NS, "sum", 1, true);
+
+    public final static IFunctionInfo COUNT_INFO = new FunctionInfoImpl(COUNT);
+    public final static IFunctionInfo SUM_INFO = new FunctionInfoImpl(SUM);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.exceptions.NotImplementedException;
+import edu.uci.ics.algebricks.api.expr.IMergeAggregationExpressionFactory;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionIdentifier;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+
+/**
+ * Partial counts and partial sums are both merged by summing them.
+ */
+public class SimpleMergeAggregationExpressionFactory implements IMergeAggregationExpressionFactory {
+
+    public static final SimpleMergeAggregationExpressionFactory INSTANCE =
+            new SimpleMergeAggregationExpressionFactory();
+
+    private SimpleMergeAggregationExpressionFactory() {
+    }
+
+    @Override
+    public ILogicalExpression createMergeAggregation(ILogicalExpression expr, IOptimizationContext env)
+            throws AlgebricksException {
+        FunctionIdentifier fid = ((AggregateFunctionCallExpression) expr).getFunctionIdentifier();
+        if (!fid.equals(SimpleFunctions.COUNT) && !fid.equals(SimpleFunctions.SUM)) {
+            throw new NotImplementedException("Aggregate " + fid + " cannot be merged.");
+        }
+        LogicalVariable partial = env.newVar();
+        return new AggregateFunctionCallExpression(SimpleFunctions.SUM_INFO, false, new LogicalExpressionReference(
+                new VariableReferenceExpression(partial)));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IColumnStatistics;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IDataSourceStatisticsProvider;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IHistogram;
+
+/**
+ * Fixed statistics of a data source, for the tests of the estimates.
+ */
+public class SimpleStatistics implements IDataSourceStatisticsProvider {
+    private final long rowCount;
+
+    private final int averageTupleSize;
+
+    private final IColumnStatistics[] columns;
+
+    public SimpleStatistics(long rowCount, int averageTupleSize, IColumnStatistics... columns) {
+        this.rowCount = rowCount;
+        this.averageTupleSize = averageTupleSize;
+        this.columns = columns;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getAverageTupleSize() {
+        return averageTupleSize;
+    }
+
+    @Override
+    public IColumnStatistics getColumnStatistics(int column) {
+        return column < columns.length ? columns[column] : null;
+    }
+
+    public static class ColumnStatistics implements IColumnStatistics {
+        private final long distinctCount;
+
+        private final double nullFraction;
+
+        private final IHistogram histogram;
+
+        public ColumnStatistics(long distinctCount, double nullFraction, IHistogram histogram) {
+            this.distinctCount = distinctCount;
+            this.nullFraction = nullFraction;
+            this.histogram = histogram;
+        }
+
+        @Override
+        public long getDistinctCount() {
+            return distinctCount;
+        }
+
+        @Override
+        public double getNullFraction() {
+            return nullFraction;
+        }
+
+        @Override
+        public IHistogram getHistogram() {
+            return histogram;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.api.expr.IExpressionTypeComputer;
+import edu.uci.ics.algebricks.api.expr.INullableTypeComputer;
+import edu.uci.ics.algebricks.api.expr.IPartialAggregationTypeComputer;
+import edu.uci.ics.algebricks.api.expr.IVariableTypeEnvironment;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AbstractFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.IAlgebricksConstantValue;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionIdentifier;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IMetadataProvider;
+
+/**
+ * Types the expressions of the test compiler. There are no nullable types,
+ * and the partial results of count and sum are integers.
+ */
+public class SimpleTypeComputer implements IExpressionTypeComputer, IPartialAggregationTypeComputer,
+        INullableTypeComputer {
+
+    public static final SimpleTypeComputer INSTANCE = new SimpleTypeComputer();
+
+    private SimpleTypeComputer() {
+    }
+
+    @Override
+    public Object getType(ILogicalExpression expr, IMetadataProvider<?, ?> metadataProvider,
+            IVariableTypeEnvironment env) throws AlgebricksException {
+        switch (expr.getExpressionTag()) {
+            case CONSTANT: {
+                IAlgebricksConstantValue value = ((ConstantExpression) expr).getValue();
+                return value.isTrue() || value.isFalse() ? SimpleType.BOOLEAN : SimpleType.INTEGER;
+            }
+            case VARIABLE: {
+                return env.getVarType(((VariableReferenceExpression) expr).getVariableReference());
+            }
+            case FUNCTION_CALL: {
+                FunctionIdentifier fid = ((AbstractFunctionCallExpression) expr).getFunctionIdentifier();
+                if (AlgebricksBuiltinFunctions.isComparisonFunction(fid) || fid.equals(AlgebricksBuiltinFunctions.AND)
+                        || fid.equals(AlgebricksBuiltinFunctions.OR) || fid.equals(AlgebricksBuiltinFunctions.NOT)
+                        || fid.equals(AlgebricksBuiltinFunctions.IS_NULL)) {
+                    return SimpleType.BOOLEAN;
+                }
+                return SimpleType.INTEGER;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public Object getType(ILogicalExpression expr, IVariableTypeEnvironment env,
+            IMetadataProvider<?, ?> metadataProvider) throws AlgebricksException {
+        return SimpleType.INTEGER;
+    }
+
+    @Override
+    public Object makeNullableType(Object type) throws AlgebricksException {
+        return type;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.pushruntime;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluator;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveColumnAccessEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveType;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+
+/**
+ * A column access that fails when evaluated one tuple at a time, to check
+ * that an expression takes the frame-at-a-time path.
+ */
+public class BatchOnlyColumnAccessEvalFactory extends PrimitiveColumnAccessEvalFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    public BatchOnlyColumnAccessEvalFactory(int fieldIndex, PrimitiveType type) {
+        super(fieldIndex, type);
+    }
+
+    @Override
+    public IPrimitiveEvaluator createPrimitiveEvaluator() throws AlgebricksException {
+        return new IPrimitiveEvaluator() {
+
+            @Override
+            public boolean evaluateBoolean(IFrameTupleReference tuple) throws AlgebricksException {
+                throw new IllegalStateException("Evaluated one tuple at a time.");
+            }
+
+            @Override
+            public long evaluateLong(IFrameTupleReference tuple) throws AlgebricksException {
+                throw new IllegalStateException("Evaluated one tuple at a time.");
+            }
+
+            @Override
+            public double evaluateDouble(IFrameTupleReference tuple) throws AlgebricksException {
+                throw new IllegalStateException("Evaluated one tuple at a time.");
+            }
+        };
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.pushruntime;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IBulkUnnestingFunction;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IUnnestingFunction;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IUnnestingFunctionFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IDataOutputProvider;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+
+/**
+ * Unnests the integers from 0 to n - 1, many at a time.
+ */
+public class IntRangeBulkUnnester implements IUnnestingFunctionFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int n;
+
+    public IntRangeBulkUnnester(int n) {
+        this.n = n;
+    }
+
+    @Override
+    public IUnnestingFunction createUnnestingFunction(IDataOutputProvider provider) throws AlgebricksException {
+
+        final DataOutput out = provider.getDataOutput();
+
+        return new IBulkUnnestingFunction() {
+
+            private int pos;
+
+            @Override
+            public void init(IFrameTupleReference tuple) throws AlgebricksException {
+                pos = 0;
+            }
+
+            @Override
+            public boolean step() throws AlgebricksException {
+                try {
+                    if (pos < n) {
+                        out.writeInt(pos);
+                        ++pos;
+                        return true;
+                    } else {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    throw new AlgebricksException(e);
+                }
+            }
+
+            @Override
+            public int stepBulk(int[] valueLengths) throws AlgebricksException {
+                try {
+                    int k = 0;
+                    while (k < valueLengths.length && pos < n) {
+                        out.writeInt(pos);
+                        valueLengths[k++] = 4;
+                        ++pos;
+                    }
+                    return k;
+                } catch (IOException e) {
+                    throw new AlgebricksException(e);
+                }
+            }
+        };
+    }
+
+}
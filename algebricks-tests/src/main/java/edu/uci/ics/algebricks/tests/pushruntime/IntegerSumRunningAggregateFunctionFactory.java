@@ -0,0 +1,99 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.pushruntime;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IRunningAggregateFunction;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IRunningAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IWindowAggregateFunction;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IDataOutputProvider;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+
+/**
+ * The running sum of an integer column. When removable, the function is an
+ * {@link IWindowAggregateFunction}, otherwise windows have to step over all
+ * their tuples again.
+ */
+public class IntegerSumRunningAggregateFunctionFactory implements IRunningAggregateFunctionFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int column;
+    private final boolean removable;
+
+    public IntegerSumRunningAggregateFunctionFactory(int column, boolean removable) {
+        this.column = column;
+        this.removable = removable;
+    }
+
+    @Override
+    public IRunningAggregateFunction createRunningAggregateFunction(IDataOutputProvider provider)
+            throws AlgebricksException {
+        final DataOutput out = provider.getDataOutput();
+        if (removable) {
+            return new IWindowAggregateFunction() {
+
+                private int sum;
+
+                @Override
+                public void init() throws AlgebricksException {
+                    sum = 0;
+                }
+
+                @Override
+                public void step(IFrameTupleReference tuple) throws AlgebricksException {
+                    sum += getValue(tuple);
+                    write(out, sum);
+                }
+
+                @Override
+                public void remove(IFrameTupleReference tuple) throws AlgebricksException {
+                    sum -= getValue(tuple);
+                }
+            };
+        }
+        return new IRunningAggregateFunction() {
+
+            private int sum;
+
+            @Override
+            public void init() throws AlgebricksException {
+                sum = 0;
+            }
+
+            @Override
+            public void step(IFrameTupleReference tuple) throws AlgebricksException {
+                sum += getValue(tuple);
+                write(out, sum);
+            }
+        };
+    }
+
+    private int getValue(IFrameTupleReference tuple) {
+        return IntegerSerializerDeserializer.getInt(tuple.getFieldData(column), tuple.getFieldStart(column));
+    }
+
+    private static void write(DataOutput out, int sum) throws AlgebricksException {
+        try {
+            out.writeInt(sum);
+        } catch (IOException e) {
+            throw new AlgebricksException(e);
+        }
+    }
+}
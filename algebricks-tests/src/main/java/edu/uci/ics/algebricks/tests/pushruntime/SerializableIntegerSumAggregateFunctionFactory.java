@@ -0,0 +1,79 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.pushruntime;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunction;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunctionFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.IFrameTupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+
+/**
+ * Sums an integer field. Summing partial counts merges them.
+ */
+public class SerializableIntegerSumAggregateFunctionFactory implements ISerializableAggregateFunctionFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int field;
+
+    public SerializableIntegerSumAggregateFunctionFactory(int field) {
+        this.field = field;
+    }
+
+    @Override
+    public ISerializableAggregateFunction createAggregateFunction() throws AlgebricksException {
+        return new ISerializableAggregateFunction() {
+
+            @Override
+            public void init(DataOutput state) throws AlgebricksException {
+                try {
+                    state.writeInt(0);
+                } catch (IOException e) {
+                    throw new AlgebricksException(e);
+                }
+            }
+
+            @Override
+            public void step(IFrameTupleReference tuple, byte[] data, int start, int len) throws AlgebricksException {
+                int v = IntegerSerializerDeserializer.getInt(tuple.getFieldData(field), tuple.getFieldStart(field));
+                int sum = IntegerSerializerDeserializer.getInt(data, start) + v;
+                data[start] = (byte) ((sum >>> 24) & 0xFF);
+                data[start + 1] = (byte) ((sum >>> 16) & 0xFF);
+                data[start + 2] = (byte) ((sum >>> 8) & 0xFF);
+                data[start + 3] = (byte) ((sum >>> 0) & 0xFF);
+            }
+
+            @Override
+            public void finish(byte[] data, int start, int len, DataOutput result) throws AlgebricksException {
+                try {
+                    result.write(data, start, len);
+                } catch (IOException e) {
+                    throw new AlgebricksException(e);
+                }
+            }
+
+            @Override
+            public void finishPartial(byte[] data, int start, int len, DataOutput partialResult)
+                    throws AlgebricksException {
+                finish(data, start, len, partialResult);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.api.compiler.HeuristicCompilerFactoryBuilder;
+import edu.uci.ics.algebricks.api.compiler.ICompiler;
+import edu.uci.ics.algebricks.api.constraints.AlgebricksAbsolutePartitionConstraint;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AggregateOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DataSourceScanOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DistinctOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.EmptyTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.GroupByOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.NestedTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
+import edu.uci.ics.algebricks.compiler.algebra.plan.ALogicalPlanImpl;
+import edu.uci.ics.algebricks.tests.util.AlgebricksHyracksIntegrationUtil;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+public class DistinctPhysicalOperatorTest {
+
+    private static final SimpleFileDataSource EVENS = new SimpleFileDataSource("evens",
+            new FileSplit[] { new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                    "data/simple/int-part1.tbl"))) }, 1);
+
+    @Test
+    public void distinctWithoutOrderedParentIsHashed() throws Exception {
+        LogicalVariable x = new LogicalVariable(0);
+        DistinctOperator distinct = buildDistinct(x);
+        Assert.assertEquals(PhysicalOperatorTag.HASH_DISTINCT_BY, optimize(buildWrite(distinct, x)));
+    }
+
+    @Test
+    public void distinctBelowGroupingParentIsPreSorted() throws Exception {
+        LogicalVariable x = new LogicalVariable(0);
+        LogicalVariable k = new LogicalVariable(1);
+        LogicalVariable c = new LogicalVariable(2);
+        DistinctOperator distinct = buildDistinct(x);
+
+        // the pre-clustered group-by needs its input grouped on x
+        GroupByOperator gby = new GroupByOperator();
+        gby.addGbyExpression(k, new VariableReferenceExpression(x));
+        List<LogicalVariable> aggVars = new ArrayList<LogicalVariable>();
+        aggVars.add(c);
+        List<LogicalExpressionReference> aggExprs = new ArrayList<LogicalExpressionReference>();
+        aggExprs.add(new LogicalExpressionReference(new AggregateFunctionCallExpression(SimpleFunctions.COUNT_INFO,
+                false, new ArrayList<LogicalExpressionReference>())));
+        AggregateOperator agg = new AggregateOperator(aggVars, aggExprs);
+        agg.getInputs().add(new LogicalOperatorReference(new NestedTupleSourceOperator(
+                new LogicalOperatorReference(gby))));
+        gby.getNestedPlans().add(new ALogicalPlanImpl(new LogicalOperatorReference(agg)));
+        gby.getInputs().add(new LogicalOperatorReference(distinct));
+
+        Assert.assertEquals(PhysicalOperatorTag.PRE_SORTED_DISTINCT_BY, optimize(buildWrite(gby, k)));
+    }
+
+    /**
+     * @return the physical operator chosen for the distinct of the plan
+     */
+    private static PhysicalOperatorTag optimize(ALogicalPlanImpl plan) throws Exception {
+        HeuristicCompilerFactoryBuilder builder = SimpleCompiler.createBuilder();
+        builder.setClusterLocations(new AlgebricksAbsolutePartitionConstraint(
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID }));
+        ICompiler compiler = builder.create().createCompiler(plan, new SimpleMetadataProvider(), 3);
+        compiler.optimize();
+        AbstractLogicalOperator distinct = findDistinct(compiler.getOptimizedPlan().getRoots().get(0).getOperator());
+        Assert.assertNotNull(distinct);
+        return distinct.getPhysicalOperator().getOperatorTag();
+    }
+
+    /**
+     * distinct x <- scan evens x
+     */
+    private static DistinctOperator buildDistinct(LogicalVariable x) {
+        List<LogicalVariable> scanVars = new ArrayList<LogicalVariable>();
+        scanVars.add(x);
+        DataSourceScanOperator scan = new DataSourceScanOperator(scanVars, EVENS);
+        scan.getInputs().add(new LogicalOperatorReference(new EmptyTupleSourceOperator()));
+        List<LogicalExpressionReference> exprs = new ArrayList<LogicalExpressionReference>();
+        exprs.add(new LogicalExpressionReference(new VariableReferenceExpression(x)));
+        DistinctOperator distinct = new DistinctOperator(exprs);
+        distinct.getInputs().add(new LogicalOperatorReference(scan));
+        return distinct;
+    }
+
+    private static ALogicalPlanImpl buildWrite(ILogicalOperator input, LogicalVariable v) {
+        List<LogicalExpressionReference> exprs = new ArrayList<LogicalExpressionReference>();
+        exprs.add(new LogicalExpressionReference(new VariableReferenceExpression(v)));
+        WriteOperator write = new WriteOperator(exprs, new SimpleFileDataSink(new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File("dtest.out")))));
+        write.getInputs().add(new LogicalOperatorReference(input));
+        return new ALogicalPlanImpl(new LogicalOperatorReference(write));
+    }
+
+    private static AbstractLogicalOperator findDistinct(ILogicalOperator op) {
+        AbstractLogicalOperator aop = (AbstractLogicalOperator) op;
+        if (aop.getOperatorTag() == LogicalOperatorTag.DISTINCT) {
+            return aop;
+        }
+        for (LogicalOperatorReference inp : op.getInputs()) {
+            AbstractLogicalOperator distinct = findDistinct(inp.getOperator());
+            if (distinct != null) {
+                return distinct;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ScalarFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionIdentifier;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DataSourceScanOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.EmptyTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.InnerJoinOperator;
+import edu.uci.ics.algebricks.compiler.optimizer.base.AlgebricksOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.PhysicalOptimizationConfig;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.EnumerateJoinsRule;
+import edu.uci.ics.algebricks.tests.util.AlgebricksHyracksIntegrationUtil;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+/**
+ * The cost of a join order is the sum of the cardinalities of its joins.
+ * The relations are A with 1000 tuples and 1000 distinct values of a, B with
+ * 10 tuples and 10 distinct values of b, and C with 100 tuples and 100
+ * distinct values of c, so that eq(a, b) has a selectivity of 1/1000 and
+ * eq(b, c) one of 1/100.
+ */
+public class EnumerateJoinsRuleTest {
+
+    private final LogicalVariable a = new LogicalVariable(0);
+    private final LogicalVariable b = new LogicalVariable(1);
+    private final LogicalVariable c = new LogicalVariable(2);
+    private final ILogicalOperator scanA = scan("A", a, 1000);
+    private final ILogicalOperator scanB = scan("B", b, 10);
+    private final ILogicalOperator scanC = scan("C", c, 100);
+    private final ILogicalExpression eqAB = call(AlgebricksBuiltinFunctions.EQ, var(a), var(b));
+    private final ILogicalExpression eqBC = call(AlgebricksBuiltinFunctions.EQ, var(b), var(c));
+
+    @Test
+    public void dynamicProgrammingReorders() throws Exception {
+        // (A x C) join B costs 100000 + 10
+        LogicalOperatorReference opRef = new LogicalOperatorReference(join(and(eqAB, eqBC), join(
+                ConstantExpression.TRUE, scanA, scanC), scanB));
+        Assert.assertTrue(rewrite(opRef, new PhysicalOptimizationConfig()));
+        // A join (C join B) costs 10 + 10, the smaller side second
+        ILogicalOperator top = opRef.getOperator();
+        assertJoin(top, scanA, null, eqAB);
+        assertJoin(input(top, 1), scanC, scanB, eqBC);
+    }
+
+    @Test
+    public void greedyAboveTheLimit() throws Exception {
+        LogicalOperatorReference opRef = new LogicalOperatorReference(join(and(eqAB, eqBC), join(
+                ConstantExpression.TRUE, scanA, scanC), scanB));
+        PhysicalOptimizationConfig config = new PhysicalOptimizationConfig();
+        config.setMaxRelationsExhaustiveJoinEnumeration(2);
+        Assert.assertTrue(rewrite(opRef, config));
+        // starts with the first smallest join of two relations, A join B,
+        // and adds C, while the dynamic programming puts A at the top
+        ILogicalOperator top = opRef.getOperator();
+        assertJoin(top, scanC, null, eqBC);
+        assertJoin(input(top, 1), scanA, scanB, eqAB);
+    }
+
+    @Test
+    public void crossProductsOnlyBetweenUnconnectedRelations() throws Exception {
+        // C is not connected to the others
+        LogicalOperatorReference opRef = new LogicalOperatorReference(join(eqAB, join(ConstantExpression.TRUE,
+                scanA, scanC), scanB));
+        Assert.assertTrue(rewrite(opRef, new PhysicalOptimizationConfig()));
+        // (A join B) x C would cost 10 + 1000, but the last join can be made
+        // with a predicate, so it is not a product: (C x B) join A costs
+        // 1000 + 1000
+        ILogicalOperator top = opRef.getOperator();
+        assertJoin(top, null, scanA, eqAB);
+        assertJoin(input(top, 0), scanC, scanB, ConstantExpression.TRUE);
+    }
+
+    @Test
+    public void predicatesAtTheLowestJoin() throws Exception {
+        ILogicalExpression gtA = call(AlgebricksBuiltinFunctions.GT, var(a), constant(5));
+        ILogicalExpression gtConstants = call(AlgebricksBuiltinFunctions.GT, constant(2), constant(1));
+        LogicalOperatorReference opRef = new LogicalOperatorReference(join(and(eqAB, eqBC, gtA, gtConstants),
+                join(ConstantExpression.TRUE, scanA, scanC), scanB));
+        Assert.assertTrue(rewrite(opRef, new PhysicalOptimizationConfig()));
+        // C join (A join B), with the predicate on A alone at the join of A
+        // and the one on no relation at the top
+        ILogicalOperator top = opRef.getOperator();
+        assertJoin(top, scanC, null, and(eqBC, gtConstants));
+        assertJoin(input(top, 1), scanA, scanB, and(eqAB, gtA));
+    }
+
+    @Test
+    public void noRewriteWhenNotCheaper() throws Exception {
+        ILogicalOperator original = join(eqAB, scanA, join(eqBC, scanC, scanB));
+        LogicalOperatorReference opRef = new LogicalOperatorReference(original);
+        Assert.assertFalse(rewrite(opRef, new PhysicalOptimizationConfig()));
+        Assert.assertSame(original, opRef.getOperator());
+    }
+
+    private static boolean rewrite(LogicalOperatorReference opRef, PhysicalOptimizationConfig config)
+            throws AlgebricksException {
+        IOptimizationContext context = new AlgebricksOptimizationContext(3, SimpleCompiler.FRAME_SIZE, null,
+                SimpleMergeAggregationExpressionFactory.INSTANCE, SimpleTypeComputer.INSTANCE,
+                SimpleTypeComputer.INSTANCE, config);
+        computeTypeEnvironments(opRef.getOperator(), context);
+        return new EnumerateJoinsRule().rewritePre(opRef, context);
+    }
+
+    private static void computeTypeEnvironments(ILogicalOperator op, IOptimizationContext context)
+            throws AlgebricksException {
+        for (LogicalOperatorReference inp : op.getInputs()) {
+            computeTypeEnvironments(inp.getOperator(), context);
+        }
+        context.computeAndSetTypeEnvironmentForOperator(op);
+    }
+
+    /**
+     * Checks that op joins left and right, when they are not null, on the
+     * conjuncts of cond.
+     */
+    private static void assertJoin(ILogicalOperator op, ILogicalOperator left, ILogicalOperator right,
+            ILogicalExpression cond) {
+        Assert.assertEquals(LogicalOperatorTag.INNERJOIN, op.getOperatorTag());
+        if (left != null) {
+            Assert.assertSame(left, input(op, 0));
+        }
+        if (right != null) {
+            Assert.assertSame(right, input(op, 1));
+        }
+        Assert.assertEquals(conjuncts(cond), conjuncts(((InnerJoinOperator) op).getCondition().getExpression()));
+    }
+
+    private static List<ILogicalExpression> conjuncts(ILogicalExpression cond) {
+        List<LogicalExpressionReference> refs = new ArrayList<LogicalExpressionReference>();
+        List<ILogicalExpression> conjuncts = new ArrayList<ILogicalExpression>();
+        if (cond.splitIntoConjuncts(refs)) {
+            for (LogicalExpressionReference ref : refs) {
+                conjuncts.add(ref.getExpression());
+            }
+        } else {
+            conjuncts.add(cond);
+        }
+        return conjuncts;
+    }
+
+    private static ILogicalOperator input(ILogicalOperator op, int i) {
+        return op.getInputs().get(i).getOperator();
+    }
+
+    private static ILogicalOperator scan(String id, LogicalVariable v, long rows) {
+        SimpleFileDataSource source = new SimpleFileDataSource(id, new FileSplit[] { new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(id + ".tbl"))) }, 1);
+        source.setStatisticsProvider(new SimpleStatistics(rows, 8, new SimpleStatistics.ColumnStatistics(rows, 0,
+                null)));
+        List<LogicalVariable> vars = new ArrayList<LogicalVariable>();
+        vars.add(v);
+        DataSourceScanOperator scan = new DataSourceScanOperator(vars, source);
+        scan.getInputs().add(new LogicalOperatorReference(new EmptyTupleSourceOperator()));
+        return scan;
+    }
+
+    private static ILogicalOperator join(ILogicalExpression cond, ILogicalOperator left, ILogicalOperator right) {
+        return new InnerJoinOperator(new LogicalExpressionReference(cond), new LogicalOperatorReference(left),
+                new LogicalOperatorReference(right));
+    }
+
+    private static ILogicalExpression and(ILogicalExpression... conjuncts) {
+        return call(AlgebricksBuiltinFunctions.AND, conjuncts);
+    }
+
+    private static ILogicalExpression call(FunctionIdentifier fid, ILogicalExpression... args) {
+        List<LogicalExpressionReference> refs = new ArrayList<LogicalExpressionReference>();
+        for (ILogicalExpression arg : args) {
+            refs.add(new LogicalExpressionReference(arg));
+        }
+        return new ScalarFunctionCallExpression(AlgebricksBuiltinFunctions.getBuiltinFunctionInfo(fid), refs);
+    }
+
+    private static ILogicalExpression var(LogicalVariable v) {
+        return new VariableReferenceExpression(v);
+    }
+
+    private static ILogicalExpression constant(int value) {
+        return new ConstantExpression(new IntegerConstantValue(value));
+    }
+}
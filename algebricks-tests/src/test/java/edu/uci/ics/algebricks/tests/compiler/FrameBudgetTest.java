@@ -0,0 +1,87 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.api.compiler.HeuristicCompilerFactoryBuilder;
+import edu.uci.ics.algebricks.api.compiler.ICompiler;
+import edu.uci.ics.algebricks.api.constraints.AlgebricksAbsolutePartitionConstraint;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DataSourceScanOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.EmptyTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
+import edu.uci.ics.algebricks.compiler.algebra.plan.ALogicalPlanImpl;
+import edu.uci.ics.algebricks.compiler.optimizer.base.PhysicalOptimizationConfig;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.meta.AlgebricksMetaOperatorDescriptor;
+import edu.uci.ics.algebricks.tests.util.AlgebricksHyracksIntegrationUtil;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorDescriptor;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+public class FrameBudgetTest {
+
+    @Test
+    public void budgetComesFromTheConfig() throws Exception {
+        PhysicalOptimizationConfig config = new PhysicalOptimizationConfig();
+        Assert.assertEquals((int) ((2048L * 1024 * 1024) / config.getFrameSize()), config.getMaxFramesPerPartition());
+        config.setMaxFramesPerPartition(7);
+        HeuristicCompilerFactoryBuilder builder = SimpleCompiler.createBuilder();
+        builder.setClusterLocations(new AlgebricksAbsolutePartitionConstraint(
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID }));
+        builder.setPhysicalOptimizationConfig(config);
+
+        ICompiler compiler = builder.create().createCompiler(buildScanWritePlan(), new SimpleMetadataProvider(), 1);
+        compiler.optimize();
+        JobSpecification spec = compiler.createJob(null);
+        int nMetaOps = 0;
+        for (IOperatorDescriptor opDesc : spec.getOperatorMap().values()) {
+            if (opDesc instanceof AlgebricksMetaOperatorDescriptor) {
+                Assert.assertEquals(7, ((AlgebricksMetaOperatorDescriptor) opDesc).getFrameBudget());
+                nMetaOps++;
+            }
+        }
+        Assert.assertTrue(nMetaOps > 0);
+    }
+
+    /**
+     * write x <- scan evens x
+     */
+    private static ALogicalPlanImpl buildScanWritePlan() {
+        LogicalVariable x = new LogicalVariable(0);
+        SimpleFileDataSource evens = new SimpleFileDataSource("evens", new FileSplit[] { new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File("data/simple/int-part1.tbl"))) },
+                1);
+        List<LogicalVariable> vars = new ArrayList<LogicalVariable>();
+        vars.add(x);
+        DataSourceScanOperator scan = new DataSourceScanOperator(vars, evens);
+        scan.getInputs().add(new LogicalOperatorReference(new EmptyTupleSourceOperator()));
+        List<LogicalExpressionReference> exprs = new ArrayList<LogicalExpressionReference>();
+        exprs.add(new LogicalExpressionReference(new VariableReferenceExpression(x)));
+        WriteOperator write = new WriteOperator(exprs, new SimpleFileDataSink(new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File("fbtest.out")))));
+        write.getInputs().add(new LogicalOperatorReference(scan));
+        return new ALogicalPlanImpl(new LogicalOperatorReference(write));
+    }
+}
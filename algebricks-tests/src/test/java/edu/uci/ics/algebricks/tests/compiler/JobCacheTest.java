@@ -0,0 +1,294 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.api.compiler.CompiledJobCache;
+import edu.uci.ics.algebricks.api.compiler.HeuristicCompilerFactoryBuilder;
+import edu.uci.ics.algebricks.api.compiler.ICompiler;
+import edu.uci.ics.algebricks.api.compiler.PlanFingerprint;
+import edu.uci.ics.algebricks.api.constraints.AlgebricksAbsolutePartitionConstraint;
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AbstractFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.IAlgebricksConstantValue;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ScalarFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DataSourceScanOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.EmptyTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SelectOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
+import edu.uci.ics.algebricks.compiler.algebra.plan.ALogicalPlanImpl;
+import edu.uci.ics.algebricks.compiler.optimizer.base.AbstractRuleController;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.rulecontrollers.SequentialOnceRuleController;
+import edu.uci.ics.algebricks.tests.util.AlgebricksHyracksIntegrationUtil;
+import edu.uci.ics.algebricks.utils.Pair;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+public class JobCacheTest {
+
+    private static final String SEPARATOR = System.getProperty("file.separator");
+    private static final String PATH_ACTUAL = "jctest";
+
+    private static final SimpleMetadataProvider METADATA = new SimpleMetadataProvider();
+    // 0, 2, ..., 12
+    private static final SimpleFileDataSource EVENS = new SimpleFileDataSource("evens",
+            new FileSplit[] { new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                    "data/simple/int-part1.tbl"))) }, 1);
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        File outdir = new File(PATH_ACTUAL);
+        outdir.mkdirs();
+        METADATA.addDataSource(EVENS);
+        AlgebricksHyracksIntegrationUtil.init();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        AlgebricksHyracksIntegrationUtil.deinit();
+        File outdir = new File(PATH_ACTUAL);
+        File[] files = outdir.listFiles();
+        if (files == null || files.length == 0) {
+            outdir.delete();
+        }
+    }
+
+    @Test
+    public void hitRebindsParameters() throws Exception {
+        CompiledJobCache cache = new CompiledJobCache(10);
+        HeuristicCompilerFactoryBuilder builder = createBuilder(cache);
+        File outFile = new File(PATH_ACTUAL + SEPARATOR + "hitRebindsParameters.out");
+
+        ILogicalPlan plan = buildRangePlan(3, 9, outFile);
+        ICompiler compiler = builder.create().createCompiler(plan, METADATA, 1);
+        compiler.optimize();
+        JobSpecification spec = compiler.createJob(null);
+        Assert.assertSame(plan, compiler.getOptimizedPlan());
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(0, cache.getHits());
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+        Assert.assertEquals("468", readFileToString(outFile));
+        outFile.delete();
+
+        plan = buildRangePlan(7, 13, outFile);
+        compiler = builder.create().createCompiler(plan, METADATA, 1);
+        compiler.optimize();
+        spec = compiler.createJob(null);
+        Assert.assertEquals(1, cache.getHits());
+        // the job comes from the plan optimized for the first constants
+        Assert.assertNotSame(plan, compiler.getOptimizedPlan());
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+        Assert.assertEquals("81012", readFileToString(outFile));
+        outFile.delete();
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() throws Exception {
+        CompiledJobCache cache = new CompiledJobCache(1);
+        HeuristicCompilerFactoryBuilder builder = createBuilder(cache);
+        File outFile = new File(PATH_ACTUAL + SEPARATOR + "leastRecentlyUsedIsEvicted.out");
+
+        compile(builder, buildRangePlan(3, 9, outFile));
+        compile(builder, buildGreaterThanPlan(3, outFile));
+        Assert.assertEquals(1, cache.size());
+        // the range plan was evicted by the other one
+        compile(builder, buildRangePlan(5, 11, outFile));
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(3, cache.getMisses());
+        compile(builder, buildRangePlan(1, 3, outFile));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void ruleDerivedConstantsAreNotCached() throws Exception {
+        CompiledJobCache cache = new CompiledJobCache(10);
+        HeuristicCompilerFactoryBuilder builder = createBuilder(cache);
+        List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> logicalRewrites = SimpleCompiler
+                .buildLogicalRewrites();
+        List<IAlgebraicRewriteRule> rules = new ArrayList<IAlgebraicRewriteRule>();
+        rules.add(new RecreateSelectConstantsRule());
+        logicalRewrites.add(new Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>(
+                new SequentialOnceRuleController(true), rules));
+        builder.setLogicalRewrites(logicalRewrites);
+        File outFile = new File(PATH_ACTUAL + SEPARATOR + "ruleDerivedConstantsAreNotCached.out");
+
+        compile(builder, buildRangePlan(3, 9, outFile));
+        Assert.assertEquals(0, cache.size());
+        compile(builder, buildRangePlan(7, 13, outFile));
+        Assert.assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void collidingLiteralsAreNotCached() throws Exception {
+        CompiledJobCache cache = new CompiledJobCache(10);
+        HeuristicCompilerFactoryBuilder builder = createBuilder(cache);
+        // TRUE is compiled into the bytes of the integer 1
+        builder.setExprJobGen(new SimpleExpressionJobGen() {
+            @Override
+            protected byte[] serializeConstant(IAlgebricksConstantValue value) throws AlgebricksException {
+                return super.serializeConstant(value.isTrue() ? new IntegerConstantValue(1) : value);
+            }
+        });
+        File outFile = new File(PATH_ACTUAL + SEPARATOR + "collidingLiteralsAreNotCached.out");
+
+        compile(builder, buildGreaterThanTruePlan(1, outFile));
+        Assert.assertEquals(0, cache.size());
+        compile(builder, buildGreaterThanTruePlan(2, outFile));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    private static HeuristicCompilerFactoryBuilder createBuilder(CompiledJobCache cache) {
+        HeuristicCompilerFactoryBuilder builder = SimpleCompiler.createBuilder();
+        builder.setClusterLocations(new AlgebricksAbsolutePartitionConstraint(
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID }));
+        builder.setJobCache(cache);
+        return builder;
+    }
+
+    private static JobSpecification compile(HeuristicCompilerFactoryBuilder builder, ILogicalPlan plan)
+            throws AlgebricksException {
+        ICompiler compiler = builder.create().createCompiler(plan, METADATA, 1);
+        compiler.optimize();
+        return compiler.createJob(null);
+    }
+
+    /**
+     * write x <- select (gt(high, x)) <- select (gt(x, low)) <- scan evens
+     */
+    private static ILogicalPlan buildRangePlan(int low, int high, File outFile) {
+        LogicalVariable x = new LogicalVariable(0);
+        ILogicalOperator lowSelect = select(gt(var(x), constant(low)), scan(x));
+        return write(x, select(gt(constant(high), var(x)), lowSelect), outFile);
+    }
+
+    private static ILogicalPlan buildGreaterThanPlan(int low, File outFile) {
+        LogicalVariable x = new LogicalVariable(0);
+        return write(x, select(gt(var(x), constant(low)), scan(x)), outFile);
+    }
+
+    private static ILogicalPlan buildGreaterThanTruePlan(int low, File outFile) {
+        LogicalVariable x = new LogicalVariable(0);
+        ILogicalOperator lowSelect = select(gt(var(x), constant(low)), scan(x));
+        return write(x, select(ConstantExpression.TRUE, lowSelect), outFile);
+    }
+
+    private static ILogicalOperator scan(LogicalVariable x) {
+        List<LogicalVariable> vars = new ArrayList<LogicalVariable>();
+        vars.add(x);
+        DataSourceScanOperator scan = new DataSourceScanOperator(vars, EVENS);
+        scan.getInputs().add(new LogicalOperatorReference(new EmptyTupleSourceOperator()));
+        return scan;
+    }
+
+    private static ILogicalOperator select(ILogicalExpression condition, ILogicalOperator input) {
+        SelectOperator select = new SelectOperator(new LogicalExpressionReference(condition));
+        select.getInputs().add(new LogicalOperatorReference(input));
+        return select;
+    }
+
+    private static ILogicalPlan write(LogicalVariable x, ILogicalOperator input, File outFile) {
+        List<LogicalExpressionReference> exprs = new ArrayList<LogicalExpressionReference>();
+        exprs.add(new LogicalExpressionReference(var(x)));
+        WriteOperator write = new WriteOperator(exprs, new SimpleFileDataSink(new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(outFile))));
+        write.getInputs().add(new LogicalOperatorReference(input));
+        return new ALogicalPlanImpl(new LogicalOperatorReference(write));
+    }
+
+    private static ILogicalExpression gt(ILogicalExpression left, ILogicalExpression right) {
+        return new ScalarFunctionCallExpression(AlgebricksBuiltinFunctions
+                .getBuiltinFunctionInfo(AlgebricksBuiltinFunctions.GT), new LogicalExpressionReference(left),
+                new LogicalExpressionReference(right));
+    }
+
+    private static ILogicalExpression var(LogicalVariable v) {
+        return new VariableReferenceExpression(v);
+    }
+
+    private static ILogicalExpression constant(int value) {
+        return new ConstantExpression(new IntegerConstantValue(value));
+    }
+
+    private static String readFileToString(File file) throws Exception {
+        StringBuilder buf = new StringBuilder();
+        BufferedReader result = new BufferedReader(new FileReader(file));
+        String s;
+        while ((s = result.readLine()) != null) {
+            buf.append(s);
+        }
+        result.close();
+        return buf.toString();
+    }
+
+    /**
+     * Replaces the parameters of the selects by new constants with the same
+     * values, like a rule folding constants would.
+     */
+    private static class RecreateSelectConstantsRule implements IAlgebraicRewriteRule {
+
+        @Override
+        public boolean rewritePre(LogicalOperatorReference opRef, IOptimizationContext context)
+                throws AlgebricksException {
+            return false;
+        }
+
+        @Override
+        public boolean rewritePost(LogicalOperatorReference opRef, IOptimizationContext context)
+                throws AlgebricksException {
+            if (opRef.getOperator().getOperatorTag() != LogicalOperatorTag.SELECT) {
+                return false;
+            }
+            ILogicalExpression cond = ((SelectOperator) opRef.getOperator()).getCondition().getExpression();
+            if (cond.getExpressionTag() != LogicalExpressionTag.FUNCTION_CALL) {
+                return false;
+            }
+            boolean changed = false;
+            for (LogicalExpressionReference arg : ((AbstractFunctionCallExpression) cond).getArguments()) {
+                ILogicalExpression e = arg.getExpression();
+                if (e.getExpressionTag() == LogicalExpressionTag.CONSTANT
+                        && PlanFingerprint.getParameterNumber((ConstantExpression) e) >= 0) {
+                    arg.setExpression(new ConstantExpression(((ConstantExpression) e).getValue()));
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.IAlgebricksConstantValue;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ScalarFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionIdentifier;
+import edu.uci.ics.algebricks.compiler.algebra.metadata.IHistogram;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AggregateOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DataSourceScanOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.EmptyTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.GroupByOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.InnerJoinOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.LimitOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.NestedTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SelectOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.UnionAllOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.visitors.LogicalPropertiesVisitor;
+import edu.uci.ics.algebricks.compiler.algebra.plan.ALogicalPlanImpl;
+import edu.uci.ics.algebricks.compiler.algebra.properties.ILogicalPropertiesVector;
+import edu.uci.ics.algebricks.compiler.optimizer.base.AlgebricksOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.PhysicalOptimizationConfig;
+import edu.uci.ics.algebricks.tests.util.AlgebricksHyracksIntegrationUtil;
+import edu.uci.ics.algebricks.utils.Pair;
+import edu.uci.ics.algebricks.utils.Triple;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+/**
+ * The scans are of S, with 1000 tuples of 100 bytes and 100 distinct values
+ * of x, uniformly distributed from 0 to 99, and of T, with 10 tuples of 100
+ * bytes and 10 distinct values of y.
+ */
+public class LogicalPropertiesVisitorTest {
+
+    private final IOptimizationContext context = new AlgebricksOptimizationContext(3, SimpleCompiler.FRAME_SIZE,
+            null, SimpleMergeAggregationExpressionFactory.INSTANCE, SimpleTypeComputer.INSTANCE,
+            SimpleTypeComputer.INSTANCE, new PhysicalOptimizationConfig());
+    private final LogicalVariable x = new LogicalVariable(0);
+    private final LogicalVariable y = new LogicalVariable(1);
+    private final LogicalVariable z = new LogicalVariable(2);
+
+    @Test
+    public void scan() throws Exception {
+        ILogicalOperator scan = scanS(true);
+        ILogicalPropertiesVector v = estimate(scan);
+        Assert.assertEquals(Integer.valueOf(1000), v.getNumberOfTuples());
+        // 100000 bytes in frames of 32768
+        Assert.assertEquals(Integer.valueOf(4), v.getMaxOutputFrames());
+        Assert.assertEquals(100, v.getVariableStatistics(x).getDistinctCount());
+    }
+
+    @Test
+    public void selectWithHistogram() throws Exception {
+        ILogicalOperator select = select(call(AlgebricksBuiltinFunctions.GT, var(x), constant(74)), scanS(true));
+        ILogicalPropertiesVector v = estimate(select);
+        Assert.assertEquals(Integer.valueOf(250), v.getNumberOfTuples());
+        Assert.assertEquals(Integer.valueOf(1), v.getMaxOutputFrames());
+        // the constant first
+        select = select(call(AlgebricksBuiltinFunctions.GT, constant(10), var(x)), scanS(true));
+        Assert.assertEquals(Integer.valueOf(100), estimate(select).getNumberOfTuples());
+    }
+
+    @Test
+    public void selectWithDefaults() throws Exception {
+        // one value of the 100 distinct ones
+        ILogicalOperator select = select(call(AlgebricksBuiltinFunctions.EQ, var(x), constant(3)), scanS(false));
+        Assert.assertEquals(Integer.valueOf(10), estimate(select).getNumberOfTuples());
+        // a third for a range
+        select = select(call(AlgebricksBuiltinFunctions.GT, var(x), constant(74)), scanS(false));
+        Assert.assertEquals(Integer.valueOf(334), estimate(select).getNumberOfTuples());
+        // both
+        select = select(call(AlgebricksBuiltinFunctions.AND, call(AlgebricksBuiltinFunctions.EQ, var(x),
+                constant(3)), call(AlgebricksBuiltinFunctions.GT, var(x), constant(74))), scanS(false));
+        Assert.assertEquals(Integer.valueOf(4), estimate(select).getNumberOfTuples());
+    }
+
+    @Test
+    public void join() throws Exception {
+        ILogicalOperator join = new InnerJoinOperator(new LogicalExpressionReference(call(
+                AlgebricksBuiltinFunctions.EQ, var(x), var(y))), new LogicalOperatorReference(scanS(true)),
+                new LogicalOperatorReference(scanT()));
+        // 1000 * 10 over the larger distinct count
+        ILogicalPropertiesVector v = estimate(join);
+        Assert.assertEquals(Integer.valueOf(100), v.getNumberOfTuples());
+        Assert.assertEquals(100, v.getVariableStatistics(x).getDistinctCount());
+        Assert.assertEquals(10, v.getVariableStatistics(y).getDistinctCount());
+    }
+
+    @Test
+    public void groupBy() throws Exception {
+        List<Pair<LogicalVariable, LogicalExpressionReference>> gbyList =
+                new ArrayList<Pair<LogicalVariable, LogicalExpressionReference>>();
+        gbyList.add(new Pair<LogicalVariable, LogicalExpressionReference>(z, new LogicalExpressionReference(
+                var(x))));
+        List<ILogicalPlan> nestedPlans = new ArrayList<ILogicalPlan>();
+        GroupByOperator gby = new GroupByOperator(gbyList,
+                new ArrayList<Pair<LogicalVariable, LogicalExpressionReference>>(), nestedPlans);
+        gby.getInputs().add(new LogicalOperatorReference(scanS(true)));
+        NestedTupleSourceOperator nts = new NestedTupleSourceOperator(new LogicalOperatorReference(gby));
+        List<LogicalVariable> aggVars = new ArrayList<LogicalVariable>();
+        aggVars.add(new LogicalVariable(3));
+        List<LogicalExpressionReference> aggExprs = new ArrayList<LogicalExpressionReference>();
+        aggExprs.add(new LogicalExpressionReference(new AggregateFunctionCallExpression(SimpleFunctions.COUNT_INFO,
+                false, new ArrayList<LogicalExpressionReference>())));
+        AggregateOperator agg = new AggregateOperator(aggVars, aggExprs);
+        agg.getInputs().add(new LogicalOperatorReference(nts));
+        nestedPlans.add(new ALogicalPlanImpl(new LogicalOperatorReference(agg)));
+
+        ILogicalPropertiesVector v = estimate(gby);
+        Assert.assertEquals(Integer.valueOf(100), v.getNumberOfTuples());
+        Assert.assertEquals(100, v.getVariableStatistics(z).getDistinctCount());
+        // each group gets 1000 / 100 tuples
+        estimate(agg);
+        Assert.assertEquals(Integer.valueOf(10), context.getLogicalPropertiesVector(nts).getNumberOfTuples());
+        Assert.assertEquals(Integer.valueOf(1), context.getLogicalPropertiesVector(agg).getNumberOfTuples());
+    }
+
+    @Test
+    public void union() throws Exception {
+        List<Triple<LogicalVariable, LogicalVariable, LogicalVariable>> varMap =
+                new ArrayList<Triple<LogicalVariable, LogicalVariable, LogicalVariable>>();
+        varMap.add(new Triple<LogicalVariable, LogicalVariable, LogicalVariable>(x, y, z));
+        UnionAllOperator union = new UnionAllOperator(varMap);
+        union.getInputs().add(new LogicalOperatorReference(scanS(true)));
+        union.getInputs().add(new LogicalOperatorReference(scanT()));
+        ILogicalPropertiesVector v = estimate(union);
+        Assert.assertEquals(Integer.valueOf(1010), v.getNumberOfTuples());
+        Assert.assertEquals(Integer.valueOf(5), v.getMaxOutputFrames());
+        Assert.assertEquals(110, v.getVariableStatistics(z).getDistinctCount());
+    }
+
+    @Test
+    public void limit() throws Exception {
+        LimitOperator limit = new LimitOperator(constant(5));
+        limit.getInputs().add(new LogicalOperatorReference(scanS(true)));
+        Assert.assertEquals(Integer.valueOf(5), estimate(limit).getNumberOfTuples());
+
+        limit = new LimitOperator(constant(5), constant(998));
+        limit.getInputs().add(new LogicalOperatorReference(scanS(true)));
+        Assert.assertEquals(Integer.valueOf(2), estimate(limit).getNumberOfTuples());
+
+        // not a constant, the input is an upper bound
+        limit = new LimitOperator(var(y));
+        limit.getInputs().add(new LogicalOperatorReference(scanS(true)));
+        Assert.assertEquals(Integer.valueOf(1000), estimate(limit).getNumberOfTuples());
+    }
+
+    private ILogicalPropertiesVector estimate(ILogicalOperator op) throws AlgebricksException {
+        LogicalPropertiesVisitor.computeLogicalPropertiesDFS(op, context);
+        return context.getLogicalPropertiesVector(op);
+    }
+
+    private ILogicalOperator scanS(boolean withHistogram) {
+        return scan("S", x, new SimpleStatistics(1000, 100, new SimpleStatistics.ColumnStatistics(100, 0,
+                withHistogram ? new UniformHistogram(0, 99) : null)));
+    }
+
+    private ILogicalOperator scanT() {
+        return scan("T", y, new SimpleStatistics(10, 100, new SimpleStatistics.ColumnStatistics(10, 0, null)));
+    }
+
+    private static ILogicalOperator scan(String id, LogicalVariable v, SimpleStatistics stats) {
+        SimpleFileDataSource source = new SimpleFileDataSource(id, new FileSplit[] { new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(id + ".tbl"))) }, 1);
+        source.setStatisticsProvider(stats);
+        List<LogicalVariable> vars = new ArrayList<LogicalVariable>();
+        vars.add(v);
+        DataSourceScanOperator scan = new DataSourceScanOperator(vars, source);
+        scan.getInputs().add(new LogicalOperatorReference(new EmptyTupleSourceOperator()));
+        return scan;
+    }
+
+    private static ILogicalOperator select(ILogicalExpression condition, ILogicalOperator input) {
+        SelectOperator select = new SelectOperator(new LogicalExpressionReference(condition));
+        select.getInputs().add(new LogicalOperatorReference(input));
+        return select;
+    }
+
+    private static ILogicalExpression call(FunctionIdentifier fid, ILogicalExpression... args) {
+        List<LogicalExpressionReference> refs = new ArrayList<LogicalExpressionReference>();
+        for (ILogicalExpression arg : args) {
+            refs.add(new LogicalExpressionReference(arg));
+        }
+        return new ScalarFunctionCallExpression(AlgebricksBuiltinFunctions.getBuiltinFunctionInfo(fid), refs);
+    }
+
+    private static ILogicalExpression var(LogicalVariable v) {
+        return new VariableReferenceExpression(v);
+    }
+
+    private static ILogicalExpression constant(int value) {
+        return new ConstantExpression(new IntegerConstantValue(value));
+    }
+
+    /**
+     * Each integer from min to max appears as often.
+     */
+    private static class UniformHistogram implements IHistogram {
+        private final int min;
+        private final int max;
+
+        public UniformHistogram(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public double getEqualitySelectivity(IAlgebricksConstantValue value) {
+            int v = ((IntegerConstantValue) value).getValue();
+            return v < min || v > max ? 0 : 1.0 / (max - min + 1);
+        }
+
+        @Override
+        public double getRangeSelectivity(IAlgebricksConstantValue low, boolean lowInclusive,
+                IAlgebricksConstantValue high, boolean highInclusive) {
+            int lo = low == null ? min : ((IntegerConstantValue) low).getValue() + (lowInclusive ? 0 : 1);
+            int hi = high == null ? max : ((IntegerConstantValue) high).getValue() - (highInclusive ? 0 : 1);
+            int n = Math.min(hi, max) - Math.max(lo, min) + 1;
+            return Math.max(0, n) / (double) (max - min + 1);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.api.compiler.HeuristicCompilerFactoryBuilder;
+import edu.uci.ics.algebricks.api.compiler.ICompiler;
+import edu.uci.ics.algebricks.api.constraints.AlgebricksAbsolutePartitionConstraint;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.base.OperatorAnnotations;
+import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AggregateOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DataSourceScanOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.EmptyTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.GroupByOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.NestedTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
+import edu.uci.ics.algebricks.compiler.algebra.plan.ALogicalPlanImpl;
+import edu.uci.ics.algebricks.tests.util.AlgebricksHyracksIntegrationUtil;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+public class NestedHashGroupByTest {
+
+    @Test
+    public void serializableAggregateIsHashed() throws Exception {
+        AggregateFunctionCallExpression count = new AggregateFunctionCallExpression(SimpleFunctions.COUNT_INFO,
+                false, new ArrayList<LogicalExpressionReference>());
+        GroupByOperator nestedGby = buildNestedGroupBy(count);
+        optimize(buildPlan(nestedGby));
+        Assert.assertEquals(PhysicalOperatorTag.MICRO_HASH_GROUP_BY, nestedGby.getPhysicalOperator()
+                .getOperatorTag());
+    }
+
+    @Test
+    public void aggregateWithoutSerializableImplementationIsPreclustered() throws Exception {
+        // the test expression job generator can only sum variables
+        List<LogicalExpressionReference> args = new ArrayList<LogicalExpressionReference>();
+        args.add(new LogicalExpressionReference(new ConstantExpression(new IntegerConstantValue(1))));
+        AggregateFunctionCallExpression sum = new AggregateFunctionCallExpression(SimpleFunctions.SUM_INFO, false,
+                args);
+        GroupByOperator nestedGby = buildNestedGroupBy(sum);
+        optimize(buildPlan(nestedGby));
+        Assert.assertEquals(PhysicalOperatorTag.MICRO_PRE_CLUSTERED_GROUP_BY, nestedGby.getPhysicalOperator()
+                .getOperatorTag());
+    }
+
+    private static void optimize(ALogicalPlanImpl plan) throws Exception {
+        HeuristicCompilerFactoryBuilder builder = SimpleCompiler.createBuilder();
+        builder.setClusterLocations(new AlgebricksAbsolutePartitionConstraint(
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID }));
+        ICompiler compiler = builder.create().createCompiler(plan, new SimpleMetadataProvider(), 5);
+        compiler.optimize();
+    }
+
+    /**
+     * group-by m := x { aggregate d := aggFun <- nts }, annotated as a hash
+     * group-by; its input is set by {@link #buildPlan}.
+     */
+    private static GroupByOperator buildNestedGroupBy(AggregateFunctionCallExpression aggFun) {
+        GroupByOperator gby = new GroupByOperator();
+        gby.addGbyExpression(new LogicalVariable(3), new VariableReferenceExpression(new LogicalVariable(0)));
+        gby.getAnnotations().put(OperatorAnnotations.USE_HASH_GROUP_BY, Boolean.TRUE);
+        gby.getNestedPlans().add(buildAggregatePlan(gby, new LogicalVariable(4), aggFun));
+        return gby;
+    }
+
+    /**
+     * write k, c <- group-by k := x { aggregate c := count() <- nestedGby <-
+     * nts } <- scan evens x
+     */
+    private static ALogicalPlanImpl buildPlan(GroupByOperator nestedGby) {
+        LogicalVariable x = new LogicalVariable(0);
+        LogicalVariable k = new LogicalVariable(1);
+        LogicalVariable c = new LogicalVariable(2);
+        List<LogicalVariable> scanVars = new ArrayList<LogicalVariable>();
+        scanVars.add(x);
+        DataSourceScanOperator scan = new DataSourceScanOperator(scanVars, new SimpleFileDataSource("evens",
+                new FileSplit[] { new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(
+                        new File("data/simple/int-part1.tbl"))) }, 1));
+        scan.getInputs().add(new LogicalOperatorReference(new EmptyTupleSourceOperator()));
+
+        GroupByOperator gby = new GroupByOperator();
+        gby.addGbyExpression(k, new VariableReferenceExpression(x));
+        List<LogicalVariable> aggVars = new ArrayList<LogicalVariable>();
+        aggVars.add(c);
+        List<LogicalExpressionReference> aggExprs = new ArrayList<LogicalExpressionReference>();
+        aggExprs.add(new LogicalExpressionReference(new AggregateFunctionCallExpression(SimpleFunctions.COUNT_INFO,
+                false, new ArrayList<LogicalExpressionReference>())));
+        AggregateOperator agg = new AggregateOperator(aggVars, aggExprs);
+        agg.getInputs().add(new LogicalOperatorReference(nestedGby));
+        nestedGby.getInputs().add(new LogicalOperatorReference(new NestedTupleSourceOperator(
+                new LogicalOperatorReference(gby))));
+        gby.getNestedPlans().add(new ALogicalPlanImpl(new LogicalOperatorReference(agg)));
+        gby.getInputs().add(new LogicalOperatorReference(scan));
+
+        List<LogicalExpressionReference> exprs = new ArrayList<LogicalExpressionReference>();
+        exprs.add(new LogicalExpressionReference(new VariableReferenceExpression(k)));
+        exprs.add(new LogicalExpressionReference(new VariableReferenceExpression(c)));
+        WriteOperator write = new WriteOperator(exprs, new SimpleFileDataSink(new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File("nhgtest.out")))));
+        write.getInputs().add(new LogicalOperatorReference(gby));
+        return new ALogicalPlanImpl(new LogicalOperatorReference(write));
+    }
+
+    private static ALogicalPlanImpl buildAggregatePlan(GroupByOperator gby, LogicalVariable v,
+            AggregateFunctionCallExpression aggFun) {
+        List<LogicalVariable> aggVars = new ArrayList<LogicalVariable>();
+        aggVars.add(v);
+        List<LogicalExpressionReference> aggExprs = new ArrayList<LogicalExpressionReference>();
+        aggExprs.add(new LogicalExpressionReference(aggFun));
+        AggregateOperator agg = new AggregateOperator(aggVars, aggExprs);
+        agg.getInputs().add(new LogicalOperatorReference(new NestedTupleSourceOperator(
+                new LogicalOperatorReference(gby))));
+        return new ALogicalPlanImpl(new LogicalOperatorReference(agg));
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.api.compiler.HeuristicCompilerFactoryBuilder;
+import edu.uci.ics.algebricks.api.compiler.ICompiler;
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ScalarFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionIdentifier;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DataSourceScanOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.EmptyTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SelectOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
+import edu.uci.ics.algebricks.compiler.algebra.plan.ALogicalPlanImpl;
+import edu.uci.ics.algebricks.compiler.optimizer.base.AbstractRuleController;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizerTraceListener;
+import edu.uci.ics.algebricks.compiler.optimizer.base.OptimizerStatistics;
+import edu.uci.ics.algebricks.compiler.optimizer.base.OptimizerStatistics.PassStatistics;
+import edu.uci.ics.algebricks.compiler.optimizer.base.OptimizerStatistics.RuleStatistics;
+import edu.uci.ics.algebricks.compiler.optimizer.base.PlanRendering;
+import edu.uci.ics.algebricks.compiler.optimizer.rulecontrollers.SequentialOnceRuleController;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.BreakSelectIntoConjunctsRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rules.InferTypesRule;
+import edu.uci.ics.algebricks.tests.util.AlgebricksHyracksIntegrationUtil;
+import edu.uci.ics.algebricks.utils.Pair;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+public class OptimizerTraceTest {
+
+    private static final String SEPARATOR = System.getProperty("file.separator");
+
+    @Test
+    public void listenerSeesRuleFiringsAndStatistics() throws Exception {
+        BreakSelectIntoConjunctsRule breakSelect = new BreakSelectIntoConjunctsRule();
+        List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> logicalRewrites =
+                new ArrayList<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>>();
+        List<IAlgebraicRewriteRule> typeInfer = new LinkedList<IAlgebraicRewriteRule>();
+        typeInfer.add(new InferTypesRule());
+        logicalRewrites.add(new Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>(
+                new SequentialOnceRuleController(true), typeInfer));
+        List<IAlgebraicRewriteRule> normalization = new LinkedList<IAlgebraicRewriteRule>();
+        normalization.add(breakSelect);
+        logicalRewrites.add(new Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>(
+                new SequentialOnceRuleController(true), normalization));
+
+        RecordingTraceListener listener = new RecordingTraceListener();
+        HeuristicCompilerFactoryBuilder builder = SimpleCompiler.createBuilder();
+        builder.setLogicalRewrites(logicalRewrites);
+        builder.setPhysicalRewrites(new LinkedList<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>>());
+        builder.setOptimizerTraceListener(listener);
+        ICompiler compiler = builder.create().createCompiler(buildPlan(), new SimpleMetadataProvider(), 1);
+        compiler.optimize();
+
+        // the plans before and after, rendered while they were current
+        Assert.assertEquals(2, listener.titles.size());
+        Assert.assertEquals("Logical Plan", listener.titles.get(0));
+        Assert.assertEquals("Optimized Plan", listener.titles.get(1));
+        Assert.assertEquals(1, countSelects(listener.plans.get(0)));
+        Assert.assertEquals(2, countSelects(listener.plans.get(1)));
+
+        // the select is split once, and the event shows the rewritten subtree
+        OptimizerStatistics statistics = listener.statistics;
+        Assert.assertNotNull(statistics);
+        RuleStatistics breakStats = null;
+        int totalFirings = 0;
+        for (RuleStatistics rs : statistics.getRuleStatistics()) {
+            if (rs.getRule() == breakSelect) {
+                breakStats = rs;
+            }
+            Assert.assertEquals(1, rs.getApplications());
+            Assert.assertTrue(rs.getNanos() >= 0);
+            totalFirings += rs.getFirings();
+        }
+        Assert.assertEquals(2, statistics.getRuleStatistics().size());
+        Assert.assertNotNull(breakStats);
+        Assert.assertEquals(1, breakStats.getFirings());
+        // only the select is shown to the tag-filtered rule
+        Assert.assertEquals(1, breakStats.getVisitedOperators());
+        Assert.assertEquals(totalFirings, listener.firedRules.size());
+        int breakEvents = 0;
+        for (int i = 0; i < listener.firedRules.size(); i++) {
+            if (listener.firedRules.get(i) == breakSelect) {
+                breakEvents++;
+                Assert.assertEquals(2, countSelects(listener.subtrees.get(i)));
+            }
+        }
+        Assert.assertEquals(1, breakEvents);
+
+        // one pass per rule collection, each taking at least the time of its rules
+        List<PassStatistics> passes = statistics.getPassStatistics();
+        Assert.assertEquals(2, passes.size());
+        for (int i = 0; i < passes.size(); i++) {
+            PassStatistics ps = passes.get(i);
+            Assert.assertEquals("logical", ps.getPhase());
+            Assert.assertEquals(i, ps.getIndex());
+            Assert.assertSame(logicalRewrites.get(i).first, ps.getController());
+            Assert.assertEquals(1, ps.getRuleCount());
+        }
+        Assert.assertTrue(passes.get(1).anyRuleFired());
+        Assert.assertTrue(passes.get(1).getNanos() >= breakStats.getNanos());
+    }
+
+    private static int countSelects(String plan) {
+        int n = 0;
+        int i = plan.indexOf("select");
+        while (i >= 0) {
+            n++;
+            i = plan.indexOf("select", i + 1);
+        }
+        return n;
+    }
+
+    /**
+     * write x <- select (and(gt(x, 3), lt(x, 9))) <- scan evens x
+     */
+    private static ALogicalPlanImpl buildPlan() {
+        LogicalVariable x = new LogicalVariable(0);
+        SimpleFileDataSource evens = new SimpleFileDataSource("evens", new FileSplit[] { new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File("data" + SEPARATOR + "simple"
+                        + SEPARATOR + "int-part1.tbl"))) }, 1);
+        List<LogicalVariable> vars = new ArrayList<LogicalVariable>();
+        vars.add(x);
+        DataSourceScanOperator scan = new DataSourceScanOperator(vars, evens);
+        scan.getInputs().add(new LogicalOperatorReference(new EmptyTupleSourceOperator()));
+        SelectOperator select = new SelectOperator(new LogicalExpressionReference(call(AlgebricksBuiltinFunctions.AND,
+                call(AlgebricksBuiltinFunctions.GT, var(x), constant(3)), call(AlgebricksBuiltinFunctions.LT,
+                        var(x), constant(9)))));
+        select.getInputs().add(new LogicalOperatorReference(scan));
+        List<LogicalExpressionReference> exprs = new ArrayList<LogicalExpressionReference>();
+        exprs.add(new LogicalExpressionReference(var(x)));
+        WriteOperator write = new WriteOperator(exprs, new SimpleFileDataSink(new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File("ottest.out")))));
+        write.getInputs().add(new LogicalOperatorReference(select));
+        return new ALogicalPlanImpl(new LogicalOperatorReference(write));
+    }
+
+    private static ILogicalExpression call(FunctionIdentifier fid, ILogicalExpression... args) {
+        List<LogicalExpressionReference> refs = new ArrayList<LogicalExpressionReference>();
+        for (ILogicalExpression arg : args) {
+            refs.add(new LogicalExpressionReference(arg));
+        }
+        return new ScalarFunctionCallExpression(AlgebricksBuiltinFunctions.getBuiltinFunctionInfo(fid), refs);
+    }
+
+    private static ILogicalExpression var(LogicalVariable v) {
+        return new VariableReferenceExpression(v);
+    }
+
+    private static ILogicalExpression constant(int value) {
+        return new ConstantExpression(new IntegerConstantValue(value));
+    }
+
+    /**
+     * Renders every plan it is given, in the callback as a rendering
+     * requires.
+     */
+    private static class RecordingTraceListener implements IOptimizerTraceListener {
+        private final List<String> titles = new ArrayList<String>();
+        private final List<String> plans = new ArrayList<String>();
+        private final List<IAlgebraicRewriteRule> firedRules = new ArrayList<IAlgebraicRewriteRule>();
+        private final List<String> subtrees = new ArrayList<String>();
+        private OptimizerStatistics statistics;
+
+        @Override
+        public void plan(String title, PlanRendering plan) {
+            titles.add(title);
+            plans.add(render(plan));
+        }
+
+        @Override
+        public void ruleFired(IAlgebraicRewriteRule rule, PlanRendering subtree) {
+            firedRules.add(rule);
+            subtrees.add(render(subtree));
+        }
+
+        @Override
+        public void optimizationDone(OptimizerStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        private static String render(PlanRendering rendering) {
+            try {
+                return rendering.render();
+            } catch (AlgebricksException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.api.compiler.HeuristicCompilerFactoryBuilder;
+import edu.uci.ics.algebricks.api.compiler.ICompiler;
+import edu.uci.ics.algebricks.api.constraints.AlgebricksAbsolutePartitionConstraint;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.base.OperatorAnnotations;
+import edu.uci.ics.algebricks.compiler.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.AggregateFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AggregateOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DataSourceScanOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.EmptyTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.GroupByOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.NestedTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.physical.ExternalGroupByPOperator;
+import edu.uci.ics.algebricks.compiler.algebra.plan.ALogicalPlanImpl;
+import edu.uci.ics.algebricks.compiler.optimizer.base.PhysicalOptimizationConfig;
+import edu.uci.ics.algebricks.tests.util.AlgebricksHyracksIntegrationUtil;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+public class PartialGroupByTest {
+
+    private static final String SEPARATOR = System.getProperty("file.separator");
+    private static final String PATH_ACTUAL = "pgtest";
+
+    private static final SimpleMetadataProvider METADATA = new SimpleMetadataProvider();
+    // 0, 2, ..., 12 on both nodes, so that each key is pre-aggregated on
+    // both sides of the hash exchange
+    private static final SimpleFileDataSource EVENS_TWICE = new SimpleFileDataSource("evensTwice",
+            new FileSplit[] {
+                    new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                            "data/simple/int-part1.tbl"))),
+                    new FileSplit(AlgebricksHyracksIntegrationUtil.NC2_ID, new FileReference(new File(
+                            "data/simple/int-part1.tbl"))) }, 1);
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        File outdir = new File(PATH_ACTUAL);
+        outdir.mkdirs();
+        METADATA.addDataSource(EVENS_TWICE);
+        AlgebricksHyracksIntegrationUtil.init();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        AlgebricksHyracksIntegrationUtil.deinit();
+        File outdir = new File(PATH_ACTUAL);
+        File[] files = outdir.listFiles();
+        if (files == null || files.length == 0) {
+            outdir.delete();
+        }
+    }
+
+    @Test
+    public void partialCountAndSumAreMerged() throws Exception {
+        File outFile = new File(PATH_ACTUAL + SEPARATOR + "partialCountAndSumAreMerged.out");
+        ICompiler compiler = createBuilder(new PhysicalOptimizationConfig()).create().createCompiler(
+                buildCountAndSumPlan(outFile), METADATA, 4);
+        compiler.optimize();
+
+        GroupByOperator globalGby = findGroupBy(compiler.getOptimizedPlan().getRoots().get(0).getOperator(),
+                PhysicalOperatorTag.EXTERNAL_GROUP_BY);
+        Assert.assertNotNull(globalGby);
+        Assert.assertTrue(((ExternalGroupByPOperator) globalGby.getPhysicalOperator()).isMergingPartials());
+        AbstractLogicalOperator exchange = (AbstractLogicalOperator) globalGby.getInputs().get(0).getOperator();
+        Assert.assertEquals(PhysicalOperatorTag.HASH_PARTITION_EXCHANGE, exchange.getPhysicalOperator()
+                .getOperatorTag());
+        GroupByOperator localGby = (GroupByOperator) exchange.getInputs().get(0).getOperator();
+        Assert.assertEquals(PhysicalOperatorTag.PARTIAL_HASH_GROUP_BY, localGby.getPhysicalOperator()
+                .getOperatorTag());
+        // the local aggregate produces the variables read by the merges
+        AggregateOperator globalAgg = (AggregateOperator) globalGby.getNestedPlans().get(0).getRoots().get(0)
+                .getOperator();
+        AggregateOperator localAgg = (AggregateOperator) localGby.getNestedPlans().get(0).getRoots().get(0)
+                .getOperator();
+        List<LogicalVariable> mergedVars = new ArrayList<LogicalVariable>();
+        for (LogicalExpressionReference mergeRef : globalAgg.getMergeExpressions()) {
+            mergeRef.getExpression().getUsedVariables(mergedVars);
+        }
+        Assert.assertEquals(mergedVars, localAgg.getVariables());
+
+        JobSpecification spec = compiler.createJob(null);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+        // each key is counted once per node
+        List<String> expected = new ArrayList<String>();
+        for (int k = 0; k <= 12; k += 2) {
+            expected.add(k + "; 2; " + 2 * k);
+        }
+        List<String> actual = readLines(outFile);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        Assert.assertEquals(expected, actual);
+        outFile.delete();
+    }
+
+    @Test
+    public void partialGroupByCanBeDisabled() throws Exception {
+        PhysicalOptimizationConfig config = new PhysicalOptimizationConfig();
+        config.setPartialGroupByEnabled(false);
+        File outFile = new File(PATH_ACTUAL + SEPARATOR + "partialGroupByCanBeDisabled.out");
+        ICompiler compiler = createBuilder(config).create().createCompiler(buildCountAndSumPlan(outFile), METADATA,
+                4);
+        compiler.optimize();
+
+        ILogicalOperator root = compiler.getOptimizedPlan().getRoots().get(0).getOperator();
+        GroupByOperator globalGby = findGroupBy(root, PhysicalOperatorTag.EXTERNAL_GROUP_BY);
+        Assert.assertNotNull(globalGby);
+        Assert.assertFalse(((ExternalGroupByPOperator) globalGby.getPhysicalOperator()).isMergingPartials());
+        Assert.assertNull(findGroupBy(root, PhysicalOperatorTag.PARTIAL_HASH_GROUP_BY));
+    }
+
+    private static HeuristicCompilerFactoryBuilder createBuilder(PhysicalOptimizationConfig config) {
+        HeuristicCompilerFactoryBuilder builder = SimpleCompiler.createBuilder();
+        builder.setClusterLocations(new AlgebricksAbsolutePartitionConstraint(new String[] {
+                AlgebricksHyracksIntegrationUtil.NC1_ID, AlgebricksHyracksIntegrationUtil.NC2_ID }));
+        builder.setPhysicalOptimizationConfig(config);
+        return builder;
+    }
+
+    /**
+     * write k, c, s <- group by (k := x) { aggregate c, s := count(), sum(x)
+     * <- nts } <- scan evensTwice x
+     */
+    private static ILogicalPlan buildCountAndSumPlan(File outFile) {
+        LogicalVariable x = new LogicalVariable(0);
+        LogicalVariable k = new LogicalVariable(1);
+        LogicalVariable c = new LogicalVariable(2);
+        LogicalVariable s = new LogicalVariable(3);
+
+        List<LogicalVariable> scanVars = new ArrayList<LogicalVariable>();
+        scanVars.add(x);
+        DataSourceScanOperator scan = new DataSourceScanOperator(scanVars, EVENS_TWICE);
+        scan.getInputs().add(new LogicalOperatorReference(new EmptyTupleSourceOperator()));
+
+        GroupByOperator gby = new GroupByOperator();
+        gby.addGbyExpression(k, new VariableReferenceExpression(x));
+        gby.getAnnotations().put(OperatorAnnotations.USE_HASH_GROUP_BY, Boolean.TRUE);
+        List<LogicalVariable> aggVars = new ArrayList<LogicalVariable>();
+        aggVars.add(c);
+        aggVars.add(s);
+        List<LogicalExpressionReference> aggExprs = new ArrayList<LogicalExpressionReference>();
+        aggExprs.add(new LogicalExpressionReference(new AggregateFunctionCallExpression(SimpleFunctions.COUNT_INFO,
+                false, new ArrayList<LogicalExpressionReference>())));
+        List<LogicalExpressionReference> sumArgs = new ArrayList<LogicalExpressionReference>();
+        sumArgs.add(new LogicalExpressionReference(new VariableReferenceExpression(x)));
+        aggExprs.add(new LogicalExpressionReference(new AggregateFunctionCallExpression(SimpleFunctions.SUM_INFO,
+                false, sumArgs)));
+        AggregateOperator agg = new AggregateOperator(aggVars, aggExprs);
+        agg.getInputs().add(new LogicalOperatorReference(new NestedTupleSourceOperator(
+                new LogicalOperatorReference(gby))));
+        gby.getNestedPlans().add(new ALogicalPlanImpl(new LogicalOperatorReference(agg)));
+        gby.getInputs().add(new LogicalOperatorReference(scan));
+
+        List<LogicalExpressionReference> exprs = new ArrayList<LogicalExpressionReference>();
+        exprs.add(new LogicalExpressionReference(new VariableReferenceExpression(k)));
+        exprs.add(new LogicalExpressionReference(new VariableReferenceExpression(c)));
+        exprs.add(new LogicalExpressionReference(new VariableReferenceExpression(s)));
+        WriteOperator write = new WriteOperator(exprs, new SimpleFileDataSink(new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(outFile))));
+        write.getInputs().add(new LogicalOperatorReference(gby));
+        return new ALogicalPlanImpl(new LogicalOperatorReference(write));
+    }
+
+    private static GroupByOperator findGroupBy(ILogicalOperator op, PhysicalOperatorTag tag) {
+        AbstractLogicalOperator aop = (AbstractLogicalOperator) op;
+        if (aop.getOperatorTag() == LogicalOperatorTag.GROUP && aop.getPhysicalOperator() != null
+                && aop.getPhysicalOperator().getOperatorTag() == tag) {
+            return (GroupByOperator) aop;
+        }
+        for (LogicalOperatorReference inp : op.getInputs()) {
+            GroupByOperator gby = findGroupBy(inp.getOperator(), tag);
+            if (gby != null) {
+                return gby;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> readLines(File file) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader result = new BufferedReader(new FileReader(file));
+        String s;
+        while ((s = result.readLine()) != null) {
+            lines.add(s);
+        }
+        result.close();
+        return lines;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.compiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.api.compiler.HeuristicCompilerFactoryBuilder;
+import edu.uci.ics.algebricks.api.compiler.ICompiler;
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalExpression;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalOperator;
+import edu.uci.ics.algebricks.compiler.algebra.base.ILogicalPlan;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalExpressionReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorReference;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.algebricks.compiler.algebra.base.LogicalVariable;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ConstantExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.ScalarFunctionCallExpression;
+import edu.uci.ics.algebricks.compiler.algebra.expressions.VariableReferenceExpression;
+import edu.uci.ics.algebricks.compiler.algebra.functions.AlgebricksBuiltinFunctions;
+import edu.uci.ics.algebricks.compiler.algebra.functions.FunctionIdentifier;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.AssignOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.DataSourceScanOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.EmptyTupleSourceOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.InnerJoinOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.SelectOperator;
+import edu.uci.ics.algebricks.compiler.algebra.operators.logical.WriteOperator;
+import edu.uci.ics.algebricks.compiler.algebra.plan.ALogicalPlanImpl;
+import edu.uci.ics.algebricks.compiler.algebra.prettyprint.LogicalOperatorPrettyPrintVisitor;
+import edu.uci.ics.algebricks.compiler.algebra.prettyprint.PlanPrettyPrinter;
+import edu.uci.ics.algebricks.compiler.optimizer.base.AbstractRuleController;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IAlgebraicRewriteRule;
+import edu.uci.ics.algebricks.compiler.optimizer.base.IOptimizationContext;
+import edu.uci.ics.algebricks.compiler.optimizer.base.ITagFilteredRewriteRule;
+import edu.uci.ics.algebricks.compiler.optimizer.rulecontrollers.SequentialFixpointRuleController;
+import edu.uci.ics.algebricks.compiler.optimizer.rulecontrollers.SequentialOnceRuleController;
+import edu.uci.ics.algebricks.compiler.optimizer.rulecontrollers.WorklistRuleController;
+import edu.uci.ics.algebricks.tests.util.AlgebricksHyracksIntegrationUtil;
+import edu.uci.ics.algebricks.utils.Pair;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+
+public class RuleControllerTest {
+
+    private static final String SEPARATOR = System.getProperty("file.separator");
+
+    @Test
+    public void worklistMatchesSequentialFixpoint() throws Exception {
+        String original = print(buildPlan());
+        String sequential = optimize(buildPlan(), false);
+        String worklist = optimize(buildPlan(), true);
+        Assert.assertFalse(original.equals(sequential));
+        Assert.assertEquals(sequential, worklist);
+    }
+
+    @Test
+    public void tagFilteredRuleOnlySeesMatchedOperators() throws Exception {
+        ILogicalPlan plan = buildPlan();
+        ILogicalOperator select = plan.getRoots().get(0).getOperator().getInputs().get(0).getOperator();
+        Assert.assertEquals(LogicalOperatorTag.SELECT, select.getOperatorTag());
+
+        SelectRecordingRule rule = new SelectRecordingRule();
+        List<IAlgebraicRewriteRule> rules = new ArrayList<IAlgebraicRewriteRule>();
+        rules.add(rule);
+        new SequentialOnceRuleController(true).rewriteWithRuleCollection(plan.getRoots().get(0), rules);
+        Assert.assertEquals(1, rule.pre.size());
+        Assert.assertSame(select, rule.pre.get(0));
+        Assert.assertEquals(rule.pre, rule.post);
+
+        rule = new SelectRecordingRule();
+        rules.clear();
+        rules.add(rule);
+        new WorklistRuleController().rewriteWithRuleCollection(plan.getRoots().get(0), rules);
+        Assert.assertEquals(1, rule.pre.size());
+        Assert.assertSame(select, rule.pre.get(0));
+        Assert.assertEquals(rule.pre, rule.post);
+    }
+
+    /**
+     * @return the printed plan after the logical rewrites of
+     *         {@link SimpleCompiler}, where every fixpoint controller does a
+     *         full DFS or is replaced by a worklist controller.
+     */
+    private static String optimize(ILogicalPlan plan, boolean worklist) throws AlgebricksException {
+        List<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>> logicalRewrites = SimpleCompiler
+                .buildLogicalRewrites();
+        for (Pair<AbstractRuleController, List<IAlgebraicRewriteRule>> p : logicalRewrites) {
+            if (p.first instanceof SequentialFixpointRuleController) {
+                p.first = worklist ? new WorklistRuleController() : new SequentialFixpointRuleController(true);
+            }
+        }
+        HeuristicCompilerFactoryBuilder builder = SimpleCompiler.createBuilder();
+        builder.setLogicalRewrites(logicalRewrites);
+        builder.setPhysicalRewrites(new LinkedList<Pair<AbstractRuleController, List<IAlgebraicRewriteRule>>>());
+        ICompiler compiler = builder.create().createCompiler(plan, new SimpleMetadataProvider(), 3);
+        compiler.optimize();
+        return print(compiler.getOptimizedPlan());
+    }
+
+    private static String print(ILogicalPlan plan) throws AlgebricksException {
+        StringBuilder sb = new StringBuilder();
+        PlanPrettyPrinter.printPlan(plan, sb, new LogicalOperatorPrettyPrintVisitor(), 0);
+        return sb.toString();
+    }
+
+    /**
+     * write z <- select (and(eq(z, y), gt(x, 3))) <- assign z := x + 1 <-
+     * join (true) (scan evens x, scan odds y)
+     */
+    private static ILogicalPlan buildPlan() {
+        LogicalVariable x = new LogicalVariable(0);
+        LogicalVariable y = new LogicalVariable(1);
+        LogicalVariable z = new LogicalVariable(2);
+        InnerJoinOperator join = new InnerJoinOperator(new LogicalExpressionReference(ConstantExpression.TRUE),
+                new LogicalOperatorReference(scan("evens", "int-part1.tbl", x)), new LogicalOperatorReference(
+                        scan("odds", "int-part2.tbl", y)));
+        AssignOperator assign = new AssignOperator(z, new LogicalExpressionReference(call(
+                AlgebricksBuiltinFunctions.NUMERIC_ADD, var(x), constant(1))));
+        assign.getInputs().add(new LogicalOperatorReference(join));
+        SelectOperator select = new SelectOperator(new LogicalExpressionReference(call(AlgebricksBuiltinFunctions.AND,
+                call(AlgebricksBuiltinFunctions.EQ, var(z), var(y)), call(AlgebricksBuiltinFunctions.GT, var(x),
+                        constant(3)))));
+        select.getInputs().add(new LogicalOperatorReference(assign));
+        List<LogicalExpressionReference> exprs = new ArrayList<LogicalExpressionReference>();
+        exprs.add(new LogicalExpressionReference(var(z)));
+        WriteOperator write = new WriteOperator(exprs, new SimpleFileDataSink(new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File("rctest" + SEPARATOR
+                        + "out.txt")))));
+        write.getInputs().add(new LogicalOperatorReference(select));
+        return new ALogicalPlanImpl(new LogicalOperatorReference(write));
+    }
+
+    private static ILogicalOperator scan(String id, String file, LogicalVariable v) {
+        SimpleFileDataSource source = new SimpleFileDataSource(id, new FileSplit[] { new FileSplit(
+                AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File("data" + SEPARATOR + "simple"
+                        + SEPARATOR + file))) }, 1);
+        List<LogicalVariable> vars = new ArrayList<LogicalVariable>();
+        vars.add(v);
+        DataSourceScanOperator scan = new DataSourceScanOperator(vars, source);
+        scan.getInputs().add(new LogicalOperatorReference(new EmptyTupleSourceOperator()));
+        return scan;
+    }
+
+    private static ILogicalExpression call(FunctionIdentifier fid, ILogicalExpression... args) {
+        List<LogicalExpressionReference> refs = new ArrayList<LogicalExpressionReference>();
+        for (ILogicalExpression arg : args) {
+            refs.add(new LogicalExpressionReference(arg));
+        }
+        return new ScalarFunctionCallExpression(AlgebricksBuiltinFunctions.getBuiltinFunctionInfo(fid), refs);
+    }
+
+    private static ILogicalExpression var(LogicalVariable v) {
+        return new VariableReferenceExpression(v);
+    }
+
+    private static ILogicalExpression constant(int value) {
+        return new ConstantExpression(new IntegerConstantValue(value));
+    }
+
+    /**
+     * Records the operators it is given and never rewrites them.
+     */
+    private static class SelectRecordingRule implements ITagFilteredRewriteRule {
+
+        private static final Set<LogicalOperatorTag> TAGS = EnumSet.of(LogicalOperatorTag.SELECT);
+        private final List<ILogicalOperator> pre = new ArrayList<ILogicalOperator>();
+        private final List<ILogicalOperator> post = new ArrayList<ILogicalOperator>();
+
+        @Override
+        public Set<LogicalOperatorTag> getMatchedOperatorTags() {
+            return TAGS;
+        }
+
+        @Override
+        public boolean rewritePre(LogicalOperatorReference opRef, IOptimizationContext context)
+                throws AlgebricksException {
+            pre.add(opRef.getOperator());
+            return false;
+        }
+
+        @Override
+        public boolean rewritePost(LogicalOperatorReference opRef, IOptimizationContext context)
+                throws AlgebricksException {
+            post.add(opRef.getOperator());
+            return false;
+        }
+    }
+}
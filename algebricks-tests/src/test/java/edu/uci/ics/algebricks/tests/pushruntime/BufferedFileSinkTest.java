@@ -0,0 +1,204 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.pushruntime;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.api.data.IBytePrinter;
+import edu.uci.ics.algebricks.api.data.IBytePrinterFactory;
+import edu.uci.ics.algebricks.api.exceptions.AlgebricksException;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntime;
+import edu.uci.ics.algebricks.runtime.hyracks.context.RuntimeContext;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.BufferedFileSinkRuntimeFactory;
+import edu.uci.ics.algebricks.utils.PrintBuffer;
+import edu.uci.ics.algebricks.utils.WriteValueTools;
+import edu.uci.ics.hyracks.api.context.IHyracksStageletContext;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+
+public class BufferedFileSinkTest {
+
+    private static final int FRAME_SIZE = 256;
+
+    private static final RecordDescriptor INT_DESC = new RecordDescriptor(
+            new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+    @Test
+    public void failedSinkCanBeReopened() throws Exception {
+        failThenReopen(false);
+    }
+
+    @Test
+    public void failedDoubleBufferedSinkCanBeReopened() throws Exception {
+        failThenReopen(true);
+    }
+
+    @Test
+    public void writeErrorReachesTheCaller() throws Exception {
+        writeToFullDevice(false);
+    }
+
+    @Test
+    public void backgroundWriteErrorReachesTheCaller() throws Exception {
+        writeToFullDevice(true);
+    }
+
+    private static void failThenReopen(boolean doubleBuffered) throws Exception {
+        File outFile = File.createTempFile("bufferedsink", ".out");
+        try {
+            IPushRuntime sink = createSink(outFile, doubleBuffered);
+            sink.open();
+            sink.nextFrame(createFrame(1));
+            sink.close();
+
+            // the printer fails on negative values, the buffered output of
+            // the failed open is dropped
+            sink.open();
+            sink.nextFrame(createFrame(2, 3));
+            try {
+                sink.nextFrame(createFrame(-1));
+                Assert.fail("The printer error did not reach the caller.");
+            } catch (HyracksDataException e) {
+                // expected
+            }
+            try {
+                sink.nextFrame(createFrame(4));
+                Assert.fail("A failed sink accepted a frame.");
+            } catch (HyracksDataException e) {
+                // expected
+            }
+            sink.close();
+
+            sink.open();
+            sink.nextFrame(createFrame(5));
+            sink.close();
+            Assert.assertEquals("1\n5\n", readFile(outFile));
+        } finally {
+            outFile.delete();
+        }
+    }
+
+    private static void writeToFullDevice(boolean doubleBuffered) throws Exception {
+        File full = new File("/dev/full");
+        if (!full.exists()) {
+            // don't know how to test
+            return;
+        }
+        IPushRuntime sink = createSink(full, doubleBuffered);
+        sink.open();
+        sink.nextFrame(createFrame(1, 2, 3));
+        try {
+            sink.close();
+            Assert.fail("The write error did not reach the caller.");
+        } catch (HyracksDataException e) {
+            // expected
+        }
+        // the file is already closed
+        sink.close();
+    }
+
+    private static IPushRuntime createSink(File outFile, boolean doubleBuffered) throws Exception {
+        BufferedFileSinkRuntimeFactory factory = new BufferedFileSinkRuntimeFactory(new int[] { 0 },
+                new IBytePrinterFactory[] { new NonNegativeIntegerPrinterFactory() }, outFile, 64, doubleBuffered);
+        IPushRuntime sink = factory.createPushRuntime(createContext());
+        sink.setInputRecordDescriptor(0, INT_DESC);
+        return sink;
+    }
+
+    /**
+     * A context that knows the frame size only, which is all the sink asks
+     * for.
+     */
+    private static RuntimeContext createContext() {
+        IHyracksStageletContext ctx = (IHyracksStageletContext) Proxy.newProxyInstance(
+                BufferedFileSinkTest.class.getClassLoader(), new Class<?>[] { IHyracksStageletContext.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getFrameSize")) {
+                            return FRAME_SIZE;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        RuntimeContext rc = new RuntimeContext();
+        rc.setHyracksContext(ctx);
+        return rc;
+    }
+
+    private static ByteBuffer createFrame(int... values) throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(1);
+        for (int v : values) {
+            tb.reset();
+            tb.getDataOutput().writeInt(v);
+            tb.addFieldEndOffset();
+            Assert.assertTrue(appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+        }
+        return frame;
+    }
+
+    private static String readFile(File file) throws Exception {
+        StringBuilder buf = new StringBuilder();
+        Reader reader = new FileReader(file);
+        try {
+            char[] chars = new char[256];
+            int n;
+            while ((n = reader.read(chars)) > 0) {
+                buf.append(chars, 0, n);
+            }
+        } finally {
+            reader.close();
+        }
+        return buf.toString();
+    }
+
+    private static class NonNegativeIntegerPrinterFactory implements IBytePrinterFactory {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public IBytePrinter createBytePrinter() {
+            return new IBytePrinter() {
+                @Override
+                public void init() throws AlgebricksException {
+                }
+
+                @Override
+                public void print(byte[] b, int s, int l, PrintBuffer buf) throws AlgebricksException {
+                    int v = IntegerSerializerDeserializer.getInt(b, s);
+                    if (v < 0) {
+                        throw new AlgebricksException("Cannot print " + v + ".");
+                    }
+                    WriteValueTools.writeInt(v, buf);
+                }
+            };
+        }
+    }
+}
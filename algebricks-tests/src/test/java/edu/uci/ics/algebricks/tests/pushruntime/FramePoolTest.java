@@ -0,0 +1,107 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.pushruntime;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.runtime.hyracks.context.FramePool;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+public class FramePoolTest {
+
+    private static final int FRAME_SIZE = 256;
+
+    @Test
+    public void releasedFramesAreReused() throws Exception {
+        FramePool pool = new FramePool(FRAME_SIZE, 2);
+        ByteBuffer f1 = pool.allocate();
+        ByteBuffer f2 = pool.allocate();
+        Assert.assertEquals(FRAME_SIZE, f1.capacity());
+        Assert.assertNotSame(f1, f2);
+        Assert.assertEquals(2, pool.getFramesInUse());
+
+        f1.position(10);
+        f1.limit(20);
+        pool.release(f1);
+        Assert.assertEquals(1, pool.getFramesInUse());
+        // the released frame comes back cleared, no new frame is allocated
+        ByteBuffer f3 = pool.allocate();
+        Assert.assertSame(f1, f3);
+        Assert.assertEquals(0, f3.position());
+        Assert.assertEquals(FRAME_SIZE, f3.limit());
+        Assert.assertEquals(2, pool.getAllocatedFrames());
+        Assert.assertEquals(2, pool.getFramesInUse());
+    }
+
+    @Test
+    public void budgetCannotBeExceeded() throws Exception {
+        FramePool pool = new FramePool(FRAME_SIZE, 2);
+        pool.allocate();
+        ByteBuffer f2 = pool.allocate();
+        try {
+            pool.allocate();
+            Assert.fail("A third frame was allocated with a budget of 2.");
+        } catch (HyracksDataException e) {
+            // expected
+        }
+        Assert.assertEquals(2, pool.getAllocatedFrames());
+        // a frame given back can be borrowed again
+        pool.release(f2);
+        Assert.assertSame(f2, pool.allocate());
+    }
+
+    @Test
+    public void reservedFramesCountAgainstTheBudget() throws Exception {
+        FramePool pool = new FramePool(FRAME_SIZE, 3);
+        ByteBuffer f1 = pool.allocate();
+        pool.allocate();
+        pool.release(f1);
+        // the recycled frame is dropped to make room for the reservation
+        pool.reserve(2);
+        Assert.assertEquals(2, pool.getReservedFrames());
+        Assert.assertEquals(1, pool.getAllocatedFrames());
+        try {
+            pool.allocate();
+            Assert.fail("A frame was allocated while the rest of the budget was reserved.");
+        } catch (HyracksDataException e) {
+            // expected
+        }
+        pool.unreserve(2);
+        pool.allocate();
+        Assert.assertEquals(2, pool.getFramesInUse());
+    }
+
+    @Test
+    public void reservationCannotExceedTheBudget() throws Exception {
+        FramePool pool = new FramePool(FRAME_SIZE, 4);
+        pool.allocate();
+        try {
+            pool.reserve(4);
+            Assert.fail("4 frames were reserved while 1 of 4 was in use.");
+        } catch (HyracksDataException e) {
+            // expected
+        }
+        Assert.assertEquals(0, pool.getReservedFrames());
+        pool.reserve(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyBudgetIsRejected() {
+        new FramePool(FRAME_SIZE, 0);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2009-2010 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.algebricks.tests.pushruntime;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveComparisonEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveComparisonEvalFactory.ComparisonKind;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveConstantEvalFactory;
+
+public class PrimitiveComparisonTest {
+
+    @Test
+    public void nanComparesFalse() throws Exception {
+        PrimitiveConstantEvalFactory nan = new PrimitiveConstantEvalFactory(Double.NaN);
+        Assert.assertFalse(compare(ComparisonKind.EQ, nan, nan));
+        Assert.assertTrue(compare(ComparisonKind.NEQ, nan, nan));
+        Assert.assertFalse(compare(ComparisonKind.LE, nan, nan));
+        Assert.assertFalse(compare(ComparisonKind.GE, nan, nan));
+        PrimitiveConstantEvalFactory one = new PrimitiveConstantEvalFactory(1);
+        Assert.assertFalse(compare(ComparisonKind.LT, one, nan));
+        Assert.assertFalse(compare(ComparisonKind.GT, one, nan));
+        Assert.assertFalse(compare(ComparisonKind.LT, nan, one));
+        Assert.assertFalse(compare(ComparisonKind.GT, nan, one));
+    }
+
+    @Test
+    public void zerosAreEqual() throws Exception {
+        PrimitiveConstantEvalFactory negativeZero = new PrimitiveConstantEvalFactory(-0.0);
+        PrimitiveConstantEvalFactory zero = new PrimitiveConstantEvalFactory(0.0f);
+        Assert.assertTrue(compare(ComparisonKind.EQ, negativeZero, zero));
+        Assert.assertFalse(compare(ComparisonKind.LT, negativeZero, zero));
+        Assert.assertTrue(compare(ComparisonKind.GE, negativeZero, zero));
+    }
+
+    @Test
+    public void integralAndFloatingPoint() throws Exception {
+        PrimitiveConstantEvalFactory big = new PrimitiveConstantEvalFactory(Long.MAX_VALUE);
+        PrimitiveConstantEvalFactory bigMinusOne = new PrimitiveConstantEvalFactory(Long.MAX_VALUE - 1);
+        Assert.assertTrue(compare(ComparisonKind.GT, big, bigMinusOne));
+        Assert.assertTrue(compare(ComparisonKind.NEQ, big, bigMinusOne));
+        PrimitiveConstantEvalFactory three = new PrimitiveConstantEvalFactory(3);
+        PrimitiveConstantEvalFactory threeAndAHalf = new PrimitiveConstantEvalFactory(3.5);
+        Assert.assertTrue(compare(ComparisonKind.LT, three, threeAndAHalf));
+        Assert.assertTrue(compare(ComparisonKind.LE, three, three));
+        Assert.assertFalse(compare(ComparisonKind.EQ, three, threeAndAHalf));
+    }
+
+    private static boolean compare(ComparisonKind kind, IPrimitiveEvaluatorFactory left,
+            IPrimitiveEvaluatorFactory right) throws Exception {
+        return new PrimitiveComparisonEvalFactory(kind, left, right).createPrimitiveEvaluator().evaluateBoolean(null);
+    }
+}
@@ -4,22 +4,38 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import edu.uci.ics.algebricks.api.data.IBytePrinterFactory;
 import edu.uci.ics.algebricks.api.data.IPrinterFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.aggregators.SerializableTupleCountAggregateFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.aggregators.TupleCountAggregateFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.aggregators.TupleCountRunningAggregateFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.AlgebricksPipeline;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IAggregateFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IEvaluatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.IPrimitiveEvaluatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IPushRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IRunningAggregateFunctionFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.base.ISerializableAggregateFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.base.IUnnestingFunctionFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.evaluators.ColumnAccessEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveArithmeticEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveArithmeticEvalFactory.ArithmeticKind;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveBooleanEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveBooleanEvalFactory.BooleanKind;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveColumnAccessEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveComparisonEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveComparisonEvalFactory.ComparisonKind;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveConstantEvalFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.evaluators.PrimitiveType;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.data.BinaryBooleanInspectorImpl;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.data.BinaryIntegerInspectorImpl;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.data.IntegerPrinterFactory;
@@ -27,22 +43,33 @@ import edu.uci.ics.algebricks.runtime.hyracks.jobgen.data.NoopNullWriterFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.jobgen.data.UTF8StringPrinterFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.aggreg.AggregateRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.aggreg.NestedPlansAccumulatingAggregatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.aggreg.SerializableAccumulatingAggregatorFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.aggreg.SimpleAlgebricksAccumulatingAggregatorFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.group.HashDistinctRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.group.MicroHashGroupByRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.group.MicroPreClusteredGroupRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.meta.AlgebricksMetaOperatorDescriptor;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.meta.CounterMicroOperatorStatsSink;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.meta.SubplanRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.sort.ExternalSortRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.sort.InMemorySortRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.sort.TopKSortRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.AssignRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.BufferedFileSinkRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.EmptyTupleSourceRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.FrameStreamingRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.NestedTupleSourceRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.PrinterRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.RunningAggregateRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.ScriptProcessPool;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.SinkWriterRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.StreamDieRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.StreamLimitRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.StreamProjectRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.StreamSelectRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.StringStreamingRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.operators.std.UnnestRuntimeFactory;
+import edu.uci.ics.algebricks.runtime.hyracks.operators.std.WindowAggregateRuntimeFactory;
 import edu.uci.ics.algebricks.runtime.hyracks.writers.PrinterBasedWriterFactory;
 import edu.uci.ics.algebricks.tests.util.AlgebricksHyracksIntegrationUtil;
 import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
@@ -55,6 +82,7 @@ import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputerFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.io.FileReference;
 import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounterContext;
 import edu.uci.ics.hyracks.dataflow.common.data.comparators.IntegerBinaryComparatorFactory;
 import edu.uci.ics.hyracks.dataflow.common.data.comparators.UTF8StringBinaryComparatorFactory;
 import edu.uci.ics.hyracks.dataflow.common.data.hash.IntegerBinaryHashFunctionFactory;
@@ -160,6 +188,42 @@ public class PushRuntimeTest {
         outFile.delete();
     }
 
+    @Test
+    public void etsAssignMemoWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+        IntegerConstantEvalFactory const1 = new IntegerConstantEvalFactory(400);
+        IntegerConstantEvalFactory const2 = new IntegerConstantEvalFactory(3);
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        // the shared 400 + 3 is computed once, into the memo slot that follows the (empty) input
+        IEvaluatorFactory[] memo = new IEvaluatorFactory[] { new IntegerAddEvalFactory(const1, const2) };
+        AssignRuntimeFactory assign = new AssignRuntimeFactory(new int[] { 0, 1 }, new IEvaluatorFactory[] {
+                new ColumnAccessEvalFactory(0),
+                new IntegerAddEvalFactory(new ColumnAccessEvalFactory(0), new IntegerConstantEvalFactory(1)) },
+                memo, new int[] { 0, 1 });
+        RecordDescriptor assignDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsAssignMemoWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0, 1 }, new IPrinterFactory[] {
+                IntegerPrinterFactory.INSTANCE, IntegerPrinterFactory.INSTANCE }, outFile,
+                PrinterBasedWriterFactory.INSTANCE, assignDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, assign, writer },
+                new RecordDescriptor[] { etsDesc, assignDesc, null });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp, DEFAULT_NODES);
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("403; 404", buf.toString());
+        outFile.delete();
+    }
+
     @Test
     public void scanSelectWrite() throws Exception {
         JobSpecification spec = new JobSpecification();
@@ -205,6 +269,339 @@ public class PushRuntimeTest {
         outFile.delete();
     }
 
+    @Test
+    public void scanSelectStatsWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] intFileSplits = new FileSplit[1];
+        intFileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/simple/int-part1.tbl")));
+        IFileSplitProvider intSplitProvider = new ConstantFileSplitProvider(intFileSplits);
+        RecordDescriptor intScannerDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE };
+        FileScanOperatorDescriptor intScanner = new FileScanOperatorDescriptor(spec, intSplitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), intScannerDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, intScanner, DEFAULT_NODES);
+
+        // the algebricks op.
+        IEvaluatorFactory cond = new IntegerGreaterThanEvalFactory(new IntegerConstantEvalFactory(2),
+                new ColumnAccessEvalFactory(0));
+        StreamSelectRuntimeFactory select = new StreamSelectRuntimeFactory(cond, new int[] { 0 },
+                BinaryBooleanInspectorImpl.INSTANCE);
+        RecordDescriptor selectDesc = intScannerDesc;
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "scanSelectStatsWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                selectDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { select, writer }, new RecordDescriptor[] { selectDesc, null });
+        algebricksOp.setStatsSink(new RecordingStatsSink());
+        RecordingStatsSink.COUNTERS.clear();
+
+        PartitionConstraintHelper.addPartitionCountConstraint(spec, algebricksOp, 1);
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), intScanner, 0, algebricksOp, 0);
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("0", buf.toString());
+        outFile.delete();
+
+        String opName = algebricksOp.getOperatorId().toString();
+        Assert.assertEquals(Long.valueOf(1), RecordingStatsSink.get(opName, 0, "opens"));
+        Assert.assertEquals(Long.valueOf(1), RecordingStatsSink.get(opName, 0, "closes"));
+        Assert.assertEquals(Long.valueOf(7), RecordingStatsSink.get(opName, 0, "tuples-in"));
+        Assert.assertEquals(Long.valueOf(1), RecordingStatsSink.get(opName, 0, "tuples-out"));
+        Assert.assertEquals(Long.valueOf(1), RecordingStatsSink.get(opName, 1, "tuples-in"));
+        Assert.assertEquals(Long.valueOf(0), RecordingStatsSink.get(opName, 1, "tuples-out"));
+        Assert.assertNull(RecordingStatsSink.get(opName, 2, "opens"));
+        RecordingStatsSink.COUNTERS.clear();
+    }
+
+    /**
+     * Reports to the stagelet counters and also records the values, which
+     * the test can read since the cluster runs in its JVM.
+     */
+    private static class RecordingStatsSink extends CounterMicroOperatorStatsSink {
+        private static final long serialVersionUID = 1L;
+
+        static final Map<String, Long> COUNTERS = Collections.synchronizedMap(new HashMap<String, Long>());
+
+        static Long get(String operatorName, int index, String counter) {
+            return COUNTERS.get(getCounterName(operatorName, index, counter));
+        }
+
+        @Override
+        protected void update(ICounterContext counters, String name, long value) {
+            super.update(counters, name, value);
+            COUNTERS.put(name, value);
+        }
+    }
+
+    @Test
+    public void scanSelectNoProjectWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] intFileSplits = new FileSplit[1];
+        intFileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/simple/int-part1.tbl")));
+        IFileSplitProvider intSplitProvider = new ConstantFileSplitProvider(intFileSplits);
+        RecordDescriptor intScannerDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE };
+        FileScanOperatorDescriptor intScanner = new FileScanOperatorDescriptor(spec, intSplitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), intScannerDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, intScanner, DEFAULT_NODES);
+
+        // the algebricks op. (survivors form a single run of tuples)
+        IEvaluatorFactory cond = new IntegerGreaterThanEvalFactory(new ColumnAccessEvalFactory(0),
+                new IntegerConstantEvalFactory(2));
+        StreamSelectRuntimeFactory select = new StreamSelectRuntimeFactory(cond, null,
+                BinaryBooleanInspectorImpl.INSTANCE);
+        RecordDescriptor selectDesc = intScannerDesc;
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "scanSelectNoProjectWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                selectDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { select, writer }, new RecordDescriptor[] { selectDesc, null });
+
+        PartitionConstraintHelper.addPartitionCountConstraint(spec, algebricksOp, 1);
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), intScanner, 0, algebricksOp, 0);
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("4681012", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void scanPrimitiveSelectWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] intFileSplits = new FileSplit[1];
+        intFileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/simple/int-part1.tbl")));
+        IFileSplitProvider intSplitProvider = new ConstantFileSplitProvider(intFileSplits);
+        RecordDescriptor intScannerDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE };
+        FileScanOperatorDescriptor intScanner = new FileScanOperatorDescriptor(spec, intSplitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), intScannerDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, intScanner, DEFAULT_NODES);
+
+        // the algebricks op. ($0 > 2 and $0 * 3 % 4 != 0)
+        PrimitiveColumnAccessEvalFactory col0 = new PrimitiveColumnAccessEvalFactory(0, PrimitiveType.INT);
+        IPrimitiveEvaluatorFactory gt = new PrimitiveComparisonEvalFactory(ComparisonKind.GT, col0,
+                new PrimitiveConstantEvalFactory(2));
+        IPrimitiveEvaluatorFactory mod = new PrimitiveArithmeticEvalFactory(ArithmeticKind.MOD,
+                new PrimitiveArithmeticEvalFactory(ArithmeticKind.MUL, col0, new PrimitiveConstantEvalFactory(3)),
+                new PrimitiveConstantEvalFactory(4));
+        IPrimitiveEvaluatorFactory neq = new PrimitiveComparisonEvalFactory(ComparisonKind.NEQ, mod,
+                new PrimitiveConstantEvalFactory(0));
+        IEvaluatorFactory cond = new PrimitiveBooleanEvalFactory(BooleanKind.AND, gt, neq);
+        StreamSelectRuntimeFactory select = new StreamSelectRuntimeFactory(cond, null,
+                BinaryBooleanInspectorImpl.INSTANCE);
+        RecordDescriptor selectDesc = intScannerDesc;
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "scanPrimitiveSelectWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                selectDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { select, writer }, new RecordDescriptor[] { selectDesc, null });
+
+        PartitionConstraintHelper.addPartitionCountConstraint(spec, algebricksOp, 1);
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), intScanner, 0, algebricksOp, 0);
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("610", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsUnnestBatchSelectWrite() throws Exception {
+        runBatchSelect("etsUnnestBatchSelectWrite", false);
+    }
+
+    @Test
+    public void etsUnnestFusedBatchSelectWrite() throws Exception {
+        runBatchSelect("etsUnnestFusedBatchSelectWrite", true);
+    }
+
+    /**
+     * Selects 3 < $0 < 8 with a column access that cannot be evaluated one
+     * tuple at a time. When fused, the select is followed by a project that
+     * the pipeline assembler fuses with it.
+     */
+    private void runBatchSelect(String name, boolean fused) throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        UnnestRuntimeFactory unnest = new UnnestRuntimeFactory(0, new IntRangeBulkUnnester(10), new int[] { 0 });
+        RecordDescriptor unnestDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        PrimitiveColumnAccessEvalFactory col0 = new BatchOnlyColumnAccessEvalFactory(0, PrimitiveType.INT);
+        IEvaluatorFactory cond = new PrimitiveBooleanEvalFactory(BooleanKind.AND, new PrimitiveComparisonEvalFactory(
+                ComparisonKind.GT, col0, new PrimitiveConstantEvalFactory(3)), new PrimitiveComparisonEvalFactory(
+                ComparisonKind.LT, col0, new PrimitiveConstantEvalFactory(8)));
+        StreamSelectRuntimeFactory select = new StreamSelectRuntimeFactory(cond, null,
+                BinaryBooleanInspectorImpl.INSTANCE);
+
+        String filePath = PATH_ACTUAL + SEPARATOR + name + ".out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                unnestDesc);
+
+        IPushRuntimeFactory[] factories;
+        RecordDescriptor[] recDescs;
+        if (fused) {
+            StreamProjectRuntimeFactory project = new StreamProjectRuntimeFactory(new int[] { 0 });
+            factories = new IPushRuntimeFactory[] { ets, unnest, select, project, writer };
+            recDescs = new RecordDescriptor[] { etsDesc, unnestDesc, unnestDesc, unnestDesc, null };
+        } else {
+            factories = new IPushRuntimeFactory[] { ets, unnest, select, writer };
+            recDescs = new RecordDescriptor[] { etsDesc, unnestDesc, unnestDesc, null };
+        }
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0, factories,
+                recDescs);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp, DEFAULT_NODES);
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("4567", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void scanAssignWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] intFileSplits = new FileSplit[1];
+        intFileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/simple/int-part1.tbl")));
+        IFileSplitProvider intSplitProvider = new ConstantFileSplitProvider(intFileSplits);
+        RecordDescriptor intScannerDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE };
+        FileScanOperatorDescriptor intScanner = new FileScanOperatorDescriptor(spec, intSplitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), intScannerDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, intScanner, DEFAULT_NODES);
+
+        // the algebricks op. (column access is evaluated a frame at a time)
+        AssignRuntimeFactory assign = new AssignRuntimeFactory(new int[] { 1 },
+                new IEvaluatorFactory[] { new ColumnAccessEvalFactory(0) }, new int[] { 1 });
+        RecordDescriptor assignDesc = intScannerDesc;
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "scanAssignWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                assignDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { assign, writer }, new RecordDescriptor[] { assignDesc, null });
+
+        PartitionConstraintHelper.addPartitionCountConstraint(spec, algebricksOp, 1);
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), intScanner, 0, algebricksOp, 0);
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("024681012", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void scanWideAssignWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] fileSplits = new FileSplit[1];
+        fileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/tpch0.001/orders.tbl")));
+        IFileSplitProvider splitProvider = new ConstantFileSplitProvider(fileSplits);
+        RecordDescriptor scannerDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, FloatSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE,
+                IntegerParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, FloatParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                IntegerParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, splitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), scannerDesc);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        // the algebricks op.: the computed column is spliced between blocks of input columns
+        AssignRuntimeFactory assign = new AssignRuntimeFactory(new int[] { 9 },
+                new IEvaluatorFactory[] { new IntegerAddEvalFactory(new ColumnAccessEvalFactory(0),
+                        new ColumnAccessEvalFactory(1)) }, new int[] { 0, 1, 9, 2, 7 });
+        RecordDescriptor assignDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE });
+
+        String fileName = "scanWideAssignWrite.out";
+        String filePath = PATH_ACTUAL + SEPARATOR + fileName;
+        String resultFilePath = PATH_EXPECTED + SEPARATOR + fileName;
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0, 1, 2, 3, 4 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE, IntegerPrinterFactory.INSTANCE,
+                        IntegerPrinterFactory.INSTANCE, UTF8StringPrinterFactory.INSTANCE,
+                        IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE, assignDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { assign, writer }, new RecordDescriptor[] { assignDesc, null });
+
+        PartitionConstraintHelper.addPartitionCountConstraint(spec, algebricksOp, 1);
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), scanner, 0, algebricksOp, 0);
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        compareFiles(filePath, resultFilePath);
+        outFile.delete();
+    }
+
     @Test
     public void etsAssignProjectWrite() throws Exception {
 
@@ -325,7 +722,182 @@ public class PushRuntimeTest {
     }
 
     @Test
-    public void scanAggregateWrite() throws Exception {
+    public void etsAssignBulkUnnestWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        AssignRuntimeFactory assign = new AssignRuntimeFactory(new int[] { 0 },
+                new IEvaluatorFactory[] { new IntegerConstantEvalFactory(7) }, new int[] { 0 });
+        RecordDescriptor assignDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        // enough values for several bulk steps and several output frames
+        int n = 2000;
+        UnnestRuntimeFactory unnest = new UnnestRuntimeFactory(1, new IntRangeBulkUnnester(n), new int[] { 1, 0 });
+        RecordDescriptor unnestDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsAssignBulkUnnestWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0, 1 }, new IPrinterFactory[] {
+                IntegerPrinterFactory.INSTANCE, IntegerPrinterFactory.INSTANCE }, outFile,
+                PrinterBasedWriterFactory.INSTANCE, unnestDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, assign, unnest, writer }, new RecordDescriptor[] { etsDesc,
+                        assignDesc, unnestDesc, null });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            expected.append(i).append("; 7");
+        }
+        Assert.assertEquals(expected.toString(), buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsUnnestLimitWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        // would take minutes to unnest completely; the limit stops it early
+        UnnestRuntimeFactory unnest = new UnnestRuntimeFactory(0, new IntRangeBulkUnnester(Integer.MAX_VALUE),
+                new int[] { 0 });
+        RecordDescriptor unnestDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        StreamLimitRuntimeFactory limit = new StreamLimitRuntimeFactory(new IntegerConstantEvalFactory(10), null,
+                new int[] { 0 }, BinaryIntegerInspectorImpl.INSTANCE);
+        RecordDescriptor limitDesc = unnestDesc;
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsUnnestLimitWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                limitDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, unnest, limit, writer }, new RecordDescriptor[] { etsDesc,
+                        unnestDesc, limitDesc, null });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("0123456789", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsUnnestHashDistinctSortWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        // every value twice, and more distinct keys than one frame can hold
+        int n = 8000;
+        int[] values = new int[2 * n];
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+            values[2 * n - 1 - i] = i;
+            expected.append(i);
+        }
+        UnnestRuntimeFactory unnest = new UnnestRuntimeFactory(0, new IntArrayUnnester(values), new int[] { 0 });
+        RecordDescriptor unnestDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        // with a single frame for the keys, most of them are spilled
+        HashDistinctRuntimeFactory distinct = new HashDistinctRuntimeFactory(new int[] { 0 },
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE },
+                new IBinaryHashFunctionFactory[] { IntegerBinaryHashFunctionFactory.INSTANCE },
+                HashDistinctRuntimeFactory.MIN_FRAMES, null);
+        RecordDescriptor distinctDesc = unnestDesc;
+
+        InMemorySortRuntimeFactory sort = new InMemorySortRuntimeFactory(new int[] { 0 }, null,
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE }, null);
+        RecordDescriptor sortDesc = distinctDesc;
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsUnnestHashDistinctSortWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                sortDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, unnest, distinct, sort, writer }, new RecordDescriptor[] { etsDesc,
+                        unnestDesc, distinctDesc, sortDesc, null });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals(expected.toString(), buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsUnnestCollidingHashDistinctSortWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        int n = 8000;
+        int[] values = new int[2 * n];
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+            values[2 * n - 1 - i] = i;
+            expected.append(i);
+        }
+        UnnestRuntimeFactory unnest = new UnnestRuntimeFactory(0, new IntArrayUnnester(values), new int[] { 0 });
+        RecordDescriptor unnestDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        // all the keys have the same hash value, so the spilled tuples are
+        // never split into several partitions
+        HashDistinctRuntimeFactory distinct = new HashDistinctRuntimeFactory(new int[] { 0 },
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE },
+                new IBinaryHashFunctionFactory[] { ConstantBinaryHashFunctionFactory.INSTANCE },
+                HashDistinctRuntimeFactory.MIN_FRAMES, null);
+        RecordDescriptor distinctDesc = unnestDesc;
+
+        InMemorySortRuntimeFactory sort = new InMemorySortRuntimeFactory(new int[] { 0 }, null,
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE }, null);
+        RecordDescriptor sortDesc = distinctDesc;
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsUnnestCollidingHashDistinctSortWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                sortDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, unnest, distinct, sort, writer }, new RecordDescriptor[] { etsDesc,
+                        unnestDesc, distinctDesc, sortDesc, null });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals(expected.toString(), buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void scanAggregateWrite() throws Exception {
         JobSpecification spec = new JobSpecification();
 
         // the scanner
@@ -566,6 +1138,133 @@ public class PushRuntimeTest {
         outFile.delete();
     }
 
+    @Test
+    public void etsUnnestWindowAggregateWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        IUnnestingFunctionFactory aggregFactory = new IntArrayUnnester(new int[] { 1, 1, 1, 2, 2, 3, 3, 3, 3 });
+        UnnestRuntimeFactory unnest = new UnnestRuntimeFactory(0, aggregFactory, new int[] { 0 });
+        RecordDescriptor unnestDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        // the row number within each partition
+        WindowAggregateRuntimeFactory rowNumber = new WindowAggregateRuntimeFactory(new int[] { 0 },
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE }, new int[] { 1 },
+                new IRunningAggregateFunctionFactory[] { new TupleCountRunningAggregateFunctionFactory() },
+                WindowAggregateRuntimeFactory.UNBOUNDED_PRECEDING, new int[] { 0, 1 });
+        RecordDescriptor rowNumberDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        // the count over the current and the previous tuple of the partition
+        WindowAggregateRuntimeFactory movingCount = new WindowAggregateRuntimeFactory(new int[] { 0 },
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE }, new int[] { 2 },
+                new IRunningAggregateFunctionFactory[] { new TupleCountRunningAggregateFunctionFactory() }, 1,
+                new int[] { 0, 1, 2 });
+        RecordDescriptor movingCountDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsUnnestWindowAggregateWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 1, 2 }, new IPrinterFactory[] {
+                IntegerPrinterFactory.INSTANCE, IntegerPrinterFactory.INSTANCE }, outFile,
+                PrinterBasedWriterFactory.INSTANCE, movingCountDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, unnest, rowNumber, movingCount, writer }, new RecordDescriptor[] {
+                        etsDesc, unnestDesc, rowNumberDesc, movingCountDesc, null });
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("1; 12; 23; 21; 12; 21; 12; 23; 24; 2", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsUnnestWindowRowsZeroWrite() throws Exception {
+        // more tuples than fit in one frame of the window
+        int n = 6000;
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            expected.append(i).append("; ").append(i).append("; ").append(i);
+        }
+        Assert.assertEquals(expected.toString(), runWindowSums("etsUnnestWindowRowsZeroWrite", n, 0));
+    }
+
+    @Test
+    public void etsUnnestWindowSeveralFramesWrite() throws Exception {
+        // the window spans two frames most of the time
+        int n = 6000;
+        int rowsPreceding = 3000;
+        StringBuilder expected = new StringBuilder();
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += i;
+            if (i > rowsPreceding) {
+                sum -= i - rowsPreceding - 1;
+            }
+            expected.append(i).append("; ").append(sum).append("; ").append(sum);
+        }
+        Assert.assertEquals(expected.toString(), runWindowSums("etsUnnestWindowSeveralFramesWrite", n,
+                rowsPreceding));
+    }
+
+    /**
+     * Runs two sums over a window of the integers from 0 to n - 1, one that
+     * removes the tuples leaving the window and one that steps over the
+     * whole window for each tuple.
+     */
+    private String runWindowSums(String name, int n, int rowsPreceding) throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        AssignRuntimeFactory assign = new AssignRuntimeFactory(new int[] { 0 },
+                new IEvaluatorFactory[] { new IntegerConstantEvalFactory(7) }, new int[] { 0 });
+        RecordDescriptor assignDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        UnnestRuntimeFactory unnest = new UnnestRuntimeFactory(1, new IntRangeBulkUnnester(n), new int[] { 0, 1 });
+        RecordDescriptor unnestDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        // a single partition, on the constant column
+        WindowAggregateRuntimeFactory sums = new WindowAggregateRuntimeFactory(new int[] { 0 },
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE }, new int[] { 2, 3 },
+                new IRunningAggregateFunctionFactory[] { new IntegerSumRunningAggregateFunctionFactory(1, true),
+                        new IntegerSumRunningAggregateFunctionFactory(1, false) }, rowsPreceding, new int[] { 0, 1,
+                        2, 3 });
+        RecordDescriptor sumsDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + name + ".out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 1, 2, 3 }, new IPrinterFactory[] {
+                IntegerPrinterFactory.INSTANCE, IntegerPrinterFactory.INSTANCE, IntegerPrinterFactory.INSTANCE },
+                outFile, PrinterBasedWriterFactory.INSTANCE, sumsDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, assign, unnest, sums, writer }, new RecordDescriptor[] { etsDesc,
+                        assignDesc, unnestDesc, sumsDesc, null });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        outFile.delete();
+        return buf.toString();
+    }
+
     @Test
     public void etsAssignScriptWrite() throws Exception {
         JobSpecification spec = new JobSpecification();
@@ -620,6 +1319,99 @@ public class PushRuntimeTest {
         outFile.delete();
     }
 
+    @Test
+    public void etsAssignFrameScriptWrite() throws Exception {
+        String command = getFrameScriptCommand();
+        if (command == null) {
+            return;
+        }
+        runFrameScript(command, false);
+        int started = ScriptProcessPool.getStartedProcessCount();
+        // the second run reuses the script process started by the first one
+        Assert.assertEquals("400; 3", runFrameScript(command, false));
+        Assert.assertEquals(started, ScriptProcessPool.getStartedProcessCount());
+    }
+
+    @Test
+    public void etsAssignFrameScriptDieWrite() throws Exception {
+        String command = getFrameScriptCommand();
+        if (command == null) {
+            return;
+        }
+        runFrameScript(command, false);
+        try {
+            // fails while the script output is pushed to the writer
+            runFrameScript(command, true);
+        } catch (Exception e) {
+            // expected
+        }
+        // the failed process is not given to the next job
+        int started = ScriptProcessPool.getStartedProcessCount();
+        Assert.assertEquals("400; 3", runFrameScript(command, false));
+        Assert.assertEquals(started + 1, ScriptProcessPool.getStartedProcessCount());
+    }
+
+    private static String getFrameScriptCommand() {
+        String osname = System.getProperty("os.name");
+        if (osname.equals("Linux")) {
+            return "bash target/testscripts/idframescript";
+        } else {
+            // don't know how to test
+            return null;
+        }
+    }
+
+    private String runFrameScript(String command, boolean die) throws Exception {
+        JobSpecification spec = new JobSpecification();
+        IntegerConstantEvalFactory const1 = new IntegerConstantEvalFactory(400);
+        IntegerConstantEvalFactory const2 = new IntegerConstantEvalFactory(3);
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        AssignRuntimeFactory assign = new AssignRuntimeFactory(new int[] { 0, 1 }, new IEvaluatorFactory[] { const1,
+                const2 }, new int[] { 0, 1 });
+        RecordDescriptor assignDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        FrameStreamingRuntimeFactory script = new FrameStreamingRuntimeFactory(command);
+        RecordDescriptor scriptDesc = assignDesc;
+        // lets no tuple through
+        StreamDieRuntimeFactory dieAfterNone = new StreamDieRuntimeFactory(new IntegerConstantEvalFactory(0), null,
+                BinaryIntegerInspectorImpl.INSTANCE);
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsAssignFrameScriptWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0, 1 }, new IPrinterFactory[] {
+                IntegerPrinterFactory.INSTANCE, IntegerPrinterFactory.INSTANCE }, outFile,
+                PrinterBasedWriterFactory.INSTANCE, scriptDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp;
+        if (die) {
+            algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0, new IPushRuntimeFactory[] { ets, assign,
+                    script, dieAfterNone, writer }, new RecordDescriptor[] { etsDesc, assignDesc, scriptDesc,
+                    scriptDesc, null });
+        } else {
+            algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0, new IPushRuntimeFactory[] { ets, assign,
+                    script, writer }, new RecordDescriptor[] { etsDesc, assignDesc, scriptDesc, null });
+        }
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        spec.addRoot(algebricksOp);
+        try {
+            AlgebricksHyracksIntegrationUtil.runJob(spec);
+            if (die) {
+                return null;
+            }
+            StringBuilder buf = new StringBuilder();
+            readFileToString(outFile, buf);
+            return buf.toString();
+        } finally {
+            outFile.delete();
+        }
+    }
+
     @Test
     public void scanSplitWrite() throws Exception {
         final int outputArity = 2;
@@ -723,62 +1515,497 @@ public class PushRuntimeTest {
     }
 
     @Test
-    public void etsAssignSubplanProjectWrite() throws Exception {
+    public void scanMicroSortBufferedWrite() throws Exception {
         JobSpecification spec = new JobSpecification();
-        IntegerConstantEvalFactory const1 = new IntegerConstantEvalFactory(400);
-        IntegerConstantEvalFactory const2 = new IntegerConstantEvalFactory(3);
 
-        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
-        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        // the scanner
+        FileSplit[] fileSplits = new FileSplit[1];
+        fileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/tpch0.001/nation.tbl")));
+        IFileSplitProvider splitProvider = new ConstantFileSplitProvider(fileSplits);
+        RecordDescriptor scannerDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, IntegerParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, splitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), scannerDesc);
 
-        AssignRuntimeFactory assign1 = new AssignRuntimeFactory(new int[] { 0 }, new IEvaluatorFactory[] { const1 },
-                new int[] { 0 });
-        RecordDescriptor assign1Desc = new RecordDescriptor(
-                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
 
-        NestedTupleSourceRuntimeFactory nts = new NestedTupleSourceRuntimeFactory();
+        // the algebricks op.
+        InMemorySortRuntimeFactory sort = new InMemorySortRuntimeFactory(new int[] { 1 }, null,
+                new IBinaryComparatorFactory[] { UTF8StringBinaryComparatorFactory.INSTANCE }, null);
+        RecordDescriptor sortDesc = scannerDesc;
 
-        AssignRuntimeFactory assign2 = new AssignRuntimeFactory(new int[] { 1 },
-                new IEvaluatorFactory[] { new IntegerAddEvalFactory(new ColumnAccessEvalFactory(0), const2) },
-                new int[] { 0, 1 });
-        RecordDescriptor assign2Desc = new RecordDescriptor(new ISerializerDeserializer[] {
-                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+        // same output as scanMicroSortWrite; the small buffer is handed to
+        // the background writer many times
+        String filePath = PATH_ACTUAL + SEPARATOR + "scanMicroSortBufferedWrite.out";
+        String resultFilePath = PATH_EXPECTED + SEPARATOR + "scanMicroSortWrite.out";
+        File outFile = new File(filePath);
+        BufferedFileSinkRuntimeFactory writer = new BufferedFileSinkRuntimeFactory(new int[] { 0, 1, 2, 3 },
+                new IBytePrinterFactory[] { IntegerPrinterFactory.INSTANCE, UTF8StringPrinterFactory.INSTANCE,
+                        IntegerPrinterFactory.INSTANCE, UTF8StringPrinterFactory.INSTANCE }, outFile, 256, true);
 
-        StreamProjectRuntimeFactory project1 = new StreamProjectRuntimeFactory(new int[] { 1 });
-        RecordDescriptor project1Desc = new RecordDescriptor(
-                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { sort, writer }, new RecordDescriptor[] { sortDesc, null });
 
-        AlgebricksPipeline pipeline = new AlgebricksPipeline(new IPushRuntimeFactory[] { nts, assign2, project1 },
-                new RecordDescriptor[] { assign1Desc, assign2Desc, project1Desc });
+        PartitionConstraintHelper.addPartitionCountConstraint(spec, algebricksOp, 1);
 
-        SubplanRuntimeFactory subplan = new SubplanRuntimeFactory(pipeline,
-                new INullWriterFactory[] { NoopNullWriterFactory.INSTANCE }, assign1Desc, null);
+        spec.connect(new OneToOneConnectorDescriptor(spec), scanner, 0, algebricksOp, 0);
 
-        RecordDescriptor subplanDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        compareFiles(filePath, resultFilePath);
+        outFile.delete();
+    }
+
+    @Test
+    public void scanMicroExternalSortWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] fileSplits = new FileSplit[1];
+        fileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/tpch0.001/orders.tbl")));
+        IFileSplitProvider splitProvider = new ConstantFileSplitProvider(fileSplits);
+        RecordDescriptor scannerDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, FloatSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE,
+                IntegerParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, FloatParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                IntegerParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, splitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), scannerDesc);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        // the algebricks op: a budget of 4 frames forces the sort to spill.
+        ExternalSortRuntimeFactory sort = new ExternalSortRuntimeFactory(new int[] { 8 }, null,
+                new IBinaryComparatorFactory[] { UTF8StringBinaryComparatorFactory.INSTANCE }, 4, new int[] { 0 });
+        RecordDescriptor sortDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        String fileName = "scanMicroExternalSortWrite.out";
+        String filePath = PATH_ACTUAL + SEPARATOR + fileName;
+        String resultFilePath = PATH_EXPECTED + SEPARATOR + fileName;
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                sortDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { sort, writer }, new RecordDescriptor[] { sortDesc, null });
+
+        PartitionConstraintHelper.addPartitionCountConstraint(spec, algebricksOp, 1);
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), scanner, 0, algebricksOp, 0);
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        compareFiles(filePath, resultFilePath);
+        outFile.delete();
+    }
+
+    @Test
+    public void scanMicroExternalSortOverBudgetWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] fileSplits = new FileSplit[1];
+        fileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/tpch0.001/orders.tbl")));
+        IFileSplitProvider splitProvider = new ConstantFileSplitProvider(fileSplits);
+        RecordDescriptor scannerDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, FloatSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE,
+                IntegerParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, FloatParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                IntegerParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, splitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), scannerDesc);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        // the algebricks op: the 4 frames of the sort leave no room in the
+        // budget for its output frame.
+        ExternalSortRuntimeFactory sort = new ExternalSortRuntimeFactory(new int[] { 8 }, null,
+                new IBinaryComparatorFactory[] { UTF8StringBinaryComparatorFactory.INSTANCE }, 4, new int[] { 0 });
+        RecordDescriptor sortDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "scanMicroExternalSortOverBudgetWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                sortDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { sort, writer }, new RecordDescriptor[] { sortDesc, null });
+        algebricksOp.setFrameBudget(4);
+
+        PartitionConstraintHelper.addPartitionCountConstraint(spec, algebricksOp, 1);
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), scanner, 0, algebricksOp, 0);
+
+        spec.addRoot(algebricksOp);
+        try {
+            AlgebricksHyracksIntegrationUtil.runJob(spec);
+            Assert.fail("The sort ran with more frames than the budget of its partition.");
+        } catch (Exception e) {
+            // expected
+        } finally {
+            outFile.delete();
+        }
+    }
+
+    @Test
+    public void scanTopKSortWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] fileSplits = new FileSplit[1];
+        fileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/tpch0.001/orders.tbl")));
+        IFileSplitProvider splitProvider = new ConstantFileSplitProvider(fileSplits);
+        RecordDescriptor scannerDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, FloatSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE,
+                IntegerParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, FloatParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                IntegerParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, splitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), scannerDesc);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        // the algebricks op.
+        TopKSortRuntimeFactory sort = new TopKSortRuntimeFactory(new int[] { 8 },
+                new IBinaryComparatorFactory[] { UTF8StringBinaryComparatorFactory.INSTANCE },
+                new IntegerConstantEvalFactory(10), null, BinaryIntegerInspectorImpl.INSTANCE, new int[] { 0 });
+        RecordDescriptor sortDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "scanTopKSortWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                sortDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { sort, writer }, new RecordDescriptor[] { sortDesc, null });
+
+        PartitionConstraintHelper.addPartitionCountConstraint(spec, algebricksOp, 1);
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), scanner, 0, algebricksOp, 0);
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("4261455324377841319301829183111533175", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsUnnestTopKSortUnboundedWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        UnnestRuntimeFactory unnest = new UnnestRuntimeFactory(0, new IntArrayUnnester(new int[] { 5, 3, 9, 1, 7 }),
+                new int[] { 0 });
+        RecordDescriptor unnestDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        // a limit meaning "all", which overflows with the offset
+        TopKSortRuntimeFactory sort = new TopKSortRuntimeFactory(new int[] { 0 },
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE },
+                new IntegerConstantEvalFactory(Integer.MAX_VALUE), new IntegerConstantEvalFactory(5),
+                BinaryIntegerInspectorImpl.INSTANCE, new int[] { 0 });
+        RecordDescriptor sortDesc = unnestDesc;
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsUnnestTopKSortUnboundedWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                sortDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, unnest, sort, writer }, new RecordDescriptor[] { etsDesc,
+                        unnestDesc, sortDesc, null });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("13579", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsAssignSubplanProjectWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+        IntegerConstantEvalFactory const1 = new IntegerConstantEvalFactory(400);
+        IntegerConstantEvalFactory const2 = new IntegerConstantEvalFactory(3);
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+
+        AssignRuntimeFactory assign1 = new AssignRuntimeFactory(new int[] { 0 }, new IEvaluatorFactory[] { const1 },
+                new int[] { 0 });
+        RecordDescriptor assign1Desc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        NestedTupleSourceRuntimeFactory nts = new NestedTupleSourceRuntimeFactory();
+
+        AssignRuntimeFactory assign2 = new AssignRuntimeFactory(new int[] { 1 },
+                new IEvaluatorFactory[] { new IntegerAddEvalFactory(new ColumnAccessEvalFactory(0), const2) },
+                new int[] { 0, 1 });
+        RecordDescriptor assign2Desc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        StreamProjectRuntimeFactory project1 = new StreamProjectRuntimeFactory(new int[] { 1 });
+        RecordDescriptor project1Desc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        AlgebricksPipeline pipeline = new AlgebricksPipeline(new IPushRuntimeFactory[] { nts, assign2, project1 },
+                new RecordDescriptor[] { assign1Desc, assign2Desc, project1Desc });
+
+        SubplanRuntimeFactory subplan = new SubplanRuntimeFactory(pipeline,
+                new INullWriterFactory[] { NoopNullWriterFactory.INSTANCE }, assign1Desc, null);
+
+        RecordDescriptor subplanDesc = new RecordDescriptor(new ISerializerDeserializer[] {
                 IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
 
         StreamProjectRuntimeFactory project2 = new StreamProjectRuntimeFactory(new int[] { 1 });
         RecordDescriptor project2Desc = new RecordDescriptor(
                 new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
 
-        String filePath = PATH_ACTUAL + SEPARATOR + "etsAssignSubplanProjectWrite.out";
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsAssignSubplanProjectWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                project2Desc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, assign1, subplan, project2, writer }, new RecordDescriptor[] {
+                        etsDesc, assign1Desc, subplanDesc, project2Desc, null });
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp, DEFAULT_NODES);
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("403", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsAssignSubplanCountWithProjectionWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+        IntegerConstantEvalFactory const1 = new IntegerConstantEvalFactory(400);
+        IntegerConstantEvalFactory const2 = new IntegerConstantEvalFactory(300);
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+
+        AssignRuntimeFactory assign1 = new AssignRuntimeFactory(new int[] { 0 }, new IEvaluatorFactory[] { const1 },
+                new int[] { 0 });
+        RecordDescriptor assign1Desc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        NestedTupleSourceRuntimeFactory nts = new NestedTupleSourceRuntimeFactory();
+
+        StreamSelectRuntimeFactory select = new StreamSelectRuntimeFactory(new IntegerGreaterThanEvalFactory(
+                new ColumnAccessEvalFactory(0), const2), null, BinaryBooleanInspectorImpl.INSTANCE);
+
+        AggregateRuntimeFactory agg = new AggregateRuntimeFactory(
+                new IAggregateFunctionFactory[] { new TupleCountAggregateFunctionFactory() });
+        RecordDescriptor aggDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        AlgebricksPipeline pipeline = new AlgebricksPipeline(new IPushRuntimeFactory[] { nts, select, agg },
+                new RecordDescriptor[] { assign1Desc, assign1Desc, aggDesc });
+
+        // keep only the count computed by the nested plan
+        SubplanRuntimeFactory subplan = new SubplanRuntimeFactory(pipeline,
+                new INullWriterFactory[] { NoopNullWriterFactory.INSTANCE }, assign1Desc, new int[] { 1 });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsAssignSubplanCountWithProjectionWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                aggDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, assign1, subplan, writer }, new RecordDescriptor[] { etsDesc,
+                        assign1Desc, aggDesc, null });
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp, DEFAULT_NODES);
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("1", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsUnnestSubplanLimitWrite() throws Exception {
+        runSubplanLimit("etsUnnestSubplanLimitWrite", false);
+    }
+
+    @Test
+    public void etsUnnestSubplanFusedLimitWrite() throws Exception {
+        runSubplanLimit("etsUnnestSubplanFusedLimitWrite", true);
+    }
+
+    /**
+     * Runs a nested plan with a limit for each of three outer tuples, so the
+     * limit is opened again for each of them. When fused, the limit is
+     * followed by a project that the pipeline assembler fuses with it.
+     */
+    private void runSubplanLimit(String name, boolean fused) throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        UnnestRuntimeFactory unnest1 = new UnnestRuntimeFactory(0, new IntArrayUnnester(new int[] { 1, 2, 3 }),
+                new int[] { 0 });
+        RecordDescriptor unnest1Desc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        NestedTupleSourceRuntimeFactory nts = new NestedTupleSourceRuntimeFactory();
+        UnnestRuntimeFactory unnest2 = new UnnestRuntimeFactory(1, new IntArrayUnnester(new int[] { 5, 6, 7 }),
+                new int[] { 0, 1 });
+        RecordDescriptor unnest2Desc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+        RecordDescriptor projectDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        AlgebricksPipeline pipeline;
+        if (fused) {
+            StreamLimitRuntimeFactory limit = new StreamLimitRuntimeFactory(new IntegerConstantEvalFactory(2),
+                    new IntegerConstantEvalFactory(1), null, BinaryIntegerInspectorImpl.INSTANCE);
+            StreamProjectRuntimeFactory project = new StreamProjectRuntimeFactory(new int[] { 1 });
+            pipeline = new AlgebricksPipeline(new IPushRuntimeFactory[] { nts, unnest2, limit, project },
+                    new RecordDescriptor[] { unnest1Desc, unnest2Desc, unnest2Desc, projectDesc });
+        } else {
+            StreamLimitRuntimeFactory limit = new StreamLimitRuntimeFactory(new IntegerConstantEvalFactory(2),
+                    new IntegerConstantEvalFactory(1), new int[] { 1 }, BinaryIntegerInspectorImpl.INSTANCE);
+            pipeline = new AlgebricksPipeline(new IPushRuntimeFactory[] { nts, unnest2, limit },
+                    new RecordDescriptor[] { unnest1Desc, unnest2Desc, projectDesc });
+        }
+
+        SubplanRuntimeFactory subplan = new SubplanRuntimeFactory(pipeline,
+                new INullWriterFactory[] { NoopNullWriterFactory.INSTANCE }, unnest1Desc, null);
+        RecordDescriptor subplanDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + name + ".out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0, 1 }, new IPrinterFactory[] {
+                IntegerPrinterFactory.INSTANCE, IntegerPrinterFactory.INSTANCE }, outFile,
+                PrinterBasedWriterFactory.INSTANCE, subplanDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, unnest1, subplan, writer }, new RecordDescriptor[] { etsDesc,
+                        unnest1Desc, subplanDesc, null });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("1; 61; 72; 62; 73; 63; 7", buf.toString());
+        outFile.delete();
+    }
+
+    /**
+     * Unnests enough outer tuples to fill several frames and runs a nested
+     * plan with an unnest and a limit for each of them. The outer tuples
+     * filtered out by the nested plan are padded with nulls, the others are
+     * joined with the first two unnested values, so the output has one tuple
+     * for each of the first 5000 outer tuples and two for each of the rest.
+     */
+    @Test
+    public void etsUnnestSubplanUnnestMultiFrameCountWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        UnnestRuntimeFactory unnest1 = new UnnestRuntimeFactory(0, new IntRangeBulkUnnester(10000), new int[] { 0 });
+        RecordDescriptor unnest1Desc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        NestedTupleSourceRuntimeFactory nts = new NestedTupleSourceRuntimeFactory();
+        StreamSelectRuntimeFactory select = new StreamSelectRuntimeFactory(new IntegerGreaterThanEvalFactory(
+                new ColumnAccessEvalFactory(0), new IntegerConstantEvalFactory(4999)), null,
+                BinaryBooleanInspectorImpl.INSTANCE);
+        UnnestRuntimeFactory unnest2 = new UnnestRuntimeFactory(1, new IntArrayUnnester(new int[] { 5, 6, 7 }),
+                new int[] { 0, 1 });
+        RecordDescriptor unnest2Desc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+        StreamLimitRuntimeFactory limit = new StreamLimitRuntimeFactory(new IntegerConstantEvalFactory(2), null,
+                new int[] { 1 }, BinaryIntegerInspectorImpl.INSTANCE);
+        RecordDescriptor limitDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        AlgebricksPipeline pipeline = new AlgebricksPipeline(new IPushRuntimeFactory[] { nts, select, unnest2, limit },
+                new RecordDescriptor[] { unnest1Desc, unnest1Desc, unnest2Desc, limitDesc });
+
+        SubplanRuntimeFactory subplan = new SubplanRuntimeFactory(pipeline,
+                new INullWriterFactory[] { NoopNullWriterFactory.INSTANCE }, unnest1Desc, null);
+        RecordDescriptor subplanDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        AggregateRuntimeFactory agg = new AggregateRuntimeFactory(
+                new IAggregateFunctionFactory[] { new TupleCountAggregateFunctionFactory() });
+        RecordDescriptor aggDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsUnnestSubplanUnnestMultiFrameCountWrite.out";
         File outFile = new File(filePath);
         SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
                 new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
-                project2Desc);
+                aggDesc);
 
         AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
-                new IPushRuntimeFactory[] { ets, assign1, subplan, project2, writer }, new RecordDescriptor[] {
-                        etsDesc, assign1Desc, subplanDesc, project2Desc, null });
-
-        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp, DEFAULT_NODES);
-
+                new IPushRuntimeFactory[] { ets, unnest1, subplan, agg, writer }, new RecordDescriptor[] { etsDesc,
+                        unnest1Desc, subplanDesc, aggDesc, null });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
         spec.addRoot(algebricksOp);
         AlgebricksHyracksIntegrationUtil.runJob(spec);
 
         StringBuilder buf = new StringBuilder();
         readFileToString(outFile, buf);
-        Assert.assertEquals("403", buf.toString());
+        Assert.assertEquals("15000", buf.toString());
         outFile.delete();
     }
 
@@ -859,6 +2086,323 @@ public class PushRuntimeTest {
         outFile.delete();
     }
 
+    @Test
+    public void scanMicroSortSerializableGbySelectWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] fileSplits = new FileSplit[1];
+        fileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/tpch0.001/customer.tbl")));
+        IFileSplitProvider splitProvider = new ConstantFileSplitProvider(fileSplits);
+        RecordDescriptor scannerDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, FloatSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, IntegerParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, FloatParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, splitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), scannerDesc);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        // the sort (by nation id)
+        RecordDescriptor sortDesc = scannerDesc;
+        InMemorySortRuntimeFactory sort = new InMemorySortRuntimeFactory(new int[] { 3 }, null,
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE }, null);
+
+        // the group-by
+        SerializableAccumulatingAggregatorFactory saaf = new SerializableAccumulatingAggregatorFactory(
+                new ISerializableAggregateFunctionFactory[] { new SerializableTupleCountAggregateFunctionFactory() },
+                new int[] { 3 }, new int[] {});
+        RecordDescriptor gbyDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+        MicroPreClusteredGroupRuntimeFactory gby = new MicroPreClusteredGroupRuntimeFactory(new int[] { 3 },
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE }, saaf, sortDesc, gbyDesc,
+                null);
+
+        // the algebricks op.
+        IEvaluatorFactory cond = new IntegerEqualsEvalFactory(new IntegerConstantEvalFactory(3),
+                new ColumnAccessEvalFactory(0)); // Canadian customers
+        StreamSelectRuntimeFactory select = new StreamSelectRuntimeFactory(cond, new int[] { 1 },
+                BinaryBooleanInspectorImpl.INSTANCE);
+        RecordDescriptor selectDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "scanSortSerializableGbySelectWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                selectDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { sort, gby, select, writer }, new RecordDescriptor[] { sortDesc, gbyDesc,
+                        selectDesc, null });
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), scanner, 0, algebricksOp, 0);
+        spec.addRoot(algebricksOp);
+
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("9", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void scanMicroHashGbySelectWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] fileSplits = new FileSplit[1];
+        fileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/tpch0.001/customer.tbl")));
+        IFileSplitProvider splitProvider = new ConstantFileSplitProvider(fileSplits);
+        RecordDescriptor scannerDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, FloatSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, IntegerParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, FloatParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, splitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), scannerDesc);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        // the hash group-by (by nation id), no sort needed
+        MicroHashGroupByRuntimeFactory gby = new MicroHashGroupByRuntimeFactory(new int[] { 3 }, new int[] {},
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE },
+                new IBinaryHashFunctionFactory[] { IntegerBinaryHashFunctionFactory.INSTANCE },
+                new ISerializableAggregateFunctionFactory[] { new SerializableTupleCountAggregateFunctionFactory() },
+                null);
+        RecordDescriptor gbyDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        // the algebricks op.
+        IEvaluatorFactory cond = new IntegerEqualsEvalFactory(new IntegerConstantEvalFactory(3),
+                new ColumnAccessEvalFactory(0)); // Canadian customers
+        StreamSelectRuntimeFactory select = new StreamSelectRuntimeFactory(cond, new int[] { 1 },
+                BinaryBooleanInspectorImpl.INSTANCE);
+        RecordDescriptor selectDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "scanMicroHashGbySelectWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                selectDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { gby, select, writer },
+                new RecordDescriptor[] { gbyDesc, selectDesc, null });
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), scanner, 0, algebricksOp, 0);
+        spec.addRoot(algebricksOp);
+
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("9", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void scanMicroHashGbySelectFrameBudgetWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // the scanner
+        FileSplit[] fileSplits = new FileSplit[1];
+        fileSplits[0] = new FileSplit(AlgebricksHyracksIntegrationUtil.NC1_ID, new FileReference(new File(
+                "data/tpch0.001/customer.tbl")));
+        IFileSplitProvider splitProvider = new ConstantFileSplitProvider(fileSplits);
+        RecordDescriptor scannerDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, FloatSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE });
+        IValueParserFactory[] valueParsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE, IntegerParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE, FloatParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                UTF8StringParserFactory.INSTANCE };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, splitProvider,
+                new DelimitedDataTupleParserFactory(valueParsers, '|'), scannerDesc);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        // the hash group-by (by nation id), no sort needed
+        MicroHashGroupByRuntimeFactory gby = new MicroHashGroupByRuntimeFactory(new int[] { 3 }, new int[] {},
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE },
+                new IBinaryHashFunctionFactory[] { IntegerBinaryHashFunctionFactory.INSTANCE },
+                new ISerializableAggregateFunctionFactory[] { new SerializableTupleCountAggregateFunctionFactory() },
+                null);
+        RecordDescriptor gbyDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        // the algebricks op.
+        IEvaluatorFactory cond = new IntegerEqualsEvalFactory(new IntegerConstantEvalFactory(3),
+                new ColumnAccessEvalFactory(0)); // Canadian customers
+        StreamSelectRuntimeFactory select = new StreamSelectRuntimeFactory(cond, new int[] { 1 },
+                BinaryBooleanInspectorImpl.INSTANCE);
+        RecordDescriptor selectDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "scanMicroHashGbySelectFrameBudgetWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                selectDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 1, 0,
+                new IPushRuntimeFactory[] { gby, select, writer },
+                new RecordDescriptor[] { gbyDesc, selectDesc, null });
+
+        // one output frame for the group-by and the select each, and one
+        // frame holding the 25 groups
+        algebricksOp.setFrameBudget(3);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), scanner, 0, algebricksOp, 0);
+        spec.addRoot(algebricksOp);
+
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("9", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsUnnestPartialHashGbyMergeSelectWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // every integer of the range twice, in two passes
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        UnnestRuntimeFactory unnestPass = new UnnestRuntimeFactory(0, new IntRangeBulkUnnester(2), new int[] { 0 });
+        RecordDescriptor unnestPassDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+        UnnestRuntimeFactory unnestValue = new UnnestRuntimeFactory(1, new IntRangeBulkUnnester(10000), new int[] {
+                0, 1 });
+        RecordDescriptor unnestValueDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        // partial counts, flushed each time the groups fill one frame
+        MicroHashGroupByRuntimeFactory partialGby = new MicroHashGroupByRuntimeFactory(new int[] { 1 },
+                new int[] {}, new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE },
+                new IBinaryHashFunctionFactory[] { IntegerBinaryHashFunctionFactory.INSTANCE },
+                new ISerializableAggregateFunctionFactory[] { new SerializableTupleCountAggregateFunctionFactory() },
+                true, 1, null);
+        RecordDescriptor partialGbyDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        // the merge of the partial counts
+        MicroHashGroupByRuntimeFactory mergeGby = new MicroHashGroupByRuntimeFactory(new int[] { 0 }, new int[] {},
+                new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE },
+                new IBinaryHashFunctionFactory[] { IntegerBinaryHashFunctionFactory.INSTANCE },
+                new ISerializableAggregateFunctionFactory[] { new SerializableIntegerSumAggregateFunctionFactory(1) },
+                null);
+        RecordDescriptor mergeGbyDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        IEvaluatorFactory cond = new IntegerEqualsEvalFactory(new IntegerConstantEvalFactory(7),
+                new ColumnAccessEvalFactory(0));
+        StreamSelectRuntimeFactory select = new StreamSelectRuntimeFactory(cond, new int[] { 1 },
+                BinaryBooleanInspectorImpl.INSTANCE);
+        RecordDescriptor selectDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsUnnestPartialHashGbyMergeSelectWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 0 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                selectDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, unnestPass, unnestValue, partialGby, mergeGby, select, writer },
+                new RecordDescriptor[] { etsDesc, unnestPassDesc, unnestValueDesc, partialGbyDesc, mergeGbyDesc,
+                        selectDesc, null });
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals("2", buf.toString());
+        outFile.delete();
+    }
+
+    @Test
+    public void etsUnnestPartialHashGbyFlushWrite() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // every key twice in a row, so that the key whose insertion flushes
+        // the groups is seen again right after the flush, in the same frame
+        EmptyTupleSourceRuntimeFactory ets = new EmptyTupleSourceRuntimeFactory();
+        RecordDescriptor etsDesc = new RecordDescriptor(new ISerializerDeserializer[] {});
+        int n = 10000;
+        int[] values = new int[2 * n];
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            values[2 * i] = i;
+            values[2 * i + 1] = i;
+            expected.append(2);
+        }
+        UnnestRuntimeFactory unnest = new UnnestRuntimeFactory(0, new IntArrayUnnester(values), new int[] { 0 });
+        RecordDescriptor unnestDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+        // partial counts, flushed several times since the groups fill one
+        // frame; every key must still be counted in a single group
+        MicroHashGroupByRuntimeFactory partialGby = new MicroHashGroupByRuntimeFactory(new int[] { 0 },
+                new int[] {}, new IBinaryComparatorFactory[] { IntegerBinaryComparatorFactory.INSTANCE },
+                new IBinaryHashFunctionFactory[] { IntegerBinaryHashFunctionFactory.INSTANCE },
+                new ISerializableAggregateFunctionFactory[] { new SerializableTupleCountAggregateFunctionFactory() },
+                true, 1, null);
+        RecordDescriptor partialGbyDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+        String filePath = PATH_ACTUAL + SEPARATOR + "etsUnnestPartialHashGbyFlushWrite.out";
+        File outFile = new File(filePath);
+        SinkWriterRuntimeFactory writer = new SinkWriterRuntimeFactory(new int[] { 1 },
+                new IPrinterFactory[] { IntegerPrinterFactory.INSTANCE }, outFile, PrinterBasedWriterFactory.INSTANCE,
+                partialGbyDesc);
+
+        AlgebricksMetaOperatorDescriptor algebricksOp = new AlgebricksMetaOperatorDescriptor(spec, 0, 0,
+                new IPushRuntimeFactory[] { ets, unnest, partialGby, writer }, new RecordDescriptor[] { etsDesc,
+                        unnestDesc, partialGbyDesc, null });
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, algebricksOp,
+                new String[] { AlgebricksHyracksIntegrationUtil.NC1_ID });
+
+        spec.addRoot(algebricksOp);
+        AlgebricksHyracksIntegrationUtil.runJob(spec);
+
+        StringBuilder buf = new StringBuilder();
+        readFileToString(outFile, buf);
+        Assert.assertEquals(expected.toString(), buf.toString());
+        outFile.delete();
+    }
+
     private static void readFileToString(File file, StringBuilder buf) throws Exception {
         BufferedReader result = new BufferedReader(new FileReader(file));
         boolean first = true;